@@ -11,12 +11,16 @@
  * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
  */
 
+
 package io.github.msdk.alignment.joinaligner;
 
 import java.util.ArrayList;
-import java.util.Hashtable;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -25,18 +29,31 @@ import com.google.common.collect.Range;
 
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.Feature;
 import io.github.msdk.datamodel.FeatureTable;
 import io.github.msdk.datamodel.FeatureTableRow;
 import io.github.msdk.datamodel.Sample;
 import io.github.msdk.datamodel.SimpleFeatureTable;
 import io.github.msdk.datamodel.SimpleFeatureTableRow;
-import io.github.msdk.util.FeatureTableUtil;
+import io.github.msdk.util.DataPointSorter;
+import io.github.msdk.util.FeatureTableIndex;
+import io.github.msdk.util.ParallelUtil;
 import io.github.msdk.util.tolerances.MzTolerance;
 import io.github.msdk.util.tolerances.RTTolerance;
 
 /**
+ * <p>
  * This class aligns feature tables based on a match score. The score is calculated based on the
  * mass and retention time of each peak using a set of tolerances.
+ * </p>
+ *
+ * <p>
+ * The feature tables are aligned one after another to the aligned feature table. The rows of each
+ * feature table are matched greedily, starting from the pair with the highest score, so that every
+ * row and every aligned row is used at most once. Rows without a match are added as new rows. If a
+ * {@link java.util.concurrent.ForkJoinPool ForkJoinPool} is given, the scores of each feature table
+ * are calculated in parallel on the pool. The result does not depend on the number of threads.
+ * </p>
  */
 public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
 
@@ -47,8 +64,11 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
   private final int rtWeight = 10;
   private final @Nonnull List<FeatureTable> featureTables;
   private final @Nonnull SimpleFeatureTable result;
-  private boolean canceled = false;
-  private int processedFeatures = 0, totalFeatures = 0;
+  private final @Nonnull FeatureTableIndex resultIndex = new FeatureTableIndex();
+  private final @Nullable ForkJoinPool pool;
+  private volatile boolean canceled = false;
+  private final AtomicInteger processedFeatures = new AtomicInteger();
+  private int totalFeatures = 0;
 
   // ID counter for the new feature table
   private int newRowID = 1;
@@ -64,9 +84,28 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
    */
   public JoinAlignerMethod(@Nonnull List<FeatureTable> featureTables,
       @Nonnull MzTolerance mzTolerance, @Nonnull RTTolerance rtTolerance) {
+    this(featureTables, mzTolerance, rtTolerance, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for JoinAlignerMethod, which calculates the match scores in parallel on the given
+   * {@link java.util.concurrent.ForkJoinPool ForkJoinPool}.
+   * </p>
+   *
+   * @param featureTables a {@link java.util.List} object.
+   * @param mzTolerance an object that implements the MZTolerance interface.
+   * @param rtTolerance a {@link io.github.msdk.util.tolerances.RTTolerance} object.
+   * @param pool the {@link java.util.concurrent.ForkJoinPool ForkJoinPool} calculating the scores,
+   *        or null to calculate them on the calling thread
+   */
+  public JoinAlignerMethod(@Nonnull List<FeatureTable> featureTables,
+      @Nonnull MzTolerance mzTolerance, @Nonnull RTTolerance rtTolerance,
+      @Nullable ForkJoinPool pool) {
     this.featureTables = featureTables;
     this.mzTolerance = mzTolerance;
     this.rtTolerance = rtTolerance;
+    this.pool = pool;
 
     // Make a new feature table
     this.result = new SimpleFeatureTable();
@@ -77,9 +116,10 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
   @Override
   public FeatureTable execute() throws MSDKException {
 
-    // Calculate number of feature to process.
+    // Calculate number of feature to process. Each feature will be processed twice: first for
+    // score calculation and then for actual alignment.
     for (FeatureTable featureTable : featureTables) {
-      totalFeatures += featureTable.getRows().size();
+      totalFeatures += featureTable.getRows().size() * 2;
     }
 
     // Add all samples
@@ -89,86 +129,49 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
     }
     result.setSamples(allSamples);
 
+    final DataPointSorter.Workspace sortWorkspace = new DataPointSorter.Workspace();
+
     // Iterate through all feature tables
     for (FeatureTable featureTable : featureTables) {
 
-      // Create a sorted array of matching scores between two rows
-      List<RowVsRowScore> scoreSet = new ArrayList<RowVsRowScore>();
-
-      // Calculate scores for all possible alignments of this row
-      for (FeatureTableRow row : featureTable.getRows()) {
-
-        final Double mz = row.getMz();
-        if (mz == null)
-          continue;
-
-        // Calculate the m/z range limit for the current row
-        Range<Double> mzRange = mzTolerance.getToleranceRange(mz);
-
-        // Continue if no chromatography info is available
-        Float rt = row.getRT();
-        if (rt == null)
-          continue;
-
-        // Calculate the RT range limit for the current row
-        Range<Float> rtRange = rtTolerance.getToleranceRange(rt);
-
-        // Get all rows of the aligned feature table within the m/z and
-        // RT limits
-        List<FeatureTableRow> candidateRows =
-            FeatureTableUtil.getRowsInsideRange(result, rtRange, mzRange);
-
-        // Calculate scores and store them
-        for (FeatureTableRow candidateRow : candidateRows) {
-
-          // Check charge
-          Integer charge1 = row.getCharge();
-          Integer charge2 = candidateRow.getCharge();
-          if ((charge1 != null) && (charge2 != null) && (!charge1.equals(charge2)))
-            continue;
-
-          // Calculate score
-          double mzLength = mzRange.upperEndpoint() - mzRange.lowerEndpoint();
-          double rtLength = rtRange.upperEndpoint() - rtRange.lowerEndpoint();
-          RowVsRowScore score = new RowVsRowScore(row, (SimpleFeatureTableRow) candidateRow, mzLength / 2.0, mzWeight,
-              rtLength / 2.0, rtWeight);
-
-          // Add the score to the array
-          scoreSet.add(score);
-
-        }
-
-        // processedFeatures++;
+      final List<FeatureTableRow> rows = featureTable.getRows();
 
-        if (canceled)
-          return null;
-      }
+      // Calculate scores for all possible alignments of the rows
+      final RowVsRowScores scores = calculateScores(rows);
+      if (canceled)
+        return null;
 
-      // Create a table of mappings for best scores
-      Hashtable<FeatureTableRow, SimpleFeatureTableRow> alignmentMapping = new Hashtable<>();
+      // Create a table of mappings for best scores. Both the rows and the aligned rows can only
+      // be used once.
+      final FeatureTableRow alignmentMapping[] = new FeatureTableRow[rows.size()];
+      final Set<FeatureTableRow> mappedAlignedRows =
+          Collections.newSetFromMap(new IdentityHashMap<>());
 
       // Iterate scores by descending order
-      Iterator<RowVsRowScore> scoreIterator = scoreSet.iterator();
-      while (scoreIterator.hasNext()) {
-        RowVsRowScore score = scoreIterator.next();
+      for (int position : scores.getDescendingOrder(sortWorkspace)) {
+        final int rowIndex = scores.getRowIndex(position);
 
         // Check if the row is already mapped
-        if (alignmentMapping.containsKey(score.getFeatureTableRow()))
+        if (alignmentMapping[rowIndex] != null)
           continue;
 
         // Check if the aligned row is already filled
-        if (alignmentMapping.containsValue(score.getAlignedRow()))
+        final FeatureTableRow alignedRow = scores.getAlignedRow(position);
+        if (!mappedAlignedRows.add(alignedRow))
           continue;
 
-        alignmentMapping.put(score.getFeatureTableRow(), score.getAlignedRow());
+        alignmentMapping[rowIndex] = alignedRow;
       }
 
       // Align all rows using the mapping
-      for (FeatureTableRow sourceRow : featureTable.getRows()) {
-        SimpleFeatureTableRow targetRow = alignmentMapping.get(sourceRow);
+      final List<Sample> samples = featureTable.getSamples();
+      for (int i = 0; i < rows.size(); i++) {
+        final FeatureTableRow sourceRow = rows.get(i);
+        SimpleFeatureTableRow targetRow = (SimpleFeatureTableRow) alignmentMapping[i];
 
         // If we have no mapping for this row, add a new one
-        if (targetRow == null) {
+        final boolean newRow = (targetRow == null);
+        if (newRow) {
           targetRow = new SimpleFeatureTableRow(result);
           result.addRow(targetRow);
 
@@ -177,15 +180,23 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
           if (sourceCharge != null)
             targetRow.setCharge(sourceCharge);
 
-          List<Sample> samples = featureTable.getSamples();
-          for (Sample s : samples) {
-            targetRow.setFeature(s, sourceRow.getFeature(s));
-          }
-
           newRowID++;
         }
 
-        processedFeatures++;
+        // Add all features from the original row to the aligned row
+        for (Sample s : samples) {
+          Feature feature = sourceRow.getFeature(s);
+          if (feature != null)
+            targetRow.setFeature(s, feature);
+        }
+
+        // The m/z and RT of the row changed with the new features
+        if (newRow)
+          resultIndex.addRow(targetRow);
+        else
+          resultIndex.updateRow(targetRow);
+
+        processedFeatures.incrementAndGet();
       }
 
       if (canceled)
@@ -201,7 +212,7 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
   @Override
   @Nullable
   public Float getFinishedPercentage() {
-    return totalFeatures == 0 ? null : (float) processedFeatures / totalFeatures;
+    return totalFeatures == 0 ? null : (float) processedFeatures.get() / totalFeatures;
   }
 
   /** {@inheritDoc} */
@@ -217,4 +228,82 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
     canceled = true;
   }
 
+  /**
+   * Calculates the scores between the given rows and the rows of the aligned feature table. The
+   * rows are split into consecutive chunks, and the scores of the chunks are concatenated in order,
+   * so the result is the same with or without the pool.
+   */
+  private RowVsRowScores calculateScores(@Nonnull List<FeatureTableRow> rows)
+      throws MSDKException {
+
+    if ((pool == null) || (rows.size() < 2))
+      return calculateScores(rows, 0, rows.size());
+
+    // Use several chunks per thread to balance the load
+    final int numOfChunks = Math.min(rows.size(), pool.getParallelism() * 4);
+    final RowVsRowScores chunkScores[] = new RowVsRowScores[numOfChunks];
+    ParallelUtil.run(pool, numOfChunks, chunk -> {
+      final int from = (int) ((long) rows.size() * chunk / numOfChunks);
+      final int to = (int) ((long) rows.size() * (chunk + 1) / numOfChunks);
+      chunkScores[chunk] = calculateScores(rows, from, to);
+    });
+
+    int totalScores = 0;
+    for (RowVsRowScores s : chunkScores)
+      totalScores += s.size();
+    final RowVsRowScores scores = new RowVsRowScores(totalScores);
+    for (RowVsRowScores s : chunkScores)
+      scores.addAll(s);
+    return scores;
+  }
+
+  private RowVsRowScores calculateScores(@Nonnull List<FeatureTableRow> rows, int from, int to) {
+
+    final RowVsRowScores scores = new RowVsRowScores();
+
+    for (int i = from; i < to; i++) {
+
+      if (canceled)
+        break;
+
+      final int rowIndex = i;
+      final FeatureTableRow row = rows.get(i);
+      processedFeatures.incrementAndGet();
+
+      final Double mz = row.getMz();
+      if (mz == null)
+        continue;
+
+      // Calculate the m/z range limit for the current row
+      Range<Double> mzRange = mzTolerance.getToleranceRange(mz);
+
+      // Continue if no chromatography info is available
+      Float rt = row.getRT();
+      if (rt == null)
+        continue;
+
+      // Calculate the RT range limit for the current row
+      Range<Float> rtRange = rtTolerance.getToleranceRange(rt);
+
+      final double mzLength = mzRange.upperEndpoint() - mzRange.lowerEndpoint();
+      final double rtLength = rtRange.upperEndpoint() - rtRange.lowerEndpoint();
+      final Integer charge1 = row.getCharge();
+
+      // Calculate scores for all rows of the aligned feature table within the m/z and RT limits
+      resultIndex.forEachRowInsideRange(rtRange, mzRange, (candidateRow, candidateMz,
+          candidateRt) -> {
+
+        // Check charge
+        Integer charge2 = candidateRow.getCharge();
+        if ((charge1 != null) && (charge2 != null) && (!charge1.equals(charge2)))
+          return;
+
+        scores.add(rowIndex, mz, rt, candidateRow, candidateMz, candidateRt, mzLength / 2.0,
+            mzWeight, rtLength / 2.0, rtWeight);
+      });
+    }
+
+    return scores;
+  }
+
 }
@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.alignment.joinaligner;
+
+import java.util.Arrays;
+
+import io.github.msdk.datamodel.FeatureTableRow;
+import io.github.msdk.util.DataPointSorter;
+
+/**
+ * This class holds the scores between the rows of a feature table and the rows of the aligned
+ * feature table in primitive arrays. Each score is stored with the index of the feature table row
+ * and the aligned row it belongs to. The higher the score, the better the match.
+ */
+class RowVsRowScores {
+
+  private int size = 0;
+  private double scores[];
+  private int rowIndices[];
+  private FeatureTableRow alignedRows[];
+
+  RowVsRowScores() {
+    this(16);
+  }
+
+  RowVsRowScores(int capacity) {
+    capacity = Math.max(capacity, 1);
+    scores = new double[capacity];
+    rowIndices = new int[capacity];
+    alignedRows = new FeatureTableRow[capacity];
+  }
+
+  /**
+   * Calculates the score between a row of the feature table and a row of the aligned feature
+   * table, and adds it to the list.
+   */
+  void add(int rowIndex, double mz1, float rt1, FeatureTableRow alignedRow, double mz2, float rt2,
+      double mzMaxDiff, double mzWeight, double rtMaxDiff, double rtWeight) {
+    final double mzDiff = Math.abs(mz1 - mz2);
+    final double rtDiff = Math.abs(rt1 - rt2);
+    final double score =
+        ((1 - mzDiff / mzMaxDiff) * mzWeight) + ((1 - rtDiff / rtMaxDiff) * rtWeight);
+
+    ensureCapacity(size + 1);
+    scores[size] = score;
+    rowIndices[size] = rowIndex;
+    alignedRows[size] = alignedRow;
+    size++;
+  }
+
+  /**
+   * Appends all scores of the other list to this one.
+   */
+  void addAll(RowVsRowScores other) {
+    ensureCapacity(size + other.size);
+    System.arraycopy(other.scores, 0, scores, size, other.size);
+    System.arraycopy(other.rowIndices, 0, rowIndices, size, other.size);
+    System.arraycopy(other.alignedRows, 0, alignedRows, size, other.size);
+    size += other.size;
+  }
+
+  /**
+   * Returns the positions of the scores in descending order of the score. Equal scores keep the
+   * order in which they were added.
+   */
+  int[] getDescendingOrder(DataPointSorter.Workspace workspace) {
+    final double keys[] = new double[size];
+    for (int i = 0; i < size; i++)
+      keys[i] = -scores[i];
+    final int order[] = new int[size];
+    DataPointSorter.sortIndices(keys, order, size, workspace);
+    return order;
+  }
+
+  int size() {
+    return size;
+  }
+
+  double getScore(int position) {
+    return scores[position];
+  }
+
+  int getRowIndex(int position) {
+    return rowIndices[position];
+  }
+
+  FeatureTableRow getAlignedRow(int position) {
+    return alignedRows[position];
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= scores.length)
+      return;
+    final int newCapacity = Math.max(capacity, scores.length * 2);
+    scores = Arrays.copyOf(scores, newCapacity);
+    rowIndices = Arrays.copyOf(rowIndices, newCapacity);
+    alignedRows = Arrays.copyOf(alignedRows, newCapacity);
+  }
+
+}
@@ -15,7 +15,9 @@ package io.github.msdk.alignment.joinaligner;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Assert;
 import org.junit.Ignore;
@@ -23,7 +25,14 @@ import org.junit.Test;
 
 import io.github.msdk.alignment.joinaligner.JoinAlignerMethod;
 import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.datamodel.FeatureTableRow;
+import io.github.msdk.datamodel.Sample;
+import io.github.msdk.datamodel.SimpleFeature;
+import io.github.msdk.datamodel.SimpleFeatureTable;
+import io.github.msdk.datamodel.SimpleFeatureTableRow;
+import io.github.msdk.datamodel.SimpleSample;
 import io.github.msdk.io.mztab.MzTabFileImportMethod;
+import io.github.msdk.util.tolerances.ConstantPpmTolerance;
 import io.github.msdk.util.tolerances.MaximumMzTolerance;
 import io.github.msdk.util.tolerances.MzTolerance;
 import io.github.msdk.util.tolerances.RTTolerance;
@@ -65,4 +74,67 @@ public class JoinAlignerMethodTest {
 
     featureTable.dispose();
   }
+
+  /**
+   * Creates a feature table with one sample. The features of all tables are placed on the same grid,
+   * shifted slightly depending on the sample, and each table misses a different part of them.
+   */
+  private static FeatureTable createFeatureTable(int sampleIndex, int numOfFeatures) {
+    Sample sample = new SimpleSample("Sample " + sampleIndex);
+    SimpleFeatureTable table = new SimpleFeatureTable();
+    table.setSamples(Collections.singletonList(sample));
+    for (int i = 0; i < numOfFeatures; i++) {
+      if ((i + sampleIndex) % 7 == 0)
+        continue;
+      SimpleFeature feature = new SimpleFeature();
+      feature.setMz(100.0 + i * 0.5 + sampleIndex * 0.0001);
+      feature.setRetentionTime(60f + (i % 50) * 10f + sampleIndex * 0.5f);
+      SimpleFeatureTableRow row = new SimpleFeatureTableRow(table);
+      row.setFeature(sample, feature);
+      table.addRow(row);
+    }
+    return table;
+  }
+
+  @Test
+  public void testSyntheticTables() throws Exception {
+
+    List<FeatureTable> featureTables = new ArrayList<FeatureTable>();
+    List<Sample> samples = new ArrayList<>();
+    for (int s = 0; s < 5; s++) {
+      featureTables.add(createFeatureTable(s, 1000));
+      samples.addAll(featureTables.get(s).getSamples());
+    }
+    MzTolerance mzTolerance = new ConstantPpmTolerance(5.0);
+    RTTolerance rtTolerance = new RTTolerance(2f, false);
+
+    JoinAlignerMethod method = new JoinAlignerMethod(featureTables, mzTolerance, rtTolerance);
+    FeatureTable serialTable = method.execute();
+    Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+
+    // Every feature of the grid is found, with the features of all samples that contain it
+    Assert.assertEquals(1000, serialTable.getRows().size());
+    for (FeatureTableRow row : serialTable.getRows()) {
+      int index = (int) Math.round((row.getMz() - 100.0) / 0.5);
+      for (int s = 0; s < samples.size(); s++)
+        Assert.assertEquals((index + s) % 7 != 0, row.getFeature(samples.get(s)) != null);
+    }
+
+    // The parallel alignment gives the same result
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      method = new JoinAlignerMethod(featureTables, mzTolerance, rtTolerance, pool);
+      FeatureTable parallelTable = method.execute();
+      Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+      Assert.assertEquals(serialTable.getRows().size(), parallelTable.getRows().size());
+      for (int r = 0; r < serialTable.getRows().size(); r++) {
+        for (Sample sample : samples) {
+          Assert.assertSame(serialTable.getRows().get(r).getFeature(sample),
+              parallelTable.getRows().get(r).getFeature(sample));
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
 }
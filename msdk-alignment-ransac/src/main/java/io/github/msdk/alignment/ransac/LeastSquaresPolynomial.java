@@ -0,0 +1,167 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.alignment.ransac;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.math.analysis.polynomials.PolynomialFunction;
+
+/**
+ * <p>
+ * A polynomial fitted to a set of points by linear least squares. The normal equations are solved
+ * directly, which gives the same model as an iterative optimizer for a fraction of the cost. To keep
+ * the equations well conditioned, the polynomial is fitted to the x values shifted to their mean and
+ * scaled to the interval [-1, 1].
+ * </p>
+ */
+class LeastSquaresPolynomial {
+
+  private final double center, scale;
+  private final double coefficients[];
+
+  private LeastSquaresPolynomial(double center, double scale, double coefficients[]) {
+    this.center = center;
+    this.scale = scale;
+    this.coefficients = coefficients;
+  }
+
+  /**
+   * Fits a polynomial of the given degree to the points, whose x and y values are given in the two
+   * arrays.
+   *
+   * @return the polynomial, or null if the points do not determine a polynomial of this degree
+   */
+  static @Nullable LeastSquaresPolynomial fit(@Nonnull double x[], @Nonnull double y[],
+      int numOfPoints, int degree) {
+    return fit(x, y, null, numOfPoints, degree);
+  }
+
+  /**
+   * Fits a polynomial of the given degree to the points with the given indices.
+   *
+   * @param points the indices of the points in x and y, or null to use the first numOfPoints
+   * @return the polynomial, or null if the points do not determine a polynomial of this degree
+   */
+  static @Nullable LeastSquaresPolynomial fit(@Nonnull double x[], @Nonnull double y[],
+      @Nullable int points[], int numOfPoints, int degree) {
+
+    final int numOfTerms = degree + 1;
+    if (numOfPoints < numOfTerms)
+      return null;
+
+    double center = 0;
+    for (int i = 0; i < numOfPoints; i++)
+      center += x[points == null ? i : points[i]];
+    center /= numOfPoints;
+    double scale = 0;
+    for (int i = 0; i < numOfPoints; i++)
+      scale = Math.max(scale, Math.abs(x[points == null ? i : points[i]] - center));
+    if (scale == 0)
+      return null;
+
+    // Sums of the powers of u and of the powers of u multiplied by y
+    final double powerSums[] = new double[2 * degree + 1];
+    final double ySums[] = new double[numOfTerms];
+    for (int i = 0; i < numOfPoints; i++) {
+      final int point = (points == null) ? i : points[i];
+      final double u = (x[point] - center) / scale;
+      double power = 1;
+      for (int p = 0; p <= 2 * degree; p++) {
+        powerSums[p] += power;
+        if (p < numOfTerms)
+          ySums[p] += power * y[point];
+        power *= u;
+      }
+    }
+
+    // Normal equations, solved by Gaussian elimination with partial pivoting
+    final double matrix[][] = new double[numOfTerms][numOfTerms + 1];
+    for (int row = 0; row < numOfTerms; row++) {
+      for (int column = 0; column < numOfTerms; column++)
+        matrix[row][column] = powerSums[row + column];
+      matrix[row][numOfTerms] = ySums[row];
+    }
+    final double coefficients[] = solve(matrix, numOfTerms);
+    if (coefficients == null)
+      return null;
+    return new LeastSquaresPolynomial(center, scale, coefficients);
+  }
+
+  /**
+   * Returns the value of the polynomial at the given x.
+   */
+  double value(double x) {
+    final double u = (x - center) / scale;
+    double result = 0;
+    for (int i = coefficients.length - 1; i >= 0; i--)
+      result = result * u + coefficients[i];
+    return result;
+  }
+
+  /**
+   * Expands the polynomial into a {@link org.apache.commons.math.analysis.polynomials.PolynomialFunction}
+   * of x.
+   */
+  @Nonnull
+  PolynomialFunction toPolynomialFunction() {
+    // Substitute u = (x - center) / scale and collect the powers of x
+    final double result[] = new double[coefficients.length];
+    final double term[] = new double[coefficients.length];
+    term[0] = 1;
+    for (int i = 0; i < coefficients.length; i++) {
+      for (int p = 0; p <= i; p++)
+        result[p] += coefficients[i] * term[p];
+      // Multiply the term by (x - center) / scale
+      for (int p = i + 1; p > 0; p--) {
+        if (p < term.length)
+          term[p] = (term[p - 1] - center * term[p]) / scale;
+      }
+      term[0] = -center * term[0] / scale;
+    }
+    return new PolynomialFunction(result);
+  }
+
+  private static @Nullable double[] solve(double matrix[][], int size) {
+    for (int column = 0; column < size; column++) {
+      int pivot = column;
+      for (int row = column + 1; row < size; row++) {
+        if (Math.abs(matrix[row][column]) > Math.abs(matrix[pivot][column]))
+          pivot = row;
+      }
+      // The equations were scaled, so the diagonal of a regular system is close to the number
+      // of points
+      if (Math.abs(matrix[pivot][column]) < 1E-12 * Math.abs(matrix[0][0]))
+        return null;
+      final double swap[] = matrix[column];
+      matrix[column] = matrix[pivot];
+      matrix[pivot] = swap;
+      for (int row = column + 1; row < size; row++) {
+        final double factor = matrix[row][column] / matrix[column][column];
+        for (int c = column; c <= size; c++)
+          matrix[row][c] -= factor * matrix[column][c];
+      }
+    }
+    final double solution[] = new double[size];
+    for (int row = size - 1; row >= 0; row--) {
+      double sum = matrix[row][size];
+      for (int c = row + 1; c < size; c++)
+        sum -= matrix[row][c] * solution[c];
+      solution[row] = sum / matrix[row][row];
+    }
+    return solution;
+  }
+
+}
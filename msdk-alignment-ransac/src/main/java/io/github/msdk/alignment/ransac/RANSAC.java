@@ -13,15 +13,16 @@
  */
 package io.github.msdk.alignment.ransac;
 
-import com.google.common.collect.Range;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import org.apache.commons.math.analysis.polynomials.PolynomialFunction;
-import org.apache.commons.math.optimization.fitting.PolynomialFitter;
-import org.apache.commons.math.optimization.general.GaussNewtonOptimizer;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.Nullable;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKRuntimeException;
+import io.github.msdk.util.ParallelUtil;
 
 /**
  * input: data - a set of observed data points n - the minimum number of data
@@ -31,16 +32,61 @@ import org.apache.commons.math.optimization.general.GaussNewtonOptimizer;
  * fits well to data
  *
  * output: model which best fit the data
+ *
+ * <p>
+ * Each iteration draws its points with its own random generator, seeded from
+ * the seed of the RANSAC and the number of the iteration, so the result is
+ * reproducible and does not depend on the number of threads. The iterations run
+ * in batches, in parallel if a {@link java.util.concurrent.ForkJoinPool
+ * ForkJoinPool} is given. After each batch, the number of iterations is reduced
+ * to the number needed to find an outlier-free sample with 99% confidence, given
+ * the ratio of inliers of the best model so far.
+ * </p>
  */
 public class RANSAC {
 
+    /** Number of iterations evaluated before the stopping criterion is checked */
+    private static final int BATCH_SIZE = 256;
+
+    /** Probability of drawing at least one sample without outliers */
+    private static final double CONFIDENCE = 0.99;
+
     private int n;
     private double d = 1;
     private int k = 0;
-    private int AlsoNumber;
     private final double t;
     private final boolean Linear;
     private final double dataPointsRate;
+    private final long seed;
+    private final @Nullable ForkJoinPool pool;
+
+    // Data points sorted by RT
+    private double x[], y[];
+    private int firstHalfEnd, secondHalfStart;
+
+    /**
+     * The best model of a set of iterations: the number of the iteration, the
+     * number of points fitting the model and the polynomial itself.
+     */
+    private static class Model {
+        int iteration = -1;
+        int numOfInliers;
+        int sample[];
+        LeastSquaresPolynomial polynomial;
+
+        void merge(Model other) {
+            if ((other.iteration < 0) || ((iteration >= 0)
+                && ((numOfInliers > other.numOfInliers)
+                    || ((numOfInliers == other.numOfInliers)
+                        && (iteration < other.iteration))))) {
+                return;
+            }
+            iteration = other.iteration;
+            numOfInliers = other.numOfInliers;
+            sample = other.sample;
+            polynomial = other.polynomial;
+        }
+    }
 
     /**
      * <p>Constructor for RANSAC.</p>
@@ -50,6 +96,22 @@ public class RANSAC {
      * @param dataPointsRate a double.
      */
     public RANSAC(double t, boolean linear, double dataPointsRate) {
+        this(t, linear, dataPointsRate, System.nanoTime(), null);
+    }
+
+    /**
+     * <p>Constructor for RANSAC, which draws the random points from the given
+     * seed and runs the iterations on the given pool.</p>
+     *
+     * @param t a double.
+     * @param linear a boolean.
+     * @param dataPointsRate a double.
+     * @param seed the seed of the random generators.
+     * @param pool the {@link java.util.concurrent.ForkJoinPool ForkJoinPool}
+     * running the iterations, or null to run them on the calling thread
+     */
+    public RANSAC(double t, boolean linear, double dataPointsRate, long seed,
+        @Nullable ForkJoinPool pool) {
 
         this.t = t;
 
@@ -61,6 +123,8 @@ public class RANSAC {
             this.dataPointsRate = dataPointsRate;
         }
 
+        this.seed = seed;
+        this.pool = pool;
     }
 
     /**
@@ -105,10 +169,22 @@ public class RANSAC {
     private double getK() {
         double w = 0.1;
         double b = Math.pow(w, n);
-        return Math.log10(1 - 0.99) / Math.log10(1 - b)
+        return Math.log10(1 - CONFIDENCE) / Math.log10(1 - b)
             + (Math.sqrt(1 - b) / b);
     }
 
+    /**
+     * Calculate the number of trials required to select a subset of n good data
+     * points, if the given ratio of the data points are inliers.
+     */
+    private double getAdaptiveK(double inlierRatio) {
+        double b = Math.pow(inlierRatio, n);
+        if (b >= 1) {
+            return 1;
+        }
+        return Math.log(1 - CONFIDENCE) / Math.log(1 - b);
+    }
+
     /**
      * RANSAC algorithm
      *
@@ -116,178 +192,192 @@ public class RANSAC {
      * alignments.
      */
     public void ransac(List<AlignStructMol> data) {
-        double besterr = 9.9E99;
 
-        for (int iterations = 0; iterations < k; iterations++) {
-            AlsoNumber = n;
-            // Get the initial points
-            boolean initN = getInitN(data);
-            if (!initN) {
-                continue;
-            }
+        for (AlignStructMol alignStruct : data) {
+            alignStruct.Aligned = false;
+            alignStruct.ransacAlsoInLiers = false;
+            alignStruct.ransacMaybeInLiers = false;
+        }
+        if (data.size() <= n) {
+            return;
+        }
 
-            // Calculate the model
-            fittPolinomialFunction(data, Linear);
-
-            // If the model has the minimun number of points
-            if (AlsoNumber >= d) {
-                // Get the error of the model based on the number of points
-                double error = 9.9E99;
-                try {
-                    error = newError(data);
-                } catch (Exception ex) {
-                    Logger.getLogger(RANSAC.class.getName()).log(Level.SEVERE,
-                        null, ex);
-                }
+        // Sort the points once and split them into two halves of the RT range
+        Collections.sort(data, new AlignStructMol());
+        x = new double[data.size()];
+        y = new double[data.size()];
+        for (int i = 0; i < data.size(); i++) {
+            x[i] = data.get(i).RT;
+            y[i] = data.get(i).RT2;
+        }
+        final double middle = ((x[x.length - 1] - x[0]) / 2) + x[0];
+        firstHalfEnd = 0;
+        while (firstHalfEnd < x.length && x[firstHalfEnd] <= middle) {
+            firstHalfEnd++;
+        }
+        secondHalfStart = firstHalfEnd;
+        while (secondHalfStart > 0 && x[secondHalfStart - 1] >= middle) {
+            secondHalfStart--;
+        }
 
-                // If the error is less than the error of the last model
-                if (error < besterr) {
-                    besterr = error;
-                    for (int i = 0; i < data.size(); i++) {
-                        AlignStructMol alignStruct = data.get(i);
-                        if (alignStruct.ransacAlsoInLiers
-                            || alignStruct.ransacMaybeInLiers) {
-                            alignStruct.Aligned = true;
-                        } else {
-                            alignStruct.Aligned = false;
-                        }
-
-                        alignStruct.ransacAlsoInLiers = false;
-                        alignStruct.ransacMaybeInLiers = false;
-
-                    }
-                }
-            }
-            // remove the model
-            for (int i = 0; i < data.size(); i++) {
-                AlignStructMol alignStruct = data.get(i);
-                alignStruct.ransacAlsoInLiers = false;
-                alignStruct.ransacMaybeInLiers = false;
+        final Model best = new Model();
+        double requiredIterations = k;
+        for (int start = 0; start < requiredIterations; start += BATCH_SIZE) {
+            final int end = (int) Math.min(start + BATCH_SIZE,
+                Math.ceil(requiredIterations));
+            best.merge(runIterations(start, end));
+            if (best.iteration >= 0) {
+                requiredIterations = Math.min(requiredIterations,
+                    getAdaptiveK((double) best.numOfInliers / x.length));
             }
+        }
 
+        // Mark the points of the best model as aligned
+        if (best.iteration < 0) {
+            return;
+        }
+        for (int point : best.sample) {
+            data.get(point).Aligned = true;
+        }
+        for (int i = 0; i < x.length; i++) {
+            if (Math.abs(y[i] - best.polynomial.value(x[i])) < t) {
+                data.get(i).Aligned = true;
+            }
         }
     }
 
     /**
-     * Take the initial points ramdoly. The points are divided by the initial
-     * number of points. If the fractions contain enough number of points took
-     * one point from each part.
-     *
-     * @param data vector with the points which represent all possible
-     * alignments.
-     * @return false if there is any problem.
+     * Runs the iterations in the given range, on the pool if there is one.
      */
-    private boolean getInitN(List<AlignStructMol> data) {
-        if (data.size() > n) {
-            Collections.sort(data, new AlignStructMol());
-            double min = data.get(0).RT;
-            double max = data.get(data.size() - 1).RT;
-
-            Range<Double> rtRange = Range.closed(min, ((max - min) / 2) + min);
-
-            int cont = 0, bucle = 0;
-            while (cont < n / 2 && bucle < 1000) {
-                int index = (int) (data.size() * Math.random());
-                if (!data.get(index).ransacMaybeInLiers
-                    && rtRange.contains(data.get(index).RT)) {
-                    data.get(index).ransacMaybeInLiers = true;
-                    cont++;
+    private Model runIterations(int start, int end) {
+        if (pool == null) {
+            return runIterations(start, end, 1, 0);
+        }
 
-                }
+        final int numOfTasks = pool.getParallelism();
+        final Model models[] = new Model[numOfTasks];
+        try {
+            ParallelUtil.run(pool, numOfTasks,
+                task -> models[task] = runIterations(start, end, numOfTasks, task));
+        } catch (MSDKException e) {
+            throw new MSDKRuntimeException(e);
+        }
+        final Model best = new Model();
+        for (Model model : models) {
+            best.merge(model);
+        }
+        return best;
+    }
 
-                bucle++;
-            }
-            if (bucle >= 1000) {
-                getN(data, (n / 2) - cont);
-            }
+    /**
+     * Runs every stride-th iteration of the given range, starting at start +
+     * offset, and returns the best model found.
+     */
+    private Model runIterations(int start, int end, int stride, int offset) {
+        final Model best = new Model();
+        final int sample[] = new int[n];
+        final boolean selected[] = new boolean[x.length];
+        final int degree = Linear ? 1 : 3;
 
-            bucle = 0;
-            rtRange = Range.closed(((max - min) / 2) + min, max);
+        for (int iteration = start + offset; iteration < end;
+            iteration += stride) {
 
-            while (cont < n && bucle < 1000) {
+            // Get the initial points
+            getInitN(new SplittableRandom(getIterationSeed(iteration)), sample,
+                selected);
 
-                int index = (int) (data.size() * Math.random());
-                if (!data.get(index).ransacMaybeInLiers
-                    && rtRange.contains(data.get(index).RT)) {
-                    data.get(index).ransacMaybeInLiers = true;
-                    cont++;
+            // Calculate the model
+            LeastSquaresPolynomial polynomial =
+                LeastSquaresPolynomial.fit(x, y, sample, n, degree);
+            if (polynomial == null) {
+                for (int point : sample) {
+                    selected[point] = false;
                 }
-                bucle++;
+                continue;
             }
-            if (bucle >= 1000) {
-                getN(data, n - cont);
+
+            // Count the points that fit the model. The initial points are
+            // counted twice in alsoNumber, and once in numOfInliers.
+            int alsoNumber = n;
+            int numOfInliers = 0;
+            for (int i = 0; i < x.length; i++) {
+                if (Math.abs(y[i] - polynomial.value(x[i])) < t) {
+                    alsoNumber++;
+                    numOfInliers++;
+                } else if (selected[i]) {
+                    numOfInliers++;
+                }
+            }
+            for (int point : sample) {
+                selected[point] = false;
             }
-            return true;
-        } else {
-            return false;
-        }
-    }
 
-    private void getN(List<AlignStructMol> data, int newN) {
-        if (newN < 1) {
-            return;
-        }
-        int cont = 0;
-        while (cont < newN) {
-            int index = (int) (data.size() * Math.random());
-            if (!data.get(index).ransacMaybeInLiers) {
-                data.get(index).ransacMaybeInLiers = true;
-                cont++;
+            // If the model has the minimun number of points and more points
+            // than the best model so far
+            if (alsoNumber >= d && ((best.iteration < 0)
+                || (numOfInliers > best.numOfInliers))) {
+                best.iteration = iteration;
+                best.numOfInliers = numOfInliers;
+                best.sample = sample.clone();
+                best.polynomial = polynomial;
             }
         }
+        return best;
     }
 
-    private void fittPolinomialFunction(List<AlignStructMol> data,
-        boolean linear) {
-        List<AlignStructMol> points = new ArrayList<AlignStructMol>();
-
-        int degree = 3;
-        if (linear) {
-            degree = 1;
-        }
+    /**
+     * Derives the seed of the random generator of an iteration.
+     */
+    private long getIterationSeed(int iteration) {
+        long z = seed + (iteration + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
 
-        PolynomialFitter fitter = new PolynomialFitter(degree,
-            new GaussNewtonOptimizer(true));
-        for (int i = 0; i < data.size(); i++) {
-            AlignStructMol point = data.get(i);
-            if (point.ransacMaybeInLiers) {
-                points.add(point);
-                fitter.addObservedPoint(1, point.RT, point.RT2);
-            }
-        }
-        try {
-            PolynomialFunction function = fitter.fit();
-            for (AlignStructMol point : data) {
-                double y = point.RT2;
-                double bestY = function.value(point.RT);
-                if (Math.abs(y - bestY) < t) {
-                    point.ransacAlsoInLiers = true;
-                    AlsoNumber++;
-                } else {
-                    point.ransacAlsoInLiers = false;
-                }
+    /**
+     * Take the initial points ramdoly. The points are divided by the initial
+     * number of points. If the fractions contain enough number of points took
+     * one point from each part.
+     *
+     * @param random the random generator of the iteration.
+     * @param sample receives the indices of the selected points.
+     * @param selected marks the selected points.
+     */
+    private void getInitN(SplittableRandom random, int sample[],
+        boolean selected[]) {
+        int cont = 0;
+        cont = getN(random, 0, firstHalfEnd, n / 2, cont, sample, selected);
+        cont = getN(random, secondHalfStart, x.length, n, cont, sample,
+            selected);
+        cont = getN(random, 0, x.length, n, cont, sample, selected);
+
+        // There are more points than n, so the remaining ones can always be
+        // taken in order from a random position
+        for (int i = random.nextInt(x.length); cont < n; i = (i + 1) % x.length) {
+            if (!selected[i]) {
+                selected[i] = true;
+                sample[cont++] = i;
             }
-        } catch (Exception ex) {
         }
     }
 
     /**
-     * calculate the error in the model
-     *
-     * @param data vector with the points which represent all possible
-     * alignments.
-     * @param regression regression of the alignment points
-     * @return the error in the model
+     * Selects random points from the given range of indices, until there are
+     * newN points selected or the range has no points left. The range is given
+     * up to 1000 attempts, like a random search over the whole data.
      */
-    private double newError(List<AlignStructMol> data) throws Exception {
-
-        double numT = 1;
-        for (int i = 0; i < data.size(); i++) {
-            if (data.get(i).ransacAlsoInLiers || data.get(i).ransacMaybeInLiers) {
-                numT++;
+    private int getN(SplittableRandom random, int from, int to, int newN,
+        int cont, int sample[], boolean selected[]) {
+        int bucle = 0;
+        while (cont < newN && to > from && bucle < 1000) {
+            int index = from + random.nextInt(to - from);
+            if (!selected[index]) {
+                selected[index] = true;
+                sample[cont++] = index;
             }
+            bucle++;
         }
-        return 1 / numT;
-
+        return cont;
     }
 }
@@ -18,25 +18,25 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.apache.commons.math.analysis.polynomials.PolynomialFunction;
-import org.apache.commons.math.optimization.fitting.PolynomialFitter;
-import org.apache.commons.math.optimization.general.GaussNewtonOptimizer;
 import org.apache.commons.math.stat.regression.SimpleRegression;
 
 import com.google.common.collect.Range;
 
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.Feature;
 import io.github.msdk.datamodel.FeatureTable;
 import io.github.msdk.datamodel.FeatureTableRow;
 import io.github.msdk.datamodel.Sample;
 import io.github.msdk.datamodel.SimpleFeatureTable;
 import io.github.msdk.datamodel.SimpleFeatureTableRow;
-import io.github.msdk.util.FeatureTableUtil;
+import io.github.msdk.util.FeatureTableIndex;
 import io.github.msdk.util.tolerances.MzTolerance;
 import io.github.msdk.util.tolerances.RTTolerance;
 
@@ -51,10 +51,13 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
   private final @Nonnull String featureTableName;
   private final @Nonnull List<FeatureTable> featureTables;
   private final @Nonnull SimpleFeatureTable result;
+  private final @Nonnull FeatureTableIndex resultIndex = new FeatureTableIndex();
   private boolean canceled = false;
   private int processedFeatures = 0, totalFeatures = 0;
   private double t, dataPointsRate;
   private boolean linear;
+  private final long randomSeed;
+  private final @Nullable ForkJoinPool pool;
 
 
   // ID counter for the new feature table
@@ -79,6 +82,34 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
       @Nonnull MzTolerance mzTolerance, @Nonnull RTTolerance rtTolerance,
       @Nonnull String featureTableName, @Nonnull double t, @Nonnull boolean linear,
       @Nonnull double dataPointsRate) {
+    this(featureTables, mzTolerance, rtTolerance, featureTableName, t, linear, dataPointsRate,
+        System.nanoTime(), null);
+  }
+
+  /**
+   * <p>
+   * Constructor for RansacAlignerMethod, which draws the random points of RANSAC from the given
+   * seed, so the alignment is reproducible, and runs the RANSAC iterations in parallel on the given
+   * {@link java.util.concurrent.ForkJoinPool ForkJoinPool}. The result does not depend on the number
+   * of threads.
+   * </p>
+   *
+   * @param featureTables a {@link java.util.List} object.
+   * @param mzTolerance a {@link io.github.msdk.util.tolerances.MzTolerance} object.
+   * @param featureTableName a {@link java.lang.String} object.
+   * @param rtTolerance a {@link io.github.msdk.util.RTTolerance} object.
+   * @param t a threshold value for determining when a data point fits a mode
+   * @param linear a {@link java.lang.Boolean} object.
+   * @param dataPointsRate % of datapoints from the data required to assert that a model fits well
+   *        to data. If it is 0, the variable will be set as 0.1
+   * @param randomSeed the seed of the random generators of RANSAC.
+   * @param pool the {@link java.util.concurrent.ForkJoinPool ForkJoinPool} running the RANSAC
+   *        iterations, or null to run them on the calling thread
+   */
+  public RansacAlignerMethod(@Nonnull List<FeatureTable> featureTables,
+      @Nonnull MzTolerance mzTolerance, @Nonnull RTTolerance rtTolerance,
+      @Nonnull String featureTableName, double t, boolean linear, double dataPointsRate,
+      long randomSeed, @Nullable ForkJoinPool pool) {
     this.featureTables = featureTables;
     this.mzTolerance = mzTolerance;
     this.rtToleranceAfterCorrection = rtTolerance;
@@ -87,6 +118,8 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
     this.t = t;
     this.linear = linear;
     this.dataPointsRate = dataPointsRate;
+    this.randomSeed = randomSeed;
+    this.pool = pool;
 
     // Make a new feature table
     result = new SimpleFeatureTable();
@@ -103,6 +136,13 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
       totalFeatures += featureTable.getRows().size() * 2;
     }
 
+    // Add all samples
+    ArrayList<Sample> allSamples = new ArrayList<>();
+    for (FeatureTable featureTable : featureTables) {
+      allSamples.addAll(featureTable.getSamples());
+    }
+    result.setSamples(allSamples);
+
     // Iterate through all feature tables
     Boolean firstFeatureTable = true;
     for (FeatureTable featureTable : featureTables) {
@@ -144,7 +184,8 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
         FeatureTableRow targetRow = alignmentMapping.get(sourceRow);
 
         // If we have no mapping for this row, add a new one
-        if (targetRow == null) {
+        final boolean newRow = (targetRow == null);
+        if (newRow) {
           targetRow = new SimpleFeatureTableRow(result);
           result.addRow(targetRow);
           // FeatureTableColumn<Integer> column = result.getColumn(ColumnName.ID, null);
@@ -154,9 +195,17 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
 
         // Add all features from the original row to the aligned row
         for (Sample sample : sourceRow.getFeatureTable().getSamples()) {
-          // FeatureTableUtil.copyFeatureValues(sourceRow, targetRow, sample);
+          Feature feature = sourceRow.getFeature(sample);
+          if (feature != null)
+            ((SimpleFeatureTableRow) targetRow).setFeature(sample, feature);
         }
 
+        // The m/z and RT of the row changed with the new features
+        if (newRow)
+          resultIndex.addRow(targetRow);
+        else
+          resultIndex.updateRow(targetRow);
+
         // Combine common values from the original row with the aligned
         // row
         // FeatureTableUtil.copyCommonValues(sourceRow, targetRow, true);
@@ -228,7 +277,7 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
       // Get all rows of the aligned feature table within the m/z and
       // RT limits
       List<FeatureTableRow> candidateRows =
-          FeatureTableUtil.getRowsInsideRange(result, rtRange, mzRange);
+          resultIndex.getRowsInsideRange(rtRange, mzRange);
 
       for (FeatureTableRow candidateRow : candidateRows) {
         RowVsRowScore score;
@@ -282,7 +331,7 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
   private List<AlignStructMol> ransacPeakLists(FeatureTable alignedPeakList,
       FeatureTable peakList) {
     List<AlignStructMol> list = this.getVectorAlignment(alignedPeakList, peakList);
-    RANSAC ransac = new RANSAC(t, linear, dataPointsRate);
+    RANSAC ransac = new RANSAC(t, linear, dataPointsRate, randomSeed, pool);
     ransac.alignment(list);
     return list;
   }
@@ -314,16 +363,8 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
       yval[i++] = rt.RT2;
     }
 
-    PolynomialFitter fitter = new PolynomialFitter(3, new GaussNewtonOptimizer(true));
-    for (RTs rt : data) {
-      fitter.addObservedPoint(1, rt.RT, rt.RT2);
-    }
-    try {
-      return fitter.fit();
-
-    } catch (Exception ex) {
-      return null;
-    }
+    LeastSquaresPolynomial polynomial = LeastSquaresPolynomial.fit(xval, yval, xval.length, 3);
+    return polynomial == null ? null : polynomial.toPolynomialFunction();
   }
 
   private List<RTs> smooth(List<RTs> list) {
@@ -361,6 +402,7 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
   private List<AlignStructMol> getVectorAlignment(FeatureTable peakListX, FeatureTable peakListY) {
 
     List<AlignStructMol> alignMol = new ArrayList<AlignStructMol>();
+    FeatureTableIndex peakListYIndex = new FeatureTableIndex(peakListY);
     for (FeatureTableRow row : peakListX.getRows()) {
 
       // Calculate limits for a row with which the row can be aligned
@@ -369,7 +411,7 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
 
       // Get all rows of the aligned peaklist within parameter limits
       List<FeatureTableRow> candidateRows =
-          FeatureTableUtil.getRowsInsideRange(peakListY, rtRange, mzRange);
+          peakListYIndex.getRowsInsideRange(rtRange, mzRange);
 
       for (FeatureTableRow candidateRow : candidateRows) {
         alignMol.add(new AlignStructMol(row, candidateRow));
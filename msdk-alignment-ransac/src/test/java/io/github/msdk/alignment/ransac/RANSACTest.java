@@ -0,0 +1,113 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.alignment.ransac;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.math.analysis.polynomials.PolynomialFunction;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RANSACTest {
+
+  /**
+   * Creates alignment candidates of which 70% follow the given RT shift, and the rest are random
+   * mismatches.
+   */
+  private static List<AlignStructMol> createData(PolynomialFunction shift, int size, long seed) {
+    Random random = new Random(seed);
+    List<AlignStructMol> data = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      AlignStructMol point = new AlignStructMol();
+      point.RT = 60.0 + random.nextDouble() * 1800.0;
+      if (i % 10 < 7)
+        point.RT2 = shift.value(point.RT) + (random.nextDouble() - 0.5) * 0.2;
+      else
+        point.RT2 = 60.0 + random.nextDouble() * 1800.0;
+      data.add(point);
+    }
+    return data;
+  }
+
+  private static void checkAlignment(List<AlignStructMol> data, PolynomialFunction shift) {
+    int aligned = 0;
+    for (AlignStructMol point : data) {
+      if (point.Aligned) {
+        aligned++;
+        Assert.assertEquals(shift.value(point.RT), point.RT2, 1.0);
+      }
+    }
+    Assert.assertTrue(aligned >= data.size() * 7 / 10);
+  }
+
+  @Test
+  public void testLinear() {
+    PolynomialFunction shift = new PolynomialFunction(new double[] {5.0, 1.02});
+    List<AlignStructMol> data = createData(shift, 2000, 1L);
+    new RANSAC(0.5, true, 0.1, 1L, null).alignment(data);
+    checkAlignment(data, shift);
+  }
+
+  @Test
+  public void testNonLinearParallel() {
+    PolynomialFunction shift = new PolynomialFunction(new double[] {2.0, 0.98, 2E-5, -5E-9});
+    List<AlignStructMol> serialData = createData(shift, 2000, 2L);
+    new RANSAC(0.5, false, 0.1, 7L, null).alignment(serialData);
+    checkAlignment(serialData, shift);
+
+    // The same seed gives the same points with any number of threads
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      List<AlignStructMol> parallelData = createData(shift, 2000, 2L);
+      new RANSAC(0.5, false, 0.1, 7L, pool).alignment(parallelData);
+      for (int i = 0; i < serialData.size(); i++) {
+        Assert.assertEquals(serialData.get(i).RT, parallelData.get(i).RT, 0.0);
+        Assert.assertEquals(serialData.get(i).Aligned, parallelData.get(i).Aligned);
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testLeastSquaresPolynomial() {
+    PolynomialFunction cubic = new PolynomialFunction(new double[] {3.0, -2.0, 0.5, 0.01});
+    double x[] = new double[50];
+    double y[] = new double[50];
+    for (int i = 0; i < x.length; i++) {
+      x[i] = 100.0 + i * 30.0;
+      y[i] = cubic.value(x[i]);
+    }
+    LeastSquaresPolynomial polynomial = LeastSquaresPolynomial.fit(x, y, x.length, 3);
+    PolynomialFunction function = polynomial.toPolynomialFunction();
+    for (int i = 0; i < x.length; i++) {
+      Assert.assertEquals(y[i], polynomial.value(x[i]), Math.abs(y[i]) * 1E-9);
+      Assert.assertEquals(y[i], function.value(x[i]), Math.abs(y[i]) * 1E-9);
+    }
+
+    // A line through noisy points, and a degenerate set of points
+    LeastSquaresPolynomial line =
+        LeastSquaresPolynomial.fit(new double[] {0, 1, 2}, new double[] {0, 2, 1}, 3, 1);
+    Assert.assertEquals(0.5, line.value(0.0), 1E-12);
+    Assert.assertEquals(1.0, line.value(1.0), 1E-12);
+    Assert.assertNull(
+        LeastSquaresPolynomial.fit(new double[] {1, 1, 1}, new double[] {0, 1, 2}, 3, 1));
+    Assert.assertNull(LeastSquaresPolynomial.fit(x, y, new int[] {0, 1, 2}, 3, 3));
+  }
+
+}
@@ -15,6 +15,7 @@ package io.github.msdk.alignment.ransac;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Assert;
@@ -25,6 +26,11 @@ import io.github.msdk.alignment.ransac.RansacAlignerMethod;
 import io.github.msdk.datamodel.FeatureTable;
 import io.github.msdk.datamodel.FeatureTableRow;
 import io.github.msdk.datamodel.IonAnnotation;
+import io.github.msdk.datamodel.Sample;
+import io.github.msdk.datamodel.SimpleFeature;
+import io.github.msdk.datamodel.SimpleFeatureTable;
+import io.github.msdk.datamodel.SimpleFeatureTableRow;
+import io.github.msdk.datamodel.SimpleSample;
 import io.github.msdk.io.mztab.MzTabFileImportMethod;
 import io.github.msdk.util.tolerances.MaximumMzTolerance;
 import io.github.msdk.util.tolerances.MzTolerance;
@@ -100,4 +106,45 @@ public class RansacAlignerMethodTest {
     List<FeatureTableRow> rows = featureTable.getRows();
 
   }
+
+  /**
+   * Creates a feature table of one sample, with features every 10 m/z and 20 s, shifted in RT by
+   * the given number of seconds.
+   */
+  private static FeatureTable createFeatureTable(String sampleName, int numOfFeatures,
+      float rtShift) {
+    SimpleFeatureTable featureTable = new SimpleFeatureTable();
+    Sample sample = new SimpleSample(sampleName);
+    featureTable.setSamples(Collections.singletonList(sample));
+    for (int i = 0; i < numOfFeatures; i++) {
+      SimpleFeature feature = new SimpleFeature();
+      feature.setMz(100.0 + i * 10.0);
+      feature.setRetentionTime(60f + i * 20f + rtShift);
+      feature.setHeight(1E5f);
+      SimpleFeatureTableRow row = new SimpleFeatureTableRow(featureTable);
+      row.setFeature(sample, feature);
+      featureTable.addRow(row);
+    }
+    return featureTable;
+  }
+
+  @Test
+  public void testAlignedRowsHaveFeatures() throws Exception {
+    List<FeatureTable> featureTables = new ArrayList<FeatureTable>();
+    featureTables.add(createFeatureTable("Sample 1", 50, 0f));
+    featureTables.add(createFeatureTable("Sample 2", 50, 2f));
+
+    RansacAlignerMethod method = new RansacAlignerMethod(featureTables,
+        new MaximumMzTolerance(0.003, 5.0), new RTTolerance(5f, false), "Aligned Feature Table",
+        0.4, true, 0);
+    FeatureTable featureTable = method.execute();
+
+    Assert.assertEquals(2, featureTable.getSamples().size());
+    Assert.assertEquals(50, featureTable.getRows().size());
+    for (FeatureTableRow row : featureTable.getRows()) {
+      Assert.assertNotNull(row.getFeature(0));
+      Assert.assertNotNull(row.getFeature(1));
+      Assert.assertEquals(row.getFeature(0).getMz(), row.getFeature(1).getMz(), 0.0);
+    }
+  }
 }
@@ -0,0 +1,68 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.msdk.datamodel.Feature;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.featuredetection.adap3d.ADAP3DFeatureDetectionMethod;
+
+/**
+ * ADAP3D feature detection on a synthetic profile run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ADAP3DFeatureDetectionBenchmark {
+
+  @Param({"500"})
+  public int numOfScans;
+
+  @Param({"200"})
+  public int numOfCompounds;
+
+  private RawDataFile rawDataFile;
+
+  @Setup(Level.Trial)
+  public void createData() {
+    rawDataFile = SyntheticData.createRawDataFile(numOfScans, numOfCompounds,
+        MsSpectrumType.PROFILE, 1L);
+  }
+
+  @Benchmark
+  public List<Feature> detectFeatures() {
+    return new ADAP3DFeatureDetectionMethod(rawDataFile).execute();
+  }
+
+}
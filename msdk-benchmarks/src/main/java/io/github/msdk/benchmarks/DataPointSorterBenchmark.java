@@ -0,0 +1,152 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.benchmarks;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.msdk.util.DataPointSorter;
+import io.github.msdk.util.DataPointSorter.SortingDirection;
+import io.github.msdk.util.DataPointSorter.SortingProperty;
+import io.github.msdk.util.DataPointSorter.Workspace;
+
+/**
+ * Sorting of the data points of a spectrum with DataPointSorter, compared to the previous
+ * implementation based on boxed indices and a reflective remapping of the arrays.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataPointSorterBenchmark {
+
+  @Param({"1000", "10000", "100000"})
+  public int size;
+
+  private double sourceMz[], mzBuffer[];
+  private float sourceIntensity[], intensityBuffer[];
+  private final Workspace workspace = new Workspace();
+
+  @Setup(Level.Trial)
+  public void createSpectrum() {
+    // Profile-like spectrum: increasing m/z, random intensities
+    Random random = new Random(1);
+    sourceMz = new double[size];
+    sourceIntensity = new float[size];
+    for (int i = 0; i < size; i++) {
+      sourceMz[i] = 100.0 + i * 0.01 + random.nextDouble() * 0.001;
+      sourceIntensity[i] = random.nextFloat() * 1e6f;
+    }
+    mzBuffer = new double[size];
+    intensityBuffer = new float[size];
+  }
+
+  @Setup(Level.Invocation)
+  public void resetBuffers() {
+    System.arraycopy(sourceMz, 0, mzBuffer, 0, size);
+    System.arraycopy(sourceIntensity, 0, intensityBuffer, 0, size);
+  }
+
+  @Benchmark
+  public void primitiveByIntensity(Blackhole bh) {
+    DataPointSorter.sortDataPoints(mzBuffer, intensityBuffer, size, SortingProperty.INTENSITY,
+        SortingDirection.DESCENDING, workspace);
+    bh.consume(mzBuffer);
+  }
+
+  @Benchmark
+  public void primitiveByIntensityNoWorkspace(Blackhole bh) {
+    DataPointSorter.sortDataPoints(mzBuffer, intensityBuffer, size, SortingProperty.INTENSITY,
+        SortingDirection.DESCENDING);
+    bh.consume(mzBuffer);
+  }
+
+  @Benchmark
+  public void primitiveByMz(Blackhole bh) {
+    DataPointSorter.sortDataPoints(mzBuffer, intensityBuffer, size, SortingProperty.MZ,
+        SortingDirection.DESCENDING, workspace);
+    bh.consume(mzBuffer);
+  }
+
+  @Benchmark
+  public void legacyByIntensity(Blackhole bh) {
+    LegacyDataPointSorter.sortDataPoints(mzBuffer, intensityBuffer, size,
+        SortingProperty.INTENSITY, SortingDirection.DESCENDING);
+    bh.consume(mzBuffer);
+  }
+
+  @Benchmark
+  public void legacyByMz(Blackhole bh) {
+    LegacyDataPointSorter.sortDataPoints(mzBuffer, intensityBuffer, size, SortingProperty.MZ,
+        SortingDirection.DESCENDING);
+    bh.consume(mzBuffer);
+  }
+
+  /**
+   * Copy of the previous DataPointSorter implementation.
+   */
+  private static class LegacyDataPointSorter {
+
+    static void sortDataPoints(final double mzBuffer[], final float intensityBuffer[],
+        final int size, SortingProperty prop, SortingDirection dir) {
+      final List<Integer> idx = new ArrayList<>(size);
+      for (int i = 0; i < size; i++)
+        idx.add(i);
+      Collections.sort(idx, (i1, i2) -> {
+        int result = (prop == SortingProperty.INTENSITY)
+            ? Float.compare(intensityBuffer[i1], intensityBuffer[i2])
+            : Double.compare(mzBuffer[i1], mzBuffer[i2]);
+        return (dir == SortingDirection.ASCENDING) ? result : -result;
+      });
+      remapArray(mzBuffer, idx);
+      remapArray(intensityBuffer, idx);
+    }
+
+    private static void remapArray(Object array, List<Integer> indices) {
+      List<Integer> idx = new ArrayList<>(indices);
+      for (int i = 0; i < idx.size(); i++) {
+        final int newIndex = idx.get(i);
+        if (newIndex == i)
+          continue;
+        Object tmp = Array.get(array, i);
+        Array.set(array, i, Array.get(array, newIndex));
+        final int swapIndex = idx.indexOf(i);
+        Array.set(array, newIndex, tmp);
+        idx.set(swapIndex, newIndex);
+        idx.set(i, i);
+      }
+    }
+  }
+
+}
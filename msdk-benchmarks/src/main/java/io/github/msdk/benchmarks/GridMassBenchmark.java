@@ -0,0 +1,86 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.featuredetection.gridmass.GridMassMethod;
+import io.github.msdk.util.tolerances.ConstantDaTolerance;
+
+/**
+ * GridMass feature detection on a synthetic centroided run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class GridMassBenchmark {
+
+  @Param({"500", "5000"})
+  public int numOfScans;
+
+  @Param({"500"})
+  public int numOfCompounds;
+
+  private RawDataFile rawDataFile;
+  private ForkJoinPool pool;
+
+  @Setup(Level.Trial)
+  public void createData() {
+    rawDataFile = SyntheticData.createRawDataFile(numOfScans, numOfCompounds,
+        MsSpectrumType.CENTROIDED, 1L);
+    pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+  }
+
+  @TearDown(Level.Trial)
+  public void shutdownPool() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public FeatureTable detectFeatures() throws MSDKException {
+    // Times are in seconds, see SyntheticData.SCAN_INTERVAL
+    return new GridMassMethod(rawDataFile, rawDataFile.getScans(), new ConstantDaTolerance(0.01),
+        0.5, 3.0, 60.0, 1.5, 0.0, 0.005, 0.0, 5000.0, 0.0).execute();
+  }
+
+  @Benchmark
+  public FeatureTable detectFeaturesParallel() throws MSDKException {
+    return new GridMassMethod(rawDataFile, rawDataFile.getScans(), new ConstantDaTolerance(0.01),
+        0.5, 3.0, 60.0, 1.5, 0.0, 0.005, 0.0, 5000.0, 0.0, pool).execute();
+  }
+
+}
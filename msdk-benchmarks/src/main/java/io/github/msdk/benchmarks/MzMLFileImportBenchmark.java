@@ -0,0 +1,102 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.io.mzml.MzMLFileExportMethod;
+import io.github.msdk.io.mzml.MzMLFileImportMethod;
+import io.github.msdk.io.mzml.data.MzMLCompressionType;
+
+/**
+ * Import of a synthetic mzML file, including the decoding of all data points.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MzMLFileImportBenchmark {
+
+  @Param({"1000"})
+  public int numOfScans;
+
+  @Param({"2000"})
+  public int numOfCompounds;
+
+  @Param({"NO_COMPRESSION", "ZLIB", "NUMPRESS_LINPRED_ZLIB"})
+  public MzMLCompressionType mzCompression;
+
+  private File mzMLFile;
+
+  @Setup(Level.Trial)
+  public void createFile() throws IOException, MSDKException {
+    RawDataFile rawDataFile = SyntheticData.createRawDataFile(numOfScans, numOfCompounds,
+        MsSpectrumType.CENTROIDED, 1L);
+    // Intensities can only be compressed by zlib
+    MzMLCompressionType intensityCompression =
+        (mzCompression == MzMLCompressionType.NO_COMPRESSION) ? MzMLCompressionType.NO_COMPRESSION
+            : MzMLCompressionType.ZLIB;
+    mzMLFile = File.createTempFile("msdk-benchmark", ".mzML");
+    new MzMLFileExportMethod(rawDataFile, mzMLFile, mzCompression, intensityCompression)
+        .execute();
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteFile() {
+    mzMLFile.delete();
+  }
+
+  @Benchmark
+  public double importFile() throws MSDKException {
+    return sumIntensities(new MzMLFileImportMethod(mzMLFile).execute());
+  }
+
+  @Benchmark
+  public double importFileParallel() throws MSDKException {
+    return sumIntensities(new MzMLFileImportMethod(mzMLFile, ForkJoinPool.commonPool()).execute());
+  }
+
+  private static double sumIntensities(RawDataFile rawDataFile) {
+    final double sum[] = new double[1];
+    for (MsScan scan : rawDataFile.getScans())
+      scan.forEachDataPoint((index, mz, intensity) -> sum[0] += intensity);
+    rawDataFile.dispose();
+    return sum[0];
+  }
+
+}
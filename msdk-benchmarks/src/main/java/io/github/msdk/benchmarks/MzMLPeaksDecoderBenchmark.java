@@ -0,0 +1,88 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.io.mzml.data.MzMLBinaryDataInfo;
+import io.github.msdk.io.mzml.data.MzMLBitLength;
+import io.github.msdk.io.mzml.data.MzMLCompressionType;
+import io.github.msdk.io.mzml.data.MzMLPeaksDecoder;
+import io.github.msdk.io.mzml.data.MzMLPeaksEncoder;
+
+/**
+ * Decoding of a single binary data array of an mzML file, for each compression type.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MzMLPeaksDecoderBenchmark {
+
+  @Param({"1000", "10000", "100000"})
+  public int numOfDataPoints;
+
+  @Param({"NO_COMPRESSION", "ZLIB", "NUMPRESS_LINPRED", "NUMPRESS_LINPRED_ZLIB", "NUMPRESS_POSINT",
+      "NUMPRESS_SHLOGF"})
+  public MzMLCompressionType compression;
+
+  private byte encoded[];
+  private MzMLBinaryDataInfo binaryDataInfo;
+  private double buffer[];
+
+  @Setup(Level.Trial)
+  public void encode() throws MSDKException {
+    // Increasing m/z values of a profile spectrum
+    Random random = new Random(1);
+    double values[] = new double[numOfDataPoints];
+    double mz = 100.0;
+    for (int i = 0; i < numOfDataPoints; i++) {
+      mz += 0.001 + random.nextDouble() * 0.01;
+      values[i] = mz;
+    }
+    encoded = MzMLPeaksEncoder.encodeDouble(values, compression);
+    binaryDataInfo = new MzMLBinaryDataInfo(encoded.length, numOfDataPoints);
+    binaryDataInfo.setBitLength(MzMLBitLength.SIXTY_FOUR_BIT_FLOAT);
+    binaryDataInfo.setCompressionType(compression);
+    buffer = new double[numOfDataPoints];
+  }
+
+  @Benchmark
+  public double[] decodeToDouble() throws DataFormatException, IOException, MSDKException {
+    return MzMLPeaksDecoder.decodeToDouble(new ByteArrayInputStream(encoded), binaryDataInfo,
+        buffer);
+  }
+
+}
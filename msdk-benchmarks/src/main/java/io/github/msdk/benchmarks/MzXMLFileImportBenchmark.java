@@ -0,0 +1,86 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.io.mzxml.MzXMLFileImportMethod;
+
+/**
+ * Import of a synthetic mzXML file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MzXMLFileImportBenchmark {
+
+  @Param({"1000"})
+  public int numOfScans;
+
+  @Param({"2000"})
+  public int numOfCompounds;
+
+  @Param({"false", "true"})
+  public boolean zlib;
+
+  private File mzXMLFile;
+
+  @Setup(Level.Trial)
+  public void createFile() throws IOException {
+    RawDataFile rawDataFile = SyntheticData.createRawDataFile(numOfScans, numOfCompounds,
+        MsSpectrumType.CENTROIDED, 1L);
+    mzXMLFile = File.createTempFile("msdk-benchmark", ".mzXML");
+    SyntheticData.writeMzXML(rawDataFile, mzXMLFile, zlib);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteFile() {
+    mzXMLFile.delete();
+  }
+
+  @Benchmark
+  public double importFile() throws MSDKException {
+    RawDataFile rawDataFile = new MzXMLFileImportMethod(mzXMLFile).execute();
+    double sum = 0;
+    for (MsScan scan : rawDataFile.getScans())
+      sum += scan.getTIC();
+    rawDataFile.dispose();
+    return sum;
+  }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.alignment.ransac.RansacAlignerMethod;
+import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.util.tolerances.ConstantPpmTolerance;
+import io.github.msdk.util.tolerances.RTTolerance;
+
+/**
+ * RANSAC alignment of synthetic feature tables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RansacAlignerBenchmark {
+
+  @Param({"5", "20"})
+  public int numOfSamples;
+
+  @Param({"1000", "5000"})
+  public int numOfFeatures;
+
+  private List<FeatureTable> featureTables;
+  private ForkJoinPool pool;
+
+  @Setup(Level.Trial)
+  public void createData() {
+    featureTables = SyntheticData.createFeatureTables(numOfSamples, numOfFeatures, 1L);
+    pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+  }
+
+  @TearDown(Level.Trial)
+  public void shutdownPool() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public FeatureTable align() throws MSDKException {
+    return new RansacAlignerMethod(featureTables, new ConstantPpmTolerance(5.0),
+        new RTTolerance(20f, true), "aligned", 10.0, false, 0.1).execute();
+  }
+
+  @Benchmark
+  public FeatureTable alignParallel() throws MSDKException {
+    return new RansacAlignerMethod(featureTables, new ConstantPpmTolerance(5.0),
+        new RTTolerance(20f, true), "aligned", 10.0, false, 0.1, 1L, pool).execute();
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.spectra.similarity.AbstractSpectraComparisonAlgorithm;
+import io.github.msdk.spectra.similarity.CosineSimilarity;
+import io.github.msdk.spectra.similarity.EntropySimilarity;
+import io.github.msdk.spectra.similarity.ModifiedCosineSimilarity;
+import io.github.msdk.spectra.similarity.PreprocessedSpectrum;
+import io.github.msdk.util.tolerances.ConstantDaTolerance;
+
+/**
+ * Scoring of one query spectrum against a synthetic library of MS/MS spectra.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SpectraSimilarityBenchmark {
+
+  @Param({"cosine", "modifiedCosine", "entropy"})
+  public String algorithmName;
+
+  @Param({"100000"})
+  public int librarySize;
+
+  private AbstractSpectraComparisonAlgorithm algorithm;
+  private List<PreprocessedSpectrum> library;
+  private PreprocessedSpectrum query;
+  private ForkJoinPool pool;
+
+  @Setup(Level.Trial)
+  public void createData() {
+    final ConstantDaTolerance mzTolerance = new ConstantDaTolerance(0.01);
+    switch (algorithmName) {
+      case "modifiedCosine":
+        algorithm = new ModifiedCosineSimilarity(mzTolerance, 50);
+        break;
+      case "entropy":
+        algorithm = new EntropySimilarity(mzTolerance, 50, true);
+        break;
+      default:
+        algorithm = new CosineSimilarity(mzTolerance, 50);
+    }
+
+    final Random random = new Random(1);
+    library = new ArrayList<>(librarySize);
+    for (int s = 0; s < librarySize; s++)
+      library.add(createSpectrum(random));
+    query = createSpectrum(random);
+    pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+  }
+
+  private PreprocessedSpectrum createSpectrum(Random random) {
+    final int size = 10 + random.nextInt(200);
+    final double precursorMz = 200.0 + random.nextDouble() * 800.0;
+    final double mzValues[] = new double[size];
+    final float intensityValues[] = new float[size];
+    for (int i = 0; i < size; i++) {
+      mzValues[i] = 50.0 + Math.round(random.nextDouble() * (precursorMz - 50.0) * 100.0) / 100.0;
+      intensityValues[i] = random.nextFloat() * 1E4f;
+    }
+    return algorithm.preprocess(mzValues, intensityValues, size, precursorMz);
+  }
+
+  @TearDown(Level.Trial)
+  public void shutdownPool() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public double[] compare() {
+    return algorithm.compareSpectra(query, library);
+  }
+
+  @Benchmark
+  public double[] compareParallel() throws MSDKException {
+    return algorithm.compareSpectra(query, library, pool);
+  }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.id.spectrallibrary.BinarySpectralLibrary;
+import io.github.msdk.id.spectrallibrary.BinarySpectralLibraryExportMethod;
+import io.github.msdk.io.mgf.MgfFileImportMethod;
+import io.github.msdk.io.mgf.MgfMsSpectrum;
+
+/**
+ * Loading of a synthetic MS/MS spectral library from MGF and from the binary library format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SpectralLibraryLoadBenchmark {
+
+  @Param({"20000"})
+  public int librarySize;
+
+  private File mgfFile, binaryFile;
+
+  @Setup(Level.Trial)
+  public void createFiles() throws IOException, MSDKException {
+    final Random random = new Random(1);
+    mgfFile = File.createTempFile("msdk-benchmark", ".mgf");
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(mgfFile))) {
+      for (int s = 0; s < librarySize; s++) {
+        final double precursorMz = 200.0 + random.nextDouble() * 800.0;
+        writer.write("BEGIN IONS\nTITLE=Compound " + s + "\nPEPMASS=" + precursorMz + "\n");
+        final int size = 10 + random.nextInt(200);
+        double mz = 50.0;
+        for (int i = 0; i < size; i++) {
+          mz += random.nextDouble() * (precursorMz - 50.0) / size;
+          writer.write(mz + " " + random.nextFloat() * 1E4f + "\n");
+        }
+        writer.write("END IONS\n\n");
+      }
+    }
+    binaryFile = File.createTempFile("msdk-benchmark", BinarySpectralLibrary.FILE_EXTENSION);
+    new BinarySpectralLibraryExportMethod(mgfFile, binaryFile).execute();
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteFiles() {
+    mgfFile.delete();
+    binaryFile.delete();
+  }
+
+  @Benchmark
+  public double importMgf() throws MSDKException {
+    List<MgfMsSpectrum> spectra = new MgfFileImportMethod(mgfFile).execute();
+    double sum = 0;
+    for (MgfMsSpectrum spectrum : spectra)
+      sum += spectrum.getTIC();
+    return sum;
+  }
+
+  @Benchmark
+  public double readBinary() throws MSDKException {
+    // Cold start: open the library, then read every spectrum once
+    BinarySpectralLibrary library = new BinarySpectralLibrary(binaryFile);
+    double sum = 0;
+    for (int i = 0; i < library.size(); i++)
+      sum += library.getSpectrum(i).getTIC();
+    return sum;
+  }
+
+}
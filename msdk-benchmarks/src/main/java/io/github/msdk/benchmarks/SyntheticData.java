@@ -0,0 +1,286 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nonnull;
+
+import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.datamodel.FileType;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.PolarityType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.Sample;
+import io.github.msdk.datamodel.SimpleFeature;
+import io.github.msdk.datamodel.SimpleFeatureTable;
+import io.github.msdk.datamodel.SimpleFeatureTableRow;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.datamodel.SimpleSample;
+import io.github.msdk.util.DataPointSorter;
+import io.github.msdk.util.DataPointSorter.SortingDirection;
+import io.github.msdk.util.DataPointSorter.SortingProperty;
+
+/**
+ * <p>
+ * Generators of synthetic LC-MS data for the benchmarks. All generators are deterministic for a
+ * given seed, so the benchmark inputs are identical across runs and commits.
+ * </p>
+ */
+public class SyntheticData {
+
+  /** Time between two consecutive scans, in seconds. */
+  public static final float SCAN_INTERVAL = 0.5f;
+
+  private static final double MIN_MZ = 100.0, MAX_MZ = 1000.0;
+  private static final int NOISE_POINTS_PER_SCAN = 200;
+  private static final int PROFILE_POINTS_PER_PEAK = 9;
+  private static final double PROFILE_MZ_STEP = 0.001, PROFILE_MZ_SIGMA = 0.002;
+
+  /**
+   * <p>
+   * Creates an LC-MS run of MS1 scans. Each compound has a fixed m/z and a Gaussian elution
+   * profile of random position, width (3-10 scans sigma) and height (1E4-1E7). Every scan also
+   * contains random noise points of low intensity.
+   * </p>
+   *
+   * @param numOfScans number of scans of the run
+   * @param numOfCompounds number of compounds eluting during the run
+   * @param spectrumType {@link io.github.msdk.datamodel.MsSpectrumType#PROFILE} to represent each
+   *        m/z peak by several data points, otherwise each peak is a single centroid
+   * @param seed seed of the random number generator
+   * @return a new {@link io.github.msdk.datamodel.RawDataFile}
+   */
+  public static @Nonnull RawDataFile createRawDataFile(int numOfScans, int numOfCompounds,
+      @Nonnull MsSpectrumType spectrumType, long seed) {
+
+    final Random random = new Random(seed);
+    final boolean profile = (spectrumType == MsSpectrumType.PROFILE);
+
+    final double compoundMz[] = new double[numOfCompounds];
+    final double compoundCenter[] = new double[numOfCompounds];
+    final double compoundSigma[] = new double[numOfCompounds];
+    final double compoundHeight[] = new double[numOfCompounds];
+    for (int c = 0; c < numOfCompounds; c++) {
+      compoundMz[c] = MIN_MZ + random.nextDouble() * (MAX_MZ - MIN_MZ);
+      compoundCenter[c] = random.nextDouble() * numOfScans;
+      compoundSigma[c] = 3.0 + random.nextDouble() * 7.0;
+      compoundHeight[c] = Math.pow(10.0, 4.0 + random.nextDouble() * 3.0);
+    }
+
+    SimpleRawDataFile rawDataFile =
+        new SimpleRawDataFile("synthetic", Optional.empty(), FileType.UNKNOWN);
+    DataPointSorter.Workspace workspace = new DataPointSorter.Workspace();
+    double mzBuffer[] = new double[10000];
+    float intensityBuffer[] = new float[10000];
+
+    for (int s = 0; s < numOfScans; s++) {
+      int size = 0;
+
+      for (int c = 0; c < numOfCompounds; c++) {
+        final double distance = (s - compoundCenter[c]) / compoundSigma[c];
+        if (Math.abs(distance) > 4.0)
+          continue;
+        final double apex = compoundHeight[c] * Math.exp(-0.5 * distance * distance);
+        final int pointsPerPeak = profile ? PROFILE_POINTS_PER_PEAK : 1;
+        if (size + pointsPerPeak > mzBuffer.length) {
+          mzBuffer = Arrays.copyOf(mzBuffer, mzBuffer.length * 2);
+          intensityBuffer = Arrays.copyOf(intensityBuffer, intensityBuffer.length * 2);
+        }
+        // Small mass error, up to 2 ppm
+        final double mz = compoundMz[c] * (1.0 + (random.nextDouble() - 0.5) * 4e-6);
+        if (profile) {
+          for (int p = 0; p < pointsPerPeak; p++) {
+            final double offset = (p - pointsPerPeak / 2) * PROFILE_MZ_STEP;
+            final double shape = Math.exp(-0.5 * Math.pow(offset / PROFILE_MZ_SIGMA, 2));
+            mzBuffer[size] = mz + offset;
+            intensityBuffer[size] = (float) (apex * shape);
+            size++;
+          }
+        } else {
+          mzBuffer[size] = mz;
+          intensityBuffer[size] = (float) apex;
+          size++;
+        }
+      }
+
+      if (size + NOISE_POINTS_PER_SCAN > mzBuffer.length) {
+        mzBuffer = Arrays.copyOf(mzBuffer, size + NOISE_POINTS_PER_SCAN);
+        intensityBuffer = Arrays.copyOf(intensityBuffer, size + NOISE_POINTS_PER_SCAN);
+      }
+      for (int n = 0; n < NOISE_POINTS_PER_SCAN; n++) {
+        mzBuffer[size] = MIN_MZ + random.nextDouble() * (MAX_MZ - MIN_MZ);
+        intensityBuffer[size] = 100f + random.nextFloat() * 900f;
+        size++;
+      }
+
+      DataPointSorter.sortDataPoints(mzBuffer, intensityBuffer, size, SortingProperty.MZ,
+          SortingDirection.ASCENDING, workspace);
+
+      SimpleMsScan scan = new SimpleMsScan(s + 1, "Full ms");
+      scan.setRawDataFile(rawDataFile);
+      scan.setMsLevel(1);
+      scan.setPolarity(PolarityType.POSITIVE);
+      scan.setSpectrumType(spectrumType);
+      scan.setRetentionTime(s * SCAN_INTERVAL);
+      scan.setDataPoints(mzBuffer, intensityBuffer, size);
+      rawDataFile.addScan(scan);
+    }
+
+    return rawDataFile;
+  }
+
+  /**
+   * <p>
+   * Creates one feature table per sample, as produced by feature detection of replicate runs. All
+   * samples share the same compounds, but each sample has its own linear retention time drift,
+   * random m/z (up to 2 ppm) and RT (up to 2 s) errors, misses 10 % of the compounds and contains
+   * 5 % additional random features.
+   * </p>
+   *
+   * @param numOfSamples number of feature tables
+   * @param numOfFeatures number of compounds in each table
+   * @param seed seed of the random number generator
+   * @return a list of new {@link io.github.msdk.datamodel.FeatureTable}s
+   */
+  public static @Nonnull List<FeatureTable> createFeatureTables(int numOfSamples,
+      int numOfFeatures, long seed) {
+
+    final Random random = new Random(seed);
+    final double compoundMz[] = new double[numOfFeatures];
+    final float compoundRt[] = new float[numOfFeatures];
+    for (int c = 0; c < numOfFeatures; c++) {
+      compoundMz[c] = MIN_MZ + random.nextDouble() * (MAX_MZ - MIN_MZ);
+      compoundRt[c] = 60f + random.nextFloat() * 1740f;
+    }
+
+    List<FeatureTable> featureTables = new ArrayList<>();
+    for (int t = 0; t < numOfSamples; t++) {
+      SimpleFeatureTable featureTable = new SimpleFeatureTable();
+      Sample sample = new SimpleSample("sample " + (t + 1));
+      List<Sample> samples = new ArrayList<>();
+      samples.add(sample);
+      featureTable.setSamples(samples);
+
+      final double drift = 1.0 + (random.nextDouble() - 0.5) * 0.02;
+      final double shift = (random.nextDouble() - 0.5) * 10.0;
+      for (int c = 0; c < numOfFeatures; c++) {
+        if (random.nextDouble() < 0.1)
+          continue;
+        final double mz = compoundMz[c] * (1.0 + (random.nextDouble() - 0.5) * 4e-6);
+        final float rt =
+            (float) (compoundRt[c] * drift + shift + (random.nextDouble() - 0.5) * 4.0);
+        addFeature(featureTable, sample, mz, rt, random);
+      }
+      for (int c = 0; c < numOfFeatures / 20; c++) {
+        addFeature(featureTable, sample, MIN_MZ + random.nextDouble() * (MAX_MZ - MIN_MZ),
+            60f + random.nextFloat() * 1740f, random);
+      }
+      featureTables.add(featureTable);
+    }
+    return featureTables;
+  }
+
+  private static void addFeature(SimpleFeatureTable featureTable, Sample sample, double mz,
+      float rt, Random random) {
+    SimpleFeature feature = new SimpleFeature();
+    feature.setMz(mz);
+    feature.setRetentionTime(rt);
+    final float height = (float) Math.pow(10.0, 4.0 + random.nextDouble() * 3.0);
+    feature.setHeight(height);
+    feature.setArea(height * 10f);
+    SimpleFeatureTableRow row = new SimpleFeatureTableRow(featureTable);
+    row.setFeature(sample, feature);
+    featureTable.addRow(row);
+  }
+
+  /**
+   * <p>
+   * Writes the scans of the given raw data file into a minimal mzXML file, with 32-bit peaks in
+   * network byte order.
+   * </p>
+   *
+   * @param rawDataFile the data to write
+   * @param target the target file
+   * @param zlib whether to compress the peaks with zlib
+   * @throws java.io.IOException if any.
+   */
+  public static void writeMzXML(@Nonnull RawDataFile rawDataFile, @Nonnull File target,
+      boolean zlib) throws IOException {
+    final List<MsScan> scans = rawDataFile.getScans();
+    try (Writer writer =
+        new OutputStreamWriter(new FileOutputStream(target), StandardCharsets.UTF_8)) {
+      writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+      writer.write("<mzXML xmlns=\"http://sashimi.sourceforge.net/schema_revision/mzXML_3.2\">\n");
+      writer.write("<msRun scanCount=\"" + scans.size() + "\">\n");
+      double mzValues[] = new double[10000];
+      float intensityValues[] = new float[10000];
+      for (MsScan scan : scans) {
+        final int size = scan.getNumberOfDataPoints();
+        mzValues = scan.getMzValues(mzValues);
+        intensityValues = scan.getIntensityValues(intensityValues);
+        ByteBuffer peaks = ByteBuffer.allocate(size * 8);
+        for (int i = 0; i < size; i++) {
+          peaks.putFloat((float) mzValues[i]);
+          peaks.putFloat(intensityValues[i]);
+        }
+        byte peakBytes[] = peaks.array();
+        if (zlib)
+          peakBytes = deflate(peakBytes);
+
+        writer.write("<scan num=\"" + scan.getScanNumber() + "\" msLevel=\"" + scan.getMsLevel()
+            + "\" peaksCount=\"" + size + "\" polarity=\"+\" retentionTime=\"PT"
+            + scan.getRetentionTime() + "S\">\n");
+        writer.write("<peaks precision=\"32\" byteOrder=\"network\" pairOrder=\"m/z-int\""
+            + " compressionType=\"" + (zlib ? "zlib" : "none") + "\" compressedLen=\""
+            + (zlib ? peakBytes.length : 0) + "\">");
+        writer.write(Base64.getEncoder().encodeToString(peakBytes));
+        writer.write("</peaks>\n</scan>\n");
+      }
+      writer.write("</msRun>\n</mzXML>\n");
+    }
+  }
+
+  private static byte[] deflate(byte data[]) {
+    Deflater deflater = new Deflater();
+    deflater.setInput(data);
+    deflater.finish();
+    byte buffer[] = new byte[data.length + 64];
+    int length = 0;
+    while (!deflater.finished()) {
+      if (length == buffer.length)
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      length += deflater.deflate(buffer, length, buffer.length - length);
+    }
+    deflater.end();
+    return Arrays.copyOf(buffer, length);
+  }
+
+}
@@ -13,6 +13,9 @@
 
 package io.github.msdk.datamodel;
 
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -64,6 +67,32 @@ public abstract class AbstractMsSpectrum implements MsSpectrum {
     return array;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull DoubleBuffer getMzBuffer() {
+    if (mzValues == null)
+      return DoubleBuffer.allocate(0).asReadOnlyBuffer();
+    return DoubleBuffer.wrap(mzValues, 0, numOfDataPoints).asReadOnlyBuffer();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull FloatBuffer getIntensityBuffer() {
+    if (intensityValues == null)
+      return FloatBuffer.allocate(0).asReadOnlyBuffer();
+    return FloatBuffer.wrap(intensityValues, 0, numOfDataPoints).asReadOnlyBuffer();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void forEachDataPoint(@Nonnull DataPointConsumer consumer) {
+    final double mzValues[] = this.mzValues;
+    final float intensityValues[] = this.intensityValues;
+    final int size = numOfDataPoints;
+    for (int i = 0; i < size; i++)
+      consumer.accept(i, mzValues[i], intensityValues[i]);
+  }
+
 
   /**
    * {@inheritDoc}
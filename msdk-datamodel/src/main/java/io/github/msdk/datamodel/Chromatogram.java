@@ -13,6 +13,8 @@
 
 package io.github.msdk.datamodel;
 
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.util.List;
 
 import javax.annotation.Nonnull;
@@ -125,6 +127,50 @@ public interface Chromatogram {
   @Nullable
   double[] getMzValues(@Nullable double array[]);
 
+  /**
+   * <p>
+   * Returns a read-only view of the retention times of this chromatogram. The buffer is positioned
+   * at the first data point and its limit is the number of data points. Implementations that keep
+   * the values in memory return a view of their internal storage without copying it. The default
+   * implementation wraps a copy obtained from {@link #getRetentionTimes()}.
+   * </p>
+   *
+   * @return a read-only {@link java.nio.FloatBuffer}.
+   */
+  @Nonnull
+  default FloatBuffer getRetentionTimeBuffer() {
+    return FloatBuffer.wrap(getRetentionTimes(), 0, getNumberOfDataPoints()).asReadOnlyBuffer();
+  }
+
+  /**
+   * <p>
+   * Returns a read-only view of the intensity values of this chromatogram. The same rules as for
+   * {@link #getRetentionTimeBuffer()} apply.
+   * </p>
+   *
+   * @return a read-only {@link java.nio.FloatBuffer}.
+   */
+  @Nonnull
+  default FloatBuffer getIntensityBuffer() {
+    return FloatBuffer.wrap(getIntensityValues(), 0, getNumberOfDataPoints()).asReadOnlyBuffer();
+  }
+
+  /**
+   * <p>
+   * Returns a read-only view of the m/z values of this chromatogram, or null if the chromatogram
+   * has no m/z values. The same rules as for {@link #getRetentionTimeBuffer()} apply.
+   * </p>
+   *
+   * @return a read-only {@link java.nio.DoubleBuffer}, or null.
+   */
+  @Nullable
+  default DoubleBuffer getMzBuffer() {
+    final double mzValues[] = getMzValues();
+    if (mzValues == null)
+      return null;
+    return DoubleBuffer.wrap(mzValues, 0, getNumberOfDataPoints()).asReadOnlyBuffer();
+  }
+
 
   /**
    * Returns the m/z value of this chromatogram, or null if no m/z value is set for the
@@ -0,0 +1,107 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.datamodel;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * <p>
+ * A feature of a {@link io.github.msdk.datamodel.ColumnarFeatureTable}. This is a read-only view of
+ * one cell of the matrices of the table, created when the feature is requested from its row. Two
+ * views of the same cell are equal.
+ * </p>
+ */
+public class ColumnarFeature implements Feature {
+
+  private final @Nonnull ColumnarFeatureTable featureTable;
+  private final int cell;
+
+  ColumnarFeature(@Nonnull ColumnarFeatureTable featureTable, int cell) {
+    this.featureTable = featureTable;
+    this.cell = cell;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Double getMz() {
+    return featureTable.getMz(cell);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getRetentionTime() {
+    return featureTable.getRT(cell);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getArea() {
+    return featureTable.getArea(cell);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getHeight() {
+    return featureTable.getHeight(cell);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getSNRatio() {
+    return featureTable.getSNRatio(cell);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getScore() {
+    return featureTable.getScore(cell);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Chromatogram getChromatogram() {
+    return featureTable.getChromatogram(cell);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<MsScan> getMSMSSpectra() {
+    return featureTable.getMSMSSpectra(cell);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public IonAnnotation getIonAnnotation() {
+    return featureTable.getIonAnnotation(cell);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof ColumnarFeature))
+      return false;
+    final ColumnarFeature other = (ColumnarFeature) obj;
+    return (featureTable == other.featureTable) && (cell == other.cell);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int hashCode() {
+    return System.identityHashCode(featureTable) * 31 + cell;
+  }
+
+}
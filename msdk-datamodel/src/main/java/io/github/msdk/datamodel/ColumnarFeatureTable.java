@@ -0,0 +1,380 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.datamodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * <p>
+ * Implementation of the FeatureTable interface that stores the values of all features in primitive
+ * row &times; sample matrices instead of individual feature objects. The m/z, RT, area, height,
+ * S/N ratio and score of each feature occupy one cell of the corresponding matrix, and bitmaps record
+ * which features and which of their optional values are present. The rare object-valued properties
+ * (chromatogram, MS/MS spectra and ion annotation) are kept in sparse maps.
+ * </p>
+ *
+ * <p>
+ * The rows returned by {@link #getRows()} are {@link io.github.msdk.datamodel.ColumnarFeatureTableRow}
+ * views of one row of the matrices, and their features are
+ * {@link io.github.msdk.datamodel.ColumnarFeature} flyweights created on demand. The average m/z
+ * and RT of each row are maintained when features are set, so reading them does not iterate over the
+ * samples. The samples of the table are fixed when the table is created.
+ * </p>
+ *
+ * <p>
+ * Reading the table from several threads is safe, as long as no thread modifies it at the same time.
+ * </p>
+ */
+public class ColumnarFeatureTable implements FeatureTable {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final @Nonnull List<Sample> samples;
+  private final @Nonnull Map<Sample, Integer> sampleIndices = new HashMap<>();
+  private final int numOfSamples;
+
+  private final @Nonnull ArrayList<FeatureTableRow> rows = new ArrayList<>();
+  private int numOfSlots = 0, slotCapacity = 0;
+
+  // Row x sample matrices, stored row by row
+  private double mzValues[];
+  private float rtValues[], areaValues[], heightValues[], snRatioValues[], scoreValues[];
+  private final BitSet featurePresent = new BitSet(), areaPresent = new BitSet(),
+      heightPresent = new BitSet(), snRatioPresent = new BitSet(), scorePresent = new BitSet();
+  private final Map<Integer, Chromatogram> chromatograms = new HashMap<>();
+  private final Map<Integer, List<MsScan>> msmsSpectra = new HashMap<>();
+  private final Map<Integer, IonAnnotation> ionAnnotations = new HashMap<>();
+
+  // Row values and aggregates, by slot
+  private double mzSums[], rtSums[];
+  private int featureCounts[], charges[];
+  private final BitSet chargePresent = new BitSet();
+
+  /**
+   * <p>
+   * Constructor for ColumnarFeatureTable.
+   * </p>
+   *
+   * @param samples the {@link java.util.List} of samples of the table.
+   */
+  public ColumnarFeatureTable(@Nonnull List<Sample> samples) {
+    Preconditions.checkNotNull(samples);
+    this.samples = ImmutableList.copyOf(samples);
+    this.numOfSamples = samples.size();
+    for (int i = 0; i < numOfSamples; i++) {
+      Preconditions.checkArgument(sampleIndices.put(samples.get(i), i) == null,
+          "Duplicate sample " + samples.get(i).getName());
+    }
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * <p>
+   * Creates a copy of the given feature table, with the same samples, rows and features.
+   * </p>
+   *
+   * @param source a {@link io.github.msdk.datamodel.FeatureTable} object.
+   */
+  public ColumnarFeatureTable(@Nonnull FeatureTable source) {
+    this(source.getSamples());
+    final List<FeatureTableRow> sourceRows = source.getRows();
+    ensureCapacity(sourceRows.size());
+    for (FeatureTableRow sourceRow : sourceRows) {
+      ColumnarFeatureTableRow row = addRow();
+      row.setCharge(sourceRow.getCharge());
+      for (Sample sample : samples) {
+        Feature feature = sourceRow.getFeature(sample);
+        if (feature != null)
+          row.setFeature(sample, feature);
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull List<FeatureTableRow> getRows() {
+    return ImmutableList.copyOf(rows);
+  }
+
+  /**
+   * <p>
+   * Adds a new row without features to the end of the table.
+   * </p>
+   *
+   * @return the new {@link io.github.msdk.datamodel.ColumnarFeatureTableRow}.
+   */
+  public @Nonnull ColumnarFeatureTableRow addRow() {
+    ensureCapacity(numOfSlots + 1);
+    ColumnarFeatureTableRow row = new ColumnarFeatureTableRow(this, numOfSlots++);
+    rows.add(row);
+    return row;
+  }
+
+  /**
+   * <p>
+   * Removes a row and its features from the table. The matrix space of the row is not reused.
+   * </p>
+   *
+   * @param row a {@link io.github.msdk.datamodel.FeatureTableRow} object.
+   */
+  public void removeRow(@Nonnull FeatureTableRow row) {
+    Preconditions.checkNotNull(row);
+    if (!rows.remove(row))
+      return;
+    final int slot = ((ColumnarFeatureTableRow) row).getSlot();
+    for (int s = 0; s < numOfSamples; s++)
+      clearCell(slot * numOfSamples + s);
+    updateRowAggregates(slot);
+    chargePresent.clear(slot);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull List<Sample> getSamples() {
+    return samples;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void dispose() {
+    rows.clear();
+    numOfSlots = 0;
+    allocate(0);
+    featurePresent.clear();
+    areaPresent.clear();
+    heightPresent.clear();
+    snRatioPresent.clear();
+    scorePresent.clear();
+    chargePresent.clear();
+    chromatograms.clear();
+    msmsSpectra.clear();
+    ionAnnotations.clear();
+  }
+
+  /**
+   * Returns the index of the given sample in this table, or -1 if the table does not contain it.
+   */
+  int getSampleIndex(@Nonnull Sample sample) {
+    final Integer index = sampleIndices.get(sample);
+    return index == null ? -1 : index;
+  }
+
+  int getNumberOfSamples() {
+    return numOfSamples;
+  }
+
+  // Row values
+
+  @Nullable
+  Double getRowMz(int slot) {
+    final int count = featureCounts[slot];
+    return count == 0 ? null : mzSums[slot] / count;
+  }
+
+  @Nullable
+  Float getRowRT(int slot) {
+    final int count = featureCounts[slot];
+    return count == 0 ? null : (float) (rtSums[slot] / count);
+  }
+
+  @Nullable
+  Integer getRowCharge(int slot) {
+    return chargePresent.get(slot) ? charges[slot] : null;
+  }
+
+  void setRowCharge(int slot, @Nullable Integer charge) {
+    if (charge == null) {
+      chargePresent.clear(slot);
+    } else {
+      charges[slot] = charge;
+      chargePresent.set(slot);
+    }
+  }
+
+  @Nullable
+  Feature getFeature(int slot, int sampleIndex) {
+    if ((sampleIndex < 0) || (sampleIndex >= numOfSamples))
+      return null;
+    final int cell = slot * numOfSamples + sampleIndex;
+    return featurePresent.get(cell) ? new ColumnarFeature(this, cell) : null;
+  }
+
+  void setFeature(int slot, int sampleIndex, @Nullable Feature feature) {
+    final int cell = slot * numOfSamples + sampleIndex;
+    final boolean replaced = featurePresent.get(cell);
+    if (replaced)
+      clearCell(cell);
+    if (feature == null) {
+      updateRowAggregates(slot);
+      return;
+    }
+
+    final double mz = feature.getMz();
+    final float rt = feature.getRetentionTime();
+    mzValues[cell] = mz;
+    rtValues[cell] = rt;
+    featurePresent.set(cell);
+    setOptionalValue(areaValues, areaPresent, cell, feature.getArea());
+    setOptionalValue(heightValues, heightPresent, cell, feature.getHeight());
+    setOptionalValue(snRatioValues, snRatioPresent, cell, feature.getSNRatio());
+    setOptionalValue(scoreValues, scorePresent, cell, feature.getScore());
+    setOptionalObject(chromatograms, cell, feature.getChromatogram());
+    setOptionalObject(msmsSpectra, cell, feature.getMSMSSpectra());
+    setOptionalObject(ionAnnotations, cell, feature.getIonAnnotation());
+
+    if (replaced) {
+      updateRowAggregates(slot);
+    } else {
+      mzSums[slot] += mz;
+      rtSums[slot] += rt;
+      featureCounts[slot]++;
+    }
+  }
+
+  // Feature values, by cell
+
+  double getMz(int cell) {
+    return mzValues[cell];
+  }
+
+  float getRT(int cell) {
+    return rtValues[cell];
+  }
+
+  @Nullable
+  Float getArea(int cell) {
+    return areaPresent.get(cell) ? areaValues[cell] : null;
+  }
+
+  @Nullable
+  Float getHeight(int cell) {
+    return heightPresent.get(cell) ? heightValues[cell] : null;
+  }
+
+  @Nullable
+  Float getSNRatio(int cell) {
+    return snRatioPresent.get(cell) ? snRatioValues[cell] : null;
+  }
+
+  @Nullable
+  Float getScore(int cell) {
+    return scorePresent.get(cell) ? scoreValues[cell] : null;
+  }
+
+  @Nullable
+  Chromatogram getChromatogram(int cell) {
+    return chromatograms.get(cell);
+  }
+
+  @Nullable
+  List<MsScan> getMSMSSpectra(int cell) {
+    return msmsSpectra.get(cell);
+  }
+
+  @Nullable
+  IonAnnotation getIonAnnotation(int cell) {
+    return ionAnnotations.get(cell);
+  }
+
+  private void clearCell(int cell) {
+    featurePresent.clear(cell);
+    areaPresent.clear(cell);
+    heightPresent.clear(cell);
+    snRatioPresent.clear(cell);
+    scorePresent.clear(cell);
+    chromatograms.remove(cell);
+    msmsSpectra.remove(cell);
+    ionAnnotations.remove(cell);
+  }
+
+  /**
+   * Recalculates the sums of a row from its features, after a feature was replaced or removed.
+   */
+  private void updateRowAggregates(int slot) {
+    double mzSum = 0, rtSum = 0;
+    int count = 0;
+    final int firstCell = slot * numOfSamples;
+    for (int cell = featurePresent.nextSetBit(firstCell); (cell >= 0)
+        && (cell < firstCell + numOfSamples); cell = featurePresent.nextSetBit(cell + 1)) {
+      mzSum += mzValues[cell];
+      rtSum += rtValues[cell];
+      count++;
+    }
+    mzSums[slot] = mzSum;
+    rtSums[slot] = rtSum;
+    featureCounts[slot] = count;
+  }
+
+  private static void setOptionalValue(float values[], BitSet present, int cell,
+      @Nullable Float value) {
+    if (value == null)
+      return;
+    values[cell] = value;
+    present.set(cell);
+  }
+
+  private static <T> void setOptionalObject(Map<Integer, T> map, int cell, @Nullable T value) {
+    if (value != null)
+      map.put(cell, value);
+  }
+
+  private void ensureCapacity(int requiredSlots) {
+    if (requiredSlots <= slotCapacity)
+      return;
+    allocate(Math.max(requiredSlots, slotCapacity * 2));
+  }
+
+  private void allocate(int newSlotCapacity) {
+    final long numOfCells = (long) newSlotCapacity * Math.max(numOfSamples, 1);
+    Preconditions.checkState(numOfCells <= Integer.MAX_VALUE - 8, "Feature table is too large");
+    final int cells = (int) numOfCells;
+    if (mzValues == null) {
+      mzValues = new double[cells];
+      rtValues = new float[cells];
+      areaValues = new float[cells];
+      heightValues = new float[cells];
+      snRatioValues = new float[cells];
+      scoreValues = new float[cells];
+      mzSums = new double[newSlotCapacity];
+      rtSums = new double[newSlotCapacity];
+      featureCounts = new int[newSlotCapacity];
+      charges = new int[newSlotCapacity];
+    } else {
+      mzValues = Arrays.copyOf(mzValues, cells);
+      rtValues = Arrays.copyOf(rtValues, cells);
+      areaValues = Arrays.copyOf(areaValues, cells);
+      heightValues = Arrays.copyOf(heightValues, cells);
+      snRatioValues = Arrays.copyOf(snRatioValues, cells);
+      scoreValues = Arrays.copyOf(scoreValues, cells);
+      mzSums = Arrays.copyOf(mzSums, newSlotCapacity);
+      rtSums = Arrays.copyOf(rtSums, newSlotCapacity);
+      featureCounts = Arrays.copyOf(featureCounts, newSlotCapacity);
+      charges = Arrays.copyOf(charges, newSlotCapacity);
+    }
+    slotCapacity = newSlotCapacity;
+  }
+
+}
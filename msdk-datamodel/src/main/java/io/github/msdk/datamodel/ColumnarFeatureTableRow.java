@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.datamodel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.github.msdk.MSDKRuntimeException;
+
+/**
+ * <p>
+ * A row of a {@link io.github.msdk.datamodel.ColumnarFeatureTable}. The row holds no values itself,
+ * it only refers to one row of the matrices of the table. Instances are created by
+ * {@link io.github.msdk.datamodel.ColumnarFeatureTable#addRow()}.
+ * </p>
+ *
+ * <p>
+ * The m/z and RT of the row are the averages over its features, or null if the row has no features.
+ * </p>
+ */
+public class ColumnarFeatureTableRow implements FeatureTableRow {
+
+  private final @Nonnull ColumnarFeatureTable featureTable;
+  private final int slot;
+
+  ColumnarFeatureTableRow(@Nonnull ColumnarFeatureTable featureTable, int slot) {
+    this.featureTable = featureTable;
+    this.slot = slot;
+  }
+
+  int getSlot() {
+    return slot;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull FeatureTable getFeatureTable() {
+    return featureTable;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Double getMz() {
+    return featureTable.getRowMz(slot);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getRT() {
+    return featureTable.getRowRT(slot);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Integer getCharge() {
+    return featureTable.getRowCharge(slot);
+  }
+
+  /**
+   * <p>Setter for the field <code>charge</code>.</p>
+   *
+   * @param charge a {@link java.lang.Integer} object.
+   */
+  public void setCharge(@Nullable Integer charge) {
+    featureTable.setRowCharge(slot, charge);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Feature getFeature(@Nonnull Sample sample) {
+    return featureTable.getFeature(slot, featureTable.getSampleIndex(sample));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Feature getFeature(@Nonnull Integer index) {
+    return featureTable.getFeature(slot, index);
+  }
+
+  /**
+   * <p>
+   * Stores the values of the given feature in the cell of the given sample. Later changes of the
+   * feature object are not reflected in the table.
+   * </p>
+   *
+   * @param sample a {@link io.github.msdk.datamodel.Sample} object.
+   * @param feature a {@link io.github.msdk.datamodel.Feature} object, or null to remove the
+   *        feature of the sample
+   */
+  public void setFeature(@Nonnull Sample sample, @Nullable Feature feature) {
+    final int sampleIndex = featureTable.getSampleIndex(sample);
+    if (sampleIndex < 0) {
+      throw new MSDKRuntimeException(
+          "Cannot add feature, because the feature table does not contain sample "
+              + sample.getName());
+    }
+    featureTable.setFeature(slot, sampleIndex, feature);
+  }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.util.MsSpectrumUtil;
+import io.github.msdk.util.tolerances.MzTolerance;
+
+/**
+ * <p>
+ * A scan stored in a {@link io.github.msdk.datamodel.ColumnarRawDataFile}. The scan metadata is
+ * kept on the heap, but the data points are read directly from the off-heap columns of the file.
+ * Instances are created by {@link io.github.msdk.datamodel.ColumnarRawDataFile#addScan(MsScan)}.
+ * </p>
+ */
+public class ColumnarMsScan implements MsScan {
+
+  private final @Nonnull ColumnarRawDataFile dataFile;
+  private final int segment, offset, numOfDataPoints;
+
+  private final @Nonnull Integer scanNumber;
+  private final @Nullable String scanDefinition;
+  private final @Nullable String msFunction;
+  private final @Nonnull Integer msLevel;
+  private final @Nonnull PolarityType polarity;
+  private final @Nonnull MsScanType msScanType;
+  private final @Nonnull MsSpectrumType spectrumType;
+  private final @Nullable MzTolerance mzTolerance;
+  private final @Nullable Range<Double> scanningRange;
+  private final @Nullable Range<Double> mzRange;
+  private final @Nullable Float rt;
+  private final @Nonnull Float totalIonCurrent;
+  private final @Nullable ActivationInfo sourceInducedFragInfo;
+  private final @Nonnull List<IsolationInfo> isolations;
+
+  ColumnarMsScan(@Nonnull ColumnarRawDataFile dataFile, @Nonnull MsScan source, int segment,
+      int offset, int numOfDataPoints, @Nonnull double mzValues[],
+      @Nonnull float intensityValues[]) {
+    this.dataFile = dataFile;
+    this.segment = segment;
+    this.offset = offset;
+    this.numOfDataPoints = numOfDataPoints;
+
+    this.scanNumber = source.getScanNumber();
+    this.scanDefinition = source.getScanDefinition();
+    this.msFunction = source.getMsFunction();
+    this.msLevel = source.getMsLevel();
+    this.polarity = source.getPolarity();
+    this.msScanType = source.getMsScanType();
+    this.spectrumType = source.getSpectrumType();
+    this.mzTolerance = source.getMzTolerance();
+    this.scanningRange = source.getScanningRange();
+    this.rt = source.getRetentionTime();
+    this.sourceInducedFragInfo = source.getSourceInducedFragmentation();
+    this.isolations = new ArrayList<>(source.getIsolations());
+
+    this.mzRange = MsSpectrumUtil.getMzRange(mzValues, numOfDataPoints);
+    this.totalIonCurrent = MsSpectrumUtil.getTIC(intensityValues, numOfDataPoints);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Integer getNumberOfDataPoints() {
+    return numOfDataPoints;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public double[] getMzValues(@Nullable double array[]) {
+    if ((array == null) || (array.length < numOfDataPoints))
+      array = new double[numOfDataPoints];
+    // Absolute reads do not touch the buffer position, so concurrent readers are safe
+    final DoubleBuffer column = dataFile.getMzSegment(segment);
+    for (int i = 0; i < numOfDataPoints; i++)
+      array[i] = column.get(offset + i);
+    return array;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public float[] getIntensityValues(@Nullable float array[]) {
+    if ((array == null) || (array.length < numOfDataPoints))
+      array = new float[numOfDataPoints];
+    final FloatBuffer column = dataFile.getIntensitySegment(segment);
+    for (int i = 0; i < numOfDataPoints; i++)
+      array[i] = column.get(offset + i);
+    return array;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public DoubleBuffer getMzBuffer() {
+    // Each call gets its own view, so the shared column position is never modified
+    DoubleBuffer view = dataFile.getMzSegment(segment).duplicate();
+    view.limit(offset + numOfDataPoints).position(offset);
+    return view.slice().asReadOnlyBuffer();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public FloatBuffer getIntensityBuffer() {
+    FloatBuffer view = dataFile.getIntensitySegment(segment).duplicate();
+    view.limit(offset + numOfDataPoints).position(offset);
+    return view.slice().asReadOnlyBuffer();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void forEachDataPoint(@Nonnull DataPointConsumer consumer) {
+    final DoubleBuffer mzColumn = dataFile.getMzSegment(segment);
+    final FloatBuffer intensityColumn = dataFile.getIntensitySegment(segment);
+    for (int i = 0; i < numOfDataPoints; i++)
+      consumer.accept(i, mzColumn.get(offset + i), intensityColumn.get(offset + i));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public MsSpectrumType getSpectrumType() {
+    return spectrumType;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Float getTIC() {
+    return totalIonCurrent;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public Range<Double> getMzRange() {
+    return mzRange;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public MzTolerance getMzTolerance() {
+    return mzTolerance;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public RawDataFile getRawDataFile() {
+    return dataFile;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Integer getScanNumber() {
+    return scanNumber;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public String getScanDefinition() {
+    return scanDefinition;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public String getMsFunction() {
+    return msFunction;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Integer getMsLevel() {
+    return msLevel;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public MsScanType getMsScanType() {
+    return msScanType;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public Float getRetentionTime() {
+    return rt;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public Range<Double> getScanningRange() {
+    return scanningRange;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public PolarityType getPolarity() {
+    return polarity;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public ActivationInfo getSourceInducedFragmentation() {
+    return sourceInducedFragInfo;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public List<IsolationInfo> getIsolations() {
+    return isolations;
+  }
+
+}
@@ -0,0 +1,366 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import io.github.msdk.MSDKRuntimeException;
+
+/**
+ * <p>
+ * Implementation of the RawDataFile interface that keeps the data points of all scans outside of
+ * the Java heap. The m/z and intensity values are appended to a few large, contiguous columns
+ * (direct buffers, or memory-mapped temporary files if a temporary directory is given), and each
+ * scan only remembers the segment, offset and length of its data points. The scans returned by
+ * {@link #getScans()} are lightweight {@link io.github.msdk.datamodel.ColumnarMsScan} views
+ * that serve their values straight from those columns.
+ * </p>
+ *
+ * <p>
+ * Any importer can build such file by passing its scans to {@link #addScan(MsScan)}, which copies
+ * the metadata and the data points of the given scan, so the source scan can be discarded
+ * afterwards.
+ * </p>
+ */
+public class ColumnarRawDataFile implements RawDataFile {
+
+  /** Default number of data points stored in one segment of the columns. */
+  public static final int DEFAULT_SEGMENT_SIZE = 1 << 22;
+
+  private @Nonnull String rawDataFileName;
+  private @Nonnull Optional<File> originalRawDataFile;
+  private @Nonnull FileType rawDataFileType;
+  private final @Nullable File tmpDirectory;
+  private final int segmentSize;
+
+  private final @Nonnull ArrayList<MsScan> scans = new ArrayList<>();
+  private final @Nonnull ArrayList<Chromatogram> chromatograms = new ArrayList<>();
+
+  // Columns, split into segments which are never resized
+  private final @Nonnull ArrayList<DoubleBuffer> mzSegments = new ArrayList<>();
+  private final @Nonnull ArrayList<FloatBuffer> intensitySegments = new ArrayList<>();
+  private final @Nonnull ArrayList<File> segmentFiles = new ArrayList<>();
+  private int segmentFill = 0;
+  private long storedDataPoints = 0;
+
+  // Buffers reused for copying the data points of the added scans
+  private double mzBuffer[] = new double[10000];
+  private float intensityBuffer[] = new float[10000];
+
+  private volatile boolean disposed = false;
+
+  /**
+   * <p>
+   * Constructor for ColumnarRawDataFile. The data points are kept in direct (off-heap) buffers.
+   * </p>
+   *
+   * @param rawDataFileName a {@link java.lang.String} object.
+   * @param originalRawDataFile a {@link java.util.Optional} object.
+   * @param rawDataFileType a {@link io.github.msdk.datamodel.FileType} object.
+   */
+  public ColumnarRawDataFile(@Nonnull String rawDataFileName,
+      @Nonnull Optional<File> originalRawDataFile, @Nonnull FileType rawDataFileType) {
+    this(rawDataFileName, originalRawDataFile, rawDataFileType, null, DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * <p>
+   * Constructor for ColumnarRawDataFile.
+   * </p>
+   *
+   * @param rawDataFileName a {@link java.lang.String} object.
+   * @param originalRawDataFile a {@link java.util.Optional} object.
+   * @param rawDataFileType a {@link io.github.msdk.datamodel.FileType} object.
+   * @param tmpDirectory directory for the memory-mapped temporary files backing the columns, or
+   *        null to keep the columns in direct buffers
+   * @param segmentSize number of data points per column segment
+   */
+  public ColumnarRawDataFile(@Nonnull String rawDataFileName,
+      @Nonnull Optional<File> originalRawDataFile, @Nonnull FileType rawDataFileType,
+      @Nullable File tmpDirectory, int segmentSize) {
+    Preconditions.checkNotNull(rawDataFileName);
+    Preconditions.checkNotNull(originalRawDataFile);
+    Preconditions.checkNotNull(rawDataFileType);
+    Preconditions.checkArgument(segmentSize > 0, "Segment size must be positive");
+    this.rawDataFileName = rawDataFileName;
+    this.originalRawDataFile = originalRawDataFile;
+    this.rawDataFileType = rawDataFileType;
+    this.tmpDirectory = tmpDirectory;
+    this.segmentSize = segmentSize;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull String getName() {
+    return rawDataFileName;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>rawDataFileName</code>.
+   * </p>
+   *
+   * @param name a {@link java.lang.String} object.
+   */
+  public void setName(@Nonnull String name) {
+    Preconditions.checkNotNull(name);
+    this.rawDataFileName = name;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Optional<File> getOriginalFile() {
+    return originalRawDataFile;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public String getOriginalFilename() {
+    if (originalRawDataFile.isPresent()) {
+      return originalRawDataFile.get().getName();
+    }
+
+    return "Unknown";
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull FileType getRawDataFileType() {
+    return rawDataFileType;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public List<String> getMsFunctions() {
+    ArrayList<String> msFunctionList = new ArrayList<>();
+    synchronized (scans) {
+      for (MsScan scan : scans) {
+        String f = scan.getMsFunction();
+        if ((f != null) && (!msFunctionList.contains(f)))
+          msFunctionList.add(f);
+      }
+    }
+    return msFunctionList;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull List<MsScan> getScans() {
+    synchronized (scans) {
+      return ImmutableList.copyOf(scans);
+    }
+  }
+
+  /**
+   * <p>
+   * Copies the given scan into the columns of this file and appends a view of it to the scan list.
+   * The given scan is not modified and is not referenced by this file afterwards.
+   * </p>
+   *
+   * @param scan a {@link io.github.msdk.datamodel.MsScan} object.
+   * @return the {@link io.github.msdk.datamodel.ColumnarMsScan} view of the stored scan
+   */
+  public @Nonnull ColumnarMsScan addScan(@Nonnull MsScan scan) {
+    Preconditions.checkNotNull(scan);
+
+    synchronized (scans) {
+      checkNotDisposed();
+      final int size = scan.getNumberOfDataPoints();
+      if (mzBuffer.length < size) {
+        mzBuffer = new double[size];
+        intensityBuffer = new float[size];
+      }
+      mzBuffer = scan.getMzValues(mzBuffer);
+      intensityBuffer = scan.getIntensityValues(intensityBuffer);
+
+      // Find a segment which can hold all data points of the scan
+      if (mzSegments.isEmpty() || (segmentFill + size > segmentSize)) {
+        allocateSegment(Math.max(size, segmentSize));
+        segmentFill = 0;
+      }
+      final int segment = mzSegments.size() - 1;
+      final int offset = segmentFill;
+      final DoubleBuffer mzSegment = mzSegments.get(segment);
+      final FloatBuffer intensitySegment = intensitySegments.get(segment);
+      for (int i = 0; i < size; i++) {
+        mzSegment.put(offset + i, mzBuffer[i]);
+        intensitySegment.put(offset + i, intensityBuffer[i]);
+      }
+      segmentFill += size;
+      storedDataPoints += size;
+
+      ColumnarMsScan newScan =
+          new ColumnarMsScan(this, scan, segment, offset, size, mzBuffer, intensityBuffer);
+      scans.add(newScan);
+      return newScan;
+    }
+  }
+
+  /**
+   * <p>
+   * Removes the given scan from the scan list. The space occupied by its data points is released
+   * only when the file is disposed.
+   * </p>
+   *
+   * @param scan a {@link io.github.msdk.datamodel.MsScan} object.
+   */
+  public void removeScan(@Nonnull MsScan scan) {
+    Preconditions.checkNotNull(scan);
+    synchronized (scans) {
+      scans.remove(scan);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public List<Chromatogram> getChromatograms() {
+    synchronized (chromatograms) {
+      return ImmutableList.copyOf(chromatograms);
+    }
+  }
+
+  /**
+   * <p>
+   * addChromatogram.
+   * </p>
+   *
+   * @param chromatogram a {@link io.github.msdk.datamodel.Chromatogram} object.
+   */
+  public void addChromatogram(@Nonnull Chromatogram chromatogram) {
+    Preconditions.checkNotNull(chromatogram);
+    synchronized (chromatograms) {
+      chromatograms.add(chromatogram);
+    }
+  }
+
+  /**
+   * <p>
+   * removeChromatogram.
+   * </p>
+   *
+   * @param chromatogram a {@link io.github.msdk.datamodel.Chromatogram} object.
+   */
+  public void removeChromatogram(@Nonnull Chromatogram chromatogram) {
+    Preconditions.checkNotNull(chromatogram);
+    synchronized (chromatograms) {
+      chromatograms.remove(chromatogram);
+    }
+  }
+
+  /**
+   * Returns the total number of data points stored in the columns of this file.
+   *
+   * @return number of stored data points
+   */
+  public long getNumberOfStoredDataPoints() {
+    synchronized (scans) {
+      return storedDataPoints;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void dispose() {
+    synchronized (scans) {
+      disposed = true;
+      scans.clear();
+      mzSegments.clear();
+      intensitySegments.clear();
+      for (File f : segmentFiles)
+        f.delete();
+      segmentFiles.clear();
+    }
+    synchronized (chromatograms) {
+      chromatograms.clear();
+    }
+  }
+
+  // The segment lists are appended to by addScan() and cleared by dispose() under the same lock
+  @Nonnull
+  DoubleBuffer getMzSegment(int segment) {
+    synchronized (scans) {
+      checkNotDisposed();
+      return mzSegments.get(segment);
+    }
+  }
+
+  @Nonnull
+  FloatBuffer getIntensitySegment(int segment) {
+    synchronized (scans) {
+      checkNotDisposed();
+      return intensitySegments.get(segment);
+    }
+  }
+
+  private void checkNotDisposed() {
+    if (disposed)
+      throw new IllegalStateException("Raw data file " + rawDataFileName + " has been disposed");
+  }
+
+  private void allocateSegment(int numOfDataPoints) {
+    final long mzBytes = (long) numOfDataPoints * Double.BYTES;
+    final long intensityBytes = (long) numOfDataPoints * Float.BYTES;
+    if (mzBytes > Integer.MAX_VALUE)
+      throw new MSDKRuntimeException(
+          "Cannot store a scan with " + numOfDataPoints + " data points in a single segment");
+
+    ByteBuffer mzBytesBuffer, intensityBytesBuffer;
+    if (tmpDirectory == null) {
+      mzBytesBuffer = ByteBuffer.allocateDirect((int) mzBytes);
+      intensityBytesBuffer = ByteBuffer.allocateDirect((int) intensityBytes);
+    } else {
+      mzBytesBuffer = mapTemporaryFile(mzBytes);
+      intensityBytesBuffer = mapTemporaryFile(intensityBytes);
+    }
+
+    mzSegments.add(mzBytesBuffer.order(ByteOrder.nativeOrder()).asDoubleBuffer());
+    intensitySegments.add(intensityBytesBuffer.order(ByteOrder.nativeOrder()).asFloatBuffer());
+  }
+
+  private ByteBuffer mapTemporaryFile(long size) {
+    try {
+      File tmpFile = File.createTempFile("msdk", ".tmp", tmpDirectory);
+      tmpFile.deleteOnExit();
+      segmentFiles.add(tmpFile);
+      try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw")) {
+        raf.setLength(size);
+        // The mapping stays valid after the channel is closed
+        return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      }
+    } catch (IOException e) {
+      throw new MSDKRuntimeException(e);
+    }
+  }
+
+}
@@ -0,0 +1,290 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.datamodel;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * A memory-bounded cache for the decoded data points of lazily loaded spectra. Scans which read
+ * their m/z and intensity values from a file on demand (e.g. mzML, mzXML or NetCDF scans) can keep
+ * the decoded arrays in a cache instead of holding them forever, so that the total heap used by
+ * the data points stays within a fixed budget regardless of the number of opened files. A single
+ * instance is meant to be shared by all the files of a project.
+ * </p>
+ *
+ * <p>
+ * The budget is given in bytes and the size of each entry is estimated from the length of its
+ * array. When the budget is exceeded, the least recently used entries are evicted and will be
+ * decoded again on the next access. Arrays larger than the whole budget are returned to the
+ * caller but not stored. The cached arrays are shared between all callers, therefore they must
+ * never be modified or handed out to code outside of the owning spectrum.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe. The loaders run outside of the cache lock, so several threads can
+ * decode different spectra at the same time. If two threads load the same entry concurrently, the
+ * first stored array is returned to both.
+ * </p>
+ */
+public class DataPointCache {
+
+  // Estimated size of the key, the map entry and the array header of each entry
+  private static final long ENTRY_OVERHEAD = 80;
+
+  private final long maximumBytes;
+
+  // Access-ordered, so the eldest entry is always the least recently used one
+  private final LinkedHashMap<Key, Object> entries = new LinkedHashMap<>(64, 0.75f, true);
+  private long usedBytes = 0;
+  private long hitCount = 0, missCount = 0, evictionCount = 0;
+
+  /**
+   * <p>
+   * Constructor for DataPointCache.
+   * </p>
+   *
+   * @param maximumBytes the maximum estimated number of bytes used by the cached arrays
+   */
+  public DataPointCache(long maximumBytes) {
+    Preconditions.checkArgument(maximumBytes > 0, "The cache size must be positive");
+    this.maximumBytes = maximumBytes;
+  }
+
+  /**
+   * <p>
+   * Returns the double array stored under the given owner and slot. If the array is not cached, it
+   * is obtained from the loader and stored in the cache.
+   * </p>
+   *
+   * @param owner the object owning the array, compared by identity (typically the spectrum)
+   * @param slot distinguishes several arrays of the same owner
+   * @param loader a {@link java.util.function.Supplier} decoding the array on a cache miss
+   * @return the cached or the newly loaded array
+   */
+  public @Nonnull double[] getDoubleArray(@Nonnull Object owner, int slot,
+      @Nonnull Supplier<double[]> loader) {
+    final Key key = new Key(owner, slot);
+    final double cached[] = (double[]) lookup(key);
+    if (cached != null)
+      return cached;
+    final double loaded[] = loader.get();
+    return (double[]) store(key, loaded, (long) loaded.length * Double.BYTES);
+  }
+
+  /**
+   * <p>
+   * Returns the float array stored under the given owner and slot. If the array is not cached, it
+   * is obtained from the loader and stored in the cache.
+   * </p>
+   *
+   * @param owner the object owning the array, compared by identity (typically the spectrum)
+   * @param slot distinguishes several arrays of the same owner
+   * @param loader a {@link java.util.function.Supplier} decoding the array on a cache miss
+   * @return the cached or the newly loaded array
+   */
+  public @Nonnull float[] getFloatArray(@Nonnull Object owner, int slot,
+      @Nonnull Supplier<float[]> loader) {
+    final Key key = new Key(owner, slot);
+    final float cached[] = (float[]) lookup(key);
+    if (cached != null)
+      return cached;
+    final float loaded[] = loader.get();
+    return (float[]) store(key, loaded, (long) loaded.length * Float.BYTES);
+  }
+
+  /**
+   * <p>
+   * Stores an already decoded double array, e.g. when an importer has decoded the data points
+   * anyway. An array already cached under the same owner and slot is kept.
+   * </p>
+   *
+   * @param owner the object owning the array, compared by identity
+   * @param slot distinguishes several arrays of the same owner
+   * @param values the array to cache, which must not be modified afterwards
+   */
+  public void putDoubleArray(@Nonnull Object owner, int slot, @Nonnull double values[]) {
+    store(new Key(owner, slot), values, (long) values.length * Double.BYTES);
+  }
+
+  /**
+   * <p>
+   * Stores an already decoded float array, e.g. when an importer has decoded the data points
+   * anyway. An array already cached under the same owner and slot is kept.
+   * </p>
+   *
+   * @param owner the object owning the array, compared by identity
+   * @param slot distinguishes several arrays of the same owner
+   * @param values the array to cache, which must not be modified afterwards
+   */
+  public void putFloatArray(@Nonnull Object owner, int slot, @Nonnull float values[]) {
+    store(new Key(owner, slot), values, (long) values.length * Float.BYTES);
+  }
+
+  /**
+   * <p>
+   * Removes all arrays whose owner matches the given predicate, e.g. the scans of a disposed file.
+   * Removed entries are not counted as evictions.
+   * </p>
+   *
+   * @param ownerFilter a {@link java.util.function.Predicate} selecting the owners to remove
+   */
+  public synchronized void invalidateIf(@Nonnull Predicate<Object> ownerFilter) {
+    Iterator<Map.Entry<Key, Object>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Key, Object> entry = iterator.next();
+      if (ownerFilter.test(entry.getKey().owner)) {
+        usedBytes -= entry.getKey().bytes;
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Removes all arrays from the cache. The statistics are not reset.
+   * </p>
+   */
+  public synchronized void invalidateAll() {
+    entries.clear();
+    usedBytes = 0;
+  }
+
+  /**
+   * @return the maximum estimated number of bytes used by the cached arrays
+   */
+  public long getMaximumBytes() {
+    return maximumBytes;
+  }
+
+  /**
+   * @return the estimated number of bytes currently used by the cached arrays
+   */
+  public synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  /**
+   * @return the number of arrays currently in the cache
+   */
+  public synchronized int getEntryCount() {
+    return entries.size();
+  }
+
+  /**
+   * @return the number of lookups which found the array in the cache
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return the number of lookups which had to load the array
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return the number of arrays removed from the cache to stay within the budget
+   */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * @return the ratio of lookups which found the array in the cache, or 0 if there was no lookup
+   */
+  public synchronized double getHitRate() {
+    final long lookups = hitCount + missCount;
+    return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public synchronized String toString() {
+    return "DataPointCache [entries=" + entries.size() + ", usedBytes=" + usedBytes
+        + ", maximumBytes=" + maximumBytes + ", hits=" + hitCount + ", misses=" + missCount
+        + ", evictions=" + evictionCount + "]";
+  }
+
+  private synchronized Object lookup(Key key) {
+    final Object value = entries.get(key);
+    if (value != null)
+      hitCount++;
+    else
+      missCount++;
+    return value;
+  }
+
+  private synchronized Object store(Key key, Object value, long arrayBytes) {
+    final Object existing = entries.get(key);
+    if (existing != null)
+      return existing;
+
+    key.bytes = arrayBytes + ENTRY_OVERHEAD;
+    if (key.bytes > maximumBytes)
+      return value;
+
+    entries.put(key, value);
+    usedBytes += key.bytes;
+
+    Iterator<Key> eldest = entries.keySet().iterator();
+    while (usedBytes > maximumBytes) {
+      Key evicted = eldest.next();
+      usedBytes -= evicted.bytes;
+      eldest.remove();
+      evictionCount++;
+    }
+    return value;
+  }
+
+  /**
+   * Identifies an array by the identity of its owner and a slot number.
+   */
+  private static final class Key {
+
+    private final Object owner;
+    private final int slot;
+    private long bytes;
+
+    Key(@Nonnull Object owner, int slot) {
+      this.owner = Preconditions.checkNotNull(owner);
+      this.slot = slot;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(owner) * 31 + slot;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key))
+        return false;
+      Key other = (Key) obj;
+      return owner == other.owner && slot == other.slot;
+    }
+  }
+
+}
@@ -0,0 +1,32 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+/**
+ * Visitor of the data points of a {@link io.github.msdk.datamodel.MsSpectrum}, see
+ * {@link io.github.msdk.datamodel.MsSpectrum#forEachDataPoint(DataPointConsumer)}.
+ */
+@FunctionalInterface
+public interface DataPointConsumer {
+
+  /**
+   * Called once for every data point of the spectrum, in the order of the data points.
+   *
+   * @param index index of the data point
+   * @param mz m/z value of the data point
+   * @param intensity intensity value of the data point
+   */
+  void accept(int index, double mz, float intensity);
+
+}
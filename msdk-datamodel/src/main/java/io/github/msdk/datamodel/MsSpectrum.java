@@ -13,6 +13,9 @@
 
 package io.github.msdk.datamodel;
 
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -100,6 +103,52 @@ public interface MsSpectrum {
   @Nonnull
   float[] getIntensityValues(float array[]);
 
+  /**
+   * <p>
+   * Returns a read-only view of the m/z values of this spectrum. The buffer is positioned at the
+   * first data point and its limit is the number of data points. Implementations that keep the
+   * values in memory return a view of their internal storage without copying it, so the view
+   * reflects later changes of the data points. The default implementation wraps a copy obtained
+   * from {@link #getMzValues()}.
+   * </p>
+   *
+   * @return a read-only {@link java.nio.DoubleBuffer}.
+   */
+  @Nonnull
+  default DoubleBuffer getMzBuffer() {
+    return DoubleBuffer.wrap(getMzValues(), 0, getNumberOfDataPoints()).asReadOnlyBuffer();
+  }
+
+  /**
+   * <p>
+   * Returns a read-only view of the intensity values of this spectrum. The same rules as for
+   * {@link #getMzBuffer()} apply.
+   * </p>
+   *
+   * @return a read-only {@link java.nio.FloatBuffer}.
+   */
+  @Nonnull
+  default FloatBuffer getIntensityBuffer() {
+    return FloatBuffer.wrap(getIntensityValues(), 0, getNumberOfDataPoints()).asReadOnlyBuffer();
+  }
+
+  /**
+   * <p>
+   * Passes all data points of this spectrum to the given consumer, in the order of the data
+   * points. Unlike {@link #getMzValues()} and {@link #getIntensityValues()}, implementations
+   * that keep the values in memory do not copy or allocate anything.
+   * </p>
+   *
+   * @param consumer a {@link io.github.msdk.datamodel.DataPointConsumer} object.
+   */
+  default void forEachDataPoint(@Nonnull DataPointConsumer consumer) {
+    final DoubleBuffer mzBuffer = getMzBuffer();
+    final FloatBuffer intensityBuffer = getIntensityBuffer();
+    final int size = mzBuffer.limit();
+    for (int i = 0; i < size; i++)
+      consumer.accept(i, mzBuffer.get(i), intensityBuffer.get(i));
+  }
+
   /**
    * Returns the sum of intensities of all data points (total ion current or TIC).
    *
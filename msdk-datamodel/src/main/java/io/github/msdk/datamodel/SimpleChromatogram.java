@@ -13,6 +13,8 @@
 
 package io.github.msdk.datamodel;
 
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -154,6 +156,30 @@ public class SimpleChromatogram implements Chromatogram {
     return array;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull FloatBuffer getRetentionTimeBuffer() {
+    if (rtValues == null)
+      return FloatBuffer.allocate(0).asReadOnlyBuffer();
+    return FloatBuffer.wrap(rtValues, 0, numOfDataPoints).asReadOnlyBuffer();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull FloatBuffer getIntensityBuffer() {
+    if (intensityValues == null)
+      return FloatBuffer.allocate(0).asReadOnlyBuffer();
+    return FloatBuffer.wrap(intensityValues, 0, numOfDataPoints).asReadOnlyBuffer();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nullable DoubleBuffer getMzBuffer() {
+    if (mzValues == null)
+      return null;
+    return DoubleBuffer.wrap(mzValues, 0, numOfDataPoints).asReadOnlyBuffer();
+  }
+
   /**
    * {@inheritDoc}
    *
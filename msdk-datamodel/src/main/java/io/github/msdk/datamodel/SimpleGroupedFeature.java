@@ -0,0 +1,123 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.datamodel;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Implementation of the GroupedFeature interface. The m/z, retention time and all other feature
+ * values are those of a representative feature, typically the monoisotopic peak of an isotope
+ * pattern.
+ */
+public class SimpleGroupedFeature implements GroupedFeature {
+
+  private final @Nonnull Feature representativeFeature;
+  private final @Nonnull List<Feature> individualFeatures;
+  private final @Nullable Integer charge;
+
+  /**
+   * <p>
+   * Constructor for SimpleGroupedFeature.
+   * </p>
+   *
+   * @param representativeFeature the {@link io.github.msdk.datamodel.Feature} providing the values
+   *        of the group, usually one of the individual features.
+   * @param individualFeatures a {@link java.util.List} of all features of the group.
+   * @param charge the charge of the group, or null if unknown.
+   */
+  public SimpleGroupedFeature(@Nonnull Feature representativeFeature,
+      @Nonnull List<Feature> individualFeatures, @Nullable Integer charge) {
+    Preconditions.checkNotNull(representativeFeature);
+    Preconditions.checkNotNull(individualFeatures);
+    this.representativeFeature = representativeFeature;
+    this.individualFeatures = Collections.unmodifiableList(individualFeatures);
+    this.charge = charge;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public List<Feature> getIndividualFeatures() {
+    return individualFeatures;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public Integer getCharge() {
+    return charge;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Double getMz() {
+    return representativeFeature.getMz();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getRetentionTime() {
+    return representativeFeature.getRetentionTime();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getArea() {
+    return representativeFeature.getArea();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getHeight() {
+    return representativeFeature.getHeight();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getSNRatio() {
+    return representativeFeature.getSNRatio();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getScore() {
+    return representativeFeature.getScore();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Chromatogram getChromatogram() {
+    return representativeFeature.getChromatogram();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<MsScan> getMSMSSpectra() {
+    return representativeFeature.getMSMSSpectra();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public IonAnnotation getIonAnnotation() {
+    return representativeFeature.getIonAnnotation();
+  }
+
+}
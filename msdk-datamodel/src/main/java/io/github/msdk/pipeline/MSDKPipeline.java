@@ -0,0 +1,181 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKMethod;
+
+/**
+ * <p>
+ * A processing pipeline: a directed acyclic graph of {@link io.github.msdk.pipeline.PipelineStage}s,
+ * each of which creates and executes an {@link io.github.msdk.MSDKMethod} for every input of a
+ * batch (typically one raw data file). A stage can only depend on stages added before it, so the
+ * graph cannot contain cycles. The pipeline only describes the processing; it is run over a list
+ * of inputs by {@link io.github.msdk.pipeline.PipelineExecutionMethod}.
+ * </p>
+ *
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * MSDKPipeline&lt;File&gt; pipeline = new MSDKPipeline&lt;&gt;();
+ * PipelineStage&lt;RawDataFile&gt; raw = pipeline.addSource("import",
+ *     file -&gt; new MzMLFileImportMethod(file));
+ * PipelineStage&lt;List&lt;Chromatogram&gt;&gt; chromatograms = pipeline.addStage("chromatograms", raw,
+ *     file -&gt; new ChromatogramBuilderMethod(file, ...));
+ * </pre>
+ *
+ * @param <InputType> Type of the inputs of the pipeline.
+ */
+public class MSDKPipeline<InputType> {
+
+  /**
+   * Creates the method executed by a stage for one input.
+   *
+   * @param <InputType> Type of the inputs of the pipeline.
+   * @param <ResultType> Type of the result of the created method.
+   */
+  @FunctionalInterface
+  public interface MethodFactory<InputType, ResultType> {
+
+    /**
+     * Creates the method for the input of the given results. The results of all dependencies of
+     * the stage are available.
+     *
+     * @param results the {@link io.github.msdk.pipeline.PipelineResults} of the input.
+     * @return a {@link io.github.msdk.MSDKMethod} object.
+     * @throws io.github.msdk.MSDKException if any.
+     */
+    @Nonnull
+    MSDKMethod<ResultType> createMethod(@Nonnull PipelineResults<InputType> results)
+        throws MSDKException;
+  }
+
+  private final @Nonnull List<PipelineStage<?>> stages = new ArrayList<>();
+
+  /**
+   * <p>
+   * Adds a stage which only uses the input.
+   * </p>
+   *
+   * @param name the name of the stage.
+   * @param factory creates the method from the input.
+   * @param <ResultType> Type of the result of the stage.
+   * @return the new {@link io.github.msdk.pipeline.PipelineStage}.
+   */
+  @Nonnull
+  public <ResultType> PipelineStage<ResultType> addSource(@Nonnull String name,
+      @Nonnull Function<? super InputType, ? extends MSDKMethod<ResultType>> factory) {
+    Preconditions.checkNotNull(factory);
+    return addStage(name, Collections.emptyList(),
+        results -> factory.apply(results.getInput()));
+  }
+
+  /**
+   * <p>
+   * Adds a stage which uses the result of another stage.
+   * </p>
+   *
+   * @param name the name of the stage.
+   * @param dependency the stage whose result is used.
+   * @param factory creates the method from the result of the dependency.
+   * @param <A> Type of the result of the dependency.
+   * @param <ResultType> Type of the result of the stage.
+   * @return the new {@link io.github.msdk.pipeline.PipelineStage}.
+   */
+  @Nonnull
+  public <A, ResultType> PipelineStage<ResultType> addStage(@Nonnull String name,
+      @Nonnull PipelineStage<A> dependency,
+      @Nonnull Function<? super A, ? extends MSDKMethod<ResultType>> factory) {
+    Preconditions.checkNotNull(factory);
+    return addStage(name, Collections.singletonList(dependency),
+        results -> factory.apply(results.get(dependency)));
+  }
+
+  /**
+   * <p>
+   * Adds a stage which uses the results of two other stages.
+   * </p>
+   *
+   * @param name the name of the stage.
+   * @param dependencyA the stage whose result is the first argument of the factory.
+   * @param dependencyB the stage whose result is the second argument of the factory.
+   * @param factory creates the method from the results of the dependencies.
+   * @param <A> Type of the result of the first dependency.
+   * @param <B> Type of the result of the second dependency.
+   * @param <ResultType> Type of the result of the stage.
+   * @return the new {@link io.github.msdk.pipeline.PipelineStage}.
+   */
+  @Nonnull
+  public <A, B, ResultType> PipelineStage<ResultType> addStage(@Nonnull String name,
+      @Nonnull PipelineStage<A> dependencyA, @Nonnull PipelineStage<B> dependencyB,
+      @Nonnull BiFunction<? super A, ? super B, ? extends MSDKMethod<ResultType>> factory) {
+    Preconditions.checkNotNull(factory);
+    return addStage(name, Arrays.asList(dependencyA, dependencyB),
+        results -> factory.apply(results.get(dependencyA), results.get(dependencyB)));
+  }
+
+  /**
+   * <p>
+   * Adds a stage which uses the input and the results of any number of other stages, which the
+   * factory reads from the {@link io.github.msdk.pipeline.PipelineResults} it receives.
+   * </p>
+   *
+   * @param name the name of the stage.
+   * @param dependencies the stages whose results are used.
+   * @param factory creates the method.
+   * @param <ResultType> Type of the result of the stage.
+   * @return the new {@link io.github.msdk.pipeline.PipelineStage}.
+   */
+  @Nonnull
+  public synchronized <ResultType> PipelineStage<ResultType> addStage(@Nonnull String name,
+      @Nonnull List<? extends PipelineStage<?>> dependencies,
+      @Nonnull MethodFactory<InputType, ResultType> factory) {
+    Preconditions.checkNotNull(name);
+    Preconditions.checkNotNull(factory);
+    for (PipelineStage<?> dependency : dependencies)
+      Preconditions.checkArgument(dependency.getPipeline() == this,
+          "Stage " + dependency + " belongs to another pipeline");
+    final PipelineStage<ResultType> stage = new PipelineStage<>(this, name, stages.size(),
+        Collections.unmodifiableList(new ArrayList<>(dependencies)), factory);
+    stages.add(stage);
+    return stage;
+  }
+
+  /**
+   * <p>
+   * Returns the stages of the pipeline, in the order they were added.
+   * </p>
+   *
+   * @return an unmodifiable list of {@link io.github.msdk.pipeline.PipelineStage}s.
+   */
+  @Nonnull
+  public synchronized List<PipelineStage<?>> getStages() {
+    return Collections.unmodifiableList(new ArrayList<>(stages));
+  }
+
+}
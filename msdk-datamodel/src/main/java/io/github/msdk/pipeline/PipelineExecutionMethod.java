@@ -0,0 +1,356 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKMethod;
+import io.github.msdk.MSDKRuntimeException;
+
+/**
+ * <p>
+ * This class runs an {@link io.github.msdk.pipeline.MSDKPipeline} over a list of inputs. Each stage
+ * is executed once per input, as soon as the stages it depends on have finished for that input, so
+ * different inputs, and independent stages of the same input, run in parallel. The number of
+ * methods running at the same time is bounded by the maximum concurrency, independently of the
+ * size of the executor: this allows to use any {@link java.util.concurrent.Executor}, including
+ * one that starts a new (virtual) thread per task. The calling thread only waits, and no thread is
+ * blocked while waiting for another stage. If no executor is given, all methods run one after
+ * another in the calling thread.
+ * </p>
+ *
+ * <p>
+ * Ready stages of earlier inputs run first, so that inputs are completed, and their intermediate
+ * results released, in about the order of the list. The finished percentage is the average over
+ * all (input, stage) pairs of the finished percentages of their methods. Cancelling this method
+ * cancels all running methods and starts no new one. If a method fails, the remaining methods are
+ * cancelled the same way and the error is thrown by {@link #execute()}.
+ * </p>
+ *
+ * @param <InputType> Type of the inputs of the pipeline.
+ */
+public class PipelineExecutionMethod<InputType>
+    implements MSDKMethod<List<PipelineResults<InputType>>> {
+
+  private final @Nonnull MSDKPipeline<InputType> pipeline;
+  private final @Nonnull List<? extends InputType> inputs;
+  private final @Nullable Executor executor;
+  private final int maxConcurrency;
+
+  private List<PipelineStage<?>> stages;
+  private List<PipelineResults<InputType>> inputResults;
+  private int totalTasks;
+  private List<PipelineResults<InputType>> result;
+
+  // Scheduling state, guarded by this
+  private final PriorityQueue<Task> readyTasks =
+      new PriorityQueue<>(Comparator.<Task>comparingInt(t -> t.results.getInputIndex())
+          .thenComparingInt(t -> t.stage.getIndex()));
+  private final Set<MSDKMethod<?>> runningMethods =
+      Collections.newSetFromMap(new IdentityHashMap<>());
+  private int pendingDependencies[][];
+  private int pendingDependents[][];
+  private int dependents[][];
+  private int runningTasks = 0;
+  private int finishedTasks = 0;
+  private boolean started = false;
+  private Throwable failure;
+
+  private volatile boolean canceled = false;
+
+  /**
+   * <p>
+   * Constructor for PipelineExecutionMethod, running all methods in the calling thread.
+   * </p>
+   *
+   * @param pipeline the {@link io.github.msdk.pipeline.MSDKPipeline} to run.
+   * @param inputs the inputs of the pipeline.
+   */
+  public PipelineExecutionMethod(@Nonnull MSDKPipeline<InputType> pipeline,
+      @Nonnull List<? extends InputType> inputs) {
+    this(pipeline, inputs, null, 1);
+  }
+
+  /**
+   * <p>
+   * Constructor for PipelineExecutionMethod. The maximum concurrency is the parallelism of a
+   * {@link java.util.concurrent.ForkJoinPool}, or the number of available processors for other
+   * executors.
+   * </p>
+   *
+   * @param pipeline the {@link io.github.msdk.pipeline.MSDKPipeline} to run.
+   * @param inputs the inputs of the pipeline.
+   * @param executor the {@link java.util.concurrent.Executor} running the methods, or null to run
+   *        them in the calling thread.
+   */
+  public PipelineExecutionMethod(@Nonnull MSDKPipeline<InputType> pipeline,
+      @Nonnull List<? extends InputType> inputs, @Nullable Executor executor) {
+    this(pipeline, inputs, executor,
+        executor instanceof ForkJoinPool ? ((ForkJoinPool) executor).getParallelism()
+            : Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * <p>
+   * Constructor for PipelineExecutionMethod.
+   * </p>
+   *
+   * @param pipeline the {@link io.github.msdk.pipeline.MSDKPipeline} to run.
+   * @param inputs the inputs of the pipeline.
+   * @param executor the {@link java.util.concurrent.Executor} running the methods, or null to run
+   *        them in the calling thread.
+   * @param maxConcurrency the maximum number of methods running at the same time.
+   */
+  public PipelineExecutionMethod(@Nonnull MSDKPipeline<InputType> pipeline,
+      @Nonnull List<? extends InputType> inputs, @Nullable Executor executor,
+      int maxConcurrency) {
+    Preconditions.checkNotNull(pipeline);
+    Preconditions.checkNotNull(inputs);
+    Preconditions.checkArgument(maxConcurrency > 0, "The maximum concurrency must be positive");
+    this.pipeline = pipeline;
+    this.inputs = inputs;
+    this.executor = executor;
+    this.maxConcurrency = executor == null ? 1 : maxConcurrency;
+  }
+
+  /** One stage of the pipeline for one input. */
+  private final class Task implements Runnable {
+
+    private final @Nonnull PipelineStage<?> stage;
+    private final @Nonnull PipelineResults<InputType> results;
+
+    private Task(@Nonnull PipelineStage<?> stage, @Nonnull PipelineResults<InputType> results) {
+      this.stage = stage;
+      this.results = results;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void run() {
+      MSDKMethod<?> method = null;
+      try {
+        method = ((MSDKPipeline.MethodFactory<InputType, ?>) stage.getFactory())
+            .createMethod(results);
+        if (!register(method))
+          return;
+        final Object stageResult = method.execute();
+        finished(this, method, stageResult);
+      } catch (Throwable e) {
+        failed(method, e);
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<PipelineResults<InputType>> execute() throws MSDKException {
+
+    synchronized (this) {
+      Preconditions.checkState(!started, "The pipeline was already executed");
+      started = true;
+
+      // The dependency graph is fixed when the run starts
+      stages = pipeline.getStages();
+      final int numOfStages = stages.size();
+      dependents = new int[numOfStages][];
+      final int numOfDependents[] = new int[numOfStages];
+      for (PipelineStage<?> stage : stages)
+        for (PipelineStage<?> dependency : stage.getDependencies())
+          numOfDependents[dependency.getIndex()]++;
+      for (int s = 0; s < numOfStages; s++)
+        dependents[s] = new int[numOfDependents[s]];
+      for (PipelineStage<?> stage : stages)
+        for (PipelineStage<?> dependency : stage.getDependencies())
+          dependents[dependency.getIndex()][--numOfDependents[dependency.getIndex()]] =
+              stage.getIndex();
+
+      inputResults = new ArrayList<>(inputs.size());
+      pendingDependencies = new int[inputs.size()][numOfStages];
+      pendingDependents = new int[inputs.size()][numOfStages];
+      for (int i = 0; i < inputs.size(); i++) {
+        final PipelineResults<InputType> results =
+            new PipelineResults<>(pipeline, inputs.get(i), i, numOfStages);
+        inputResults.add(results);
+        for (PipelineStage<?> stage : stages) {
+          pendingDependencies[i][stage.getIndex()] = stage.getDependencies().size();
+          pendingDependents[i][stage.getIndex()] = dependents[stage.getIndex()].length;
+          if (stage.getDependencies().isEmpty())
+            readyTasks.add(new Task(stage, results));
+        }
+      }
+      totalTasks = inputs.size() * numOfStages;
+    }
+
+    if (executor == null) {
+      Task task;
+      while ((task = nextTask()) != null)
+        task.run();
+    } else {
+      synchronized (this) {
+        dispatch();
+        try {
+          while ((runningTasks > 0) || ((failure == null) && !canceled && !readyTasks.isEmpty()))
+            wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          cancel();
+          throw new MSDKException(e);
+        }
+      }
+    }
+
+    synchronized (this) {
+      if (failure != null) {
+        if (failure instanceof MSDKException)
+          throw (MSDKException) failure;
+        if (failure instanceof MSDKRuntimeException)
+          throw (MSDKRuntimeException) failure;
+        throw new MSDKException(failure);
+      }
+      if (canceled)
+        return null;
+      result = Collections.unmodifiableList(inputResults);
+      return result;
+    }
+  }
+
+  /** Returns the next task to run in the calling thread, or null when the run is over. */
+  private synchronized Task nextTask() {
+    if (canceled || (failure != null) || readyTasks.isEmpty())
+      return null;
+    runningTasks++;
+    return readyTasks.poll();
+  }
+
+  /** Submits ready tasks to the executor, as long as the concurrency allows it. */
+  private void dispatch() {
+    while ((runningTasks < maxConcurrency) && !canceled && (failure == null)
+        && !readyTasks.isEmpty()) {
+      final Task task = readyTasks.poll();
+      runningTasks++;
+      try {
+        executor.execute(task);
+      } catch (RuntimeException e) {
+        runningTasks--;
+        fail(e);
+      }
+    }
+  }
+
+  /** Records a created method, or returns false if the run was stopped meanwhile. */
+  private synchronized boolean register(@Nonnull MSDKMethod<?> method) {
+    if (canceled || (failure != null)) {
+      taskDone();
+      return false;
+    }
+    runningMethods.add(method);
+    return true;
+  }
+
+  private synchronized void finished(@Nonnull Task task, @Nonnull MSDKMethod<?> method,
+      @Nullable Object stageResult) {
+    runningMethods.remove(method);
+    finishedTasks++;
+    final int inputIndex = task.results.getInputIndex();
+    final int stageIndex = task.stage.getIndex();
+    if (!canceled && (failure == null)) {
+      task.results.set(stageIndex, stageResult);
+      for (int dependent : dependents[stageIndex]) {
+        if (--pendingDependencies[inputIndex][dependent] == 0)
+          readyTasks.add(new Task(stages.get(dependent), task.results));
+      }
+      // Release the results no other stage needs anymore
+      for (PipelineStage<?> dependency : task.stage.getDependencies()) {
+        if ((--pendingDependents[inputIndex][dependency.getIndex()] == 0)
+            && !dependency.isRetainResult())
+          task.results.release(dependency.getIndex());
+      }
+    }
+    taskDone();
+  }
+
+  private synchronized void failed(@Nullable MSDKMethod<?> method, @Nonnull Throwable e) {
+    if (method != null)
+      runningMethods.remove(method);
+    fail(e);
+    taskDone();
+  }
+
+  private void fail(@Nonnull Throwable e) {
+    if (failure != null)
+      return;
+    failure = e;
+    for (MSDKMethod<?> method : runningMethods)
+      method.cancel();
+  }
+
+  private void taskDone() {
+    runningTasks--;
+    if (executor != null) {
+      dispatch();
+      notifyAll();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public synchronized Float getFinishedPercentage() {
+    if (!started)
+      return null;
+    if (totalTasks == 0)
+      return 1f;
+    float finished = finishedTasks;
+    for (MSDKMethod<?> method : runningMethods) {
+      final Float methodPercentage = method.getFinishedPercentage();
+      if (methodPercentage != null)
+        finished += Math.min(1f, Math.max(0f, methodPercentage));
+    }
+    return finished / totalTasks;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public List<PipelineResults<InputType>> getResult() {
+    return result;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void cancel() {
+    canceled = true;
+    synchronized (this) {
+      for (MSDKMethod<?> method : runningMethods)
+        method.cancel();
+      notifyAll();
+    }
+  }
+
+}
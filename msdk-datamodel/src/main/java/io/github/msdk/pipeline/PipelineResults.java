@@ -0,0 +1,105 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.pipeline;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * The results of the stages of an {@link io.github.msdk.pipeline.MSDKPipeline} for one input. While
+ * the pipeline runs, the results of the dependencies of a stage are available to its
+ * {@link io.github.msdk.pipeline.MSDKPipeline.MethodFactory}. After the run, the results of the
+ * stages described in {@link io.github.msdk.pipeline.PipelineStage} remain available.
+ * </p>
+ *
+ * @param <InputType> Type of the inputs of the pipeline.
+ */
+public class PipelineResults<InputType> {
+
+  private final @Nonnull MSDKPipeline<InputType> pipeline;
+  private final InputType input;
+  private final int inputIndex;
+  private final @Nonnull Object results[];
+  private final @Nonnull boolean available[];
+
+  PipelineResults(@Nonnull MSDKPipeline<InputType> pipeline, InputType input, int inputIndex,
+      int numOfStages) {
+    this.pipeline = pipeline;
+    this.input = input;
+    this.inputIndex = inputIndex;
+    this.results = new Object[numOfStages];
+    this.available = new boolean[numOfStages];
+  }
+
+  /**
+   * <p>
+   * Returns the input of the pipeline these results belong to.
+   * </p>
+   *
+   * @return the input.
+   */
+  public InputType getInput() {
+    return input;
+  }
+
+  /**
+   * <p>
+   * Returns the position of the input in the list of inputs of the pipeline run.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getInputIndex() {
+    return inputIndex;
+  }
+
+  /**
+   * <p>
+   * Returns the result of a stage for this input.
+   * </p>
+   *
+   * @param stage a {@link io.github.msdk.pipeline.PipelineStage} of the pipeline.
+   * @param <ResultType> Type of the result of the stage.
+   * @return the result of the method of the stage, which may be null.
+   * @throws java.lang.IllegalStateException if the stage has not finished, or its result was
+   *         released.
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public synchronized <ResultType> ResultType get(@Nonnull PipelineStage<ResultType> stage) {
+    Preconditions.checkArgument(stage.getPipeline() == pipeline,
+        "Stage " + stage + " belongs to another pipeline");
+    final int index = stage.getIndex();
+    Preconditions.checkArgument(index < results.length,
+        "Stage " + stage + " was added after the pipeline was started");
+    if (!available[index])
+      throw new IllegalStateException("The result of stage " + stage + " is not available");
+    return (ResultType) results[index];
+  }
+
+  synchronized void set(int stageIndex, @Nullable Object result) {
+    results[stageIndex] = result;
+    available[stageIndex] = true;
+  }
+
+  synchronized void release(int stageIndex) {
+    results[stageIndex] = null;
+    available[stageIndex] = false;
+  }
+
+}
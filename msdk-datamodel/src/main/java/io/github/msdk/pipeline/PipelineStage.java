@@ -0,0 +1,126 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.pipeline;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * <p>
+ * A stage of an {@link io.github.msdk.pipeline.MSDKPipeline}. For each input of the pipeline, the
+ * stage creates one {@link io.github.msdk.MSDKMethod} from the input and the results of the stages
+ * it depends on, and executes it. Stages are created by the addStage methods of the pipeline.
+ * </p>
+ *
+ * <p>
+ * The result of a stage is kept in the {@link io.github.msdk.pipeline.PipelineResults} of each
+ * input if no other stage depends on it, or if {@link #setRetainResult(boolean)} was called.
+ * Otherwise it is released as soon as all dependent stages have finished for that input, so that
+ * large intermediate objects (e.g. raw data files) do not pile up during a batch.
+ * </p>
+ *
+ * @param <ResultType> Type of the result of the methods created by this stage.
+ */
+public class PipelineStage<ResultType> {
+
+  private final @Nonnull MSDKPipeline<?> pipeline;
+  private final @Nonnull String name;
+  private final int index;
+  private final @Nonnull List<PipelineStage<?>> dependencies;
+  private final @Nonnull MSDKPipeline.MethodFactory<?, ResultType> factory;
+  private boolean retainResult = false;
+
+  PipelineStage(@Nonnull MSDKPipeline<?> pipeline, @Nonnull String name, int index,
+      @Nonnull List<PipelineStage<?>> dependencies,
+      @Nonnull MSDKPipeline.MethodFactory<?, ResultType> factory) {
+    this.pipeline = pipeline;
+    this.name = name;
+    this.index = index;
+    this.dependencies = dependencies;
+    this.factory = factory;
+  }
+
+  /**
+   * <p>
+   * Returns the name of the stage.
+   * </p>
+   *
+   * @return a {@link java.lang.String} object.
+   */
+  @Nonnull
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * <p>
+   * Returns the stages whose results this stage uses.
+   * </p>
+   *
+   * @return an unmodifiable list of {@link io.github.msdk.pipeline.PipelineStage}s.
+   */
+  @Nonnull
+  public List<PipelineStage<?>> getDependencies() {
+    return dependencies;
+  }
+
+  /**
+   * <p>
+   * Returns true if the result of this stage is kept even when other stages depend on it.
+   * </p>
+   *
+   * @return a boolean.
+   */
+  public boolean isRetainResult() {
+    return retainResult;
+  }
+
+  /**
+   * <p>
+   * Sets whether the result of this stage is kept even when other stages depend on it.
+   * </p>
+   *
+   * @param retainResult a boolean.
+   * @return this stage.
+   */
+  @Nonnull
+  public PipelineStage<ResultType> setRetainResult(boolean retainResult) {
+    this.retainResult = retainResult;
+    return this;
+  }
+
+  @Nonnull
+  MSDKPipeline<?> getPipeline() {
+    return pipeline;
+  }
+
+  /** Position of the stage in the pipeline, which is a topological order. */
+  int getIndex() {
+    return index;
+  }
+
+  @Nonnull
+  MSDKPipeline.MethodFactory<?, ResultType> getFactory() {
+    return factory;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return name;
+  }
+
+}
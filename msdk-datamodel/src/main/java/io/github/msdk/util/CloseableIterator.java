@@ -0,0 +1,62 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.util;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.annotation.Nonnull;
+
+/**
+ * <p>
+ * An iterator holding resources, such as an open file, which must be released by calling
+ * {@link #close()} once the iteration is finished or abandoned. The streaming importers return
+ * such iterators, so that the scans of a file can be processed one by one, without building the
+ * whole raw data file in memory. Errors raised while reading the underlying source are thrown by
+ * {@link #hasNext()} and {@link #next()} as {@link io.github.msdk.MSDKRuntimeException}s.
+ * </p>
+ *
+ * @param <T> type of the iterated elements
+ */
+public interface CloseableIterator<T> extends Iterator<T>, AutoCloseable {
+
+  /**
+   * <p>
+   * Releases the resources held by this iterator. After closing, {@link #hasNext()} returns false.
+   * Closing an iterator more than once has no effect.
+   * </p>
+   */
+  @Override
+  void close();
+
+  /**
+   * <p>
+   * Returns a sequential, ordered stream over the remaining elements of this iterator. Closing
+   * the stream closes this iterator, so the stream should be used in a try-with-resources block.
+   * </p>
+   *
+   * @return a {@link java.util.stream.Stream} object.
+   */
+  default @Nonnull Stream<T> stream() {
+    return StreamSupport
+        .stream(Spliterators.spliteratorUnknownSize(this,
+            Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .onClose(this::close);
+  }
+
+}
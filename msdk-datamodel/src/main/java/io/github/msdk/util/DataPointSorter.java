@@ -13,15 +13,26 @@
 
 package io.github.msdk.util;
 
-import java.lang.reflect.Array;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
 
 /**
  * <p>
- * DataPointSorter class.
+ * DataPointSorter class. Sorts parallel arrays of data points by one of their properties, moving
+ * the values of all arrays together.
+ * </p>
+ *
+ * <p>
+ * The sorting is stable (data points with equal values keep their original order) and works on
+ * primitive arrays only. Data points are ordered like {@link java.lang.Double#compare(double,
+ * double)} and {@link java.lang.Float#compare(float, float)} order them. Larger inputs are sorted
+ * by a least significant digit radix sort over the bits of the sorting key. The temporary arrays
+ * needed by the sort can be kept in a {@link Workspace}, so that repeated sorting (e.g. once per
+ * scan) does not allocate anything.
  * </p>
  */
 public class DataPointSorter {
@@ -34,36 +45,35 @@ public class DataPointSorter {
     ASCENDING, DESCENDING
   }
 
-  private static class DataPointComparator implements Comparator<Integer> {
+  /** Below this size, insertion sort is faster than the radix passes. */
+  private static final int INSERTION_SORT_THRESHOLD = 48;
 
-    private final double mzBuffer[];
-    private final float intensityBuffer[];
-    private final SortingProperty prop;
-    private final SortingDirection dir;
+  private static final int RADIX_BITS = 8;
+  private static final int RADIX_MASK = (1 << RADIX_BITS) - 1;
 
-    DataPointComparator(final double mzBuffer[], final float intensityBuffer[],
-        SortingProperty prop, SortingDirection dir) {
-      this.mzBuffer = mzBuffer;
-      this.intensityBuffer = intensityBuffer;
-      this.prop = prop;
-      this.dir = dir;
-    }
+  /**
+   * <p>
+   * Temporary arrays used by the sorting methods. The arrays grow as needed and are reused by
+   * subsequent calls. A workspace must not be shared by concurrently running sorts.
+   * </p>
+   */
+  public static final class Workspace {
 
-    @Override
-    public int compare(Integer i1, Integer i2) {
-      switch (prop) {
-        case INTENSITY:
-          if (dir == SortingDirection.ASCENDING)
-            return Float.compare(intensityBuffer[i1], intensityBuffer[i2]);
-          else
-            return Float.compare(intensityBuffer[i2], intensityBuffer[i1]);
-        case MZ:
-          if (dir == SortingDirection.ASCENDING)
-            return Double.compare(mzBuffer[i1], mzBuffer[i2]);
-          else
-            return Double.compare(mzBuffer[i2], mzBuffer[i1]);
-      }
-      return 0;
+    private long keys[] = new long[0], keyScratch[] = new long[0];
+    private int index[] = new int[0], indexScratch[] = new int[0];
+    private double doubleScratch[] = new double[0];
+    private float floatScratch[] = new float[0];
+    private final int counts[] = new int[RADIX_MASK + 1];
+
+    private void ensureCapacity(int size) {
+      if (keys.length >= size)
+        return;
+      keys = new long[size];
+      keyScratch = new long[size];
+      index = new int[size];
+      indexScratch = new int[size];
+      doubleScratch = new double[size];
+      floatScratch = new float[size];
     }
 
   }
@@ -79,39 +89,54 @@ public class DataPointSorter {
    */
   public static void sortDataPoints(final double mzBuffer[], final float intensityBuffer[],
       final int size, SortingProperty prop, SortingDirection dir) {
-
-    // Use Collections.sort to obtain index mapping from old arrays to the
-    // new sorted array
-    final List<Integer> idx = new ArrayList<>(size);
-    for (int i = 0; i < size; i++)
-      idx.add(i);
-    Comparator<Integer> comp = new DataPointComparator(mzBuffer, intensityBuffer, prop, dir);
-
-    Collections.sort(idx, comp);
-    // Remap the values according to the index map idx
-    remapArray(mzBuffer, idx);
-    remapArray(intensityBuffer, idx);
-
+    sortDataPoints(mzBuffer, intensityBuffer, size, prop, dir, null);
   }
 
-  private static void remapArray(Object array, List<Integer> indices) {
-
-    // Make a copy of indices, to prevent modifying the list
-    List<Integer> idx = new ArrayList<>(indices);
+  /**
+   * Sort the given data points by the given property, using the temporary arrays of the given
+   * workspace.
+   *
+   * @param mzBuffer an array of double.
+   * @param intensityBuffer an array of float.
+   * @param size a int.
+   * @param prop a {@link io.github.msdk.util.DataPointSorter.SortingProperty} object.
+   * @param dir a {@link io.github.msdk.util.DataPointSorter.SortingDirection} object.
+   * @param workspace a {@link io.github.msdk.util.DataPointSorter.Workspace} to reuse, or null
+   *        to allocate the temporary arrays for this call only
+   */
+  public static void sortDataPoints(@Nonnull final double mzBuffer[],
+      @Nonnull final float intensityBuffer[], final int size, @Nonnull SortingProperty prop,
+      @Nonnull SortingDirection dir, @Nullable Workspace workspace) {
 
-    for (int i = 0; i < idx.size(); i++) {
-      final int newIndex = idx.get(i);
-      if (newIndex == i)
-        continue;
+    Preconditions.checkNotNull(mzBuffer);
+    Preconditions.checkNotNull(intensityBuffer);
+    Preconditions.checkNotNull(prop);
+    Preconditions.checkNotNull(dir);
+    Preconditions.checkPositionIndex(size, mzBuffer.length);
+    Preconditions.checkPositionIndex(size, intensityBuffer.length);
 
-      Object tmp = Array.get(array, i);
-      Array.set(array, i, Array.get(array, newIndex));
+    if (size < 2)
+      return;
+    if (workspace == null)
+      workspace = new Workspace();
+    workspace.ensureCapacity(size);
 
-      final int swapIndex = idx.indexOf(i);
-      Array.set(array, newIndex, tmp);
-      idx.set(swapIndex, newIndex);
-      idx.set(i, i);
+    final long keys[] = workspace.keys;
+    final boolean descending = (dir == SortingDirection.DESCENDING);
+    final int keyBytes;
+    if (prop == SortingProperty.MZ) {
+      for (int i = 0; i < size; i++)
+        keys[i] = doubleKey(mzBuffer[i], descending);
+      keyBytes = Long.BYTES;
+    } else {
+      for (int i = 0; i < size; i++)
+        keys[i] = floatKey(intensityBuffer[i], descending);
+      keyBytes = Integer.BYTES;
     }
+
+    final int order[] = sortKeys(workspace, size, keyBytes);
+    remapArray(mzBuffer, order, size, workspace.doubleScratch);
+    remapArray(intensityBuffer, order, size, workspace.floatScratch);
   }
 
   /**
@@ -125,22 +150,214 @@ public class DataPointSorter {
   public static void sortDataPoints(final Float rtBuffer[], final double mzBuffer[],
       final float intensityBuffer[], final int size) {
 
-    // Use Collections.sort to obtain index mapping from old arrays to the
-    // new sorted array
-    final List<Integer> idx = new ArrayList<>(size);
+    Preconditions.checkNotNull(rtBuffer);
+    Preconditions.checkPositionIndex(size, rtBuffer.length);
+
+    final float rtValues[] = new float[size];
+    for (int i = 0; i < size; i++)
+      rtValues[i] = rtBuffer[i];
+    sortDataPoints(rtValues, mzBuffer, intensityBuffer, size, null);
     for (int i = 0; i < size; i++)
-      idx.add(i);
-    Collections.sort(idx, new Comparator<Integer>() {
-      public int compare(Integer i1, Integer i2) {
-        return rtBuffer[i1].compareTo(rtBuffer[i2]);
+      rtBuffer[i] = rtValues[i];
+  }
+
+  /**
+   * Sort the given data points by ascending RT order, using the temporary arrays of the given
+   * workspace.
+   *
+   * @param rtBuffer an array of float.
+   * @param mzBuffer an array of double.
+   * @param intensityBuffer an array of float.
+   * @param size a int.
+   * @param workspace a {@link io.github.msdk.util.DataPointSorter.Workspace} to reuse, or null
+   *        to allocate the temporary arrays for this call only
+   */
+  public static void sortDataPoints(@Nonnull final float rtBuffer[],
+      @Nonnull final double mzBuffer[], @Nonnull final float intensityBuffer[], final int size,
+      @Nullable Workspace workspace) {
+
+    Preconditions.checkNotNull(rtBuffer);
+    Preconditions.checkNotNull(mzBuffer);
+    Preconditions.checkNotNull(intensityBuffer);
+    Preconditions.checkPositionIndex(size, rtBuffer.length);
+    Preconditions.checkPositionIndex(size, mzBuffer.length);
+    Preconditions.checkPositionIndex(size, intensityBuffer.length);
+
+    if (size < 2)
+      return;
+    if (workspace == null)
+      workspace = new Workspace();
+    workspace.ensureCapacity(size);
+
+    final long keys[] = workspace.keys;
+    for (int i = 0; i < size; i++)
+      keys[i] = floatKey(rtBuffer[i], false);
+
+    final int order[] = sortKeys(workspace, size, Integer.BYTES);
+    remapArray(rtBuffer, order, size, workspace.floatScratch);
+    remapArray(mzBuffer, order, size, workspace.doubleScratch);
+    remapArray(intensityBuffer, order, size, workspace.floatScratch);
+  }
+
+  /**
+   * Computes the stable ascending order of the given values, without moving them. After the call,
+   * order[i] holds the index of the i-th smallest value, so that parallel arrays of any type can be
+   * remapped by the caller.
+   *
+   * @param values an array of double.
+   * @param order an array of int, receiving the sorted indices.
+   * @param size a int.
+   * @param workspace a {@link io.github.msdk.util.DataPointSorter.Workspace} to reuse, or null
+   *        to allocate the temporary arrays for this call only
+   */
+  public static void sortIndices(@Nonnull final double values[], @Nonnull final int order[],
+      final int size, @Nullable Workspace workspace) {
+
+    Preconditions.checkNotNull(values);
+    Preconditions.checkNotNull(order);
+    Preconditions.checkPositionIndex(size, values.length);
+    Preconditions.checkPositionIndex(size, order.length);
+
+    if (size < 2) {
+      if (size == 1)
+        order[0] = 0;
+      return;
+    }
+    if (workspace == null)
+      workspace = new Workspace();
+    workspace.ensureCapacity(size);
+
+    final long keys[] = workspace.keys;
+    for (int i = 0; i < size; i++)
+      keys[i] = doubleKey(values[i], false);
+
+    System.arraycopy(sortKeys(workspace, size, Long.BYTES), 0, order, 0, size);
+  }
+
+  /**
+   * Computes the stable order of the given values in the given direction, without moving them.
+   * After the call, order[i] holds the index of the i-th value in the sorted order.
+   *
+   * @param values an array of float.
+   * @param order an array of int, receiving the sorted indices.
+   * @param size a int.
+   * @param dir a {@link io.github.msdk.util.DataPointSorter.SortingDirection} object.
+   * @param workspace a {@link io.github.msdk.util.DataPointSorter.Workspace} to reuse, or null
+   *        to allocate the temporary arrays for this call only
+   */
+  public static void sortIndices(@Nonnull final float values[], @Nonnull final int order[],
+      final int size, @Nonnull SortingDirection dir, @Nullable Workspace workspace) {
+
+    Preconditions.checkNotNull(values);
+    Preconditions.checkNotNull(order);
+    Preconditions.checkNotNull(dir);
+    Preconditions.checkPositionIndex(size, values.length);
+    Preconditions.checkPositionIndex(size, order.length);
+
+    if (size < 2) {
+      if (size == 1)
+        order[0] = 0;
+      return;
+    }
+    if (workspace == null)
+      workspace = new Workspace();
+    workspace.ensureCapacity(size);
+
+    final long keys[] = workspace.keys;
+    final boolean descending = (dir == SortingDirection.DESCENDING);
+    for (int i = 0; i < size; i++)
+      keys[i] = floatKey(values[i], descending);
+
+    System.arraycopy(sortKeys(workspace, size, Integer.BYTES), 0, order, 0, size);
+  }
+
+  /**
+   * Maps a double to a long whose unsigned order equals the order of Double.compare().
+   */
+  private static long doubleKey(double value, boolean descending) {
+    final long bits = Double.doubleToLongBits(value);
+    final long key = bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    return descending ? ~key : key;
+  }
+
+  /**
+   * Maps a float to a long in the range of an unsigned int, whose order equals the order of
+   * Float.compare().
+   */
+  private static long floatKey(float value, boolean descending) {
+    final int bits = Float.floatToIntBits(value);
+    final int key = bits ^ ((bits >> 31) | Integer.MIN_VALUE);
+    return (descending ? ~key : key) & 0xffffffffL;
+  }
+
+  /**
+   * Stable sort of the first size keys of the workspace. Returns the array holding the original
+   * indices of the data points in the sorted order.
+   */
+  private static int[] sortKeys(Workspace workspace, int size, int keyBytes) {
+
+    long keys[] = workspace.keys, keyScratch[] = workspace.keyScratch;
+    int index[] = workspace.index, indexScratch[] = workspace.indexScratch;
+    for (int i = 0; i < size; i++)
+      index[i] = i;
+
+    if (size < INSERTION_SORT_THRESHOLD) {
+      for (int i = 1; i < size; i++) {
+        final long key = keys[i];
+        int j = i - 1;
+        while ((j >= 0) && (Long.compareUnsigned(keys[j], key) > 0)) {
+          keys[j + 1] = keys[j];
+          index[j + 1] = index[j];
+          j--;
+        }
+        keys[j + 1] = key;
+        index[j + 1] = i;
       }
-    });
+      return index;
+    }
 
-    // Remap the values according to the index map idx
-    remapArray(rtBuffer, idx);
-    remapArray(mzBuffer, idx);
-    remapArray(intensityBuffer, idx);
+    final int counts[] = workspace.counts;
+    for (int shift = 0; shift < keyBytes * 8; shift += RADIX_BITS) {
+      Arrays.fill(counts, 0);
+      for (int i = 0; i < size; i++)
+        counts[(int) (keys[i] >>> shift) & RADIX_MASK]++;
 
+      // Skip the pass if all keys share this digit
+      if (counts[(int) (keys[0] >>> shift) & RADIX_MASK] == size)
+        continue;
+
+      int offset = 0;
+      for (int d = 0; d <= RADIX_MASK; d++) {
+        final int count = counts[d];
+        counts[d] = offset;
+        offset += count;
+      }
+      for (int i = 0; i < size; i++) {
+        final int pos = counts[(int) (keys[i] >>> shift) & RADIX_MASK]++;
+        keyScratch[pos] = keys[i];
+        indexScratch[pos] = index[i];
+      }
+
+      long tmpKeys[] = keys;
+      keys = keyScratch;
+      keyScratch = tmpKeys;
+      int tmpIndex[] = index;
+      index = indexScratch;
+      indexScratch = tmpIndex;
+    }
+    return index;
+  }
+
+  private static void remapArray(double array[], int order[], int size, double scratch[]) {
+    for (int i = 0; i < size; i++)
+      scratch[i] = array[order[i]];
+    System.arraycopy(scratch, 0, array, 0, size);
+  }
+
+  private static void remapArray(float array[], int order[], int size, float scratch[]) {
+    for (int i = 0; i < size; i++)
+      scratch[i] = array[order[i]];
+    System.arraycopy(scratch, 0, array, 0, size);
   }
 
 }
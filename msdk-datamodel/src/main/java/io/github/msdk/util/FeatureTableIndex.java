@@ -0,0 +1,459 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+
+import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.datamodel.FeatureTableRow;
+
+/**
+ * <p>
+ * A spatial index over the m/z and retention time of feature table rows, answering the same
+ * queries as {@link io.github.msdk.util.FeatureTableUtil#getRowsInsideRange} without visiting every
+ * row of the table.
+ * </p>
+ *
+ * <p>
+ * The m/z and RT values of each row are cached in primitive arrays when the row is added, so the
+ * averages over the features of the row are not recalculated for each query. The entries are kept
+ * in a small number of runs sorted by m/z, whose sizes grow geometrically: a new row goes into a
+ * short unsorted buffer, a full buffer becomes a new run, and neighbouring runs of similar size
+ * are merged. A query therefore costs a binary search per run plus the rows inside the m/z range,
+ * while adding a row costs amortized O(log n).
+ * </p>
+ *
+ * <p>
+ * The rows returned by a query are in the order in which they were added to the index, which is
+ * the order of {@link io.github.msdk.datamodel.FeatureTable#getRows()} when the index follows the
+ * table. The cached values are not refreshed automatically: when features of an indexed row
+ * change, {@link #updateRow(FeatureTableRow)} must be called. Queries do not modify the index and
+ * may run concurrently, as long as no rows are being added, updated or removed at the same time.
+ * </p>
+ */
+@NotThreadSafe
+public class FeatureTableIndex {
+
+  /** Number of rows collected before they are sorted into a new run */
+  private static final int BUFFER_CAPACITY = 64;
+
+  /** Generation of rows that were removed from the index */
+  private static final int REMOVED = -1;
+
+  /**
+   * A list of entries, sorted by m/z except for the insertion buffer. Each entry holds a copy of
+   * the m/z and RT of a row, its sequence number and the generation of the row when the entry was
+   * made. Entries whose generation is no longer current are skipped and dropped at the next merge.
+   */
+  private static final class Run {
+    double mz[];
+    float rt[];
+    int sequence[];
+    int generation[];
+    int size;
+
+    Run(int capacity) {
+      mz = new double[capacity];
+      rt = new float[capacity];
+      sequence = new int[capacity];
+      generation = new int[capacity];
+    }
+
+    void add(double entryMz, float entryRt, int entrySequence, int entryGeneration) {
+      mz[size] = entryMz;
+      rt[size] = entryRt;
+      sequence[size] = entrySequence;
+      generation[size] = entryGeneration;
+      size++;
+    }
+  }
+
+  // Rows by sequence number, null for removed rows
+  private final List<FeatureTableRow> rows = new ArrayList<>();
+  private final Map<FeatureTableRow, Integer> sequenceNumbers = new IdentityHashMap<>();
+  private int currentGenerations[] = new int[BUFFER_CAPACITY];
+  private boolean hasEntry[] = new boolean[BUFFER_CAPACITY];
+
+  private final List<Run> runs = new ArrayList<>();
+  private Run buffer = new Run(BUFFER_CAPACITY);
+  private int liveEntries = 0, staleEntries = 0;
+
+  private final DataPointSorter.Workspace sortWorkspace = new DataPointSorter.Workspace();
+
+  /**
+   * <p>
+   * Creates an empty index.
+   * </p>
+   */
+  public FeatureTableIndex() {}
+
+  /**
+   * <p>
+   * Creates an index of all rows of the given feature table, in the order of
+   * {@link io.github.msdk.datamodel.FeatureTable#getRows()}.
+   * </p>
+   *
+   * @param table a {@link io.github.msdk.datamodel.FeatureTable} object.
+   */
+  public FeatureTableIndex(@Nonnull FeatureTable table) {
+    this(table.getRows());
+  }
+
+  /**
+   * <p>
+   * Creates an index of the given rows, in the order of the list.
+   * </p>
+   *
+   * @param tableRows a {@link java.util.List} of rows.
+   */
+  public FeatureTableIndex(@Nonnull List<FeatureTableRow> tableRows) {
+    Preconditions.checkNotNull(tableRows);
+
+    // Build a single sorted run directly, instead of merging the buffers one by one
+    final Run unsorted = new Run(Math.max(tableRows.size(), 1));
+    for (FeatureTableRow row : tableRows) {
+      final int sequence = register(row);
+      final Double mz = row.getMz();
+      final Float rt = row.getRT();
+      if ((mz != null) && (rt != null)) {
+        unsorted.add(mz, rt, sequence, 0);
+        hasEntry[sequence] = true;
+        liveEntries++;
+      }
+    }
+    if (unsorted.size > 0)
+      runs.add(sortRun(unsorted));
+  }
+
+  /**
+   * <p>
+   * Adds a row to the index. Rows without m/z or RT are registered, but not returned by queries
+   * until they are updated with both values available.
+   * </p>
+   *
+   * @param row a {@link io.github.msdk.datamodel.FeatureTableRow} object.
+   */
+  public void addRow(@Nonnull FeatureTableRow row) {
+    final int sequence = register(row);
+    addEntry(row, sequence);
+  }
+
+  /**
+   * <p>
+   * Refreshes the cached m/z and RT of a row that is already in the index, for example after
+   * features have been added to the row. The position of the row in query results does not change.
+   * </p>
+   *
+   * @param row a {@link io.github.msdk.datamodel.FeatureTableRow} object.
+   */
+  public void updateRow(@Nonnull FeatureTableRow row) {
+    final int sequence = getSequenceNumber(row);
+    invalidateEntry(sequence);
+    currentGenerations[sequence]++;
+    addEntry(row, sequence);
+  }
+
+  /**
+   * <p>
+   * Removes a row from the index.
+   * </p>
+   *
+   * @param row a {@link io.github.msdk.datamodel.FeatureTableRow} object.
+   */
+  public void removeRow(@Nonnull FeatureTableRow row) {
+    final int sequence = getSequenceNumber(row);
+    invalidateEntry(sequence);
+    currentGenerations[sequence] = REMOVED;
+    sequenceNumbers.remove(row);
+    rows.set(sequence, null);
+  }
+
+  /**
+   * <p>
+   * Returns true if the given row was added to the index and not removed since.
+   * </p>
+   *
+   * @param row a {@link io.github.msdk.datamodel.FeatureTableRow} object.
+   * @return a boolean.
+   */
+  public boolean containsRow(@Nonnull FeatureTableRow row) {
+    return sequenceNumbers.containsKey(row);
+  }
+
+  /**
+   * <p>
+   * Returns the number of rows in the index.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getNumberOfRows() {
+    return sequenceNumbers.size();
+  }
+
+  /**
+   * <p>
+   * Receives the rows found by
+   * {@link io.github.msdk.util.FeatureTableIndex#forEachRowInsideRange(Range, Range, RowConsumer)},
+   * together with the m/z and RT cached for each row.
+   * </p>
+   */
+  @FunctionalInterface
+  public interface RowConsumer {
+
+    /**
+     * <p>
+     * Called for each row inside the range.
+     * </p>
+     *
+     * @param row a {@link io.github.msdk.datamodel.FeatureTableRow} object.
+     * @param mz the m/z value of the row.
+     * @param rt the retention time of the row.
+     */
+    void accept(@Nonnull FeatureTableRow row, double mz, float rt);
+  }
+
+  /**
+   * <p>
+   * Returns the rows whose RT and m/z are inside the given ranges, in the order in which the rows
+   * were added to the index. The containment test is the same as
+   * {@link com.google.common.collect.Range#contains(Comparable)}, so the result is identical to
+   * that of {@link io.github.msdk.util.FeatureTableUtil#getRowsInsideRange} on the indexed table.
+   * </p>
+   *
+   * @param rtRange a {@link com.google.common.collect.Range} object.
+   * @param mzRange a {@link com.google.common.collect.Range} object.
+   * @return a {@link java.util.List} object.
+   */
+  public @Nonnull List<FeatureTableRow> getRowsInsideRange(@Nonnull Range<Float> rtRange,
+      @Nonnull Range<Double> mzRange) {
+    final List<FeatureTableRow> result = new ArrayList<>();
+    forEachRowInsideRange(rtRange, mzRange, (row, mz, rt) -> result.add(row));
+    return result;
+  }
+
+  /**
+   * <p>
+   * Passes the rows whose RT and m/z are inside the given ranges to the consumer, in the same order
+   * as {@link #getRowsInsideRange(Range, Range)}. The consumer also receives the cached m/z and RT
+   * of each row, which saves recalculating them from the features of the row.
+   * </p>
+   *
+   * @param rtRange a {@link com.google.common.collect.Range} object.
+   * @param mzRange a {@link com.google.common.collect.Range} object.
+   * @param consumer a {@link io.github.msdk.util.FeatureTableIndex.RowConsumer} object.
+   */
+  public void forEachRowInsideRange(@Nonnull Range<Float> rtRange, @Nonnull Range<Double> mzRange,
+      @Nonnull RowConsumer consumer) {
+
+    // Each match is stored as the sequence number in the upper and the position of the entry in
+    // the lower half of a long, so sorting the keys restores the insertion order
+    long found[] = new long[16];
+    double foundMz[] = new double[16];
+    float foundRt[] = new float[16];
+    int numOfFound = 0;
+
+    for (int r = 0; r <= runs.size(); r++) {
+      final boolean isBuffer = (r == runs.size());
+      final Run run = isBuffer ? buffer : runs.get(r);
+      // The buffer is not sorted, so it is scanned completely
+      final int start = isBuffer ? 0 : findFirstInside(run, mzRange);
+      for (int i = start; i < run.size; i++) {
+        if (!isAboveLower(run.mz[i], mzRange))
+          continue;
+        if (!isBelowUpper(run.mz[i], mzRange)) {
+          if (isBuffer)
+            continue;
+          break;
+        }
+        final int sequence = run.sequence[i];
+        if (run.generation[i] != currentGenerations[sequence])
+          continue;
+        if (!rtRange.contains(run.rt[i]))
+          continue;
+        if (numOfFound == found.length) {
+          found = Arrays.copyOf(found, numOfFound * 2);
+          foundMz = Arrays.copyOf(foundMz, numOfFound * 2);
+          foundRt = Arrays.copyOf(foundRt, numOfFound * 2);
+        }
+        found[numOfFound] = ((long) sequence << 32) | numOfFound;
+        foundMz[numOfFound] = run.mz[i];
+        foundRt[numOfFound] = run.rt[i];
+        numOfFound++;
+      }
+    }
+
+    Arrays.sort(found, 0, numOfFound);
+    for (int i = 0; i < numOfFound; i++) {
+      final int sequence = (int) (found[i] >>> 32);
+      final int position = (int) found[i];
+      consumer.accept(rows.get(sequence), foundMz[position], foundRt[position]);
+    }
+  }
+
+  private int register(@Nonnull FeatureTableRow row) {
+    Preconditions.checkNotNull(row);
+    Preconditions.checkArgument(!sequenceNumbers.containsKey(row), "Row is already indexed");
+    final int sequence = rows.size();
+    rows.add(row);
+    sequenceNumbers.put(row, sequence);
+    if (sequence == currentGenerations.length) {
+      currentGenerations = Arrays.copyOf(currentGenerations, sequence * 2);
+      hasEntry = Arrays.copyOf(hasEntry, sequence * 2);
+    }
+    return sequence;
+  }
+
+  private int getSequenceNumber(@Nonnull FeatureTableRow row) {
+    Preconditions.checkNotNull(row);
+    final Integer sequence = sequenceNumbers.get(row);
+    Preconditions.checkArgument(sequence != null, "Row is not indexed");
+    return sequence;
+  }
+
+  private void invalidateEntry(int sequence) {
+    if (!hasEntry[sequence])
+      return;
+    hasEntry[sequence] = false;
+    liveEntries--;
+    staleEntries++;
+  }
+
+  private void addEntry(@Nonnull FeatureTableRow row, int sequence) {
+    final Double mz = row.getMz();
+    final Float rt = row.getRT();
+    if ((mz == null) || (rt == null))
+      return;
+
+    buffer.add(mz, rt, sequence, currentGenerations[sequence]);
+    hasEntry[sequence] = true;
+    liveEntries++;
+
+    if (buffer.size == BUFFER_CAPACITY) {
+      runs.add(sortRun(buffer));
+      buffer = new Run(BUFFER_CAPACITY);
+      mergeRuns();
+    }
+  }
+
+  /**
+   * Merges the last runs while the older one is not much larger than the newer one, which keeps
+   * the number of runs logarithmic. When most of the entries are stale, all runs are compacted.
+   */
+  private void mergeRuns() {
+    if (staleEntries > liveEntries) {
+      Run merged = runs.get(0);
+      for (int r = 1; r < runs.size(); r++)
+        merged = mergeRuns(merged, runs.get(r));
+      runs.clear();
+      merged = mergeRuns(merged, new Run(0));
+      if (merged.size > 0)
+        runs.add(merged);
+      staleEntries = 0;
+      return;
+    }
+    while (runs.size() >= 2) {
+      final Run newer = runs.get(runs.size() - 1);
+      final Run older = runs.get(runs.size() - 2);
+      if (older.size > 2 * newer.size)
+        break;
+      runs.remove(runs.size() - 1);
+      runs.set(runs.size() - 1, mergeRuns(older, newer));
+    }
+  }
+
+  /**
+   * Merges two sorted runs, dropping the stale entries. For equal m/z values, the entries of the
+   * first run come first.
+   */
+  private Run mergeRuns(@Nonnull Run first, @Nonnull Run second) {
+    final Run merged = new Run(first.size + second.size);
+    int i = 0, j = 0;
+    while ((i < first.size) || (j < second.size)) {
+      final Run source;
+      final int index;
+      if ((j == second.size)
+          || ((i < first.size) && (Double.compare(first.mz[i], second.mz[j]) <= 0))) {
+        source = first;
+        index = i++;
+      } else {
+        source = second;
+        index = j++;
+      }
+      final int sequence = source.sequence[index];
+      if (source.generation[index] != currentGenerations[sequence]) {
+        staleEntries--;
+        continue;
+      }
+      merged.add(source.mz[index], source.rt[index], sequence, source.generation[index]);
+    }
+    return merged;
+  }
+
+  private Run sortRun(@Nonnull Run unsorted) {
+    final int size = unsorted.size;
+    final int order[] = new int[size];
+    DataPointSorter.sortIndices(unsorted.mz, order, size, sortWorkspace);
+    final Run sorted = new Run(size);
+    for (int i = 0; i < size; i++) {
+      final int index = order[i];
+      sorted.add(unsorted.mz[index], unsorted.rt[index], unsorted.sequence[index],
+          unsorted.generation[index]);
+    }
+    return sorted;
+  }
+
+  /**
+   * Returns the position of the first entry of a sorted run that is not below the lower end of the
+   * m/z range.
+   */
+  private static int findFirstInside(@Nonnull Run run, @Nonnull Range<Double> mzRange) {
+    int low = 0, high = run.size;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (isAboveLower(run.mz[middle], mzRange))
+        high = middle;
+      else
+        low = middle + 1;
+    }
+    return low;
+  }
+
+  private static boolean isAboveLower(double mz, @Nonnull Range<Double> mzRange) {
+    if (!mzRange.hasLowerBound())
+      return true;
+    final int comparison = Double.compare(mz, mzRange.lowerEndpoint());
+    return mzRange.lowerBoundType() == BoundType.CLOSED ? comparison >= 0 : comparison > 0;
+  }
+
+  private static boolean isBelowUpper(double mz, @Nonnull Range<Double> mzRange) {
+    if (!mzRange.hasUpperBound())
+      return true;
+    final int comparison = Double.compare(mz, mzRange.upperEndpoint());
+    return mzRange.upperBoundType() == BoundType.CLOSED ? comparison <= 0 : comparison < 0;
+  }
+
+}
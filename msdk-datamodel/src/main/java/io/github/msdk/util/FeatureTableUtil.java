@@ -30,7 +30,11 @@ import io.github.msdk.datamodel.FeatureTableRow;
 public class FeatureTableUtil {
 
   /**
-   * <p>getRowsInsideRange.</p>
+   * <p>
+   * Returns the rows of the table whose RT and m/z are inside the given ranges. Every row of the
+   * table is visited, so for repeated queries on the same table use a
+   * {@link io.github.msdk.util.FeatureTableIndex} instead.
+   * </p>
    *
    * @param table a {@link io.github.msdk.datamodel.FeatureTable} object.
    * @param rtRange a {@link com.google.common.collect.Range} object.
@@ -13,6 +13,8 @@
 
 package io.github.msdk.util;
 
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.LinkedList;
@@ -211,6 +213,37 @@ public class MsSpectrumUtil {
     return topIndex;
   }
 
+  /**
+   * Returns the index of the highest intensity value. Returns null if the buffers have no data
+   * points or if no data point was found within the mz range. The data points are read from index
+   * 0 up to the limit of the buffers, e.g. views obtained from
+   * {@link io.github.msdk.datamodel.MsSpectrum#getMzBuffer()} and
+   * {@link io.github.msdk.datamodel.MsSpectrum#getIntensityBuffer()}.
+   *
+   * @param mzValues a {@link java.nio.DoubleBuffer} object.
+   * @param intensityValues a {@link java.nio.FloatBuffer} object.
+   * @param mzRange a {@link com.google.common.collect.Range} object.
+   * @return a {@link java.lang.Integer} object.
+   */
+  public static @Nullable Integer getBasePeakIndex(@Nonnull DoubleBuffer mzValues,
+      @Nonnull FloatBuffer intensityValues, @Nonnull Range<Double> mzRange) {
+
+    // Parameter check
+    Preconditions.checkNotNull(mzValues);
+    Preconditions.checkNotNull(intensityValues);
+    Preconditions.checkNotNull(mzRange);
+    final int size = mzValues.limit();
+    Preconditions.checkPositionIndex(size, intensityValues.limit());
+
+    int topIndex = -1;
+    for (int i = 0; i < size; i++) {
+      if ((topIndex == -1 || intensityValues.get(i) > intensityValues.get(topIndex))
+          && mzRange.contains(mzValues.get(i)))
+        topIndex = i;
+    }
+    return topIndex == -1 ? null : topIndex;
+  }
+
   /**
    * <p>
    * normalizeIntensity.
@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+import javax.annotation.Nonnull;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKRuntimeException;
+
+/**
+ * <p>
+ * Utilities for running independent parts of a method on a
+ * {@link java.util.concurrent.ForkJoinPool ForkJoinPool}.
+ * </p>
+ */
+public class ParallelUtil {
+
+  /**
+   * <p>
+   * Runs the given task for the indices 0 to count - 1 on the pool, and waits for all of them. If
+   * a task fails, the tasks which have not started yet are canceled and the failure is rethrown:
+   * an {@link io.github.msdk.MSDKRuntimeException} as it is, any other exception wrapped in an
+   * {@link io.github.msdk.MSDKException}.
+   * </p>
+   *
+   * @param pool the {@link java.util.concurrent.ForkJoinPool ForkJoinPool} running the tasks
+   * @param count the number of tasks
+   * @param task the task, called once with each index
+   * @throws io.github.msdk.MSDKException if a task failed or the calling thread was interrupted
+   */
+  public static void run(@Nonnull ForkJoinPool pool, int count, @Nonnull IntConsumer task)
+      throws MSDKException {
+    final List<ForkJoinTask<?>> tasks = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final int index = i;
+      tasks.add(pool.submit(() -> task.accept(index)));
+    }
+    try {
+      for (ForkJoinTask<?> t : tasks)
+        t.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MSDKException(e);
+    } catch (ExecutionException e) {
+      for (ForkJoinTask<?> t : tasks)
+        t.cancel(false);
+      if (e.getCause() instanceof MSDKRuntimeException)
+        throw (MSDKRuntimeException) e.getCause();
+      throw new MSDKException(e.getCause());
+    }
+  }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+
+import io.github.msdk.MSDKRuntimeException;
+
+/**
+ * <p>
+ * A {@link io.github.msdk.util.CloseableIterator} over the elements pushed by a producer, such as
+ * a SAX parser, which cannot be paused between two elements. The producer runs on its own thread
+ * and hands the elements over through a bounded queue. When the queue is full, the producer blocks
+ * until the consumer takes the next element, so at most <code>capacity</code> elements are held
+ * at any time.
+ * </p>
+ *
+ * <p>
+ * Closing the iterator before the end stops the producer: the next element it tries to push
+ * throws a {@link java.util.concurrent.CancellationException}, which the producer should let
+ * propagate. An exception thrown by the producer is rethrown to the consumer, wrapped in an
+ * {@link io.github.msdk.MSDKRuntimeException}, after the elements pushed before it.
+ * </p>
+ *
+ * @param <T> type of the iterated elements
+ */
+public class ProducerIterator<T> extends AbstractIterator<T> implements CloseableIterator<T> {
+
+  /** Default number of elements buffered between the producer and the consumer. */
+  public static final int DEFAULT_CAPACITY = 16;
+
+  /**
+   * Code pushing the elements to the given sink, in the order they should be iterated.
+   *
+   * @param <T> type of the produced elements
+   */
+  @FunctionalInterface
+  public interface Producer<T> {
+    void produce(@Nonnull Consumer<T> sink) throws Exception;
+  }
+
+  // Marks the end of the elements, and carries the failure of the producer, if any
+  private static final class End {
+    private final Throwable failure;
+
+    End(Throwable failure) {
+      this.failure = failure;
+    }
+  }
+
+  private final @Nonnull Producer<T> producer;
+  private final @Nonnull BlockingQueue<Object> queue;
+  private final @Nonnull Thread thread;
+  private volatile boolean closed = false;
+
+  /**
+   * <p>
+   * Constructor for ProducerIterator, with the default capacity. The producer thread is started
+   * immediately.
+   * </p>
+   *
+   * @param name name of the producer thread
+   * @param producer the {@link io.github.msdk.util.ProducerIterator.Producer} of the elements
+   */
+  public ProducerIterator(@Nonnull String name, @Nonnull Producer<T> producer) {
+    this(name, producer, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * <p>
+   * Constructor for ProducerIterator. The producer thread is started immediately.
+   * </p>
+   *
+   * @param name name of the producer thread
+   * @param producer the {@link io.github.msdk.util.ProducerIterator.Producer} of the elements
+   * @param capacity the maximum number of elements produced ahead of the consumer
+   */
+  public ProducerIterator(@Nonnull String name, @Nonnull Producer<T> producer, int capacity) {
+    Preconditions.checkNotNull(producer);
+    Preconditions.checkArgument(capacity > 0, "Capacity must be positive");
+    this.producer = producer;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.thread = new Thread(this::runProducer, name);
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @SuppressWarnings("unchecked")
+  protected T computeNext() {
+    if (closed)
+      return endOfData();
+
+    final Object element;
+    try {
+      element = queue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MSDKRuntimeException(e);
+    }
+
+    if (element instanceof End) {
+      closed = true;
+      final Throwable failure = ((End) element).failure;
+      if (failure != null)
+        throw new MSDKRuntimeException(failure);
+      return endOfData();
+    }
+    return (T) element;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void close() {
+    if (closed)
+      return;
+    closed = true;
+    thread.interrupt();
+    queue.clear();
+  }
+
+  private void runProducer() {
+    Throwable failure = null;
+    try {
+      producer.produce(this::push);
+    } catch (Throwable e) {
+      failure = e;
+    }
+
+    if (closed)
+      return;
+    try {
+      queue.put(new End(failure));
+    } catch (InterruptedException e) {
+      // The iterator has been closed meanwhile
+    }
+  }
+
+  private void push(T element) {
+    Preconditions.checkNotNull(element);
+    if (closed)
+      throw new CancellationException("The iterator has been closed");
+    try {
+      queue.put(element);
+    } catch (InterruptedException e) {
+      throw new CancellationException("The iterator has been closed");
+    }
+  }
+
+}
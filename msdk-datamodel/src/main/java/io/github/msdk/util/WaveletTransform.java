@@ -0,0 +1,347 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.util;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * WaveletTransform class. Computes the continuous wavelet transform of a signal for one or more
+ * scales, i.e. the coefficients coefficient[i] = sum over k of signal[i + k] * kernel(k), where each
+ * scale is given as a {@link Kernel} sampled at integer offsets k. The signal is assumed to be
+ * sampled on a uniform grid, and values outside of the signal are taken as zero.
+ * </p>
+ *
+ * <p>
+ * Depending on the sizes, the coefficients are either summed directly or computed by FFT. In the
+ * latter case the signal is split into blocks (overlap-add). Each block is transformed once and
+ * then multiplied with the spectra of all kernels, two kernels per inverse transform. The spectra
+ * of the kernels are computed once per FFT size and kept in the kernels.
+ * </p>
+ *
+ * <p>
+ * A WaveletTransform keeps its buffers between calls, so that repeated transforms (e.g. once per
+ * scan) do not allocate anything. It must not be used by several threads at the same time.
+ * Kernels are immutable and can be shared.
+ * </p>
+ */
+public class WaveletTransform {
+
+  /** Smallest block length of the overlap-add. */
+  private static final int MIN_BLOCK_LENGTH = 1024;
+
+  /**
+   * Estimated cost of one butterfly of the FFT relative to one multiply-add of the direct sum.
+   */
+  private static final double FFT_COST_FACTOR = 4.0;
+
+  /**
+   * <p>
+   * A wavelet sampled at the integer offsets getFirstOffset() to getLastOffset(), which must
+   * include 0.
+   * </p>
+   */
+  public static final class Kernel {
+
+    private final double values[];
+    private final int firstOffset;
+
+    /** Spectrum of the reversed kernel for the last FFT size, real parts followed by imaginary. */
+    private volatile double spectrum[];
+
+    /**
+     * <p>
+     * Constructor for Kernel.
+     * </p>
+     *
+     * @param values an array of double. values[i] is the kernel at offset firstOffset + i.
+     * @param firstOffset a int.
+     */
+    public Kernel(@Nonnull double values[], int firstOffset) {
+      Preconditions.checkArgument(firstOffset <= 0 && firstOffset + values.length > 0,
+          "The kernel must include offset 0");
+      this.values = values.clone();
+      this.firstOffset = firstOffset;
+    }
+
+    /**
+     * <p>
+     * Creates a Ricker (Mexican hat) wavelet of the given scale, sampled at the offsets firstOffset
+     * to lastOffset. The wavelet is normalized to unit energy, psi(k) = 2 / sqrt(3 * scale *
+     * sqrt(pi)) * (1 - k^2 / scale^2) * exp(-k^2 / (2 * scale^2)).
+     * </p>
+     *
+     * @param scale a double.
+     * @param firstOffset a int.
+     * @param lastOffset a int.
+     * @return a {@link io.github.msdk.util.WaveletTransform.Kernel} object.
+     */
+    public static @Nonnull Kernel ricker(double scale, int firstOffset, int lastOffset) {
+      Preconditions.checkArgument(scale > 0, "The scale must be positive");
+      double factor = 2.0 / Math.sqrt(3.0 * scale * Math.sqrt(Math.PI));
+      double values[] = new double[lastOffset - firstOffset + 1];
+      for (int i = 0; i < values.length; i++) {
+        double x = (firstOffset + i) / scale;
+        values[i] = factor * (1.0 - x * x) * Math.exp(-x * x / 2.0);
+      }
+      return new Kernel(values, firstOffset);
+    }
+
+    /**
+     * <p>
+     * getFirstOffset.
+     * </p>
+     *
+     * @return a int.
+     */
+    public int getFirstOffset() {
+      return firstOffset;
+    }
+
+    /**
+     * <p>
+     * getLastOffset.
+     * </p>
+     *
+     * @return a int.
+     */
+    public int getLastOffset() {
+      return firstOffset + values.length - 1;
+    }
+
+    /**
+     * <p>
+     * getValue.
+     * </p>
+     *
+     * @param offset a int.
+     * @return the kernel at the given offset, or 0 outside of the kernel.
+     */
+    public double getValue(int offset) {
+      int i = offset - firstOffset;
+      return i >= 0 && i < values.length ? values[i] : 0.0;
+    }
+
+  }
+
+  private double signalBuffer[] = new double[0];
+
+  // FFT tables and buffers for the current FFT size
+  private int fftSize = 0;
+  private int bitReversed[];
+  private double cosTable[], sinTable[];
+  private double blockRe[], blockIm[], productRe[], productIm[];
+
+  /**
+   * <p>
+   * Computes the wavelet coefficients of signal[0] to signal[size - 1] for each of the kernels.
+   * </p>
+   *
+   * @param signal an array of double.
+   * @param size a int.
+   * @param kernels an array of {@link io.github.msdk.util.WaveletTransform.Kernel} objects.
+   * @param coefficients an array of double arrays of at least the given size, one per kernel,
+   *        which receive the coefficients.
+   */
+  public void transform(@Nonnull double signal[], int size, @Nonnull Kernel kernels[],
+      @Nonnull double coefficients[][]) {
+    Preconditions.checkArgument(coefficients.length >= kernels.length);
+    for (int k = 0; k < kernels.length; k++)
+      Preconditions.checkArgument(coefficients[k].length >= size);
+    if (size == 0 || kernels.length == 0)
+      return;
+
+    int maxWidth = 0;
+    double directCost = 0.0;
+    for (Kernel kernel : kernels) {
+      maxWidth = Math.max(maxWidth, kernel.values.length);
+      directCost += (double) size * Math.min(kernel.values.length, size);
+    }
+
+    int blockLength = Math.min(size, Math.max(4 * maxWidth, MIN_BLOCK_LENGTH));
+    int n = Integer.highestOneBit(blockLength + maxWidth - 1);
+    if (n < blockLength + maxWidth - 1)
+      n <<= 1;
+    blockLength = n - maxWidth + 1;
+    int numOfBlocks = (size + blockLength - 1) / blockLength;
+    int numOfTransforms = 1 + (kernels.length + 1) / 2;
+    double fftCost = (double) numOfBlocks * n * (FFT_COST_FACTOR * numOfTransforms
+        * Integer.numberOfTrailingZeros(n) / 2 + kernels.length);
+
+    if (directCost <= fftCost) {
+      for (int k = 0; k < kernels.length; k++)
+        transformDirect(signal, size, kernels[k], coefficients[k]);
+    } else {
+      transformFFT(signal, size, kernels, coefficients, n, blockLength);
+    }
+  }
+
+  /**
+   * <p>
+   * Computes the wavelet coefficients of signal[0] to signal[size - 1] for each of the kernels.
+   * </p>
+   *
+   * @param signal an array of float.
+   * @param size a int.
+   * @param kernels an array of {@link io.github.msdk.util.WaveletTransform.Kernel} objects.
+   * @param coefficients an array of double arrays of at least the given size, one per kernel,
+   *        which receive the coefficients.
+   */
+  public void transform(@Nonnull float signal[], int size, @Nonnull Kernel kernels[],
+      @Nonnull double coefficients[][]) {
+    if (signalBuffer.length < size)
+      signalBuffer = new double[size];
+    for (int i = 0; i < size; i++)
+      signalBuffer[i] = signal[i];
+    transform(signalBuffer, size, kernels, coefficients);
+  }
+
+  private static void transformDirect(double signal[], int size, Kernel kernel,
+      double coefficients[]) {
+    double values[] = kernel.values;
+    int firstOffset = kernel.firstOffset, lastOffset = kernel.getLastOffset();
+    for (int i = 0; i < size; i++) {
+      int from = Math.max(firstOffset, -i), to = Math.min(lastOffset, size - 1 - i);
+      double sum = 0.0;
+      for (int k = from; k <= to; k++)
+        sum += signal[i + k] * values[k - firstOffset];
+      coefficients[i] = sum;
+    }
+  }
+
+  private void transformFFT(double signal[], int size, Kernel kernels[], double coefficients[][],
+      int n, int blockLength) {
+    prepareFFT(n);
+    for (int k = 0; k < kernels.length; k++)
+      Arrays.fill(coefficients[k], 0, size, 0.0);
+
+    for (int blockStart = 0; blockStart < size; blockStart += blockLength) {
+      int blockEnd = Math.min(blockStart + blockLength, size);
+      Arrays.fill(blockRe, 0.0);
+      Arrays.fill(blockIm, 0.0);
+      System.arraycopy(signal, blockStart, blockRe, 0, blockEnd - blockStart);
+      fft(blockRe, blockIm);
+
+      // Both coefficient sets of a pair of kernels are real, so one inverse transform of
+      // X * K1 + i * X * K2 returns the first set as real and the second as imaginary part
+      for (int k = 0; k < kernels.length; k += 2) {
+        double spectrum1[] = getSpectrum(kernels[k]);
+        double spectrum2[] = k + 1 < kernels.length ? getSpectrum(kernels[k + 1]) : null;
+        for (int j = 0; j < n; j++) {
+          double re = spectrum1[j], im = spectrum1[n + j];
+          if (spectrum2 != null) {
+            re -= spectrum2[n + j];
+            im += spectrum2[j];
+          }
+          // Multiply and conjugate for the inverse transform
+          productRe[j] = blockRe[j] * re - blockIm[j] * im;
+          productIm[j] = -(blockRe[j] * im + blockIm[j] * re);
+        }
+        fft(productRe, productIm);
+
+        addBlock(productRe, 1.0 / n, blockStart, blockEnd, size, kernels[k], coefficients[k]);
+        if (spectrum2 != null)
+          addBlock(productIm, -1.0 / n, blockStart, blockEnd, size, kernels[k + 1],
+              coefficients[k + 1]);
+      }
+    }
+  }
+
+  /**
+   * Adds the convolution of a block with the reversed kernel to the coefficients. The convolution
+   * at position m belongs to the coefficient blockStart + m - lastOffset.
+   */
+  private static void addBlock(double convolution[], double factor, int blockStart, int blockEnd,
+      int size, Kernel kernel, double coefficients[]) {
+    int lastOffset = kernel.getLastOffset();
+    int from = Math.max(blockStart - lastOffset, 0);
+    int to = Math.min(blockEnd + kernel.values.length - 1 - lastOffset, size);
+    for (int i = from; i < to; i++)
+      coefficients[i] += convolution[i + lastOffset - blockStart] * factor;
+  }
+
+  private double[] getSpectrum(Kernel kernel) {
+    int n = fftSize;
+    double spectrum[] = kernel.spectrum;
+    if (spectrum != null && spectrum.length == 2 * n)
+      return spectrum;
+
+    double re[] = new double[n], im[] = new double[n];
+    int width = kernel.values.length;
+    for (int i = 0; i < width; i++)
+      re[i] = kernel.values[width - 1 - i];
+    fft(re, im);
+    spectrum = new double[2 * n];
+    System.arraycopy(re, 0, spectrum, 0, n);
+    System.arraycopy(im, 0, spectrum, n, n);
+    kernel.spectrum = spectrum;
+    return spectrum;
+  }
+
+  private void prepareFFT(int n) {
+    if (fftSize == n)
+      return;
+    fftSize = n;
+    int bits = Integer.numberOfTrailingZeros(n);
+    bitReversed = new int[n];
+    for (int i = 0; i < n; i++)
+      bitReversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+    cosTable = new double[n / 2];
+    sinTable = new double[n / 2];
+    for (int i = 0; i < n / 2; i++) {
+      cosTable[i] = Math.cos(2.0 * Math.PI * i / n);
+      sinTable[i] = Math.sin(2.0 * Math.PI * i / n);
+    }
+    blockRe = new double[n];
+    blockIm = new double[n];
+    productRe = new double[n];
+    productIm = new double[n];
+  }
+
+  /** In-place iterative radix-2 FFT of length fftSize. */
+  private void fft(double re[], double im[]) {
+    int n = fftSize;
+    for (int i = 0; i < n; i++) {
+      int j = bitReversed[i];
+      if (i < j) {
+        double t = re[i];
+        re[i] = re[j];
+        re[j] = t;
+        t = im[i];
+        im[i] = im[j];
+        im[j] = t;
+      }
+    }
+    for (int length = 2; length <= n; length <<= 1) {
+      int half = length >> 1, step = n / length;
+      for (int start = 0; start < n; start += length) {
+        for (int j = 0, t = 0; j < half; j++, t += step) {
+          int a = start + j, b = a + half;
+          double c = cosTable[t], s = sinTable[t];
+          double bRe = re[b] * c + im[b] * s;
+          double bIm = im[b] * c - re[b] * s;
+          re[b] = re[a] - bRe;
+          im[b] = im[a] - bIm;
+          re[a] += bRe;
+          im[a] += bIm;
+        }
+      }
+    }
+  }
+
+}
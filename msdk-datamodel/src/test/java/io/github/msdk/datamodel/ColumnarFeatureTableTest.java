@@ -0,0 +1,162 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.datamodel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.MSDKRuntimeException;
+
+/**
+ * Tests for ColumnarFeatureTable
+ */
+public class ColumnarFeatureTableTest {
+
+  private static List<Sample> createSamples(int numOfSamples) {
+    List<Sample> samples = new ArrayList<>();
+    for (int s = 0; s < numOfSamples; s++)
+      samples.add(new SimpleSample("Sample " + s));
+    return samples;
+  }
+
+  private static SimpleFeature createFeature(int row, int sample) {
+    SimpleFeature feature = new SimpleFeature();
+    feature.setMz(100.0 + row + sample * 0.001);
+    feature.setRetentionTime(60f + row + sample * 0.1f);
+    feature.setHeight(1000f * (sample + 1));
+    if (sample % 2 == 0)
+      feature.setArea(5000f * (sample + 1));
+    return feature;
+  }
+
+  @Test
+  public void testFeatureValues() {
+    List<Sample> samples = createSamples(3);
+    ColumnarFeatureTable table = new ColumnarFeatureTable(samples);
+    for (int r = 0; r < 100; r++) {
+      ColumnarFeatureTableRow row = table.addRow();
+      if (r % 10 == 0)
+        row.setCharge(2);
+      // The last sample only contains every other feature
+      for (int s = 0; s < 3; s++) {
+        if ((s < 2) || (r % 2 == 0))
+          row.setFeature(samples.get(s), createFeature(r, s));
+      }
+    }
+
+    List<FeatureTableRow> rows = table.getRows();
+    Assert.assertEquals(100, rows.size());
+    for (int r = 0; r < 100; r++) {
+      FeatureTableRow row = rows.get(r);
+      Assert.assertSame(table, row.getFeatureTable());
+      Assert.assertEquals(r % 10 == 0 ? Integer.valueOf(2) : null, row.getCharge());
+
+      int numOfFeatures = (r % 2 == 0) ? 3 : 2;
+      double mzSum = 0, rtSum = 0;
+      for (int s = 0; s < numOfFeatures; s++) {
+        SimpleFeature expected = createFeature(r, s);
+        Feature feature = row.getFeature(samples.get(s));
+        Assert.assertEquals(expected.getMz(), feature.getMz());
+        Assert.assertEquals(expected.getRetentionTime(), feature.getRetentionTime());
+        Assert.assertEquals(expected.getHeight(), feature.getHeight());
+        Assert.assertEquals(expected.getArea(), feature.getArea());
+        Assert.assertNull(feature.getSNRatio());
+        Assert.assertNull(feature.getChromatogram());
+        Assert.assertEquals(feature, row.getFeature(s));
+        mzSum += expected.getMz();
+        rtSum += expected.getRetentionTime();
+      }
+      if (numOfFeatures == 2)
+        Assert.assertNull(row.getFeature(samples.get(2)));
+      Assert.assertEquals(mzSum / numOfFeatures, row.getMz(), 1E-9);
+      Assert.assertEquals(rtSum / numOfFeatures, row.getRT(), 1E-4);
+    }
+  }
+
+  @Test
+  public void testReplaceAndRemove() {
+    List<Sample> samples = createSamples(2);
+    ColumnarFeatureTable table = new ColumnarFeatureTable(samples);
+    ColumnarFeatureTableRow row = table.addRow();
+    Assert.assertNull(row.getMz());
+    Assert.assertNull(row.getRT());
+
+    row.setFeature(samples.get(0), createFeature(1, 0));
+    row.setFeature(samples.get(1), createFeature(3, 1));
+    Assert.assertEquals(102.0005, row.getMz(), 1E-9);
+
+    // Replacing a feature replaces all its values
+    SimpleFeature replacement = createFeature(5, 0);
+    replacement.setArea(null);
+    replacement.setSNRatio(12f);
+    row.setFeature(samples.get(0), replacement);
+    Assert.assertEquals(104.0005, row.getMz(), 1E-9);
+    Assert.assertNull(row.getFeature(0).getArea());
+    Assert.assertEquals(12f, row.getFeature(0).getSNRatio(), 0f);
+
+    row.setFeature(samples.get(1), null);
+    Assert.assertNull(row.getFeature(1));
+    Assert.assertEquals(105.0, row.getMz(), 1E-9);
+
+    ColumnarFeatureTableRow second = table.addRow();
+    second.setFeature(samples.get(1), createFeature(7, 1));
+    table.removeRow(row);
+    Assert.assertEquals(1, table.getRows().size());
+    Assert.assertSame(second, table.getRows().get(0));
+    Assert.assertNull(row.getFeature(0));
+    Assert.assertEquals(107.001, second.getMz(), 1E-9);
+  }
+
+  @Test
+  public void testCopy() {
+    List<Sample> samples = createSamples(4);
+    SimpleFeatureTable source = new SimpleFeatureTable();
+    source.setSamples(samples);
+    for (int r = 0; r < 50; r++) {
+      SimpleFeatureTableRow row = new SimpleFeatureTableRow(source);
+      row.setCharge(r % 3);
+      for (int s = 0; s < 4; s++)
+        row.setFeature(samples.get(s), createFeature(r, s));
+      source.addRow(row);
+    }
+
+    ColumnarFeatureTable copy = new ColumnarFeatureTable(source);
+    Assert.assertEquals(samples, copy.getSamples());
+    Assert.assertEquals(50, copy.getRows().size());
+    for (int r = 0; r < 50; r++) {
+      FeatureTableRow expected = source.getRows().get(r);
+      FeatureTableRow actual = copy.getRows().get(r);
+      Assert.assertEquals(expected.getCharge(), actual.getCharge());
+      Assert.assertEquals(expected.getMz(), actual.getMz(), 1E-9);
+      Assert.assertEquals(expected.getRT(), actual.getRT(), 1E-4);
+      for (Sample sample : samples) {
+        Assert.assertEquals(expected.getFeature(sample).getMz(),
+            actual.getFeature(sample).getMz());
+        Assert.assertEquals(expected.getFeature(sample).getArea(),
+            actual.getFeature(sample).getArea());
+      }
+    }
+  }
+
+  @Test(expected = MSDKRuntimeException.class)
+  public void testUnknownSample() {
+    ColumnarFeatureTable table = new ColumnarFeatureTable(createSamples(1));
+    table.addRow().setFeature(new SimpleSample("Other"), createFeature(0, 0));
+  }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.MSDKException;
+
+/**
+ * Tests for ColumnarRawDataFile
+ */
+public class ColumnarRawDataFileTest {
+
+  @Rule
+  public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private static SimpleMsScan createScan(int scanNumber, int size) {
+    double mzValues[] = new double[size];
+    float intensityValues[] = new float[size];
+    for (int i = 0; i < size; i++) {
+      mzValues[i] = 100.0 + scanNumber + i * 0.01;
+      intensityValues[i] = scanNumber * 1000f + i;
+    }
+    SimpleMsScan scan = new SimpleMsScan(scanNumber, "Full ms");
+    scan.setDataPoints(mzValues, intensityValues, size);
+    scan.setRetentionTime(scanNumber * 1.5f);
+    scan.setPolarity(PolarityType.POSITIVE);
+    scan.setScanningRange(Range.closed(50.0, 2000.0));
+    scan.getIsolations().add(new SimpleIsolationInfo(Range.closed(400.0, 401.0)));
+    return scan;
+  }
+
+  private static void checkScans(ColumnarRawDataFile file, int numOfScans) {
+    List<MsScan> scans = file.getScans();
+    Assert.assertEquals(numOfScans, scans.size());
+    for (int s = 0; s < numOfScans; s++) {
+      SimpleMsScan expected = createScan(s + 1, 10 + s * 7);
+      MsScan actual = scans.get(s);
+      Assert.assertSame(file, actual.getRawDataFile());
+      Assert.assertEquals(expected.getScanNumber(), actual.getScanNumber());
+      Assert.assertEquals(expected.getRetentionTime(), actual.getRetentionTime());
+      Assert.assertEquals(expected.getMsFunction(), actual.getMsFunction());
+      Assert.assertEquals(expected.getPolarity(), actual.getPolarity());
+      Assert.assertEquals(expected.getScanningRange(), actual.getScanningRange());
+      Assert.assertEquals(expected.getMzRange(), actual.getMzRange());
+      Assert.assertEquals(expected.getTIC(), actual.getTIC(), 0.0001);
+      Assert.assertEquals(1, actual.getIsolations().size());
+      Assert.assertEquals(expected.getNumberOfDataPoints(), actual.getNumberOfDataPoints());
+      Assert.assertArrayEquals(expected.getMzValues(), actual.getMzValues(), 0.0);
+      Assert.assertArrayEquals(expected.getIntensityValues(), actual.getIntensityValues(), 0f);
+
+      // Reuse of a larger buffer
+      double mzBuffer[] = new double[1000];
+      Assert.assertSame(mzBuffer, actual.getMzValues(mzBuffer));
+      Assert.assertEquals(expected.getMzValues()[0], mzBuffer[0], 0.0);
+
+      // Read-only views and visitor
+      Assert.assertEquals(expected.getMzBuffer(), actual.getMzBuffer());
+      Assert.assertEquals(expected.getIntensityBuffer(), actual.getIntensityBuffer());
+      final float expectedIntensities[] = expected.getIntensityValues();
+      actual.forEachDataPoint((index, mz, intensity) -> Assert
+          .assertEquals(expectedIntensities[index], intensity, 0f));
+    }
+  }
+
+  @Test
+  public void testDirectColumns() throws MSDKException {
+    // Small segments force the scans to be spread over several segments
+    ColumnarRawDataFile file = new ColumnarRawDataFile("test", Optional.empty(),
+        FileType.UNKNOWN, null, 50);
+    long total = 0;
+    for (int s = 0; s < 20; s++) {
+      SimpleMsScan scan = createScan(s + 1, 10 + s * 7);
+      file.addScan(scan);
+      total += scan.getNumberOfDataPoints();
+    }
+    Assert.assertEquals(total, file.getNumberOfStoredDataPoints());
+    Assert.assertEquals(1, file.getMsFunctions().size());
+    checkScans(file, 20);
+  }
+
+  @Test
+  public void testMappedColumns() throws Exception {
+    File tmpDir = tmpFolder.newFolder();
+    ColumnarRawDataFile file = new ColumnarRawDataFile("test", Optional.empty(),
+        FileType.UNKNOWN, tmpDir, 100);
+    for (int s = 0; s < 20; s++)
+      file.addScan(createScan(s + 1, 10 + s * 7));
+    checkScans(file, 20);
+    Assert.assertTrue(tmpDir.listFiles().length > 0);
+
+    file.dispose();
+    Assert.assertEquals(0, tmpDir.listFiles().length);
+    Assert.assertTrue(file.getScans().isEmpty());
+  }
+
+  @Test
+  public void testReadDuringImport() throws Exception {
+    // Small segments make the importing thread allocate new segments while the scans are read
+    final ColumnarRawDataFile file = new ColumnarRawDataFile("test", Optional.empty(),
+        FileType.UNKNOWN, null, 50);
+    final int numOfScans = 500;
+    final Thread importer = new Thread(() -> {
+      for (int s = 0; s < numOfScans; s++)
+        file.addScan(createScan(s + 1, 10 + s % 20));
+    });
+    importer.start();
+    while (importer.isAlive()) {
+      List<MsScan> scans = file.getScans();
+      for (int s = 0; s < scans.size(); s++) {
+        float intensityValues[] = scans.get(s).getIntensityValues();
+        Assert.assertEquals(10 + s % 20, intensityValues.length);
+        Assert.assertEquals((s + 1) * 1000f, intensityValues[0], 0f);
+      }
+    }
+    importer.join();
+    Assert.assertEquals(numOfScans, file.getScans().size());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testDisposed() throws MSDKException {
+    ColumnarRawDataFile file =
+        new ColumnarRawDataFile("test", Optional.empty(), FileType.UNKNOWN);
+    MsScan scan = file.addScan(createScan(1, 10));
+    file.dispose();
+    scan.getMzValues();
+  }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.datamodel;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for DataPointCache
+ */
+public class DataPointCacheTest {
+
+  // Each array of 100 doubles occupies 800 bytes plus the entry overhead
+  private static final int ARRAY_LENGTH = 100;
+
+  @Test
+  public void testHitsAndMisses() {
+    DataPointCache cache = new DataPointCache(1L << 20);
+    Object owner = new Object();
+    AtomicInteger loads = new AtomicInteger();
+
+    double first[] = cache.getDoubleArray(owner, 0, () -> {
+      loads.incrementAndGet();
+      return new double[ARRAY_LENGTH];
+    });
+    double second[] = cache.getDoubleArray(owner, 0, () -> {
+      loads.incrementAndGet();
+      return new double[ARRAY_LENGTH];
+    });
+    float third[] = cache.getFloatArray(owner, 1, () -> {
+      loads.incrementAndGet();
+      return new float[ARRAY_LENGTH];
+    });
+
+    Assert.assertSame(first, second);
+    Assert.assertNotNull(third);
+    Assert.assertEquals(2, loads.get());
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(2, cache.getMissCount());
+    Assert.assertEquals(0, cache.getEvictionCount());
+    Assert.assertEquals(2, cache.getEntryCount());
+    Assert.assertEquals(1.0 / 3.0, cache.getHitRate(), 0.0001);
+  }
+
+  @Test
+  public void testEviction() {
+    DataPointCache cache = new DataPointCache(3 * 1000);
+    Object owners[] = new Object[10];
+    for (int i = 0; i < owners.length; i++) {
+      owners[i] = new Object();
+      cache.getDoubleArray(owners[i], 0, () -> new double[ARRAY_LENGTH]);
+      Assert.assertTrue(cache.getUsedBytes() <= cache.getMaximumBytes());
+    }
+    Assert.assertEquals(3, cache.getEntryCount());
+    Assert.assertEquals(7, cache.getEvictionCount());
+
+    // Touching the eldest entry makes it the most recently used one
+    cache.getDoubleArray(owners[7], 0, () -> new double[ARRAY_LENGTH]);
+    cache.getDoubleArray(owners[0], 0, () -> new double[ARRAY_LENGTH]);
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(8, cache.getEvictionCount());
+    AtomicInteger loads = new AtomicInteger();
+    cache.getDoubleArray(owners[7], 0, () -> {
+      loads.incrementAndGet();
+      return new double[ARRAY_LENGTH];
+    });
+    Assert.assertEquals(0, loads.get());
+  }
+
+  @Test
+  public void testOversizedArray() {
+    DataPointCache cache = new DataPointCache(1000);
+    double values[] = cache.getDoubleArray(new Object(), 0, () -> new double[1000]);
+    Assert.assertEquals(1000, values.length);
+    Assert.assertEquals(0, cache.getEntryCount());
+    Assert.assertEquals(0, cache.getUsedBytes());
+  }
+
+  @Test
+  public void testInvalidate() {
+    DataPointCache cache = new DataPointCache(1L << 20);
+    Object owner1 = new Object(), owner2 = new Object();
+    cache.putDoubleArray(owner1, 0, new double[ARRAY_LENGTH]);
+    cache.putFloatArray(owner1, 1, new float[ARRAY_LENGTH]);
+    cache.putDoubleArray(owner2, 0, new double[ARRAY_LENGTH]);
+    Assert.assertEquals(3, cache.getEntryCount());
+
+    cache.invalidateIf(owner -> owner == owner1);
+    Assert.assertEquals(1, cache.getEntryCount());
+    Assert.assertEquals(0, cache.getEvictionCount());
+
+    cache.invalidateAll();
+    Assert.assertEquals(0, cache.getEntryCount());
+    Assert.assertEquals(0, cache.getUsedBytes());
+  }
+
+}
@@ -13,12 +13,18 @@
 
 package io.github.msdk.datamodel;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import io.github.msdk.util.DataPointSorter;
 import io.github.msdk.util.DataPointSorter.SortingDirection;
 import io.github.msdk.util.DataPointSorter.SortingProperty;
+import io.github.msdk.util.DataPointSorter.Workspace;
 
 /**
  * Tests for DataPointSorter
@@ -73,4 +79,131 @@ public class DataPointSorterTest {
     }
   }
 
+  @Test
+  public void testStableSort() {
+    double mzBuffer[] = {1.0, 2.0, 3.0, 4.0, 5.0};
+    float intensityBuffer[] = {5f, 7f, 5f, 7f, 5f};
+    DataPointSorter.sortDataPoints(mzBuffer, intensityBuffer, 5, SortingProperty.INTENSITY,
+        SortingDirection.DESCENDING);
+    Assert.assertArrayEquals(new double[] {2.0, 4.0, 1.0, 3.0, 5.0}, mzBuffer, 0.0);
+    Assert.assertArrayEquals(new float[] {7f, 7f, 5f, 5f, 5f}, intensityBuffer, 0f);
+  }
+
+  @Test
+  public void testSpecialValues() {
+    double mzBuffer[] = {Double.NaN, 0.0, -0.0, -5.0, Double.POSITIVE_INFINITY, 3.0};
+    float intensityBuffer[] = {0f, 1f, 2f, 3f, 4f, 5f};
+    DataPointSorter.sortDataPoints(mzBuffer, intensityBuffer, 6, SortingProperty.MZ,
+        SortingDirection.ASCENDING);
+    Assert.assertArrayEquals(new float[] {3f, 2f, 1f, 5f, 4f, 0f}, intensityBuffer, 0f);
+  }
+
+  @Test
+  public void testRandomDataWithWorkspace() {
+    // Sizes below and above the insertion sort threshold, sharing one workspace
+    Random random = new Random(42);
+    Workspace workspace = new Workspace();
+    for (int size : new int[] {0, 1, 10, 47, 48, 1000, 20000, 500}) {
+      for (SortingProperty prop : SortingProperty.values()) {
+        for (SortingDirection dir : SortingDirection.values()) {
+          double mzBuffer[] = new double[size + 3];
+          float intensityBuffer[] = new float[size + 3];
+          for (int i = 0; i < mzBuffer.length; i++) {
+            // Coarse values to produce many ties
+            mzBuffer[i] = 100.0 + random.nextInt(size + 1) * 0.5;
+            intensityBuffer[i] = random.nextInt(100) - 10;
+          }
+          double expectedMz[] = mzBuffer.clone();
+          float expectedIntensity[] = intensityBuffer.clone();
+          referenceSort(expectedMz, expectedIntensity, size, prop, dir);
+
+          DataPointSorter.sortDataPoints(mzBuffer, intensityBuffer, size, prop, dir, workspace);
+          Assert.assertArrayEquals(expectedMz, mzBuffer, 0.0);
+          Assert.assertArrayEquals(expectedIntensity, intensityBuffer, 0f);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRtSort() {
+    Float rtBuffer[] = {3.0f, 1.0f, 2.0f, 1.0f, 9.0f};
+    double mzBuffer[] = {30.0, 10.0, 20.0, 11.0, 90.0};
+    float intensityBuffer[] = {300f, 100f, 200f, 110f, 900f};
+    DataPointSorter.sortDataPoints(rtBuffer, mzBuffer, intensityBuffer, 4);
+    Assert.assertArrayEquals(new Float[] {1.0f, 1.0f, 2.0f, 3.0f, 9.0f}, rtBuffer);
+    Assert.assertArrayEquals(new double[] {10.0, 11.0, 20.0, 30.0, 90.0}, mzBuffer, 0.0);
+    Assert.assertArrayEquals(new float[] {100f, 110f, 200f, 300f, 900f}, intensityBuffer, 0f);
+
+    Random random = new Random(7);
+    float rtValues[] = new float[5000];
+    double mzValues[] = new double[5000];
+    float intensityValues[] = new float[5000];
+    for (int i = 0; i < rtValues.length; i++) {
+      rtValues[i] = random.nextFloat() * 100f;
+      mzValues[i] = rtValues[i] * 2.0;
+      intensityValues[i] = rtValues[i] * 3f;
+    }
+    DataPointSorter.sortDataPoints(rtValues, mzValues, intensityValues, rtValues.length,
+        new Workspace());
+    for (int i = 1; i < rtValues.length; i++) {
+      Assert.assertTrue(rtValues[i] >= rtValues[i - 1]);
+      Assert.assertEquals(rtValues[i] * 2.0, mzValues[i], 0.0);
+      Assert.assertEquals(rtValues[i] * 3f, intensityValues[i], 0f);
+    }
+  }
+
+  @Test
+  public void testSortIndices() {
+    Random random = new Random(11);
+    Workspace workspace = new Workspace();
+    for (int size : new int[] {0, 1, 5, 100, 5000}) {
+      double values[] = new double[size];
+      for (int i = 0; i < size; i++)
+        values[i] = random.nextInt(size + 1) * 0.25 - 10.0;
+      int order[] = new int[size];
+      DataPointSorter.sortIndices(values, order, size, workspace);
+      for (int i = 1; i < size; i++) {
+        final double previous = values[order[i - 1]], current = values[order[i]];
+        Assert.assertTrue(previous <= current);
+        // Stable order of equal values
+        if (previous == current)
+          Assert.assertTrue(order[i - 1] < order[i]);
+      }
+    }
+  }
+
+  @Test
+  public void testSortFloatIndices() {
+    float values[] = {3f, 1f, 2f, 1f, 3f, 9f};
+    int order[] = new int[values.length];
+    DataPointSorter.sortIndices(values, order, values.length, SortingDirection.DESCENDING, null);
+    Assert.assertArrayEquals(new int[] {5, 0, 4, 2, 1, 3}, order);
+    DataPointSorter.sortIndices(values, order, values.length, SortingDirection.ASCENDING,
+        new Workspace());
+    Assert.assertArrayEquals(new int[] {1, 3, 2, 0, 4, 5}, order);
+  }
+
+  /**
+   * Stable sort through boxed indices, as a reference for the primitive implementation.
+   */
+  private static void referenceSort(double mzBuffer[], float intensityBuffer[], int size,
+      SortingProperty prop, SortingDirection dir) {
+    List<Integer> idx = new ArrayList<>();
+    for (int i = 0; i < size; i++)
+      idx.add(i);
+    Comparator<Integer> comp = (prop == SortingProperty.MZ)
+        ? (i1, i2) -> Double.compare(mzBuffer[i1], mzBuffer[i2])
+        : (i1, i2) -> Float.compare(intensityBuffer[i1], intensityBuffer[i2]);
+    if (dir == SortingDirection.DESCENDING)
+      comp = comp.reversed();
+    idx.sort(comp);
+    double mzCopy[] = mzBuffer.clone();
+    float intensityCopy[] = intensityBuffer.clone();
+    for (int i = 0; i < size; i++) {
+      mzBuffer[i] = mzCopy[idx.get(i)];
+      intensityBuffer[i] = intensityCopy[idx.get(i)];
+    }
+  }
+
 }
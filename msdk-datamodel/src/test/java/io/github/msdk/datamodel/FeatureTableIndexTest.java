@@ -0,0 +1,150 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.datamodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.util.FeatureTableIndex;
+import io.github.msdk.util.FeatureTableUtil;
+
+/**
+ * Tests for FeatureTableIndex
+ */
+public class FeatureTableIndexTest {
+
+  private static final Sample sample1 = new SimpleSample("Sample 1");
+  private static final Sample sample2 = new SimpleSample("Sample 2");
+
+  private static SimpleFeatureTable createTable() {
+    SimpleFeatureTable table = new SimpleFeatureTable();
+    table.setSamples(Arrays.asList(sample1, sample2));
+    return table;
+  }
+
+  private static SimpleFeature createFeature(double mz, float rt) {
+    SimpleFeature feature = new SimpleFeature();
+    feature.setMz(mz);
+    feature.setRetentionTime(rt);
+    return feature;
+  }
+
+  private static SimpleFeatureTableRow addRandomRow(SimpleFeatureTable table, Random random) {
+    SimpleFeatureTableRow row = new SimpleFeatureTableRow(table);
+    // Round the values so that some rows share their m/z or RT
+    double mz = 100.0 + Math.round(random.nextDouble() * 2000.0) / 10.0;
+    float rt = Math.round(random.nextFloat() * 300f) / 10f;
+    row.setFeature(sample1, createFeature(mz, rt));
+    table.addRow(row);
+    return row;
+  }
+
+  private static void checkQueries(FeatureTable table, FeatureTableIndex index, Random random) {
+    for (int q = 0; q < 200; q++) {
+      double mz = 100.0 + random.nextDouble() * 200.0;
+      float rt = random.nextFloat() * 30f;
+      Range<Double> mzRange = Range.closed(mz - 1.0, mz + 1.0);
+      Range<Float> rtRange = Range.closed(rt - 2f, rt + 2f);
+      Assert.assertEquals(FeatureTableUtil.getRowsInsideRange(table, rtRange, mzRange),
+          index.getRowsInsideRange(rtRange, mzRange));
+    }
+
+    // Exact boundaries and open ranges
+    for (FeatureTableRow row : table.getRows().subList(0, 10)) {
+      Range<Double> mzRange = Range.closed(row.getMz(), row.getMz());
+      Range<Float> rtRange = Range.closed(row.getRT(), row.getRT());
+      List<FeatureTableRow> found = index.getRowsInsideRange(rtRange, mzRange);
+      Assert.assertTrue(found.contains(row));
+      Assert.assertEquals(FeatureTableUtil.getRowsInsideRange(table, rtRange, mzRange), found);
+      index.forEachRowInsideRange(rtRange, mzRange, (foundRow, foundMz, foundRt) -> {
+        Assert.assertEquals(foundRow.getMz(), foundMz, 0.0);
+        Assert.assertEquals(foundRow.getRT(), foundRt, 0f);
+      });
+      Assert.assertFalse(
+          index.getRowsInsideRange(rtRange, Range.open(row.getMz(), row.getMz() + 1.0))
+              .contains(row));
+      Assert.assertEquals(
+          FeatureTableUtil.getRowsInsideRange(table, Range.all(), Range.atMost(row.getMz())),
+          index.getRowsInsideRange(Range.all(), Range.atMost(row.getMz())));
+    }
+  }
+
+  @Test
+  public void testBulkIndex() {
+    Random random = new Random(7);
+    SimpleFeatureTable table = createTable();
+    for (int i = 0; i < 2000; i++)
+      addRandomRow(table, random);
+
+    FeatureTableIndex index = new FeatureTableIndex(table);
+    Assert.assertEquals(2000, index.getNumberOfRows());
+    checkQueries(table, index, random);
+  }
+
+  @Test
+  public void testIncrementalUpdates() {
+    Random random = new Random(11);
+    SimpleFeatureTable table = createTable();
+    FeatureTableIndex index = new FeatureTableIndex();
+    List<SimpleFeatureTableRow> rows = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      SimpleFeatureTableRow row = addRandomRow(table, random);
+      index.addRow(row);
+      rows.add(row);
+
+      // Move some of the rows by adding a second feature
+      if (i % 3 == 0) {
+        SimpleFeatureTableRow moved = rows.get(random.nextInt(rows.size()));
+        moved.setFeature(sample2, createFeature(100.0 + random.nextDouble() * 200.0,
+            random.nextFloat() * 30f));
+        index.updateRow(moved);
+      }
+      if (i % 1000 == 999)
+        checkQueries(table, index, random);
+    }
+
+    // Remove a part of the rows
+    for (int i = 0; i < rows.size(); i += 2) {
+      table.removeRow(rows.get(i));
+      index.removeRow(rows.get(i));
+      Assert.assertFalse(index.containsRow(rows.get(i)));
+    }
+    Assert.assertEquals(1500, index.getNumberOfRows());
+    checkQueries(table, index, random);
+
+    // Repeated updates leave only stale entries behind
+    for (int u = 0; u < 20; u++) {
+      for (int i = 1; i < rows.size(); i += 2)
+        index.updateRow(rows.get(i));
+    }
+    checkQueries(table, index, random);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDuplicateRow() {
+    SimpleFeatureTable table = createTable();
+    SimpleFeatureTableRow row = addRandomRow(table, new Random(1));
+    FeatureTableIndex index = new FeatureTableIndex(table);
+    index.addRow(row);
+  }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKRuntimeException;
+import io.github.msdk.util.ParallelUtil;
+
+/**
+ * Tests for ParallelUtil
+ */
+public class ParallelUtilTest {
+
+  private static ForkJoinPool pool;
+
+  @BeforeClass
+  public static void createPool() {
+    pool = new ForkJoinPool(4);
+  }
+
+  @AfterClass
+  public static void shutdownPool() {
+    pool.shutdown();
+  }
+
+  @Test
+  public void testRun() throws MSDKException {
+    final AtomicIntegerArray calls = new AtomicIntegerArray(100);
+    ParallelUtil.run(pool, calls.length(), i -> calls.incrementAndGet(i));
+    for (int i = 0; i < calls.length(); i++)
+      Assert.assertEquals(1, calls.get(i));
+
+    // No tasks
+    ParallelUtil.run(pool, 0, i -> Assert.fail());
+  }
+
+  @Test(expected = MSDKRuntimeException.class)
+  public void testRuntimeFailure() throws MSDKException {
+    ParallelUtil.run(pool, 10, i -> {
+      if (i == 5)
+        throw new MSDKRuntimeException("failed");
+    });
+  }
+
+  @Test
+  public void testOtherFailure() {
+    try {
+      ParallelUtil.run(pool, 10, i -> {
+        if (i == 5)
+          throw new IllegalStateException("failed");
+      });
+      Assert.fail();
+    } catch (MSDKException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.datamodel;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.MSDKRuntimeException;
+import io.github.msdk.util.ProducerIterator;
+
+/**
+ * Tests for ProducerIterator
+ */
+public class ProducerIteratorTest {
+
+  @Test
+  public void testOrder() {
+    try (ProducerIterator<Integer> iterator = new ProducerIterator<>("test", sink -> {
+      for (int i = 0; i < 1000; i++)
+        sink.accept(i);
+    }, 4)) {
+      for (int i = 0; i < 1000; i++) {
+        Assert.assertTrue(iterator.hasNext());
+        Assert.assertEquals(i, (int) iterator.next());
+      }
+      Assert.assertFalse(iterator.hasNext());
+    }
+  }
+
+  @Test
+  public void testStream() {
+    ProducerIterator<Integer> iterator = new ProducerIterator<>("test", sink -> {
+      for (int i = 0; i < 100; i++)
+        sink.accept(i);
+    });
+    try (Stream<Integer> stream = iterator.stream()) {
+      List<Integer> even = stream.filter(i -> i % 2 == 0).collect(Collectors.toList());
+      Assert.assertEquals(50, even.size());
+      Assert.assertEquals(98, (int) even.get(49));
+    }
+  }
+
+  @Test
+  public void testBackpressureAndClose() throws InterruptedException {
+    AtomicInteger produced = new AtomicInteger();
+    CountDownLatch finished = new CountDownLatch(1);
+    ProducerIterator<Integer> iterator = new ProducerIterator<>("test", sink -> {
+      try {
+        for (int i = 0; i < 1000000; i++) {
+          sink.accept(i);
+          produced.incrementAndGet();
+        }
+      } finally {
+        finished.countDown();
+      }
+    }, 4);
+
+    Assert.assertEquals(0, (int) iterator.next());
+    Thread.sleep(100);
+    // The producer cannot get further ahead than the capacity of the queue
+    Assert.assertTrue(produced.get() <= 6);
+
+    iterator.close();
+    Assert.assertTrue(finished.await(10, TimeUnit.SECONDS));
+    Assert.assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void testFailure() {
+    ProducerIterator<Integer> iterator = new ProducerIterator<>("test", sink -> {
+      sink.accept(1);
+      throw new IllegalStateException("Broken file");
+    });
+    Assert.assertEquals(1, (int) iterator.next());
+    try {
+      iterator.hasNext();
+      Assert.fail();
+    } catch (MSDKRuntimeException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    iterator.close();
+  }
+
+}
@@ -13,6 +13,8 @@
 
 package io.github.msdk.datamodel;
 
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -179,6 +181,40 @@ public class SimpleMsScanTest {
 
   }
 
+  @Test
+  public void testDataPointViews() throws MSDKException {
+    double mzValues[] = {100.0, 200.0, 300.0, 0.0};
+    float intensityValues[] = {10f, 20f, 30f, 0f};
+    SimpleMsScan scan = new SimpleMsScan(1);
+    scan.setDataPoints(mzValues, intensityValues, 3);
+
+    DoubleBuffer mzBuffer = scan.getMzBuffer();
+    FloatBuffer intensityBuffer = scan.getIntensityBuffer();
+    Assert.assertTrue(mzBuffer.isReadOnly());
+    Assert.assertTrue(intensityBuffer.isReadOnly());
+    Assert.assertEquals(3, mzBuffer.limit());
+    Assert.assertEquals(3, intensityBuffer.remaining());
+    Assert.assertEquals(200.0, mzBuffer.get(1), 0.0);
+    Assert.assertEquals(30f, intensityBuffer.get(2), 0f);
+
+    final double sum[] = new double[2];
+    final int count[] = new int[1];
+    scan.forEachDataPoint((index, mz, intensity) -> {
+      Assert.assertEquals(count[0], index);
+      sum[0] += mz;
+      sum[1] += intensity;
+      count[0]++;
+    });
+    Assert.assertEquals(3, count[0]);
+    Assert.assertEquals(600.0, sum[0], 0.0);
+    Assert.assertEquals(60.0, sum[1], 0.0);
+
+    // Empty scan
+    SimpleMsScan emptyScan = new SimpleMsScan(2);
+    Assert.assertEquals(0, emptyScan.getMzBuffer().limit());
+    emptyScan.forEachDataPoint((index, mz, intensity) -> Assert.fail());
+  }
+
   @Test
   public void testSetRawDataFile() throws MSDKException {
     RawDataFile rdf = new SimpleRawDataFile("test", null, FileType.UNKNOWN);
@@ -0,0 +1,95 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.datamodel;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.util.WaveletTransform;
+import io.github.msdk.util.WaveletTransform.Kernel;
+
+/**
+ * Tests for WaveletTransform
+ */
+public class WaveletTransformTest {
+
+  private static double[] transformNaive(double signal[], Kernel kernel) {
+    double coefficients[] = new double[signal.length];
+    for (int i = 0; i < signal.length; i++) {
+      for (int k = kernel.getFirstOffset(); k <= kernel.getLastOffset(); k++) {
+        if (i + k >= 0 && i + k < signal.length)
+          coefficients[i] += signal[i + k] * kernel.getValue(k);
+      }
+    }
+    return coefficients;
+  }
+
+  private static void checkTransform(int size, Kernel kernels[]) {
+    Random random = new Random(size);
+    double signal[] = new double[size];
+    for (int i = 0; i < size; i++)
+      signal[i] = random.nextDouble() * 1000.0;
+
+    double coefficients[][] = new double[kernels.length][size + 5];
+    WaveletTransform transform = new WaveletTransform();
+    for (int repeat = 0; repeat < 2; repeat++) {
+      transform.transform(signal, size, kernels, coefficients);
+      for (int k = 0; k < kernels.length; k++) {
+        double expected[] = transformNaive(signal, kernels[k]);
+        for (int i = 0; i < size; i++)
+          Assert.assertEquals(expected[i], coefficients[k][i], 1e-9 * size * 1000.0);
+      }
+    }
+  }
+
+  @Test
+  public void testRicker() {
+    Kernel kernel = Kernel.ricker(2.0, -3, 4);
+    Assert.assertEquals(-3, kernel.getFirstOffset());
+    Assert.assertEquals(4, kernel.getLastOffset());
+    double factor = 2.0 / Math.sqrt(6.0 * Math.sqrt(Math.PI));
+    Assert.assertEquals(factor, kernel.getValue(0), 1e-12);
+    Assert.assertEquals(0.0, kernel.getValue(2), 1e-12);
+    Assert.assertEquals(-3.0 * factor * Math.exp(-2.0), kernel.getValue(4), 1e-12);
+    Assert.assertEquals(0.0, kernel.getValue(5), 0.0);
+  }
+
+  @Test
+  public void testDirect() {
+    checkTransform(21, new Kernel[] {Kernel.ricker(1.0, -6, 6), Kernel.ricker(10.0, -51, 51)});
+  }
+
+  @Test
+  public void testFFT() {
+    // Wide kernels on a long signal are transformed in several FFT blocks
+    Kernel kernels[] = new Kernel[5];
+    for (int i = 0; i < kernels.length; i++)
+      kernels[i] = Kernel.ricker(30.0 + 10 * i, -5 * (30 + 10 * i) - i, 5 * (30 + 10 * i));
+    checkTransform(10000, kernels);
+    checkTransform(3000, kernels);
+  }
+
+  @Test
+  public void testFloatSignal() {
+    float signal[] = {0f, 1f, 4f, 1f, 0f};
+    Kernel kernel = new Kernel(new double[] {-1.0, 2.0, -1.0}, -1);
+    double coefficients[][] = new double[1][5];
+    new WaveletTransform().transform(signal, 5, new Kernel[] {kernel}, coefficients);
+    Assert.assertArrayEquals(new double[] {-1.0, -2.0, 6.0, -2.0, -1.0}, coefficients[0], 0.0);
+  }
+
+}
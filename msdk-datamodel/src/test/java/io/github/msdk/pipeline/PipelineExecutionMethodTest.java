@@ -0,0 +1,275 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import javax.annotation.Nullable;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKMethod;
+
+/**
+ * Tests for PipelineExecutionMethod
+ */
+public class PipelineExecutionMethodTest {
+
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicInteger maxRunning = new AtomicInteger();
+
+  /** A method computing an integer, which counts how many methods run at the same time. */
+  private class ComputeMethod implements MSDKMethod<Integer> {
+
+    private final IntSupplier computation;
+    private volatile boolean canceled = false;
+    private volatile float finished = 0f;
+    private Integer result;
+
+    private ComputeMethod(IntSupplier computation) {
+      this.computation = computation;
+    }
+
+    @Override
+    public Integer execute() throws MSDKException {
+      final int nowRunning = running.incrementAndGet();
+      maxRunning.accumulateAndGet(nowRunning, Math::max);
+      try {
+        Thread.sleep(2);
+      } catch (InterruptedException e) {
+        throw new MSDKException(e);
+      } finally {
+        running.decrementAndGet();
+      }
+      if (canceled)
+        return null;
+      result = computation.getAsInt();
+      finished = 1f;
+      return result;
+    }
+
+    @Override
+    @Nullable
+    public Float getFinishedPercentage() {
+      return finished;
+    }
+
+    @Override
+    @Nullable
+    public Integer getResult() {
+      return result;
+    }
+
+    @Override
+    public void cancel() {
+      canceled = true;
+    }
+  }
+
+  /** A method running until it is canceled. */
+  private static class BlockingMethod implements MSDKMethod<Integer> {
+
+    private final CountDownLatch started;
+    private final CountDownLatch canceled = new CountDownLatch(1);
+
+    private BlockingMethod(CountDownLatch started) {
+      this.started = started;
+    }
+
+    @Override
+    public Integer execute() throws MSDKException {
+      started.countDown();
+      try {
+        canceled.await();
+      } catch (InterruptedException e) {
+        throw new MSDKException(e);
+      }
+      return null;
+    }
+
+    @Override
+    public Float getFinishedPercentage() {
+      return 0.5f;
+    }
+
+    @Override
+    public Integer getResult() {
+      return null;
+    }
+
+    @Override
+    public void cancel() {
+      canceled.countDown();
+    }
+  }
+
+  private PipelineStage<Integer> square, sum;
+
+  /** input -> (doubled, squared) -> sum of both. */
+  private MSDKPipeline<Integer> createPipeline() {
+    MSDKPipeline<Integer> pipeline = new MSDKPipeline<>();
+    PipelineStage<Integer> source = pipeline.addSource("source", i -> new ComputeMethod(() -> i));
+    PipelineStage<Integer> twice =
+        pipeline.addStage("twice", source, i -> new ComputeMethod(() -> 2 * i));
+    square = pipeline.addStage("square", source, i -> new ComputeMethod(() -> i * i))
+        .setRetainResult(true);
+    sum = pipeline.addStage("sum", twice, square, (a, b) -> new ComputeMethod(() -> a + b));
+    return pipeline;
+  }
+
+  private static List<Integer> createInputs(int numOfInputs) {
+    List<Integer> inputs = new ArrayList<>();
+    for (int i = 0; i < numOfInputs; i++)
+      inputs.add(i);
+    return inputs;
+  }
+
+  private void checkResults(MSDKPipeline<Integer> pipeline, List<Integer> inputs,
+      List<PipelineResults<Integer>> results) {
+    Assert.assertEquals(inputs.size(), results.size());
+    for (int i = 0; i < inputs.size(); i++) {
+      PipelineResults<Integer> inputResults = results.get(i);
+      Assert.assertEquals(inputs.get(i), inputResults.getInput());
+      Assert.assertEquals(i, inputResults.getInputIndex());
+      Assert.assertEquals(Integer.valueOf(i * i + 2 * i), inputResults.get(sum));
+      Assert.assertEquals(Integer.valueOf(i * i), inputResults.get(square));
+
+      // Intermediate results are released
+      try {
+        inputResults.get(pipeline.getStages().get(0));
+        Assert.fail();
+      } catch (IllegalStateException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testSerial() throws MSDKException {
+    MSDKPipeline<Integer> pipeline = createPipeline();
+    List<Integer> inputs = createInputs(20);
+    PipelineExecutionMethod<Integer> method = new PipelineExecutionMethod<>(pipeline, inputs);
+    Assert.assertNull(method.getFinishedPercentage());
+    List<PipelineResults<Integer>> results = method.execute();
+    Assert.assertSame(results, method.getResult());
+    Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+    checkResults(pipeline, inputs, results);
+    Assert.assertEquals(1, maxRunning.get());
+  }
+
+  @Test
+  public void testParallel() throws MSDKException {
+    MSDKPipeline<Integer> pipeline = createPipeline();
+    List<Integer> inputs = createInputs(200);
+    ExecutorService executor = Executors.newCachedThreadPool();
+    try {
+      // Concurrency is bounded by the method, not by the (unbounded) executor
+      PipelineExecutionMethod<Integer> method =
+          new PipelineExecutionMethod<>(pipeline, inputs, executor, 3);
+      checkResults(pipeline, inputs, method.execute());
+      Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+      Assert.assertTrue(maxRunning.get() <= 3);
+    } finally {
+      executor.shutdown();
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      checkResults(pipeline, inputs,
+          new PipelineExecutionMethod<>(pipeline, inputs, pool).execute());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testFailure() {
+    MSDKPipeline<Integer> pipeline = new MSDKPipeline<>();
+    PipelineStage<Integer> source = pipeline.addSource("source", i -> new ComputeMethod(() -> i));
+    pipeline.addStage("fail", source, i -> new ComputeMethod(() -> {
+      if (i == 7)
+        throw new IllegalArgumentException("Failed on " + i);
+      return i;
+    }));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      new PipelineExecutionMethod<>(pipeline, createInputs(50), executor).execute();
+      Assert.fail();
+    } catch (MSDKException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+      Assert.assertEquals("Failed on 7", e.getCause().getMessage());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    final CountDownLatch started = new CountDownLatch(2);
+    MSDKPipeline<Integer> pipeline = new MSDKPipeline<>();
+    pipeline.addSource("block", i -> new BlockingMethod(started));
+    final List<Integer> inputs = createInputs(10);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final PipelineExecutionMethod<Integer> method =
+          new PipelineExecutionMethod<>(pipeline, inputs, executor, 2);
+      final List<Object> outcome = new ArrayList<>();
+      Thread runner = new Thread(() -> {
+        try {
+          outcome.add(Arrays.asList(method.execute()));
+        } catch (MSDKException e) {
+          outcome.add(e);
+        }
+      });
+      runner.start();
+      started.await();
+      Assert.assertEquals(0.1, method.getFinishedPercentage(), 0.0001);
+      method.cancel();
+      runner.join(10000);
+      Assert.assertFalse(runner.isAlive());
+      Assert.assertEquals(1, outcome.size());
+      Assert.assertEquals(Arrays.asList((Object) null), outcome.get(0));
+      Assert.assertNull(method.getResult());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testEmpty() throws MSDKException {
+    PipelineExecutionMethod<Integer> method =
+        new PipelineExecutionMethod<>(createPipeline(), new ArrayList<>());
+    Assert.assertTrue(method.execute().isEmpty());
+    Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testForeignStage() {
+    MSDKPipeline<Integer> pipeline = new MSDKPipeline<>();
+    PipelineStage<Integer> source = pipeline.addSource("source", i -> new ComputeMethod(() -> i));
+    new MSDKPipeline<Integer>().addStage("other", source, i -> new ComputeMethod(() -> i));
+  }
+
+}
@@ -16,6 +16,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Predicate;
 
 import javax.annotation.Nonnull;
@@ -39,6 +40,12 @@ import io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix;
  * <p>
  * This class is used to run the whole ADAP3D algorithm and get peaks.
  * </p>
+ *
+ * <p>
+ * If a {@link java.util.concurrent.ForkJoinPool ForkJoinPool} is given, the detection of all peaks
+ * after the parameter estimation runs in parallel on independent m/z regions of the raw data. The
+ * result is identical to the serial processing, including the order of the features.
+ * </p>
  */
 public class ADAP3DFeatureDetectionMethod implements MSDKMethod<List<Feature>> {
 
@@ -47,6 +54,7 @@ public class ADAP3DFeatureDetectionMethod implements MSDKMethod<List<Feature>> {
   private final @Nonnull RawDataFile rawFile;
   private final @Nullable Predicate<MsScan> msScanPredicate;
   private final @Nonnull ADAP3DFeatureDetectionParameters parameters;
+  private final @Nullable ForkJoinPool pool;
 
   private SliceSparseMatrix objSliceSparseMatrix;
 
@@ -60,7 +68,7 @@ public class ADAP3DFeatureDetectionMethod implements MSDKMethod<List<Feature>> {
 
   private ADAP3DPeakDetectionAlgorithm objPeakDetection;
 
-  private boolean canceled = false;
+  private volatile boolean canceled = false;
 
 
   /**
@@ -112,9 +120,30 @@ public class ADAP3DFeatureDetectionMethod implements MSDKMethod<List<Feature>> {
   public ADAP3DFeatureDetectionMethod(@Nonnull RawDataFile rawFile,
                                       @Nullable Predicate<MsScan> msScanPredicate,
                                       @Nonnull ADAP3DFeatureDetectionParameters parameters) {
+    this(rawFile, msScanPredicate, parameters, null);
+  }
+
+  /**
+   * <p>
+   * Constructor, which detects the peaks in parallel on the given
+   * {@link java.util.concurrent.ForkJoinPool ForkJoinPool}.
+   * </p>
+   *
+   * @param rawFile {@link io.github.msdk.datamodel.RawDataFile} object.
+   * @param msScanPredicate a {@link java.util.function.Predicate} object. Only MsScan which pass
+   *        this predicate will be processed.
+   * @param parameters a {@link ADAP3DFeatureDetectionParameters} object.
+   * @param pool the {@link java.util.concurrent.ForkJoinPool ForkJoinPool} running the m/z
+   *        regions, or null to detect the peaks on the calling thread
+   */
+  public ADAP3DFeatureDetectionMethod(@Nonnull RawDataFile rawFile,
+                                      @Nullable Predicate<MsScan> msScanPredicate,
+                                      @Nonnull ADAP3DFeatureDetectionParameters parameters,
+                                      @Nullable ForkJoinPool pool) {
     this.rawFile = rawFile;
     this.msScanPredicate = msScanPredicate;
     this.parameters = parameters;
+    this.pool = pool;
     this.finalFeatureList = new ArrayList<>();
   }
 
@@ -198,7 +227,7 @@ public class ADAP3DFeatureDetectionMethod implements MSDKMethod<List<Feature>> {
     // run the algorithm with new parameters to determine the remaining peaks.
     logger.debug("Running ADAP3D using optimized parameters");
     List<ADAP3DPeakDetectionAlgorithm.GoodPeakInfo> newGoodPeakList =
-        objPeakDetection.execute(parameters, roundedFWHM);
+        objPeakDetection.execute(parameters, roundedFWHM, pool);
 
     // If the algorithm's execution is stopped, execute method of PeakDtection class will return
     // null. Hence execute method of this class will also return null.
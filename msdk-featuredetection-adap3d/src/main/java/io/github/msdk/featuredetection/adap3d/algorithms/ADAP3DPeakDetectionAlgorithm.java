@@ -14,6 +14,9 @@ package io.github.msdk.featuredetection.adap3d.algorithms;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,6 +24,7 @@ import org.slf4j.LoggerFactory;
 import io.github.msdk.featuredetection.adap3d.ADAP3DFeatureDetectionParameters;
 import io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet;
 import io.github.msdk.featuredetection.adap3d.datamodel.Result;
+import io.github.msdk.util.WaveletTransform;
 
 /**
  * <p>ADAP3DPeakDetectionAlgorithm class.</p>
@@ -46,10 +50,15 @@ public class ADAP3DPeakDetectionAlgorithm {
   
   private final SliceSparseMatrix objSliceSparseMatrix;
 
+  /** Buffers of the CWT, reused by all iterations. */
+  private final WaveletTransform waveletTransform = new WaveletTransform();
+
   /**
    * Flag for stopping the adap3d algorithm execution.
    */
-  private boolean canceled = false;
+  private volatile boolean canceled = false;
+
+  private volatile ParallelPeakDetection parallelPeakDetection;
 
   private float progressPercent;
 
@@ -85,7 +94,7 @@ public class ADAP3DPeakDetectionAlgorithm {
     List<GoodPeakInfo> peakList = new ArrayList<GoodPeakInfo>();
 
 
-    while (maxCount < numOfPeaks) {
+    while (maxCount < numOfPeaks && maxIntensityTriplet != null) {
       if (maxCount == 20)
         break;
       GoodPeakInfo goodPeak = iteration(maxIntensityTriplet, roundedFWHM, objParameters);
@@ -146,6 +155,40 @@ public class ADAP3DPeakDetectionAlgorithm {
     return peakList;
   }
 
+  /**
+   * <p>
+   * This method executes the iteration method to find good peaks. If a
+   * {@link java.util.concurrent.ForkJoinPool ForkJoinPool} is given, independent m/z regions of the
+   * sparse matrix are processed in parallel on the pool. The result is identical to the serial
+   * execution, including the order of the peaks.
+   * </p>
+   *
+   * @param roundedFWHM is full width half max of whole raw data file.
+   * @return peakList a list of {@link io.github.msdk.featuredetection.adap3d.algorithms.ADAP3DPeakDetectionAlgorithm.GoodPeakInfo} object type. This contains information of good
+   *         peaks.
+   * @param objParameters a {@link ADAP3DFeatureDetectionParameters} object.
+   * @param pool the {@link java.util.concurrent.ForkJoinPool ForkJoinPool} running the m/z
+   *        regions, or null to find the peaks on the calling thread
+   */
+  public List<GoodPeakInfo> execute(ADAP3DFeatureDetectionParameters objParameters,
+      int roundedFWHM, @Nullable ForkJoinPool pool) {
+
+    if (pool == null)
+      return execute(objParameters, roundedFWHM);
+
+    logger.debug("Starting parallel ADAP3D algorithm for all good peaks");
+
+    parallelPeakDetection =
+        new ParallelPeakDetection(pool, objSliceSparseMatrix, objParameters, roundedFWHM);
+    if (canceled)
+      return null;
+    List<GoodPeakInfo> peakList = parallelPeakDetection.execute();
+
+    logger.debug("Finished parallel ADAP3D algorithm for all good peaks");
+
+    return peakList;
+  }
+
   /**
    * <p>
    * This method finds if there's a good peak or not.
@@ -168,16 +211,11 @@ public class ADAP3DPeakDetectionAlgorithm {
         .getSizeOfRawDataFile() ? objSliceSparseMatrix.getSizeOfRawDataFile() - 1
             : triplet.scanListIndex + objParameters.getLargeScaleIn();
 
-    // Here we're getting horizontal slice.
-    List<Triplet> slice =
-        objSliceSparseMatrix.getHorizontalSlice(triplet.mz, lowerScanBound, upperScanBound);
-
-    // Below CWT is called to get bounds of peak.
+    // Below CWT is called to get bounds of peak on the horizontal slice.
     ContinuousWaveletTransform continuousWavelet =
-        new ContinuousWaveletTransform(1, objParameters.getLargeScaleIn(), 1);
+        new ContinuousWaveletTransform(1, objParameters.getLargeScaleIn(), 1, waveletTransform);
     List<ContinuousWaveletTransform.DataPoint> listOfDataPoint =
-        new ArrayList<ContinuousWaveletTransform.DataPoint>();
-    listOfDataPoint = objSliceSparseMatrix.getCWTDataPoint(slice);
+        objSliceSparseMatrix.getCWTDataPoint(triplet.mz, lowerScanBound, upperScanBound);
 
     continuousWavelet.setX(listOfDataPoint);
     continuousWavelet.setSignal(listOfDataPoint);
@@ -203,15 +241,23 @@ public class ADAP3DPeakDetectionAlgorithm {
 
 
 
-        List<Triplet> curSlice = objSliceSparseMatrix.getHorizontalSlice(triplet.mz,
-            peakList.get(i).curLeftBound + lowerScanBound,
-            peakList.get(i).curRightBound + lowerScanBound);
+        // curSlice[j] is the intensity of scan curLeftBound + j.
+        int curLeftBound = peakList.get(i).curLeftBound + lowerScanBound;
+        float[] curSlice = objSliceSparseMatrix.getHorizontalSliceIntensities(triplet.mz,
+            curLeftBound, peakList.get(i).curRightBound + lowerScanBound, null);
 
-        double sliceMaxIntensity = curSlice.stream().map(x -> x != null ? x.intensity : 0.0)
-            .max(Double::compareTo).orElse(0.0);
-        int scanNumber = curSlice.stream()
-            .map(x -> x != null && x.intensity == sliceMaxIntensity ? x.scanListIndex : 0)
-            .max(Integer::compareTo).orElse(0);
+        double sliceMaxIntensity = 0.0;
+        for (int j = 0; j < curSlice.length; j++) {
+          if (j == 0 || Double.compare(curSlice[j], sliceMaxIntensity) > 0)
+            sliceMaxIntensity = curSlice[j];
+        }
+        int scanNumber = 0;
+        for (int j = curSlice.length - 1; j >= 0; j--) {
+          if (curSlice[j] == sliceMaxIntensity) {
+            scanNumber = curLeftBound + j;
+            break;
+          }
+        }
 
         // If there's no peak at apex.
         if (scanNumber != triplet.scanListIndex) {
@@ -232,7 +278,7 @@ public class ADAP3DPeakDetectionAlgorithm {
                   objParameters.getPeakSimilarityThreshold());
           boolean goodPeak =
               objBiGaussianTest.execute(curSlice, peakList.get(i).curLeftBound + lowerScanBound,
-                  peakList.get(i).curRightBound + lowerScanBound, triplet.mz,
+                  peakList.get(i).curRightBound + lowerScanBound,
                   objParameters.getBiGaussianSimilarityThreshold());
 
           // If there's good peak
@@ -276,9 +322,7 @@ public class ADAP3DPeakDetectionAlgorithm {
    * 
    */
   private void removeDataPoints(int lowerMZ, int upperMZ, int lowerScanBound, int upperScanBound) {
-    for (int i = lowerMZ; i <= upperMZ; i++) {
-      objSliceSparseMatrix.removeDataPoints(i, lowerScanBound, upperScanBound);
-    }
+    objSliceSparseMatrix.removeDataPoints(lowerMZ, upperMZ, lowerScanBound, upperScanBound);
   }
 
   /**
@@ -297,9 +341,7 @@ public class ADAP3DPeakDetectionAlgorithm {
    *        which data point restoration ends.
    */
   private void restoreDataPoints(int lowerMZ, int upperMZ, int lowerScanBound, int upperScanBound) {
-    for (int i = lowerMZ; i <= upperMZ; i++) {
-      objSliceSparseMatrix.restoreDataPoints(i, lowerScanBound, upperScanBound);
-    }
+    objSliceSparseMatrix.restoreDataPoints(lowerMZ, upperMZ, lowerScanBound, upperScanBound);
   }
 
   /**
@@ -309,6 +351,9 @@ public class ADAP3DPeakDetectionAlgorithm {
    */
   public void cancel() {
     this.canceled = true;
+    final ParallelPeakDetection detection = parallelPeakDetection;
+    if (detection != null)
+      detection.cancel();
   }
 
   /**
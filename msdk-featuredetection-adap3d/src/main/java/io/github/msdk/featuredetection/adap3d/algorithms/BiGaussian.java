@@ -86,6 +86,48 @@ public class BiGaussian {
         sigmaRight = ((interpolationRightSideX - mu)) / Math.sqrt(2 * Math.log(2));
     }
 
+    /**
+     * <p>
+     * Determines the 4 BiGaussian parameters from a dense horizontal slice, where intensities[i] is
+     * the intensity of scan leftBound + i.
+     * </p>
+     *
+     * @param intensities a {@link java.lang.Float} array. This is horizontal slice from the sparse
+     *                    matrix.
+     * @param leftBound   a {@link java.lang.Integer} object. This is minimum scan number.
+     * @param rightBound  a {@link java.lang.Integer} object. This is maximum scan number.
+     */
+    BiGaussian(float[] intensities, int leftBound, int rightBound) {
+
+        int size = rightBound - leftBound + 1;
+
+        // This is max height for BiGaussian fit. It's in terms of intensities.
+        double height = 0.0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || Double.compare(intensities[i], height) > 0)
+                height = intensities[i];
+        }
+        maxHeight = height;
+
+        int apex = 0;
+        for (int i = 0; i < size; i++) {
+            if (intensities[i] == maxHeight) {
+                apex = leftBound + i;
+                break;
+            }
+        }
+        mu = apex;
+        double halfHeight = (double) maxHeight / 2;
+
+        double interpolationLeftSideX =
+                InterpolationX(intensities, mu, halfHeight, leftBound, rightBound, Direction.LEFT);
+        sigmaLeft = (mu - interpolationLeftSideX) / Math.sqrt(2 * Math.log(2));
+
+        double interpolationRightSideX =
+                InterpolationX(intensities, mu, halfHeight, leftBound, rightBound, Direction.RIGHT);
+        sigmaRight = ((interpolationRightSideX - mu)) / Math.sqrt(2 * Math.log(2));
+    }
+
 
     /**
      * <p>
@@ -165,6 +207,43 @@ public class BiGaussian {
                 + horizontalSlice.get(index1 - step).scanListIndex;
     }
 
+    /**
+     * <p>
+     * InterpolationX for a dense horizontal slice, where intensities[i] is the intensity of scan
+     * leftBound + i.
+     * </p>
+     */
+    private double InterpolationX(float[] intensities, int mu, double halfHeight, int leftBound,
+                                  int rightBound, Direction direction) {
+
+        int step = direction == Direction.RIGHT ? 1 : -1;
+
+        // Find data point next to the apex
+        int index = mu + step - leftBound;
+        if (index < 0 || index > rightBound - leftBound) {
+            throw new IllegalArgumentException("Cannot find peak apex.");
+        }
+
+        double Y1 = Double.NaN;
+        double Y2 = Double.NaN;
+        for ( ; index >= 0 && index <= rightBound - leftBound ; index += step) {
+            if (intensities[index] != 0 && intensities[index] < halfHeight) {
+                Y1 = intensities[index];
+                if (intensities[index - step] != 0) {
+                    Y2 = intensities[index - step];
+                    break;
+                }
+            }
+        }
+
+        if (Double.isNaN(Y1) || Double.isNaN(Y2))
+            throw new IllegalArgumentException("Cannot find BiGaussian.");
+
+        int x1 = leftBound + index;
+        int x2 = x1 - step;
+        return ((halfHeight - Y2) * (x2 - x1)) / (Y2 - Y1) + x2;
+    }
+
     /**
      * <p>
      * This method is used for getting scan number for given intensity value.
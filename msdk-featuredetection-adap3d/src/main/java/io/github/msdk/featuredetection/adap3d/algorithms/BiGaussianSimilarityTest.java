@@ -55,18 +55,52 @@ public class BiGaussianSimilarityTest {
 
     try {
       BiGaussian objBiGaussian = new BiGaussian(slice, roundedMZ, leftBound, rightBound);
-      double[] bigaussianValues = IntStream.range(0, referenceEIC.length)
-          .mapToDouble(i -> objBiGaussian.getValue(leftBound + i)).toArray();
+      return similarityValue(objBiGaussian, referenceEIC, leftBound,
+          rightBound) > biGaussianSimilarityThreshold;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
 
-      double[] normBigaussianValues = new double[rightBound - leftBound + 1];
-      CurveTool.normalize(bigaussianValues, normBigaussianValues);
+  /**
+   * <p>
+   * execute method is used for testing a peak with given intensities of the horizontal slice
+   * between left and right bounds (variables leftBound and rightBound). Peak is tested by comparing
+   * BiGaussian values with the intensity values.
+   * </p>
+   *
+   * @param slice a {@link java.lang.Float} array. slice[i] is the intensity of scan leftBound + i
+   *        in the horizontal slice from sparse matrix.
+   * @param leftBound a {@link java.lang.Integer} object. This is lowest scan number from which peak
+   *        determining starts.
+   * @param rightBound a {@link java.lang.Integer} object. This is highest scan number on which peak
+   *        determining ends.
+   * @param biGaussianSimilarityThreshold a double.
+   * @return a boolean.
+   */
+  public boolean execute(float[] slice, int leftBound, int rightBound,
+      double biGaussianSimilarityThreshold) {
 
-      double similarityValue =
-          CurveTool.similarityValue(referenceEIC, normBigaussianValues, leftBound, rightBound);
+    double[] referenceEIC = new double[rightBound - leftBound + 1];
+    CurveTool.normalize(slice, referenceEIC);
 
-      return similarityValue > biGaussianSimilarityThreshold;
+    try {
+      BiGaussian objBiGaussian = new BiGaussian(slice, leftBound, rightBound);
+      return similarityValue(objBiGaussian, referenceEIC, leftBound,
+          rightBound) > biGaussianSimilarityThreshold;
     } catch (IllegalArgumentException e) {
       return false;
     }
   }
+
+  private double similarityValue(BiGaussian objBiGaussian, double[] referenceEIC, int leftBound,
+      int rightBound) {
+    double[] bigaussianValues = IntStream.range(0, referenceEIC.length)
+        .mapToDouble(i -> objBiGaussian.getValue(leftBound + i)).toArray();
+
+    double[] normBigaussianValues = new double[rightBound - leftBound + 1];
+    CurveTool.normalize(bigaussianValues, normBigaussianValues);
+
+    return CurveTool.similarityValue(referenceEIC, normBigaussianValues, leftBound, rightBound);
+  }
 }
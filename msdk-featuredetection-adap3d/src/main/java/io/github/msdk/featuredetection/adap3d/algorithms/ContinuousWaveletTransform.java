@@ -18,11 +18,14 @@ import java.util.Arrays;
 import static java.util.Arrays.fill;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.common.collect.Range;
 
 import io.github.msdk.featuredetection.adap3d.datamodel.Result;
 import io.github.msdk.featuredetection.adap3d.datamodel.Ridgeline;
+import io.github.msdk.util.WaveletTransform;
 
 import java.util.HashMap;
 
@@ -31,6 +34,13 @@ import java.util.HashMap;
 /**
  * <p>ContinuousWaveletTransform class.</p>
  *
+ * <p>
+ * If the retention times of the signal are evenly spaced up to their float rounding, the
+ * coefficients of all scales are computed at once by a
+ * {@link io.github.msdk.util.WaveletTransform WaveletTransform} with precomputed Ricker kernels.
+ * Otherwise the wavelet is evaluated at each retention time difference.
+ * </p>
+ *
  * @author owen myers Modified by Dharak Shah to include in MSDK
  */
 public class ContinuousWaveletTransform {
@@ -47,6 +57,21 @@ public class ContinuousWaveletTransform {
   private ArrayList<Ridgeline> ridgeLineArr = new ArrayList<Ridgeline>();
   private Range<Double> peakWidth;
   private double coefAreaRatioTolerance;
+  private WaveletTransform waveletTransform;
+
+  /**
+   * Largest deviation of a retention time from an evenly spaced grid, in units in the last place of
+   * the largest retention time as a float, for which the coefficients are computed by the
+   * WaveletTransform. The retention times are stored as floats, so this only allows for their
+   * rounding. The direct sum sees that rounding and the transform on the grid does not: for scans
+   * 0.5 s apart at 10 minutes, the coefficients of scale 1 differ by up to 0.2% of the largest
+   * coefficient, and those of larger scales by less.
+   */
+  private static final int UNIFORM_SPACING_ULPS = 4;
+
+  /** Ricker kernels by scale, in units of indices. */
+  private static final Map<Double, WaveletTransform.Kernel> rickerKernels =
+      new ConcurrentHashMap<>();
 
   /**
    * <p>
@@ -94,6 +119,22 @@ public class ContinuousWaveletTransform {
     }
   }
 
+  /**
+   * <p>Constructor for ContinuousWaveletTransform, which computes the coefficients with the given
+   * {@link io.github.msdk.util.WaveletTransform WaveletTransform}, so that its buffers are reused
+   * by repeated transforms.</p>
+   *
+   * @param smallScaleIn a double.
+   * @param largeScaleIn a double.
+   * @param incrementScaleIn a double.
+   * @param waveletTransform a {@link io.github.msdk.util.WaveletTransform} object.
+   */
+  public ContinuousWaveletTransform(double smallScaleIn, double largeScaleIn,
+      double incrementScaleIn, WaveletTransform waveletTransform) {
+    this(smallScaleIn, largeScaleIn, incrementScaleIn);
+    this.waveletTransform = waveletTransform;
+  }
+
   // setting peak width by taking input from user
   /**
    * <p>Setter for the field <code>peakWidth</code>.</p>
@@ -453,6 +494,10 @@ public class ContinuousWaveletTransform {
   public void getCoefficientsForAllScales() {
     int NScales = arrScales.size();
     allCoefficients = new double[NScales][];
+    if (hasUniformSpacing()) {
+      getCoefficientsByWaveletTransform();
+      return;
+    }
     int count = 0;
     for (Double curScale : arrScales) {
       allCoefficients[count] = getCoefficientsForThisScale((double) curScale);
@@ -461,6 +506,41 @@ public class ContinuousWaveletTransform {
     // writeAllCoeffs();
   }
 
+  // On an evenly spaced grid x[i] - x[j] = (i - j) * avgXSpace, so the wavelet of each scale only
+  // depends on the index difference, and rickerWavelet equals the Ricker kernel of the same scale in
+  // units of indices divided by sqrt(avgXSpace).
+  private void getCoefficientsByWaveletTransform() {
+    WaveletTransform.Kernel kernels[] = new WaveletTransform.Kernel[arrScales.size()];
+    for (int i = 0; i < kernels.length; i++) {
+      allCoefficients[i] = new double[x.length];
+      kernels[i] = rickerKernels.computeIfAbsent(arrScales.get(i),
+          scale -> WaveletTransform.Kernel.ricker(scale,
+              (int) Math.round(-scaleCoefHowFarOut * scale - 1.0),
+              (int) Math.round(scaleCoefHowFarOut * scale + 1.0)));
+    }
+    if (waveletTransform == null)
+      waveletTransform = new WaveletTransform();
+    waveletTransform.transform(signal, x.length, kernels, allCoefficients);
+
+    double factor = 1.0 / Math.sqrt(avgXSpace);
+    for (double coefficients[] : allCoefficients) {
+      for (int i = 0; i < coefficients.length; i++)
+        coefficients[i] *= factor;
+    }
+  }
+
+  private boolean hasUniformSpacing() {
+    if (x.length < 2 || !(avgXSpace > 0))
+      return false;
+    final double tolerance = UNIFORM_SPACING_ULPS
+        * Math.ulp((float) Math.max(Math.abs(x[0]), Math.abs(x[x.length - 1])));
+    for (int i = 1; i < x.length; i++) {
+      if (Math.abs(x[i] - x[0] - i * avgXSpace) > tolerance)
+        return false;
+    }
+    return true;
+  }
+
   /**
    * <p>getCoefficientsForThisScale.</p>
    *
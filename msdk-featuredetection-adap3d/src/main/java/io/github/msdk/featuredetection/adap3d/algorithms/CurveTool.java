@@ -170,6 +170,24 @@ public class CurveTool {
     return normalize(intensityValues, referenceEIC);
   }
 
+  /**
+   * <p>
+   * normalize method is used for normalizing EIC given as dense array of intensities, one for each
+   * scan, by calculating its area and dividing each intensity by the area.
+   * </p>
+   *
+   * @param intensities a {@link java.lang.Float} array. This array contains intensities of
+   *        horizontal slice from sparse matrix.
+   * @param normValues a {@link java.lang.Double} array. This array will have normalized values.
+   * @return area a {@link java.lang.Double} object. This is area of normalize intensity points.
+   */
+  public static double normalize(float[] intensities, double[] normValues) {
+    double[] intensityValues = new double[intensities.length];
+    for (int i = 0; i < intensities.length; i++)
+      intensityValues[i] = intensities[i];
+    return normalize(intensityValues, normValues);
+  }
+
   /**
    * <p>
    * normalize method is used for normalizing values by calculating its area and dividing each value
@@ -0,0 +1,230 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.featuredetection.adap3d.algorithms;
+
+import java.lang.Math;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKRuntimeException;
+import io.github.msdk.featuredetection.adap3d.ADAP3DFeatureDetectionParameters;
+import io.github.msdk.featuredetection.adap3d.algorithms.ADAP3DPeakDetectionAlgorithm.GoodPeakInfo;
+import io.github.msdk.util.ParallelUtil;
+
+/**
+ * <p>
+ * Runs the {@link ADAP3DPeakDetectionAlgorithm} in parallel, on independent regions of the m/z
+ * axis.
+ * </p>
+ *
+ * <p>
+ * An iteration of the algorithm only reads the removed data points in the row of its apex, and
+ * removes or restores data points within about two FWHM of the apex m/z value (the ±FWHM band and
+ * the m/z bounds found by {@link Peak3DTest}). Apexes that are far apart in m/z therefore never
+ * interact. The rows of the sparse matrix are split into regions at the largest m/z gaps, and each
+ * region processes the apexes of its own rows in the intensity order, on a private copy of the
+ * removed data points. The rows around a region act as its guard band: if an iteration removes or
+ * restores data points there, the region may have changed a decision of its neighbor, so the
+ * regions are merged and processed again from the initial state. Once no region touches the rows
+ * of another one, each region made exactly the same decisions as the serial algorithm, and the
+ * peaks of all regions are merged in the serial order, which is the intensity order of the apexes.
+ * </p>
+ *
+ * <p>
+ * If the peaks are too dense, the regions are merged until only one is left and the speedup is
+ * reduced accordingly.
+ * </p>
+ */
+class ParallelPeakDetection {
+
+  /** Number of regions per thread of the pool, to balance regions of different density. */
+  private static final int REGIONS_PER_THREAD = 4;
+
+  /** Order of the peaks found by the serial algorithm, the order of their apexes. */
+  private static final Comparator<GoodPeakInfo> APEX_ORDER = (p1, p2) -> {
+    int compare = Float.compare(p2.maxHeight, p1.maxHeight);
+    if (compare == 0)
+      compare = Integer.compare(p1.maxHeightScanNumber, p2.maxHeightScanNumber);
+    if (compare == 0)
+      compare = Double.compare(p1.mz, p2.mz);
+    return compare;
+  };
+
+  private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+  private final @Nonnull ForkJoinPool pool;
+  private final @Nonnull SliceSparseMatrix objSliceSparseMatrix;
+  private final @Nonnull ADAP3DFeatureDetectionParameters objParameters;
+  private final int roundedFWHM;
+
+  private final Queue<ADAP3DPeakDetectionAlgorithm> runningAlgorithms =
+      new ConcurrentLinkedQueue<>();
+  private volatile boolean canceled = false;
+
+  /**
+   * Rows firstRow to endRow - 1 of the sparse matrix, and the peaks found in them.
+   */
+  private static class Region {
+    final int firstRow, endRow;
+    SliceSparseMatrix matrix;
+    List<GoodPeakInfo> peaks;
+
+    Region(int firstRow, int endRow) {
+      this.firstRow = firstRow;
+      this.endRow = endRow;
+    }
+  }
+
+  ParallelPeakDetection(@Nonnull ForkJoinPool pool, @Nonnull SliceSparseMatrix objSliceSparseMatrix,
+      @Nonnull ADAP3DFeatureDetectionParameters objParameters, int roundedFWHM) {
+    this.pool = pool;
+    this.objSliceSparseMatrix = objSliceSparseMatrix;
+    this.objParameters = objParameters;
+    this.roundedFWHM = roundedFWHM;
+  }
+
+  /**
+   * <p>
+   * Finds all remaining good peaks, like
+   * {@link ADAP3DPeakDetectionAlgorithm#execute(ADAP3DFeatureDetectionParameters, int)}, and marks
+   * their data points as removed in the sparse matrix.
+   * </p>
+   *
+   * @return peakList a list of {@link GoodPeakInfo}, or null if canceled.
+   */
+  List<GoodPeakInfo> execute() {
+
+    int boundaries[] =
+        objSliceSparseMatrix.splitRows(pool.getParallelism() * REGIONS_PER_THREAD);
+    List<Region> regions = new ArrayList<>();
+    for (int i = 0; i + 1 < boundaries.length; i++)
+      regions.add(new Region(boundaries[i], boundaries[i + 1]));
+
+    logger.debug("Detecting peaks in " + regions.size() + " m/z regions");
+
+    List<Region> pending = regions;
+    while (!pending.isEmpty()) {
+
+      runInParallel(pending);
+      if (canceled)
+        return null;
+
+      // Each region is merged with all regions in which it removed or restored data points. The
+      // merged regions are kept as intervals of region indexes on a stack.
+      int mergedFirst[] = new int[regions.size()], mergedLast[] = new int[regions.size()];
+      int numOfMerged = 0;
+      for (int i = 0; i < regions.size(); i++) {
+        SliceSparseMatrix region = regions.get(i).matrix;
+        int first = Math.min(i, findRegion(regions, region.getLowestOuterRow()));
+        int last = Math.max(i, findRegion(regions, region.getHighestOuterRow()));
+        while (numOfMerged > 0 && mergedLast[numOfMerged - 1] >= first) {
+          numOfMerged--;
+          first = Math.min(first, mergedFirst[numOfMerged]);
+          last = Math.max(last, mergedLast[numOfMerged]);
+        }
+        mergedFirst[numOfMerged] = first;
+        mergedLast[numOfMerged] = last;
+        numOfMerged++;
+      }
+
+      List<Region> merged = new ArrayList<>();
+      pending = new ArrayList<>();
+      for (int i = 0; i < numOfMerged; i++) {
+        if (mergedFirst[i] == mergedLast[i]) {
+          merged.add(regions.get(mergedFirst[i]));
+        } else {
+          Region region =
+              new Region(regions.get(mergedFirst[i]).firstRow, regions.get(mergedLast[i]).endRow);
+          merged.add(region);
+          pending.add(region);
+        }
+      }
+
+      if (!pending.isEmpty())
+        logger.debug("Processing " + pending.size() + " merged m/z regions again");
+      regions = merged;
+    }
+
+    List<SliceSparseMatrix> regionMatrices = new ArrayList<>();
+    List<GoodPeakInfo> peakList = new ArrayList<>();
+    for (Region region : regions) {
+      regionMatrices.add(region.matrix);
+      peakList.addAll(region.peaks);
+    }
+    objSliceSparseMatrix.mergeRegions(regionMatrices);
+    peakList.sort(APEX_ORDER);
+
+    logger.debug("Detected peaks in " + regions.size() + " independent m/z regions");
+
+    return peakList;
+  }
+
+  /**
+   * Returns the index of the region containing the given row, or -1 if the row is below all
+   * regions, or regions.size() if it is above.
+   */
+  private int findRegion(List<Region> regions, int row) {
+    if (row < 0)
+      return -1;
+    int low = 0, high = regions.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      Region region = regions.get(mid);
+      if (row < region.firstRow)
+        high = mid - 1;
+      else if (row >= region.endRow)
+        low = mid + 1;
+      else
+        return mid;
+    }
+    return low;
+  }
+
+  /**
+   * Processes the given regions on the pool, and waits for all of them.
+   */
+  private void runInParallel(List<Region> regions) {
+    try {
+      ParallelUtil.run(pool, regions.size(), i -> process(regions.get(i)));
+    } catch (MSDKException e) {
+      throw new MSDKRuntimeException(e);
+    }
+  }
+
+  private void process(Region region) {
+    region.matrix = objSliceSparseMatrix.createRegion(region.firstRow, region.endRow);
+    ADAP3DPeakDetectionAlgorithm algorithm = new ADAP3DPeakDetectionAlgorithm(region.matrix);
+    runningAlgorithms.add(algorithm);
+    if (canceled)
+      algorithm.cancel();
+    region.peaks = algorithm.execute(objParameters, roundedFWHM);
+    runningAlgorithms.remove(algorithm);
+  }
+
+  void cancel() {
+    canceled = true;
+    for (ADAP3DPeakDetectionAlgorithm algorithm : runningAlgorithms)
+      algorithm.cancel();
+  }
+
+}
@@ -16,8 +16,6 @@ import java.lang.Math;
 import java.util.ArrayList;
 import java.util.List;
 
-import io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet;
-
 /**
  * <p>
  * Peak3DTest is used for determining true or false peak by comparing adjacent m/z-slices in profile
@@ -123,29 +121,29 @@ public class Peak3DTest {
     // slice is used to store horizontal row from sparse matrix for given mz, left boundary and
     // right boundary.
     // left boundary and right boundary are used in form of scan numbers.
-    List<Triplet> slice =
-        (List<Triplet>) objsliceSparseMatrix.getHorizontalSlice(roundedMz, leftBound, rightBound);
+    float[] slice =
+        objsliceSparseMatrix.getHorizontalSliceIntensities(roundedMz, leftBound, rightBound, null);
 
     // referenceEIC is used for storing normalized intensities for m/z-value equal to mz.
     double[] referenceEIC = new double[rightBound - leftBound + 1];
     // normalize method is used for normalizing intensities for given mz value. It updates
     // referenceEIC.
-    CurveTool.normalize(slice, leftBound, rightBound, roundedMz, referenceEIC);
+    CurveTool.normalize(slice, referenceEIC);
 
 
     // We save all similarity values to this list
     List<Double> similarityValues = new ArrayList<Double>();
 
     // mzIndex is index of given mz from the sorted list of all mz values from raw file.
-    int mzIndex = objsliceSparseMatrix.mzValues.indexOf(roundedMz);
+    int mzIndex = objsliceSparseMatrix.getMzValueIndex(roundedMz);
 
     // Here we're getting highest mz value for which the EIC is similar to given mz value.
     int upperMzBound = findMZbound(leftBound, rightBound, roundedMz, roundedFWHM, mzIndex,
-        referenceEIC, similarityValues, peakSimilarityThreshold, Direction.UP);
+        referenceEIC, slice, similarityValues, peakSimilarityThreshold, Direction.UP);
 
     // Here we're getting lowest mz value for which the EIC is similar to given mz value.
     int lowerMzBound = findMZbound(leftBound, rightBound, roundedMz, roundedFWHM, mzIndex,
-        referenceEIC, similarityValues, peakSimilarityThreshold, Direction.DOWN);
+        referenceEIC, slice, similarityValues, peakSimilarityThreshold, Direction.DOWN);
 
     // Assigning values to object.
     Result objResult = new Result();
@@ -191,6 +189,8 @@ public class Peak3DTest {
    *        sorted list of all m/z values.
    * @param referenceEIC a {@link java.lang.Double} array. This array contains normalize intensities
    *        for given m/z value.(Intensities/area)
+   * @param sliceBuffer a {@link java.lang.Float} array. This array is reused for reading the
+   *        horizontal slices of adjacent m/z values.
    * @param similarityValues a {@link java.lang.Double} empty list. This empty list stores
    *        similarity values.
    * @param direction a {@link Enum} object. This enum provides direction whether to call function
@@ -201,14 +201,14 @@ public class Peak3DTest {
    *         </p>
    */
   private int findMZbound(int leftBound, int rightBound, int roundedMz, double roundedFWHM,
-      int mzIndex, double[] referenceEIC, List<Double> similarityValues,
+      int mzIndex, double[] referenceEIC, float[] sliceBuffer, List<Double> similarityValues,
       double peakSimilarityThreshold, Direction direction) {
 
 
     final int multiplier = direction == Direction.UP ? 1 : -1;
     final int arrayCount = rightBound - leftBound + 1;
 
-    Integer curMZ = null;
+    int curMZ;
     Integer lastGoodMZ = null;
 
 
@@ -227,11 +227,13 @@ public class Peak3DTest {
       curMzIndex = mzIndex + curInc * multiplier;
 
       // This condition checks whether we've mz values above or below given mz value.
+      if (curMzIndex < 0 || curMzIndex >= objsliceSparseMatrix.getNumberOfMzValues())
+        break;
 
-      curMZ = objsliceSparseMatrix.mzValues.get(curMzIndex);
+      curMZ = objsliceSparseMatrix.getMzValue(curMzIndex);
 //      mzBound = objsliceSparseMatrix.mzValues.get(curMzIndex - multiplier);
 
-      if (curMZ == null || Math.abs(curMZ - roundedMz) >= 2 * roundedFWHM)
+      if (Math.abs(curMZ - roundedMz) >= 2 * roundedFWHM)
         break;
 
       // //for getting slice of sparse matrix we need to provide original mz values which are there
@@ -241,9 +243,9 @@ public class Peak3DTest {
       double[] curEIC = new double[arrayCount];
 
       // Here current horizontal slice from sparse matrix is stored adjacent mz value.
-      List<Triplet> curSlice =
-          (List<Triplet>) objsliceSparseMatrix.getHorizontalSlice(curMZ, leftBound, rightBound);
-      double area = CurveTool.normalize(curSlice, leftBound, rightBound, curMZ, curEIC);
+      float[] curSlice = objsliceSparseMatrix.getHorizontalSliceIntensities(curMZ, leftBound,
+          rightBound, sliceBuffer);
+      double area = CurveTool.normalize(curSlice, curEIC);
 
       // if area is too small continue.
       if (area < EPSILON)
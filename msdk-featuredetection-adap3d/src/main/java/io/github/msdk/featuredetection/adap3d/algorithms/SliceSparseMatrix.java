@@ -12,59 +12,98 @@
  */
 package io.github.msdk.featuredetection.adap3d.algorithms;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.lang.Math;
 
+import javax.annotation.Nullable;
+
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.featuredetection.adap3d.algorithms.ADAP3DPeakDetectionAlgorithm.GoodPeakInfo;
+import io.github.msdk.util.DataPointSorter;
+import io.github.msdk.util.DataPointSorter.SortingDirection;
 
 
 
 /**
  * <p>
  * SliceSparseMatrix class is used for slicing the sparse matrix of raw data as per given mz value.
- * slice contains intensities for one mz value for different scans. In this class sparse matrix has
- * been implemented in the form of multikey map. Mz and scan number are keys and object containing
- * Intensities along information like retention time and whether the value is still in matrix or not
- * is the value. Consider Scan numbers as column index and mz values as row index. cell values as
- * object containing Intensities along with other information like retention time and whether the
- * value is still in matrix or not.
+ * slice contains intensities for one mz value for different scans. Consider Scan numbers as column
+ * index and mz values as row index. cell values are intensities along with the information whether
+ * the value is still in matrix or not.
+ * </p>
+ *
+ * <p>
+ * The matrix is stored as a structure of primitive arrays in compressed sparse row layout: the
+ * data points are ordered by (mz, scan), rowMz and rowOffsets give the range of data points of
+ * each distinct mz value, and columnOffsets and columnPoints index the same data points by (scan,
+ * mz). Removed data points are tracked in a bit set. The Triplet objects returned by the public
+ * methods are snapshots of single data points, created on request.
  * </p>
  */
 public class SliceSparseMatrix {
 
   /**
    * <p>
-   * tripletMap is used for creating MultiKeyMap type of hashmap from raw data file.
+   * rtValues is used for storing the retention time of each scan, NaN if the scan has none.
    * </p>
    */
-  private final HashMap<Integer, Float> rtMap;
+  private final float rtValues[];
 
-  private final List<Triplet> sortListAccordingToMzScan;
-  private final List<Triplet> sortListAccordingToIntensity;
-  private final List<Triplet> sortListAccordingToScan;
-  Comparator<Triplet> compareMzScan;
-  Comparator<Triplet> compareIntensity;
-  Comparator<Triplet> compareScanMz;
-  Comparator<Triplet> compareScan;
+  /**
+   * <p>
+   * Data points of the matrix, sorted by mz and then by scan number.
+   * </p>
+   */
+  private final int numOfPoints;
+  private final int pointMz[];
+  private final int pointScan[];
+  private final float pointIntensity[];
+  private final BitSet removed;
 
+  /**
+   * <p>
+   * Data points with mz value rowMz[r] are stored at indexes rowOffsets[r] to rowOffsets[r + 1] -
+   * 1.
+   * </p>
+   */
+  private final int rowMz[];
+  private final int rowOffsets[];
 
   /**
    * <p>
-   * filterListOfTriplet is used for adding intensities for same mz values under same scan numbers.
+   * Data points of scan s, sorted by mz, are columnPoints[columnOffsets[s]] to
+   * columnPoints[columnOffsets[s + 1] - 1].
    * </p>
    */
-  private final List<Triplet> filterListOfTriplet;
+  private final int columnOffsets[];
+  private final int columnPoints[];
+
+  /**
+   * <p>
+   * intensityOrder contains the data point indexes sorted by descending intensity.
+   * </p>
+   */
+  private final int intensityOrder[];
+
+  /**
+   * <p>
+   * Rows firstRow to endRow - 1 are the core of this matrix. A region created by
+   * {@link #createRegion(int, int)} only visits the data points of its core in
+   * findNextMaxIntensity, and records the lowest and highest row outside of its core in which data
+   * points were removed or restored.
+   * </p>
+   */
+  private final int firstRow, endRow;
+  private int lowestOuterRow = Integer.MAX_VALUE, highestOuterRow = -1;
 
   /**
    * <p>
@@ -82,18 +121,35 @@ public class SliceSparseMatrix {
 
   /**
    * <p>
-   * listOfScans is used for getting scan objects from raw data file.
+   * numOfScans is the number of scans taken from raw data file.
    * </p>
    */
-  private final List<MsScan> listOfScans;
+  private final int numOfScans;
 
   /**
    * <p>
-   * mzValues is used to store all the mz values from raw file.
+   * allMzValues is used to store all the mz values from raw file, sorted.
+   * </p>
+   */
+  private final int allMzValues[];
+
+  /**
+   * <p>
+   * mzValues is a read-only list view of all the mz values from raw file.
    * </p>
    */
   public final List<Integer> mzValues;
 
+  private static final Comparator<ContinuousWaveletTransform.DataPoint> compareRt =
+      new Comparator<ContinuousWaveletTransform.DataPoint>() {
+
+        @Override
+        public int compare(ContinuousWaveletTransform.DataPoint o1,
+            ContinuousWaveletTransform.DataPoint o2) {
+          return Double.compare(o1.rt, o2.rt);
+        }
+      };
+
   /**
    * <p>
    * Triplet is used for representing elements of sparse matrix.
@@ -118,8 +174,8 @@ public class SliceSparseMatrix {
 
   /**
    * <p>
-   * This constructor takes raw data file and create the triplet map which contains information such
-   * as mz,intensity,rt,scan number
+   * This constructor takes raw data file and create the sparse matrix which contains information
+   * such as mz,intensity,rt,scan number
    * </p>
    *
    * @param rawFile a {@link io.github.msdk.datamodel.RawDataFile} object. This is raw data
@@ -131,8 +187,8 @@ public class SliceSparseMatrix {
 
   /**
    * <p>
-   * This constructor takes raw data file and create the triplet map which contains information such
-   * as mz,intensity,rt,scan number
+   * This constructor takes raw data file and create the sparse matrix which contains information
+   * such as mz,intensity,rt,scan number
    * </p>
    *
    * @param rawFile a {@link io.github.msdk.datamodel.RawDataFile} object. This is raw data
@@ -141,10 +197,34 @@ public class SliceSparseMatrix {
    *        this predicate will be processed.
    */
   public SliceSparseMatrix(RawDataFile rawFile, Predicate<MsScan> msScanPredicate) {
-    listOfScans =
+    List<MsScan> listOfScans =
         rawFile.getScans().stream().filter(msScanPredicate).collect(Collectors.<MsScan>toList());
-    List<Triplet> listOfTriplet = new ArrayList<Triplet>();
-    rtMap = new HashMap<Integer, Float>();
+    numOfScans = listOfScans.size();
+    rtValues = new float[numOfScans];
+    Arrays.fill(rtValues, Float.NaN);
+
+    int totalPoints = 0;
+    for (MsScan scan : listOfScans) {
+      if (scan != null && scan.getRetentionTime() != null)
+        totalPoints += scan.getNumberOfDataPoints();
+    }
+
+    // Data points in (scan, mz) order. Intensities of the same mz value in the same scan are
+    // added together, and data points below the intensity threshold are skipped, except the very
+    // first one.
+    int filterMz[] = new int[totalPoints];
+    int filterScan[] = new int[totalPoints];
+    float filterIntensity[] = new float[totalPoints];
+    int filterCount = 0;
+
+    // mz values of all data points except the first one
+    int rawMz[] = new int[Math.max(totalPoints - 1, 0)];
+    int rawCount = 0;
+
+    double mzBuffer[] = null;
+    float intensityBuffer[] = null;
+    int roundedBuffer[] = new int[0];
+    long sortBuffer[] = new long[0];
 
     for (int i = 0; i < listOfScans.size(); i++) {
       MsScan scan = listOfScans.get(i);
@@ -152,132 +232,158 @@ public class SliceSparseMatrix {
       if (scan == null)
         continue;
 
-      double mzBuffer[];
-      float intensityBuffer[];
-      Float rt;
-      mzBuffer = scan.getMzValues();
-      intensityBuffer = scan.getIntensityValues();
-      rt = scan.getRetentionTime();
-
+      Float rt = scan.getRetentionTime();
       if (rt == null)
         continue;
-      rtMap.put(i, rt);
-
-      for (int j = 0; j < mzBuffer.length; j++) {
-        Triplet triplet = new Triplet();
-        triplet.intensity = intensityBuffer[j];
-        triplet.mz = roundMZ(mzBuffer[j]);
-        triplet.scanListIndex = i;
-        triplet.removed = 0;
-        listOfTriplet.add(triplet);
+      rtValues[i] = rt;
+
+      int size = scan.getNumberOfDataPoints();
+      mzBuffer = scan.getMzValues(mzBuffer);
+      intensityBuffer = scan.getIntensityValues(intensityBuffer);
+      if (roundedBuffer.length < size)
+        roundedBuffer = new int[size];
+
+      boolean sorted = true;
+      for (int j = 0; j < size; j++) {
+        roundedBuffer[j] = roundMZ(mzBuffer[j]);
+        if (j > 0 && roundedBuffer[j] < roundedBuffer[j - 1])
+          sorted = false;
       }
-    }
-
-
 
-    compareScanMz = new Comparator<Triplet>() {
-
-      @Override
-      public int compare(Triplet o1, Triplet o2) {
-
-        int scan1 = o1.scanListIndex;
-        int scan2 = o2.scanListIndex;
-        int scanCompare = Integer.compare(scan1, scan2);
-
-        if (scanCompare != 0) {
-          return scanCompare;
-        } else {
-          int mz1 = o1.mz;
-          int mz2 = o2.mz;
-          return Integer.compare(mz1, mz2);
-        }
+      // Stable sort by rounded mz value, the index is kept in the lower half of the key
+      if (!sorted) {
+        if (sortBuffer.length < size)
+          sortBuffer = new long[size];
+        for (int j = 0; j < size; j++)
+          sortBuffer[j] = ((long) roundedBuffer[j] << 32) | j;
+        Arrays.sort(sortBuffer, 0, size);
       }
-    };
 
+      for (int k = 0; k < size; k++) {
+        int j = sorted ? k : (int) sortBuffer[k];
+        int mz = roundedBuffer[j];
+        float intensity = intensityBuffer[j];
+
+        if (filterCount == 0) {
+          filterMz[0] = mz;
+          filterScan[0] = i;
+          filterIntensity[0] = intensity;
+          filterCount = 1;
+          continue;
+        }
 
-    Collections.sort(listOfTriplet, compareScanMz);
-
-    filterListOfTriplet = new ArrayList<Triplet>();
-    Triplet currTriplet = new Triplet();
-    Triplet lastFilterTriplet = new Triplet();
-    // tripletMap = new MultiKeyMap<Integer, Triplet>();
-    int index = 0;
-    Set<Integer> mzSet = new HashSet<Integer>();
-
-    filterListOfTriplet.add(listOfTriplet.get(0));
-    for (int i = 1; i < listOfTriplet.size(); i++) {
-      currTriplet = listOfTriplet.get(i);
-      mzSet.add(listOfTriplet.get(i).mz);
-      lastFilterTriplet = filterListOfTriplet.get(index);
-      if (currTriplet.intensity > 1000) {
-        if (currTriplet.mz == lastFilterTriplet.mz
-            && currTriplet.scanListIndex == lastFilterTriplet.scanListIndex) {
-          lastFilterTriplet.intensity += currTriplet.intensity;
-        } else {
-          filterListOfTriplet.add(currTriplet);
-          index++;
+        rawMz[rawCount++] = mz;
+        if (intensity > 1000) {
+          if (mz == filterMz[filterCount - 1] && i == filterScan[filterCount - 1]) {
+            filterIntensity[filterCount - 1] += intensity;
+          } else {
+            filterMz[filterCount] = mz;
+            filterScan[filterCount] = i;
+            filterIntensity[filterCount] = intensity;
+            filterCount++;
+          }
         }
       }
     }
-    mzValues = new ArrayList<Integer>(mzSet);
-    Collections.sort(mzValues);
-
-    sortListAccordingToScan = new ArrayList<>(filterListOfTriplet);
-    compareScan = new Comparator<Triplet>() {
 
+    Arrays.sort(rawMz, 0, rawCount);
+    int distinctMz = 0;
+    for (int i = 0; i < rawCount; i++) {
+      if (distinctMz == 0 || rawMz[i] != rawMz[distinctMz - 1])
+        rawMz[distinctMz++] = rawMz[i];
+    }
+    allMzValues = Arrays.copyOf(rawMz, distinctMz);
+    mzValues = new AbstractList<Integer>() {
       @Override
-      public int compare(Triplet o1, Triplet o2) {
-
-        int scan1 = o1.scanListIndex;
-        int scan2 = o2.scanListIndex;
-        int scanCompare = Integer.compare(scan1, scan2);
-        return scanCompare;
+      public Integer get(int index) {
+        return allMzValues[index];
       }
-    };
-
-    Collections.sort(sortListAccordingToScan, compareScan);
-
-
-    sortListAccordingToIntensity = new ArrayList<>(filterListOfTriplet);
-
-    compareIntensity = new Comparator<Triplet>() {
 
       @Override
-      public int compare(Triplet o1, Triplet o2) {
-
-        Float intensity1 = o1.intensity;
-        Float intensity2 = o2.intensity;
-        int intensityCompare = intensity2.compareTo(intensity1);
-        return intensityCompare;
+      public int size() {
+        return allMzValues.length;
       }
     };
-    Collections.sort(sortListAccordingToIntensity, compareIntensity);
 
-    sortListAccordingToMzScan = new ArrayList<>(filterListOfTriplet);
-    compareMzScan = new Comparator<Triplet>() {
+    // Reorder the data points by (mz, scan). The (scan, mz) order of equal mz values is already
+    // the scan order, so the original index can be used as the second key.
+    numOfPoints = filterCount;
+    long keys[] = new long[numOfPoints];
+    for (int i = 0; i < numOfPoints; i++)
+      keys[i] = ((long) filterMz[i] << 32) | i;
+    Arrays.sort(keys);
+
+    pointMz = new int[numOfPoints];
+    pointScan = new int[numOfPoints];
+    pointIntensity = new float[numOfPoints];
+    removed = new BitSet(numOfPoints);
+    columnPoints = new int[numOfPoints];
+    int numOfRows = 0;
+    for (int p = 0; p < numOfPoints; p++) {
+      int i = (int) keys[p];
+      pointMz[p] = filterMz[i];
+      pointScan[p] = filterScan[i];
+      pointIntensity[p] = filterIntensity[i];
+      columnPoints[i] = p;
+      if (p == 0 || pointMz[p] != pointMz[p - 1])
+        numOfRows++;
+    }
 
-      @Override
-      public int compare(Triplet o1, Triplet o2) {
-
-        int mz1 = o1.mz;
-        int mz2 = o2.mz;
-        int scanCompare = Integer.compare(mz1, mz2);
-
-        if (scanCompare != 0) {
-          return scanCompare;
-        } else {
-          int scan1 = o1.scanListIndex;
-          int scan2 = o2.scanListIndex;
-          return Integer.compare(scan1, scan2);
-        }
+    rowMz = new int[numOfRows];
+    rowOffsets = new int[numOfRows + 1];
+    for (int p = 0, r = 0; p < numOfPoints; p++) {
+      if (p == 0 || pointMz[p] != pointMz[p - 1]) {
+        rowMz[r] = pointMz[p];
+        rowOffsets[r++] = p;
       }
-    };
-    Collections.sort(sortListAccordingToMzScan, compareMzScan);
+    }
+    rowOffsets[numOfRows] = numOfPoints;
+
+    columnOffsets = new int[numOfScans + 1];
+    for (int i = 0; i < numOfPoints; i++)
+      columnOffsets[filterScan[i] + 1]++;
+    for (int s = 0; s < numOfScans; s++)
+      columnOffsets[s + 1] += columnOffsets[s];
+
+    intensityOrder = new int[numOfPoints];
+    DataPointSorter.sortIndices(filterIntensity, intensityOrder, numOfPoints,
+        SortingDirection.DESCENDING, null);
+    for (int i = 0; i < numOfPoints; i++)
+      intensityOrder[i] = columnPoints[intensityOrder[i]];
+
+    firstRow = 0;
+    endRow = numOfRows;
   }
 
   /**
    * <p>
-   * This method returns the MultiKeyMap slice of data for given mz,lowerScanBound,upperScanBound
+   * Creates a region of the given matrix, sharing all its data points but with a private copy of
+   * the removed data points.
+   * </p>
+   */
+  private SliceSparseMatrix(SliceSparseMatrix matrix, int firstRow, int endRow,
+      int intensityOrder[]) {
+    this.rtValues = matrix.rtValues;
+    this.numOfPoints = matrix.numOfPoints;
+    this.pointMz = matrix.pointMz;
+    this.pointScan = matrix.pointScan;
+    this.pointIntensity = matrix.pointIntensity;
+    this.removed = (BitSet) matrix.removed.clone();
+    this.rowMz = matrix.rowMz;
+    this.rowOffsets = matrix.rowOffsets;
+    this.columnOffsets = matrix.columnOffsets;
+    this.columnPoints = matrix.columnPoints;
+    this.intensityOrder = intensityOrder;
+    this.numOfScans = matrix.numOfScans;
+    this.allMzValues = matrix.allMzValues;
+    this.mzValues = matrix.mzValues;
+    this.firstRow = firstRow;
+    this.endRow = endRow;
+  }
+
+  /**
+   * <p>
+   * This method returns the slice of data for given mz,lowerScanBound,upperScanBound
    * </p>
    *
    * @param mz a {@link java.lang.Double} object. This is original m/z value from raw file.
@@ -285,27 +391,41 @@ public class SliceSparseMatrix {
    *        horizontal matrix slice.
    * @param upperScanBound a {@link java.lang.Integer} object. This is highest scan number in the
    *        horizontal matrix slice.
-   * @return sliceMap a {@link org.apache.commons.collections4.map.MultiKeyMap} object. This object
-   *         contains horizontal slice with single m/z value,different scan numbers and different
-   *         intensities along with retention time.
+   * @return sliceList a {@link java.util.List} object. This object contains horizontal slice with
+   *         single m/z value, one element for each scan number between the bounds.
    */
   public List<Triplet> getHorizontalSlice(double mz, int lowerScanBound, int upperScanBound) {
+    return getHorizontalSlice(roundMZ(mz), lowerScanBound, upperScanBound);
+  }
+
+  /**
+   * <p>
+   * This method returns the slice of data for rounded mz,lowerScanBound,upperScanBound
+   * </p>
+   *
+   * @param roundedMZ a {@link java.lang.Integer} object. This is rounded m/z value which is
+   *        already multiplied by 10000.
+   * @param lowerScanBound a {@link java.lang.Integer} object. This is lowest scan number in the
+   *        horizontal matrix slice.
+   * @param upperScanBound a {@link java.lang.Integer} object. This is highest scan number in the
+   *        horizontal matrix slice.
+   * @return sliceList a {@link java.util.List} object. This object contains horizontal slice with
+   *         single m/z value, one element for each scan number between the bounds.
+   */
+  public List<Triplet> getHorizontalSlice(int roundedMZ, int lowerScanBound, int upperScanBound) {
 
-    int roundedmz = roundMZ(mz);
     List<Triplet> sliceList = new ArrayList<Triplet>();
+    int row = Arrays.binarySearch(rowMz, roundedMZ);
+    int index = row >= 0 ? findScan(row, lowerScanBound) : 0;
 
     for (int i = lowerScanBound; i <= upperScanBound; i++) {
-      Triplet searchTriplet = new Triplet();
-      searchTriplet.mz = roundedmz;
-      searchTriplet.scanListIndex = i;
-      int index = Collections.binarySearch(sortListAccordingToMzScan, searchTriplet, compareMzScan);
-      if (index >= 0) {
-        Triplet triplet = sortListAccordingToMzScan.get(index);
-        sliceList.add(triplet);
+      if (row >= 0 && index < rowOffsets[row + 1] && pointScan[index] == i) {
+        sliceList.add(getTriplet(index++));
       } else {
-        searchTriplet.intensity = 0;
-        searchTriplet.removed = 0;
-        sliceList.add(searchTriplet);
+        Triplet triplet = new Triplet();
+        triplet.mz = roundedMZ;
+        triplet.scanListIndex = i;
+        sliceList.add(triplet);
       }
     }
 
@@ -314,21 +434,41 @@ public class SliceSparseMatrix {
 
   /**
    * <p>
-   * This method returns the MultiKeyMap slice of data for rounded mz,lowerScanBound,upperScanBound
+   * This method copies the intensities of the horizontal slice for rounded
+   * mz,lowerScanBound,upperScanBound into an array, without creating any Triplet objects. Scans
+   * without a data point have zero intensity.
    * </p>
    *
-   * @param roundedMZ a {@link java.lang.Double} object. This is rounded m/z value which is already
-   *        multiplied by 10000.
-   * @param lowerScanBound a {@link java.lang.Integer} object. This is lowest scan number in the
-   *        horizontal matrix slice.
-   * @param upperScanBound a {@link java.lang.Integer} object. This is highest scan number in the
-   *        horizontal matrix slice.
-   * @return sliceMap a {@link org.apache.commons.collections4.map.MultiKeyMap} object. This object
-   *         contains horizontal slice with single m/z value,different scan numbers and different
-   *         intensities along with retention time.
+   * @param roundedMZ a int. This is rounded m/z value which is already multiplied by 10000.
+   * @param lowerScanBound a int. This is lowest scan number in the horizontal matrix slice.
+   * @param upperScanBound a int. This is highest scan number in the horizontal matrix slice.
+   * @param array an array of float to reuse, or null. A new array is allocated if it is too small.
+   * @return intensities a {@link java.lang.Float} array. intensities[i] is the intensity of scan
+   *         lowerScanBound + i.
    */
-  public List<Triplet> getHorizontalSlice(int roundedMZ, int lowerScanBound, int upperScanBound) {
-    return getHorizontalSlice((double) roundedMZ / roundMzFactor, lowerScanBound, upperScanBound);
+  public float[] getHorizontalSliceIntensities(int roundedMZ, int lowerScanBound,
+      int upperScanBound, @Nullable float array[]) {
+    int size = upperScanBound - lowerScanBound + 1;
+    if ((array == null) || (array.length < size))
+      array = new float[size];
+    fillHorizontalSlice(roundedMZ, lowerScanBound, upperScanBound, array, false);
+    return array;
+  }
+
+  private void fillHorizontalSlice(int roundedMZ, int lowerScanBound, int upperScanBound,
+      float intensities[], boolean skipRemoved) {
+
+    Arrays.fill(intensities, 0, upperScanBound - lowerScanBound + 1, 0f);
+    int row = Arrays.binarySearch(rowMz, roundedMZ);
+    if (row < 0)
+      return;
+
+    int end = rowOffsets[row + 1];
+    for (int index = findScan(row, lowerScanBound); index < end
+        && pointScan[index] <= upperScanBound; index++) {
+      if (!skipRemoved || !removed.get(index))
+        intensities[pointScan[index] - lowerScanBound] = pointIntensity[index];
+    }
   }
 
   /**
@@ -343,55 +483,55 @@ public class SliceSparseMatrix {
    */
   public List<VerticalSliceDataPoint> getVerticalSlice(int scanNumber) {
 
-    List<Triplet> oneScanTriplet = new ArrayList<Triplet>();
     List<VerticalSliceDataPoint> datapointList = new ArrayList<VerticalSliceDataPoint>();
 
-    Triplet searchTriplet = new Triplet();
-    searchTriplet.scanListIndex = scanNumber;
-    int index1 = Collections.binarySearch(sortListAccordingToScan, searchTriplet, compareScan);
-    int index2 = index1;
-    oneScanTriplet.add(sortListAccordingToScan.get(index1));
-
-    while (index1 >= 0) {
-      index1--;
-      if (index1 < 0 || sortListAccordingToScan.get(index1).scanListIndex != scanNumber) {
+    // Binary search over all data points in (scan, mz) order. The data point that the search hits
+    // wins ties of the maximum intensity, followed by the points below and then above it.
+    int low = 0, high = numOfPoints - 1, found = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int midScan = pointScan[columnPoints[mid]];
+      if (midScan < scanNumber)
+        low = mid + 1;
+      else if (midScan > scanNumber)
+        high = mid - 1;
+      else {
+        found = mid;
         break;
       }
-      oneScanTriplet.add(sortListAccordingToScan.get(index1));
     }
-
-    while (index2 >= 0) {
-      index2++;
-      if (index2 > filterListOfTriplet.size() - 1
-          || filterListOfTriplet.get(index2).scanListIndex != scanNumber) {
-        break;
-      }
-      oneScanTriplet.add(filterListOfTriplet.get(index2));
+    if (found < 0)
+      return datapointList;
+
+    int start = columnOffsets[scanNumber], end = columnOffsets[scanNumber + 1];
+    int maxIndex = found;
+    for (int i = found - 1; i >= start; i--) {
+      if (Float.compare(pointIntensity[columnPoints[i]], pointIntensity[columnPoints[maxIndex]]) > 0)
+        maxIndex = i;
     }
+    for (int i = found + 1; i < end; i++) {
+      if (Float.compare(pointIntensity[columnPoints[i]], pointIntensity[columnPoints[maxIndex]]) > 0)
+        maxIndex = i;
+    }
+    int maxIntensityMZ = pointMz[columnPoints[maxIndex]];
+
+    int mzIndex = Arrays.binarySearch(allMzValues, maxIntensityMZ - roundMzFactor);
+    if (mzIndex < 0)
+      mzIndex = -mzIndex - 1;
+    int pointIndex = start;
+    for (; mzIndex < allMzValues.length
+        && allMzValues[mzIndex] <= maxIntensityMZ + roundMzFactor; mzIndex++) {
+      int roundedMZ = allMzValues[mzIndex];
+      while (pointIndex < end && pointMz[columnPoints[pointIndex]] < roundedMZ)
+        pointIndex++;
 
-    Collections.sort(oneScanTriplet, compareIntensity);
-    int maxIntensityMZ = oneScanTriplet.get(0).mz;
-    Collections.sort(oneScanTriplet, compareScanMz);
-
-    Triplet searchMz = new Triplet();
-    for (int roundedMZ : mzValues) {
       VerticalSliceDataPoint datapoint = new VerticalSliceDataPoint();
-
-      searchMz.mz = roundedMZ;
-      searchMz.scanListIndex = scanNumber;
-      if (roundedMZ >= (maxIntensityMZ - roundMzFactor)
-          && roundedMZ <= (maxIntensityMZ + roundMzFactor)) {
-        int mzInex = Collections.binarySearch(oneScanTriplet, searchMz, compareScanMz);
-        if (mzInex >= 0) {
-          datapoint.intensity = oneScanTriplet.get(mzInex).intensity;
-          datapoint.mz = (float) roundedMZ / roundMzFactor;
-          datapointList.add(datapoint);
-        } else {
-          datapoint.intensity = (float) 0.0;
-          datapoint.mz = (float) roundedMZ / roundMzFactor;
-          datapointList.add(datapoint);
-        }
-      }
+      if (pointIndex < end && pointMz[columnPoints[pointIndex]] == roundedMZ)
+        datapoint.intensity = pointIntensity[columnPoints[pointIndex]];
+      else
+        datapoint.intensity = (float) 0.0;
+      datapoint.mz = (float) roundedMZ / roundMzFactor;
+      datapointList.add(datapoint);
     }
     return datapointList;
   }
@@ -400,7 +540,7 @@ public class SliceSparseMatrix {
 
   /**
    * <p>
-   * This method finds next maximum intensity from filterListOfTriplet
+   * This method finds next maximum intensity which has not been removed from the matrix.
    * </p>
    *
    * @return tripletObject a {@link io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet} object. This is element of sparse matrix.
@@ -409,9 +549,9 @@ public class SliceSparseMatrix {
 
     Triplet tripletObject = null;
 
-    for (int i = maxIntensityIndex; i < sortListAccordingToIntensity.size(); i++) {
-      if (sortListAccordingToIntensity.get(i).removed == 0) {
-        tripletObject = sortListAccordingToIntensity.get(i);
+    for (int i = maxIntensityIndex; i < intensityOrder.length; i++) {
+      if (!removed.get(intensityOrder[i])) {
+        tripletObject = getTriplet(intensityOrder[i]);
         maxIntensityIndex = i + 1;
         break;
       }
@@ -426,43 +566,59 @@ public class SliceSparseMatrix {
    * retention time and intensity values.
    * </p>
    *
-   * @param slice a {@link org.apache.commons.collections4.map.MultiKeyMap} object. This is
-   *        horizontal slice from sparse matrix.
+   * @param slice a {@link java.util.List} object. This is horizontal slice from sparse matrix.
    * @return listOfDataPoint a {@link io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet} list. This returns list of retention time and
    *         intensities.
    */
   public List<ContinuousWaveletTransform.DataPoint> getCWTDataPoint(List<Triplet> slice) {
 
-    Iterator<Triplet> iterator = slice.iterator();
     List<ContinuousWaveletTransform.DataPoint> listOfDataPoint =
         new ArrayList<ContinuousWaveletTransform.DataPoint>();
 
-    while (iterator.hasNext()) {
+    for (Triplet triplet : slice) {
       ContinuousWaveletTransform.DataPoint dataPoint = new ContinuousWaveletTransform.DataPoint();
-      Triplet triplet = (Triplet) iterator.next();
-      if (triplet.intensity != 0 && triplet.removed == 0) {
-        dataPoint.rt = rtMap.get(triplet.scanListIndex) / 60;
+      dataPoint.rt = rtValues[triplet.scanListIndex] / 60;
+      if (triplet.intensity != 0 && triplet.removed == 0)
         dataPoint.intensity = triplet.intensity;
-        listOfDataPoint.add(dataPoint);
-      } else {
-        dataPoint.rt = rtMap.get(triplet.scanListIndex) / 60;
+      else
         dataPoint.intensity = 0.0;
-        listOfDataPoint.add(dataPoint);
-      }
+      listOfDataPoint.add(dataPoint);
     }
-    Comparator<ContinuousWaveletTransform.DataPoint> compare =
-        new Comparator<ContinuousWaveletTransform.DataPoint>() {
-
-          @Override
-          public int compare(ContinuousWaveletTransform.DataPoint o1,
-              ContinuousWaveletTransform.DataPoint o2) {
-            Double rt1 = o1.rt;
-            Double rt2 = o2.rt;
-            return rt1.compareTo(rt2);
-          }
-        };
 
-    Collections.sort(listOfDataPoint, compare);
+    Collections.sort(listOfDataPoint, compareRt);
+
+    return listOfDataPoint;
+  }
+
+  /**
+   * <p>
+   * This method returns sorted list of ContinuousWaveletTransform.DataPoint object for the
+   * horizontal slice of given rounded mz,lowerScanBound,upperScanBound. Removed data points have
+   * zero intensity.
+   * </p>
+   *
+   * @param roundedMZ a int. This is rounded m/z value which is already multiplied by 10000.
+   * @param lowerScanBound a int. This is lowest scan number in the horizontal matrix slice.
+   * @param upperScanBound a int. This is highest scan number in the horizontal matrix slice.
+   * @return listOfDataPoint a {@link java.util.List} object. This returns list of retention time
+   *         and intensities.
+   */
+  public List<ContinuousWaveletTransform.DataPoint> getCWTDataPoint(int roundedMZ,
+      int lowerScanBound, int upperScanBound) {
+
+    float intensities[] = new float[upperScanBound - lowerScanBound + 1];
+    fillHorizontalSlice(roundedMZ, lowerScanBound, upperScanBound, intensities, true);
+
+    List<ContinuousWaveletTransform.DataPoint> listOfDataPoint =
+        new ArrayList<ContinuousWaveletTransform.DataPoint>(intensities.length);
+    for (int i = 0; i < intensities.length; i++) {
+      ContinuousWaveletTransform.DataPoint dataPoint = new ContinuousWaveletTransform.DataPoint();
+      dataPoint.rt = rtValues[lowerScanBound + i] / 60;
+      dataPoint.intensity = intensities[i];
+      listOfDataPoint.add(dataPoint);
+    }
+
+    Collections.sort(listOfDataPoint, compareRt);
 
     return listOfDataPoint;
   }
@@ -475,25 +631,28 @@ public class SliceSparseMatrix {
    *
    * @param lowerScanBound a {@link java.lang.Integer} object.This is lowest scan number.
    * @param upperScanBound a {@link java.lang.Integer} object.This is highest scan number.
-   * @return tripletMap a {@link org.apache.commons.collections4.map.MultiKeyMap} object. This is
-   *         whole sparse matrix.
+   * @return tripletList a {@link java.util.List} object. This is read-only view of whole sparse
+   *         matrix.
    * @param roundedmz a int.
    */
   public List<Triplet> removeDataPoints(int roundedmz, int lowerScanBound, int upperScanBound) {
+    removeDataPoints(roundedmz, roundedmz, lowerScanBound, upperScanBound);
+    return getTripletList();
+  }
 
-    Triplet searchTriplet = new Triplet();
-
-    for (int i = lowerScanBound; i <= upperScanBound; i++) {
-
-      searchTriplet.mz = roundedmz;
-      searchTriplet.scanListIndex = i;
-      int index = Collections.binarySearch(filterListOfTriplet, searchTriplet, compareScanMz);
-      if (index >= 0) {
-        Triplet triplet = filterListOfTriplet.get(index);
-        triplet.removed = 1;
-      }
-    }
-    return filterListOfTriplet;
+  /**
+   * <p>
+   * This method removes data points from whole data set for all mz values between lowerMZ and
+   * upperMZ and all scans between lowerScanBound and upperScanBound, inclusive.
+   * </p>
+   *
+   * @param lowerMZ a int. This is the lower rounded m/z boundary.
+   * @param upperMZ a int. This is the upper rounded m/z boundary.
+   * @param lowerScanBound a int. This is lowest scan number.
+   * @param upperScanBound a int. This is highest scan number.
+   */
+  public void removeDataPoints(int lowerMZ, int upperMZ, int lowerScanBound, int upperScanBound) {
+    setRemoved(lowerMZ, upperMZ, lowerScanBound, upperScanBound, true);
   }
 
   /**
@@ -504,25 +663,194 @@ public class SliceSparseMatrix {
    *
    * @param lowerScanBound a {@link java.lang.Integer} object.This is lowest scan number.
    * @param upperScanBound a {@link java.lang.Integer} object.This is highest scan number.
-   * @return tripletMap a {@link org.apache.commons.collections4.map.MultiKeyMap} object. This is
-   *         whole sparse matrix.
+   * @return tripletList a {@link java.util.List} object. This is read-only view of whole sparse
+   *         matrix.
    * @param roundedmz a int.
    */
   public List<Triplet> restoreDataPoints(int roundedmz, int lowerScanBound, int upperScanBound) {
+    restoreDataPoints(roundedmz, roundedmz, lowerScanBound, upperScanBound);
+    return getTripletList();
+  }
 
-    Triplet searchTriplet = new Triplet();
+  /**
+   * <p>
+   * This method restores data points from whole data set for all mz values between lowerMZ and
+   * upperMZ and all scans between lowerScanBound and upperScanBound, inclusive.
+   * </p>
+   *
+   * @param lowerMZ a int. This is the lower rounded m/z boundary.
+   * @param upperMZ a int. This is the upper rounded m/z boundary.
+   * @param lowerScanBound a int. This is lowest scan number.
+   * @param upperScanBound a int. This is highest scan number.
+   */
+  public void restoreDataPoints(int lowerMZ, int upperMZ, int lowerScanBound,
+      int upperScanBound) {
+    setRemoved(lowerMZ, upperMZ, lowerScanBound, upperScanBound, false);
+  }
 
-    for (int i = lowerScanBound; i <= upperScanBound; i++) {
+  private void setRemoved(int lowerMZ, int upperMZ, int lowerScanBound, int upperScanBound,
+      boolean value) {
+    int row = Arrays.binarySearch(rowMz, lowerMZ);
+    if (row < 0)
+      row = -row - 1;
+    for (; row < rowMz.length && rowMz[row] <= upperMZ; row++) {
+      int from = findScan(row, lowerScanBound);
+      int to = findScan(row, upperScanBound + 1);
+      if (from < to) {
+        removed.set(from, to, value);
+        if (row < firstRow || row >= endRow) {
+          lowestOuterRow = Math.min(lowestOuterRow, row);
+          highestOuterRow = Math.max(highestOuterRow, row);
+        }
+      }
+    }
+  }
 
-      searchTriplet.mz = roundedmz;
-      searchTriplet.scanListIndex = i;
-      int index = Collections.binarySearch(filterListOfTriplet, searchTriplet, compareScanMz);
-      if (index >= 0) {
-        Triplet triplet = filterListOfTriplet.get(index);
-        triplet.removed = 0;
+  /**
+   * <p>
+   * Splits the rows of the matrix into at most numOfRegions ranges with similar numbers of data
+   * points. Each cut is placed at the largest m/z gap between adjacent rows near its ideal
+   * position, so that peaks on both sides are less likely to interact.
+   * </p>
+   *
+   * @param numOfRegions a int.
+   * @return boundaries an array of int. Region i contains rows boundaries[i] to boundaries[i + 1] -
+   *         1.
+   */
+  int[] splitRows(int numOfRegions) {
+    int numOfRows = rowMz.length;
+    numOfRegions = Math.max(1, Math.min(numOfRegions, numOfRows));
+    double pointsPerRegion = (double) numOfPoints / numOfRegions;
+
+    int boundaries[] = new int[numOfRegions + 1];
+    int count = 1;
+    for (int k = 1; k < numOfRegions; k++) {
+      int lowerRow = Math.max(getRowOfPoint((int) ((k - 0.25) * pointsPerRegion)),
+          boundaries[count - 1] + 1);
+      int upperRow = Math.min(getRowOfPoint((int) ((k + 0.25) * pointsPerRegion)), numOfRows - 1);
+      int bestRow = -1;
+      for (int row = lowerRow; row <= upperRow; row++) {
+        if (bestRow < 0 || rowMz[row] - rowMz[row - 1] > rowMz[bestRow] - rowMz[bestRow - 1])
+          bestRow = row;
       }
+      if (bestRow > 0)
+        boundaries[count++] = bestRow;
+    }
+    boundaries[count++] = numOfRows;
+    return Arrays.copyOf(boundaries, count);
+  }
+
+  private int getRowOfPoint(int index) {
+    int row = Arrays.binarySearch(rowOffsets, index);
+    return row >= 0 ? row : -row - 2;
+  }
+
+  /**
+   * <p>
+   * Creates a region of this matrix with the rows firstRow to endRow - 1 as its core. The region
+   * shares the data points, but has its own copy of the removed data points, so that regions can be
+   * processed concurrently. Its findNextMaxIntensity continues from the current position of this
+   * matrix and only returns data points of the core.
+   * </p>
+   *
+   * @param firstRow a int.
+   * @param endRow a int.
+   * @return region a {@link io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix}
+   *         object.
+   */
+  SliceSparseMatrix createRegion(int firstRow, int endRow) {
+    int from = rowOffsets[firstRow], to = rowOffsets[endRow];
+    int count = 0;
+    for (int i = maxIntensityIndex; i < intensityOrder.length; i++) {
+      if (intensityOrder[i] >= from && intensityOrder[i] < to)
+        count++;
+    }
+    int order[] = new int[count];
+    count = 0;
+    for (int i = maxIntensityIndex; i < intensityOrder.length; i++) {
+      if (intensityOrder[i] >= from && intensityOrder[i] < to)
+        order[count++] = intensityOrder[i];
+    }
+    return new SliceSparseMatrix(this, firstRow, endRow, order);
+  }
+
+  /**
+   * <p>
+   * Returns the lowest row outside of the core in which this region removed or restored data
+   * points, or Integer.MAX_VALUE if there is none.
+   * </p>
+   */
+  int getLowestOuterRow() {
+    return lowestOuterRow;
+  }
+
+  /**
+   * <p>
+   * Returns the highest row outside of the core in which this region removed or restored data
+   * points, or -1 if there is none.
+   * </p>
+   */
+  int getHighestOuterRow() {
+    return highestOuterRow;
+  }
+
+  /**
+   * <p>
+   * Copies the removed data points of the cores of the given regions into this matrix, and moves
+   * findNextMaxIntensity past the last data point.
+   * </p>
+   *
+   * @param regions a {@link java.util.List} of regions created by
+   *        {@link #createRegion(int, int)}.
+   */
+  void mergeRegions(List<SliceSparseMatrix> regions) {
+    for (SliceSparseMatrix region : regions) {
+      int from = rowOffsets[region.firstRow], to = rowOffsets[region.endRow];
+      removed.clear(from, to);
+      for (int i = region.removed.nextSetBit(from); i >= 0 && i < to; i =
+          region.removed.nextSetBit(i + 1))
+        removed.set(i);
     }
-    return filterListOfTriplet;
+    maxIntensityIndex = intensityOrder.length;
+  }
+
+  /**
+   * <p>
+   * Returns the index of the first data point of the given row with scan number greater or equal
+   * to scanNumber, or the end of the row.
+   * </p>
+   */
+  private int findScan(int row, int scanNumber) {
+    int index = Arrays.binarySearch(pointScan, rowOffsets[row], rowOffsets[row + 1], scanNumber);
+    return index >= 0 ? index : -index - 1;
+  }
+
+  private Triplet getTriplet(int index) {
+    Triplet triplet = new Triplet();
+    triplet.mz = pointMz[index];
+    triplet.scanListIndex = pointScan[index];
+    triplet.intensity = pointIntensity[index];
+    triplet.removed = (byte) (removed.get(index) ? 1 : 0);
+    return triplet;
+  }
+
+  /**
+   * <p>
+   * Returns a read-only view of all data points in (scan, mz) order.
+   * </p>
+   */
+  private List<Triplet> getTripletList() {
+    return new AbstractList<Triplet>() {
+      @Override
+      public Triplet get(int index) {
+        return getTriplet(columnPoints[index]);
+      }
+
+      @Override
+      public int size() {
+        return numOfPoints;
+      }
+    };
   }
 
   /**
@@ -539,6 +867,43 @@ public class SliceSparseMatrix {
     return roundedmz;
   }
 
+  /**
+   * <p>
+   * This method returns the index of given rounded mz value in the sorted mzValues list, or -1 if
+   * the raw file doesn't contain this mz value.
+   * </p>
+   *
+   * @param roundedMZ a int. This is rounded m/z value which is already multiplied by 10000.
+   * @return a int.
+   */
+  public int getMzValueIndex(int roundedMZ) {
+    int index = Arrays.binarySearch(allMzValues, roundedMZ);
+    return index >= 0 ? index : -1;
+  }
+
+  /**
+   * <p>
+   * This method returns the rounded mz value at given index of the sorted mzValues list.
+   * </p>
+   *
+   * @param index a int.
+   * @return a int.
+   */
+  public int getMzValue(int index) {
+    return allMzValues[index];
+  }
+
+  /**
+   * <p>
+   * This method returns the number of distinct mz values in the raw file.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getNumberOfMzValues() {
+    return allMzValues.length;
+  }
+
   /**
    * <p>
    * This method sets maxIntensityIndex to 0
@@ -556,8 +921,7 @@ public class SliceSparseMatrix {
    * @return size a {@link java.lang.Integer} object. This is total number of scans in raw file.
    */
   public int getSizeOfRawDataFile() {
-    int size = listOfScans.size();
-    return size;
+    return numOfScans;
   }
 
   /**
@@ -570,13 +934,7 @@ public class SliceSparseMatrix {
    * @param upperScanbound a int.
    */
   public float[] getRetentionTimeArray(int lowerScanBound, int upperScanbound) {
-
-    float[] retentionTime = new float[upperScanbound - lowerScanBound + 1];
-
-    for (int i = 0; i < upperScanbound - lowerScanBound + 1; i++) {
-      retentionTime[i] = (float) getRetentionTime(i + lowerScanBound);
-    }
-    return retentionTime;
+    return Arrays.copyOfRange(rtValues, lowerScanBound, upperScanbound + 1);
   }
 
   /**
@@ -588,23 +946,8 @@ public class SliceSparseMatrix {
    * @param peak a {@link io.github.msdk.featuredetection.adap3d.algorithms.ADAP3DPeakDetectionAlgorithm.GoodPeakInfo} object.
    */
   public float[] getIntensities(GoodPeakInfo peak) {
-
-    float[] intensities = new float[peak.upperScanBound - peak.lowerScanBound + 1];
-
-    for (int i = 0; i < peak.upperScanBound - peak.lowerScanBound + 1; i++) {
-      Triplet searchTriplet = new Triplet();
-      searchTriplet.scanListIndex = i + peak.lowerScanBound;
-      searchTriplet.mz = roundMZ(peak.mz);
-
-      int index = Collections.binarySearch(filterListOfTriplet, searchTriplet, compareScanMz);
-      if (index >= 0) {
-        intensities[i] = filterListOfTriplet.get(index).intensity;
-      } else {
-        intensities[i] = 0;
-      }
-    }
-
-    return intensities;
+    return getHorizontalSliceIntensities(roundMZ(peak.mz), peak.lowerScanBound,
+        peak.upperScanBound, null);
   }
 
   /**
@@ -616,7 +959,7 @@ public class SliceSparseMatrix {
    * @param scanNumber a int.
    */
   public double getRetentionTime(int scanNumber) {
-    return rtMap.get(scanNumber);
+    return rtValues[scanNumber];
   }
 
   /**
@@ -628,13 +971,10 @@ public class SliceSparseMatrix {
    * @param maxIntensityTriplet a {@link io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet} object.
    */
   public float getFinishedPercent(Triplet maxIntensityTriplet) {
-
-    int index = Collections.binarySearch(sortListAccordingToIntensity, maxIntensityTriplet,
-        compareIntensity);
-    float progress = index / sortListAccordingToIntensity.size();
-    return progress;
-
+    if (intensityOrder.length == 0)
+      return 0;
+    return (float) maxIntensityIndex / intensityOrder.length;
   }
 
-  public double numOfScans() {return listOfScans.size();}
+  public double numOfScans() {return numOfScans;}
 }
@@ -0,0 +1,82 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.adap3d.algorithms;
+
+import java.lang.Math;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.datamodel.FileType;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.featuredetection.adap3d.ADAP3DFeatureDetectionParameters;
+import io.github.msdk.featuredetection.adap3d.algorithms.ADAP3DPeakDetectionAlgorithm.GoodPeakInfo;
+
+public class ADAP3DPeakDetectionAlgorithmTest {
+
+  /** The m/z values of the only compound, which are all m/z values of the run. */
+  private static final double MZ_VALUES[] = {100.000, 100.001, 100.002, 100.003, 100.004};
+  private static final double MZ_PROFILE[] = {0.6, 0.9, 1.0, 0.9, 0.6};
+
+  /**
+   * Creates 30 profile scans of a single compound, with a Gaussian elution profile of height 1E5
+   * with its apex at scan 15 and a sigma of 3 scans.
+   */
+  private static RawDataFile createRawDataFile() {
+    SimpleRawDataFile raw = new SimpleRawDataFile("test", Optional.empty(), FileType.UNKNOWN);
+    for (int s = 0; s < 30; s++) {
+      double distance = (s - 15) / 3.0;
+      float intensityValues[] = new float[MZ_VALUES.length];
+      for (int i = 0; i < MZ_VALUES.length; i++)
+        intensityValues[i] = (float) (1E5 * MZ_PROFILE[i] * Math.exp(-0.5 * distance * distance));
+      SimpleMsScan scan = new SimpleMsScan(s + 1, "Full ms");
+      scan.setRawDataFile(raw);
+      scan.setMsLevel(1);
+      scan.setSpectrumType(MsSpectrumType.PROFILE);
+      scan.setRetentionTime(s * 0.5f);
+      scan.setDataPoints(MZ_VALUES, intensityValues, MZ_VALUES.length);
+      raw.addScan(scan);
+    }
+    return raw;
+  }
+
+  @Test
+  public void testPeakAtHighestMz() {
+    SliceSparseMatrix matrix = new SliceSparseMatrix(createRawDataFile());
+    int highestMz = matrix.roundMZ(MZ_VALUES[MZ_VALUES.length - 1]);
+
+    // There are no m/z values above the highest one, and all EICs below it are similar
+    Peak3DTest.Result result =
+        new Peak3DTest(matrix, matrix.roundMZ(0.003)).execute(highestMz, 0, 29, 0.5);
+    Assert.assertEquals(highestMz, result.upperMzBound);
+    Assert.assertEquals(matrix.roundMZ(MZ_VALUES[0]), result.lowerMzBound);
+  }
+
+  @Test
+  public void testFewerPeaksThanRequested() {
+    SliceSparseMatrix matrix = new SliceSparseMatrix(createRawDataFile());
+    ADAP3DPeakDetectionAlgorithm algorithm = new ADAP3DPeakDetectionAlgorithm(matrix);
+
+    // The data points run out before 20 good peaks are found
+    List<GoodPeakInfo> peaks =
+        algorithm.execute(20, new ADAP3DFeatureDetectionParameters(), matrix.roundMZ(0.002));
+    Assert.assertTrue(peaks.size() < 20);
+  }
+
+}
@@ -14,6 +14,7 @@
 package io.github.msdk.featuredetection.adap3d.algorithms;
 
 import java.io.File;
+import java.lang.Math;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -32,6 +33,7 @@ import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.featuredetection.adap3d.algorithms.ContinuousWaveletTransform;
 import io.github.msdk.featuredetection.adap3d.datamodel.Result;
 import io.github.msdk.io.mzxml.MzXMLFileImportMethod;
+import io.github.msdk.util.WaveletTransform;
 
 
 public class ContinuousWaveletTransformTest {
@@ -114,4 +116,84 @@ public class ContinuousWaveletTransformTest {
     }
     Assert.assertEquals(true, peakAssertion);
   }
+
+  /**
+   * Creates two Gaussian peaks on a baseline, at the given retention times in minutes.
+   */
+  private static List<ContinuousWaveletTransform.DataPoint> createDataPoints(double rtValues[]) {
+    List<ContinuousWaveletTransform.DataPoint> listOfDataPoint =
+        new ArrayList<ContinuousWaveletTransform.DataPoint>();
+    for (int s = 0; s < rtValues.length; s++) {
+      ContinuousWaveletTransform.DataPoint datapoint = new ContinuousWaveletTransform.DataPoint();
+      datapoint.rt = rtValues[s];
+      double distance1 = (s - 80) / 6.0, distance2 = (s - 200) / 15.0;
+      datapoint.intensity = 100.0 + 1E5 * Math.exp(-0.5 * distance1 * distance1)
+          + 3E4 * Math.exp(-0.5 * distance2 * distance2);
+      listOfDataPoint.add(datapoint);
+    }
+    return listOfDataPoint;
+  }
+
+  /**
+   * Computes the coefficients of all scales, and checks that the WaveletTransform was used the
+   * given number of times and that the coefficients equal the direct sum of each scale, up to the
+   * given tolerance relative to the largest coefficient of the scale.
+   */
+  private static void checkCoefficients(List<ContinuousWaveletTransform.DataPoint> listOfDataPoint,
+      int expectedTransforms, double tolerance) {
+    final int transforms[] = new int[1];
+    WaveletTransform waveletTransform = new WaveletTransform() {
+      @Override
+      public void transform(double signal[], int size, Kernel kernels[],
+          double coefficients[][]) {
+        transforms[0]++;
+        super.transform(signal, size, kernels, coefficients);
+      }
+    };
+    ContinuousWaveletTransform continuousWavelet =
+        new ContinuousWaveletTransform(1, 10, 1, waveletTransform);
+    continuousWavelet.setX(listOfDataPoint);
+    continuousWavelet.setSignal(listOfDataPoint);
+    continuousWavelet.getCoefficientsForAllScales();
+    Assert.assertEquals(expectedTransforms, transforms[0]);
+
+    double allCoefficients[][] = continuousWavelet.returnAllCoefficients();
+    for (int scale = 1; scale <= 10; scale++) {
+      double expected[] = continuousWavelet.getCoefficientsForThisScale(scale);
+      double maxCoefficient = 0.0;
+      for (double coefficient : expected)
+        maxCoefficient = Math.max(maxCoefficient, Math.abs(coefficient));
+      Assert.assertArrayEquals(expected, allCoefficients[scale - 1], tolerance * maxCoefficient);
+    }
+  }
+
+  @Test
+  public void testCoefficientsOnExactGrid() {
+    // Retention times which are exact in binary, so both ways see the same spacing
+    double rtValues[] = new double[300];
+    for (int s = 0; s < rtValues.length; s++)
+      rtValues[s] = 10.0 + s / 128.0;
+    checkCoefficients(createDataPoints(rtValues), 1, 1E-12);
+  }
+
+  @Test
+  public void testCoefficientsOnFloatGrid() {
+    // Scans 0.5 s apart, in minutes and rounded to float as in SliceSparseMatrix. The direct sum
+    // sees the rounding of the retention times, which the transform on the grid does not.
+    double rtValues[] = new double[300];
+    for (int s = 0; s < rtValues.length; s++)
+      rtValues[s] = (600f + s * 0.5f) / 60;
+    checkCoefficients(createDataPoints(rtValues), 1, 2E-3);
+  }
+
+  @Test
+  public void testCoefficientsOnUnevenGrid() {
+    // A jitter of 0.3 ms is more than the float rounding, so the wavelet is evaluated at each
+    // retention time
+    double rtValues[] = new double[300];
+    for (int s = 0; s < rtValues.length; s++)
+      rtValues[s] = (600f + s * 0.5f + (s % 2) * 0.0003f) / 60;
+    checkCoefficients(createDataPoints(rtValues), 0, 0.0);
+  }
+
 }
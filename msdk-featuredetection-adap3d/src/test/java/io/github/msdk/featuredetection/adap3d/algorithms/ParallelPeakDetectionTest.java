@@ -0,0 +1,192 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.adap3d.algorithms;
+
+import java.lang.Math;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.github.msdk.datamodel.Chromatogram;
+import io.github.msdk.datamodel.Feature;
+import io.github.msdk.datamodel.FileType;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.featuredetection.adap3d.ADAP3DFeatureDetectionMethod;
+import io.github.msdk.featuredetection.adap3d.ADAP3DFeatureDetectionParameters;
+import io.github.msdk.featuredetection.adap3d.algorithms.ADAP3DPeakDetectionAlgorithm.GoodPeakInfo;
+import io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet;
+
+public class ParallelPeakDetectionTest {
+
+  private static ForkJoinPool pool;
+  private static RawDataFile rawFile;
+
+  @BeforeClass
+  public static void createData() {
+    pool = new ForkJoinPool(4);
+    // Compounds 20 m/z apart, eluting at different times
+    double compoundMz[] = new double[30];
+    int apexScans[] = new int[30];
+    for (int c = 0; c < compoundMz.length; c++) {
+      compoundMz[c] = 150.0 + 20.0 * c;
+      apexScans[c] = 20 + c * 37 % 160;
+    }
+    rawFile = createRawDataFile(200, compoundMz, apexScans);
+  }
+
+  @AfterClass
+  public static void shutdownPool() {
+    pool.shutdown();
+  }
+
+  /**
+   * Creates profile scans, 0.5 s apart, on a 0.001 m/z grid, so that all scans share the rounded
+   * m/z values. Compound c has a profile of 11 data points around compoundMz[c], which must be in
+   * ascending order and at least 0.011 apart, and a Gaussian elution profile with its apex at scan
+   * apexScans[c] and a sigma of 4 scans. The heights increase with c, so that no two apexes are
+   * equally high.
+   */
+  private static RawDataFile createRawDataFile(int numOfScans, double compoundMz[],
+      int apexScans[]) {
+    SimpleRawDataFile raw = new SimpleRawDataFile("test", Optional.empty(), FileType.UNKNOWN);
+    for (int s = 0; s < numOfScans; s++) {
+      double mzValues[] = new double[compoundMz.length * 11];
+      float intensityValues[] = new float[compoundMz.length * 11];
+      int size = 0;
+      for (int c = 0; c < compoundMz.length; c++) {
+        double distance = (s - apexScans[c]) / 4.0;
+        if (Math.abs(distance) > 4.0)
+          continue;
+        double apex = 1E4 * (c + 1) * Math.exp(-0.5 * distance * distance);
+        for (int p = -5; p <= 5; p++) {
+          mzValues[size] = Math.round(compoundMz[c] * 1000 + p) / 1000.0;
+          intensityValues[size++] = (float) (apex * Math.exp(-0.5 * (p / 2.0) * (p / 2.0)));
+        }
+      }
+      SimpleMsScan scan = new SimpleMsScan(s + 1, "Full ms");
+      scan.setRawDataFile(raw);
+      scan.setMsLevel(1);
+      scan.setSpectrumType(MsSpectrumType.PROFILE);
+      scan.setRetentionTime(s * 0.5f);
+      scan.setDataPoints(mzValues, intensityValues, size);
+      raw.addScan(scan);
+    }
+    return raw;
+  }
+
+  @Test
+  public void testFeatureDetection() {
+    List<Feature> serial = new ADAP3DFeatureDetectionMethod(rawFile, s -> true,
+        new ADAP3DFeatureDetectionParameters(), null).execute();
+    List<Feature> parallel = new ADAP3DFeatureDetectionMethod(rawFile, s -> true,
+        new ADAP3DFeatureDetectionParameters(), pool).execute();
+    Assert.assertFalse(serial.isEmpty());
+
+    Assert.assertEquals(serial.size(), parallel.size());
+    for (int i = 0; i < serial.size(); i++) {
+      Feature serialFeature = serial.get(i), parallelFeature = parallel.get(i);
+      Assert.assertEquals(serialFeature.getMz(), parallelFeature.getMz());
+      Assert.assertEquals(serialFeature.getRetentionTime(), parallelFeature.getRetentionTime());
+      Assert.assertEquals(serialFeature.getHeight(), parallelFeature.getHeight());
+      Assert.assertEquals(serialFeature.getArea(), parallelFeature.getArea());
+      Chromatogram serialChromatogram = serialFeature.getChromatogram();
+      Chromatogram parallelChromatogram = parallelFeature.getChromatogram();
+      Assert.assertArrayEquals(serialChromatogram.getRetentionTimes(),
+          parallelChromatogram.getRetentionTimes(), 0f);
+      Assert.assertArrayEquals(serialChromatogram.getIntensityValues(),
+          parallelChromatogram.getIntensityValues(), 0f);
+    }
+  }
+
+  @Test
+  public void testPeakDetection() {
+    SliceSparseMatrix matrix = new SliceSparseMatrix(rawFile);
+    int roundedFWHM = matrix.roundMZ(new CurveTool(matrix).estimateFwhmMs());
+    checkParallelPeakDetection(rawFile, pool, roundedFWHM);
+  }
+
+  @Test
+  public void testMergedRegions() {
+    // The compounds are packed 0.012 m/z apart, so the 64 regions of a pool of 16 threads are
+    // narrower than the removed band of +/- FWHM around each apex, and the regions have to be
+    // merged and processed again
+    double compoundMz[] = new double[50];
+    int apexScans[] = new int[50];
+    for (int c = 0; c < compoundMz.length; c++) {
+      compoundMz[c] = 300.0 + 0.012 * c;
+      apexScans[c] = 20 + c * 37 % 160;
+    }
+    RawDataFile denseFile = createRawDataFile(200, compoundMz, apexScans);
+    SliceSparseMatrix matrix = new SliceSparseMatrix(denseFile);
+    ForkJoinPool largePool = new ForkJoinPool(16);
+    try {
+      checkParallelPeakDetection(denseFile, largePool, matrix.roundMZ(0.005));
+    } finally {
+      largePool.shutdown();
+    }
+  }
+
+  /**
+   * Runs the second pass of the peak detection serially and on the pool, and checks that both
+   * find the same peaks in the same order and leave the same data points removed.
+   */
+  private static void checkParallelPeakDetection(RawDataFile raw, ForkJoinPool pool,
+      int roundedFWHM) {
+    SliceSparseMatrix serialMatrix = new SliceSparseMatrix(raw);
+    SliceSparseMatrix parallelMatrix = new SliceSparseMatrix(raw);
+    ADAP3DPeakDetectionAlgorithm serialAlgorithm = new ADAP3DPeakDetectionAlgorithm(serialMatrix);
+    ADAP3DPeakDetectionAlgorithm parallelAlgorithm =
+        new ADAP3DPeakDetectionAlgorithm(parallelMatrix);
+
+    ADAP3DFeatureDetectionParameters parameters = new ADAP3DFeatureDetectionParameters();
+    serialAlgorithm.execute(20, parameters, roundedFWHM);
+    parallelAlgorithm.execute(20, parameters, roundedFWHM);
+
+    // A loose tolerance, so the second pass finds peaks in the synthetic data
+    parameters.setCoefAreaRatioTolerance(10);
+    List<GoodPeakInfo> serial = serialAlgorithm.execute(parameters, roundedFWHM, null);
+    List<GoodPeakInfo> parallel = parallelAlgorithm.execute(parameters, roundedFWHM, pool);
+    Assert.assertFalse(serial.isEmpty());
+
+    Assert.assertEquals(serial.size(), parallel.size());
+    for (int i = 0; i < serial.size(); i++) {
+      GoodPeakInfo serialPeak = serial.get(i), parallelPeak = parallel.get(i);
+      Assert.assertEquals(serialPeak.mz, parallelPeak.mz, 0.0);
+      Assert.assertEquals(serialPeak.lowerScanBound, parallelPeak.lowerScanBound);
+      Assert.assertEquals(serialPeak.upperScanBound, parallelPeak.upperScanBound);
+      Assert.assertEquals(serialPeak.maxHeight, parallelPeak.maxHeight, 0f);
+      Assert.assertEquals(serialPeak.maxHeightScanNumber, parallelPeak.maxHeightScanNumber);
+    }
+
+    Assert.assertEquals(getRemovedFlags(serialMatrix), getRemovedFlags(parallelMatrix));
+  }
+
+  private static List<Byte> getRemovedFlags(SliceSparseMatrix matrix) {
+    // Removing the data points of m/z 0, which do not exist, returns all data points
+    List<Byte> removed = new ArrayList<>();
+    for (Triplet triplet : matrix.removeDataPoints(0, 0, 0))
+      removed.add(triplet.removed);
+    return removed;
+  }
+
+}
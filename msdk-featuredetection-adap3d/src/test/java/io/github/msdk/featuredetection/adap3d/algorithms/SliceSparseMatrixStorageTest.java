@@ -0,0 +1,135 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.featuredetection.adap3d.algorithms;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.github.msdk.datamodel.FileType;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet;
+
+public class SliceSparseMatrixStorageTest {
+
+  private static SimpleRawDataFile rawFile;
+
+  private static void addScan(int scanNumber, double mzValues[], float intensityValues[]) {
+    SimpleMsScan scan = new SimpleMsScan(scanNumber);
+    scan.setRetentionTime(scanNumber * 6f);
+    scan.setDataPoints(mzValues, intensityValues, mzValues.length);
+    rawFile.addScan(scan);
+  }
+
+  @BeforeClass
+  public static void createData() {
+    rawFile = new SimpleRawDataFile("test", Optional.empty(), FileType.UNKNOWN);
+    // The first data point is kept below the intensity threshold, and the second one is added
+    // to it because both round to the same m/z value. 200.0 is below the threshold.
+    addScan(1, new double[] {100.0, 100.00001, 200.0, 300.0},
+        new float[] {500f, 2000f, 900f, 5000f});
+    addScan(2, new double[] {100.0, 300.0, 300.0001}, new float[] {3000f, 6000f, 4000f});
+    addScan(3, new double[] {100.0, 300.0}, new float[] {1500f, 2000f});
+  }
+
+  @Test
+  public void testMzValues() {
+    SliceSparseMatrix matrix = new SliceSparseMatrix(rawFile);
+    Assert.assertEquals(Arrays.asList(1000000, 2000000, 3000000, 3000001), matrix.mzValues);
+    Assert.assertEquals(2, matrix.getMzValueIndex(3000000));
+    Assert.assertEquals(-1, matrix.getMzValueIndex(2500000));
+    Assert.assertEquals(3000001, matrix.getMzValue(3));
+    Assert.assertEquals(3, matrix.getSizeOfRawDataFile());
+  }
+
+  @Test
+  public void testHorizontalSlice() {
+    SliceSparseMatrix matrix = new SliceSparseMatrix(rawFile);
+    Assert.assertArrayEquals(new float[] {2500f, 3000f, 1500f},
+        matrix.getHorizontalSliceIntensities(1000000, 0, 2, null), 0f);
+    Assert.assertArrayEquals(new float[] {0f, 0f},
+        matrix.getHorizontalSliceIntensities(2000000, 0, 1, new float[2]), 0f);
+
+    List<Triplet> slice = matrix.getHorizontalSlice(300.0001, 0, 2);
+    Assert.assertEquals(3, slice.size());
+    Assert.assertEquals(0f, slice.get(0).intensity, 0f);
+    Assert.assertEquals(4000f, slice.get(1).intensity, 0f);
+    Assert.assertEquals(2, slice.get(2).scanListIndex);
+  }
+
+  @Test
+  public void testVerticalSlice() {
+    SliceSparseMatrix matrix = new SliceSparseMatrix(rawFile);
+    List<SliceSparseMatrix.VerticalSliceDataPoint> slice = matrix.getVerticalSlice(1);
+    Assert.assertEquals(2, slice.size());
+    Assert.assertEquals(6000f, slice.get(0).intensity, 0f);
+    Assert.assertEquals(4000f, slice.get(1).intensity, 0f);
+  }
+
+  @Test
+  public void testRemoveRestore() {
+    SliceSparseMatrix matrix = new SliceSparseMatrix(rawFile);
+    matrix.removeDataPoints(2999999, 3000001, 1, 2);
+
+    Triplet max = matrix.findNextMaxIntensity();
+    Assert.assertEquals(5000f, max.intensity, 0f);
+    Assert.assertEquals(3000000, max.mz);
+    Assert.assertEquals(0, max.scanListIndex);
+    Assert.assertEquals(3000f, matrix.findNextMaxIntensity().intensity, 0f);
+
+    matrix.restoreDataPoints(3000000, 3000000, 2, 2);
+    List<ContinuousWaveletTransform.DataPoint> dataPoints = matrix.getCWTDataPoint(3000000, 0, 2);
+    Assert.assertEquals(0.1, dataPoints.get(0).rt, 1e-6);
+    Assert.assertEquals(5000.0, dataPoints.get(0).intensity, 0.0);
+    Assert.assertEquals(0.0, dataPoints.get(1).intensity, 0.0);
+    Assert.assertEquals(2000.0, dataPoints.get(2).intensity, 0.0);
+
+    List<Triplet> triplets = matrix.removeDataPoints(3000001, 0, 2);
+    Assert.assertEquals(7, triplets.size());
+    Assert.assertEquals(3000001, triplets.get(4).mz);
+    Assert.assertEquals(1, triplets.get(4).removed);
+    Assert.assertEquals(0, triplets.get(6).removed);
+  }
+
+  @Test
+  public void testRegions() {
+    SliceSparseMatrix matrix = new SliceSparseMatrix(rawFile);
+    Assert.assertArrayEquals(new int[] {0, 1, 3}, matrix.splitRows(2));
+
+    SliceSparseMatrix lower = matrix.createRegion(0, 1);
+    SliceSparseMatrix upper = matrix.createRegion(1, 3);
+    Assert.assertEquals(3000f, lower.findNextMaxIntensity().intensity, 0f);
+    Assert.assertEquals(6000f, upper.findNextMaxIntensity().intensity, 0f);
+
+    // Removing data points of the other region is recorded, but not merged
+    lower.removeDataPoints(1000000, 3000001, 2, 2);
+    upper.removeDataPoints(3000000, 3000000, 0, 0);
+    Assert.assertEquals(1, lower.getLowestOuterRow());
+    Assert.assertEquals(1, lower.getHighestOuterRow());
+    Assert.assertEquals(Integer.MAX_VALUE, upper.getLowestOuterRow());
+    Assert.assertEquals(-1, upper.getHighestOuterRow());
+
+    matrix.mergeRegions(Arrays.asList(lower, upper));
+    Assert.assertNull(matrix.findNextMaxIntensity());
+    List<Triplet> triplets = matrix.removeDataPoints(3000001, 0, 2);
+    Assert.assertEquals(0, triplets.get(0).removed);
+    Assert.assertEquals(1, triplets.get(1).removed);
+    Assert.assertEquals(1, triplets.get(5).removed);
+    Assert.assertEquals(0, triplets.get(6).removed);
+  }
+}
@@ -13,6 +13,7 @@
 
 package io.github.msdk.featuredetection.chromatogrambuilder;
 
+import java.util.Comparator;
 import java.util.Vector;
 
 import javax.annotation.Nonnull;
@@ -37,10 +38,52 @@ class BuildingChromatogram {
   // commitBuildingSegment()
   private int numOfCommittedSegments = 0;
 
+  // Last round of HighestDataPointConnector.addScan() in which this
+  // chromatogram was connected
+  private int connectedRound = -1;
+
+  // Round, intensity and index in the scan of the data point which was
+  // most recently added by HighestDataPointConnector.addScan()
+  private int dataPointRound = -1;
+  private float dataPointIntensity;
+  private int dataPointIndex;
+
+  /**
+   * Orders the chromatograms like the list of building chromatograms of a HighestDataPointConnector
+   * which processed all data points of each scan. A round of the connector first lists the
+   * chromatograms connected to a data point of the scan, by descending intensity and then by the
+   * index of the data point, and then the chromatograms which were kept without a data point, in
+   * their previous order. The order of two chromatograms is thus decided by the last round in which
+   * they received a data point, and then by that data point. This allows merging the results of
+   * connectors which processed disjoint m/z bands of the same scans.
+   */
+  static final Comparator<BuildingChromatogram> CONNECTOR_ORDER = (a, b) -> {
+    if (a.dataPointRound != b.dataPointRound)
+      return Integer.compare(b.dataPointRound, a.dataPointRound);
+    final int intensityOrder = Float.compare(b.dataPointIntensity, a.dataPointIntensity);
+    if (intensityOrder != 0)
+      return intensityOrder;
+    return Integer.compare(a.dataPointIndex, b.dataPointIndex);
+  };
+
   int getNumberOfCommittedSegments() {
     return numOfCommittedSegments;
   }
 
+  boolean isConnected(int round) {
+    return connectedRound == round;
+  }
+
+  void setConnected(int round) {
+    connectedRound = round;
+  }
+
+  void setConnectingDataPoint(int round, float intensity, int index) {
+    dataPointRound = round;
+    dataPointIntensity = intensity;
+    dataPointIndex = index;
+  }
+
   /**
    * <p>
    * Getter for the field <code>buildingSegmentLength</code>.
@@ -15,6 +15,7 @@ package io.github.msdk.featuredetection.chromatogrambuilder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -33,6 +34,13 @@ import io.github.msdk.util.tolerances.MzTolerance;
  * <p>
  * ChromatogramBuilderMethod class.
  * </p>
+ *
+ * <p>
+ * If a {@link java.util.concurrent.ForkJoinPool ForkJoinPool} is given, the m/z axis is split into
+ * independent bands which are processed in parallel on the pool. The bands are only cut where no
+ * chromatogram can connect data points from both sides, so the result is identical to the serial
+ * processing, including the order of the chromatograms.
+ * </p>
  */
 public class ChromatogramBuilderMethod implements MSDKMethod<List<Chromatogram>> {
 
@@ -43,9 +51,11 @@ public class ChromatogramBuilderMethod implements MSDKMethod<List<Chromatogram>>
   private final @Nonnull Double noiseLevel;
   private final @Nonnull Double minimumTimeSpan, minimumHeight;
   private final @Nonnull MzTolerance mzTolerance;
+  private final @Nullable ForkJoinPool pool;
 
+  private volatile ParallelChromatogramBuilder parallelBuilder;
   private int processedScans = 0, totalScans = 0;
-  private boolean canceled = false;
+  private volatile boolean canceled = false;
   private List<Chromatogram> result;
 
   /**
@@ -65,6 +75,25 @@ public class ChromatogramBuilderMethod implements MSDKMethod<List<Chromatogram>>
     this(inputFile, inputFile.getScans(), noiseLevel, minimumTimeSpan, minimumHeight, mzTolerance);
   }
 
+  /**
+   * <p>
+   * Constructor for ChromatogramBuilderMethod, which builds the chromatograms in parallel on the
+   * given {@link java.util.concurrent.ForkJoinPool ForkJoinPool}.
+   * </p>
+   *
+   * @param inputFile a {@link io.github.msdk.datamodel.RawDataFile} object.
+   * @param minimumTimeSpan a {@link java.lang.Double} object.
+   * @param minimumHeight a {@link java.lang.Double} object.
+   * @param mzTolerance an object that implements the MZTolerance interface.
+   * @param noiseLevel a {@link java.lang.Float} object.
+   * @param pool the {@link java.util.concurrent.ForkJoinPool ForkJoinPool} running the m/z bands
+   */
+  public ChromatogramBuilderMethod(RawDataFile inputFile, double noiseLevel, double minimumTimeSpan,
+      double minimumHeight, MzTolerance mzTolerance, ForkJoinPool pool) {
+    this(inputFile, inputFile.getScans(), noiseLevel, minimumTimeSpan, minimumHeight, mzTolerance,
+        pool);
+  }
+
   /**
    * <p>
    * Constructor for ChromatogramBuilderMethod. This version uses the same MzTolerance for every
@@ -81,6 +110,27 @@ public class ChromatogramBuilderMethod implements MSDKMethod<List<Chromatogram>>
   public ChromatogramBuilderMethod(@Nonnull RawDataFile inputFile, @Nonnull List<MsScan> inputScans,
       @Nonnull Double noiseLevel, @Nonnull Double minimumTimeSpan, @Nonnull Double minimumHeight,
       @Nonnull MzTolerance mzTolerance) {
+    this(inputFile, inputScans, noiseLevel, minimumTimeSpan, minimumHeight, mzTolerance, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for ChromatogramBuilderMethod, which builds the chromatograms in parallel on the
+   * given {@link java.util.concurrent.ForkJoinPool ForkJoinPool}.
+   * </p>
+   *
+   * @param inputFile a {@link io.github.msdk.datamodel.RawDataFile} object.
+   * @param inputScans a {@link java.util.List} object.
+   * @param minimumTimeSpan a {@link java.lang.Double} object.
+   * @param minimumHeight a {@link java.lang.Double} object.
+   * @param mzTolerance an object that implements the MZTolerance interface.
+   * @param noiseLevel a {@link java.lang.Float} object.
+   * @param pool the {@link java.util.concurrent.ForkJoinPool ForkJoinPool} running the m/z bands,
+   *        or null to build the chromatograms on the calling thread
+   */
+  public ChromatogramBuilderMethod(@Nonnull RawDataFile inputFile, @Nonnull List<MsScan> inputScans,
+      @Nonnull Double noiseLevel, @Nonnull Double minimumTimeSpan, @Nonnull Double minimumHeight,
+      @Nonnull MzTolerance mzTolerance, @Nullable ForkJoinPool pool) {
 
     this.inputFile = inputFile;
     this.inputScans = inputScans;
@@ -88,6 +138,7 @@ public class ChromatogramBuilderMethod implements MSDKMethod<List<Chromatogram>>
     this.minimumTimeSpan = minimumTimeSpan;
     this.minimumHeight = minimumHeight;
     this.mzTolerance = mzTolerance;
+    this.pool = pool;
   }
 
   /** {@inheritDoc} */
@@ -121,6 +172,19 @@ public class ChromatogramBuilderMethod implements MSDKMethod<List<Chromatogram>>
       prevRT = s.getRetentionTime();
     }
 
+    if (pool != null) {
+      // The bands are processed with the common m/z tolerance, so make sure no scan has its own
+      for (MsScan scan : inputScans)
+        getScanTolerance(scan);
+      parallelBuilder = new ParallelChromatogramBuilder(pool, inputScans, noiseLevel,
+          minimumTimeSpan, minimumHeight, this.mzTolerance);
+      if (canceled)
+        return null;
+      result = parallelBuilder.build();
+      logger.info("Finished chromatogram builder on file " + inputFile.getName());
+      return result;
+    }
+
     HighestDataPointConnector massConnector =
         new HighestDataPointConnector(noiseLevel, minimumTimeSpan, minimumHeight);
 
@@ -129,12 +193,7 @@ public class ChromatogramBuilderMethod implements MSDKMethod<List<Chromatogram>>
       if (canceled)
         return null;
 
-      MzTolerance mzTolerance = scan.getMzTolerance();
-      if (mzTolerance == null && this.mzTolerance != null) {
-        mzTolerance = this.mzTolerance;
-      } else {
-        throw new MSDKException("Unable to find a m/z tolerance for scan" + scan.getScanNumber());
-      }
+      MzTolerance mzTolerance = getScanTolerance(scan);
       massConnector.addScan(inputFile, scan, mzTolerance);
       processedScans++;
     }
@@ -147,10 +206,23 @@ public class ChromatogramBuilderMethod implements MSDKMethod<List<Chromatogram>>
     return result;
   }
 
+  private MzTolerance getScanTolerance(MsScan scan) throws MSDKException {
+    MzTolerance mzTolerance = scan.getMzTolerance();
+    if (mzTolerance == null && this.mzTolerance != null) {
+      mzTolerance = this.mzTolerance;
+    } else {
+      throw new MSDKException("Unable to find a m/z tolerance for scan" + scan.getScanNumber());
+    }
+    return mzTolerance;
+  }
+
   /** {@inheritDoc} */
   @Override
   @Nullable
   public Float getFinishedPercentage() {
+    final ParallelChromatogramBuilder builder = parallelBuilder;
+    if (builder != null)
+      return builder.getFinishedPercentage();
     if (totalScans == 0)
       return null;
     else
@@ -168,6 +240,9 @@ public class ChromatogramBuilderMethod implements MSDKMethod<List<Chromatogram>>
   @Override
   public void cancel() {
     this.canceled = true;
+    final ParallelChromatogramBuilder builder = parallelBuilder;
+    if (builder != null)
+      builder.cancel();
   }
 
 }
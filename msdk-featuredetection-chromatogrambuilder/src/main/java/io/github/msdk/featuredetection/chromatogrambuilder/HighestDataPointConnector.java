@@ -13,12 +13,12 @@
 
 package io.github.msdk.featuredetection.chromatogrambuilder;
 
-import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,7 +32,6 @@ import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.datamodel.SimpleChromatogram;
 import io.github.msdk.util.DataPointSorter;
 import io.github.msdk.util.DataPointSorter.SortingDirection;
-import io.github.msdk.util.DataPointSorter.SortingProperty;
 import io.github.msdk.util.tolerances.MzTolerance;
 
 class HighestDataPointConnector {
@@ -42,12 +41,39 @@ class HighestDataPointConnector {
   private final @Nonnull Double noiseLevel;
   private final double minimumTimeSpan, minimumHeight;
 
-  private final Set<BuildingChromatogram> buildingChromatograms, connectedChromatograms;
+  private List<BuildingChromatogram> buildingChromatograms, connectedChromatograms;
 
-  // Data structures
+  // Number of the current addScan() round, used to mark the connected chromatograms
+  private int round = 0;
+
+  // Data structures. The data points of a scan are loaded into the point buffers in their
+  // original order, and copied into the m/z, intensity and index buffers by descending intensity.
+  // The index of a data point is its position in the scan.
   private float rtBuffer[] = new float[10000];
   private double mzBuffer[] = new double[10000];
   private float intensityBuffer[] = new float[10000];
+  private int indexBuffer[] = new int[10000];
+  private double pointMzBuffer[] = new double[10000];
+  private float pointIntensityBuffer[] = new float[10000];
+  private int pointIndexBuffer[] = new int[10000];
+  private int sortedPoints[] = new int[10000];
+  private int numOfDataPoints;
+  private final DataPointSorter.Workspace sortingWorkspace = new DataPointSorter.Workspace();
+
+  // Index of the building chromatograms, sorted by the lower bound of the m/z tolerance range
+  // around their last m/z value. The rank is the position of the chromatogram in the iteration
+  // order of buildingChromatograms, which decides between candidates of equal intensity.
+  private BuildingChromatogram indexChromatograms[] = new BuildingChromatogram[0];
+  private double indexLowerBounds[] = new double[0], indexUpperBounds[] = new double[0];
+  private float indexIntensities[] = new float[0];
+  private int indexRanks[] = new int[0];
+  private int indexSize;
+  private double maxRangeWidth;
+
+  // Unsorted copies of the index entries, reused while building the index
+  private BuildingChromatogram unsortedChromatograms[] = new BuildingChromatogram[0];
+  private double unsortedLowerBounds[] = new double[0], unsortedUpperBounds[] = new double[0];
+  private int sortedOrder[] = new int[0];
 
   HighestDataPointConnector(@Nonnull Double noiseLevel, double minimumTimeSpan,
       double minimumHeight) {
@@ -56,55 +82,99 @@ class HighestDataPointConnector {
     this.minimumHeight = minimumHeight;
     this.minimumTimeSpan = minimumTimeSpan;
 
-    // We use LinkedHashSet to maintain a reproducible ordering. If we use
-    // plain HashSet, the resulting peak list row IDs will have different
-    // order every time the method is invoked.
-    buildingChromatograms = new LinkedHashSet<BuildingChromatogram>();
-    connectedChromatograms = new LinkedHashSet<BuildingChromatogram>();
+    // We use lists to maintain a reproducible ordering. Each chromatogram
+    // is added at most once per round, because it is marked as connected
+    // by the round number, so the lists behave like an insertion-ordered
+    // set without the hashing overhead.
+    buildingChromatograms = new ArrayList<BuildingChromatogram>();
+    connectedChromatograms = new ArrayList<BuildingChromatogram>();
 
   }
 
   void addScan(RawDataFile dataFile, MsScan scan, MzTolerance mzTolerance) {
 
-    // Load data points
-    mzBuffer = scan.getMzValues();
-    intensityBuffer = scan.getIntensityValues();
-    int numOfDataPoints = scan.getNumberOfDataPoints();
+    // Load the data points above the noise level into the reused buffers. The data points below
+    // the noise level can never start or extend a chromatogram, so they are not even sorted.
+    ensureCapacity(scan.getNumberOfDataPoints());
+    final double noise = noiseLevel;
+    numOfDataPoints = 0;
+    scan.forEachDataPoint((index, mz, intensity) -> {
+      if (intensity < noise)
+        return;
+      pointMzBuffer[numOfDataPoints] = mz;
+      pointIntensityBuffer[numOfDataPoints] = intensity;
+      pointIndexBuffer[numOfDataPoints] = index;
+      numOfDataPoints++;
+    });
+
+    connectDataPoints(scan.getRetentionTime(), mzTolerance);
+  }
+
+  /**
+   * <p>
+   * Alternative to {@link #addScan(RawDataFile, MsScan, MzTolerance)}, which takes the data points
+   * of the scan which are above the noise level, in the order of the scan, together with their
+   * index in the scan. Used by {@link ParallelChromatogramBuilder} to pass each connector only
+   * the data points of its m/z band. The connector must still be called once for every scan, even
+   * if the scan has no data points in the band.
+   * </p>
+   */
+  void addDataPoints(@Nullable Float rt, double mzValues[], float intensityValues[],
+      int indexValues[], int from, int to, MzTolerance mzTolerance) {
+
+    numOfDataPoints = to - from;
+    ensureCapacity(numOfDataPoints);
+    System.arraycopy(mzValues, from, pointMzBuffer, 0, numOfDataPoints);
+    System.arraycopy(intensityValues, from, pointIntensityBuffer, 0, numOfDataPoints);
+    System.arraycopy(indexValues, from, pointIndexBuffer, 0, numOfDataPoints);
+
+    connectDataPoints(rt, mzTolerance);
+  }
+
+  private void ensureCapacity(int size) {
+    if (pointMzBuffer.length >= size)
+      return;
+    mzBuffer = new double[size];
+    intensityBuffer = new float[size];
+    indexBuffer = new int[size];
+    pointMzBuffer = new double[size];
+    pointIntensityBuffer = new float[size];
+    pointIndexBuffer = new int[size];
+    sortedPoints = new int[size];
+  }
 
-    // Sort m/z peaks by descending intensity
-    DataPointSorter.sortDataPoints(mzBuffer, intensityBuffer, numOfDataPoints,
-        SortingProperty.INTENSITY, SortingDirection.DESCENDING);
+  private void connectDataPoints(@Nullable Float rt, MzTolerance mzTolerance) {
+
+    // Sort m/z peaks by descending intensity. The sort is stable, so data points of equal
+    // intensity stay in the order of the scan.
+    DataPointSorter.sortIndices(pointIntensityBuffer, sortedPoints, numOfDataPoints,
+        SortingDirection.DESCENDING, sortingWorkspace);
+    for (int i = 0; i < numOfDataPoints; i++) {
+      final int point = sortedPoints[i];
+      mzBuffer[i] = pointMzBuffer[point];
+      intensityBuffer[i] = pointIntensityBuffer[point];
+      indexBuffer[i] = pointIndexBuffer[point];
+    }
 
     // A set of already connected chromatograms in each iteration
     connectedChromatograms.clear();
+    round++;
 
-    for (int i = 0; i < numOfDataPoints; i++) {
+    buildIndex(mzTolerance);
 
-      if (intensityBuffer[i] < noiseLevel)
-        continue;
+    for (int i = 0; i < numOfDataPoints; i++) {
 
       // Search for best chromatogram, which has the highest _last_ data
       // point
-      BuildingChromatogram bestChromatogram = null;
-
-      for (BuildingChromatogram testChrom : buildingChromatograms) {
-
-        Range<Double> toleranceRange = mzTolerance.getToleranceRange(testChrom.getLastMz());
-
-        if (toleranceRange.contains(mzBuffer[i])) {
-          if ((bestChromatogram == null)
-              || (testChrom.getLastIntensity() > bestChromatogram.getLastIntensity())) {
-            bestChromatogram = testChrom;
-          }
-        }
-
-      }
+      final int bestPosition = findBestChromatogram(mzBuffer[i]);
 
       // If we found best chromatogram, check if it is already connected.
       // In such case, we may discard this mass and continue. If we
       // haven't found a chromatogram, we can create a new one.
-      if (bestChromatogram != null) {
-        if (connectedChromatograms.contains(bestChromatogram)) {
+      BuildingChromatogram bestChromatogram;
+      if (bestPosition >= 0) {
+        bestChromatogram = indexChromatograms[bestPosition];
+        if (bestChromatogram.isConnected(round)) {
           continue;
         }
       } else {
@@ -112,11 +182,16 @@ class HighestDataPointConnector {
       }
 
       // Add this mzPeak to the chromatogram
-      Float rt = scan.getRetentionTime();
       Preconditions.checkNotNull(rt);
       bestChromatogram.addDataPoint(rt, mzBuffer[i], intensityBuffer[i]);
+      bestChromatogram.setConnectingDataPoint(round, intensityBuffer[i], indexBuffer[i]);
+
+      // The last data point of an indexed chromatogram has changed, so its entry must be updated
+      if (bestPosition >= 0)
+        updateIndexEntry(bestPosition, mzTolerance);
 
       // Move the chromatogram to the set of connected chromatograms
+      bestChromatogram.setConnected(round);
       connectedChromatograms.add(bestChromatogram);
 
     }
@@ -125,7 +200,7 @@ class HighestDataPointConnector {
     for (BuildingChromatogram testChrom : buildingChromatograms) {
 
       // Skip those which were connected
-      if (connectedChromatograms.contains(testChrom)) {
+      if (testChrom.isConnected(round)) {
         continue;
       }
 
@@ -134,6 +209,7 @@ class HighestDataPointConnector {
         testChrom.commitBuildingSegment();
 
         // Move the chromatogram to the set of connected chromatograms
+        testChrom.setConnected(round);
         connectedChromatograms.add(testChrom);
         continue;
       }
@@ -143,6 +219,7 @@ class HighestDataPointConnector {
         testChrom.removeBuildingSegment();
 
         // Move the chromatogram to the set of connected chromatograms
+        testChrom.setConnected(round);
         connectedChromatograms.add(testChrom);
         continue;
       }
@@ -151,28 +228,167 @@ class HighestDataPointConnector {
 
     // All remaining chromatograms in buildingChromatograms are discarded
     // and buildingChromatograms is replaced with connectedChromatograms
-    buildingChromatograms.clear();
-    buildingChromatograms.addAll(connectedChromatograms);
+    List<BuildingChromatogram> discardedChromatograms = buildingChromatograms;
+    buildingChromatograms = connectedChromatograms;
+    connectedChromatograms = discardedChromatograms;
+
+  }
+
+  /**
+   * Builds the index of the current building chromatograms. Each chromatogram is indexed by the
+   * tolerance range around its last m/z value, so the tolerance ranges are computed once per scan
+   * and chromatogram, instead of once per data point and chromatogram.
+   */
+  private void buildIndex(MzTolerance mzTolerance) {
+
+    final int size = buildingChromatograms.size();
+    if (indexChromatograms.length < size) {
+      final int capacity = Math.max(size, indexChromatograms.length * 2);
+      indexChromatograms = new BuildingChromatogram[capacity];
+      indexLowerBounds = new double[capacity];
+      indexUpperBounds = new double[capacity];
+      indexIntensities = new float[capacity];
+      indexRanks = new int[capacity];
+      unsortedChromatograms = new BuildingChromatogram[capacity];
+      unsortedLowerBounds = new double[capacity];
+      unsortedUpperBounds = new double[capacity];
+      sortedOrder = new int[capacity];
+    }
+
+    int rank = 0;
+    maxRangeWidth = 0.0;
+    for (BuildingChromatogram chromatogram : buildingChromatograms) {
+      Range<Double> toleranceRange = mzTolerance.getToleranceRange(chromatogram.getLastMz());
+      unsortedChromatograms[rank] = chromatogram;
+      unsortedLowerBounds[rank] = toleranceRange.lowerEndpoint();
+      unsortedUpperBounds[rank] = toleranceRange.upperEndpoint();
+      maxRangeWidth = Math.max(maxRangeWidth,
+          unsortedUpperBounds[rank] - unsortedLowerBounds[rank]);
+      rank++;
+    }
+
+    DataPointSorter.sortIndices(unsortedLowerBounds, sortedOrder, size, sortingWorkspace);
+    for (int i = 0; i < size; i++) {
+      final int source = sortedOrder[i];
+      indexChromatograms[i] = unsortedChromatograms[source];
+      indexLowerBounds[i] = unsortedLowerBounds[source];
+      indexUpperBounds[i] = unsortedUpperBounds[source];
+      indexIntensities[i] = unsortedChromatograms[source].getLastIntensity();
+      indexRanks[i] = source;
+      unsortedChromatograms[source] = null;
+    }
+
+    // Release the references to the chromatograms discarded in the previous scan
+    if (indexSize > size)
+      Arrays.fill(indexChromatograms, size, indexSize, null);
+    indexSize = size;
+  }
+
+  /**
+   * Returns the index position of the chromatogram whose tolerance range contains the given m/z
+   * value and whose last data point has the highest intensity, or -1 if there is no such
+   * chromatogram. Among chromatograms of equal intensity, the first one in the order of
+   * buildingChromatograms wins, which keeps the result identical to a linear scan of that set.
+   */
+  private int findBestChromatogram(double mz) {
+
+    // Find the last entry whose range starts at or below the m/z value
+    int low = 0, high = indexSize;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (indexLowerBounds[middle] <= mz)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+
+    // Ranges starting further than the widest range (with a safety margin for rounding) cannot
+    // reach the m/z value
+    final double minLowerBound = mz - 2.0 * maxRangeWidth;
 
+    int bestPosition = -1;
+    for (int i = low - 1; (i >= 0) && (indexLowerBounds[i] >= minLowerBound); i--) {
+      if (indexUpperBounds[i] < mz)
+        continue;
+      if ((bestPosition < 0) || (indexIntensities[i] > indexIntensities[bestPosition])
+          || ((indexIntensities[i] == indexIntensities[bestPosition])
+              && (indexRanks[i] < indexRanks[bestPosition]))) {
+        bestPosition = i;
+      }
+    }
+    return bestPosition;
+  }
+
+  /**
+   * Recomputes the index entry at the given position after a data point was added to its
+   * chromatogram, and moves the entry to keep the index sorted.
+   */
+  private void updateIndexEntry(int position, MzTolerance mzTolerance) {
+
+    final BuildingChromatogram chromatogram = indexChromatograms[position];
+    final int rank = indexRanks[position];
+    Range<Double> toleranceRange = mzTolerance.getToleranceRange(chromatogram.getLastMz());
+    final double lowerBound = toleranceRange.lowerEndpoint();
+    final double upperBound = toleranceRange.upperEndpoint();
+    maxRangeWidth = Math.max(maxRangeWidth, upperBound - lowerBound);
+
+    // The new m/z value lies within the previous tolerance range, so the entry usually moves by a
+    // few positions only
+    int i = position;
+    while ((i > 0) && (indexLowerBounds[i - 1] > lowerBound)) {
+      moveIndexEntry(i - 1, i);
+      i--;
+    }
+    while ((i < indexSize - 1) && (indexLowerBounds[i + 1] < lowerBound)) {
+      moveIndexEntry(i + 1, i);
+      i++;
+    }
+
+    indexChromatograms[i] = chromatogram;
+    indexLowerBounds[i] = lowerBound;
+    indexUpperBounds[i] = upperBound;
+    indexIntensities[i] = chromatogram.getLastIntensity();
+    indexRanks[i] = rank;
+  }
+
+  private void moveIndexEntry(int from, int to) {
+    indexChromatograms[to] = indexChromatograms[from];
+    indexLowerBounds[to] = indexLowerBounds[from];
+    indexUpperBounds[to] = indexUpperBounds[from];
+    indexIntensities[to] = indexIntensities[from];
+    indexRanks[to] = indexRanks[from];
   }
 
   void finishChromatograms(@Nonnull RawDataFile inputFile,
       List<Chromatogram> finalList) {
 
+    // All remaining chromatograms are good, so we can add them to the table
+    for (BuildingChromatogram buildingChromatogram : finishBuildingChromatograms()) {
+
+      // Add the Chromatogram to the result list
+      finalList.add(buildChromatogram(buildingChromatogram));
+
+    }
+
+  }
+
+  /**
+   * Finishes the building chromatograms and returns those which are good enough to become a
+   * Chromatogram, in the order of the final result.
+   */
+  List<BuildingChromatogram> finishBuildingChromatograms() {
+
     logger.debug("Finishing " + buildingChromatograms.size() + " chromatograms");
 
-    // Iterate through current chromatograms and remove those which do not
+    // Iterate through current chromatograms and keep only those which
     // contain any committed segment or long-enough building segment
-    Iterator<BuildingChromatogram> chromIterator = buildingChromatograms.iterator();
-    while (chromIterator.hasNext()) {
-
-      BuildingChromatogram chromatogram = chromIterator.next();
+    List<BuildingChromatogram> finishedChromatograms = new ArrayList<>();
+    for (BuildingChromatogram chromatogram : buildingChromatograms) {
 
       if (chromatogram.getBuildingSegmentLength() >= minimumTimeSpan) {
         chromatogram.commitBuildingSegment();
       } else {
         if (chromatogram.getNumberOfCommittedSegments() == 0) {
-          chromIterator.remove();
           continue;
         } else {
           chromatogram.removeBuildingSegment();
@@ -181,37 +397,34 @@ class HighestDataPointConnector {
 
       // Remove chromatograms below minimum height
       if (chromatogram.getHeight() < minimumHeight) {
-        chromIterator.remove();
+        continue;
       }
 
-    }
-
-    // All remaining chromatograms are good, so we can add them to the table
-    int chromId = 1;
-    for (BuildingChromatogram buildingChromatogram : buildingChromatograms) {
+      finishedChromatograms.add(chromatogram);
 
-      // Make a new MSDK Chromatogram
-      SimpleChromatogram newChromatogram = new SimpleChromatogram();
+    }
+    buildingChromatograms = finishedChromatograms;
 
-      // Copy the data points from the BuildingChromatogram
-      rtBuffer = buildingChromatogram.getRtValues(rtBuffer);
-      mzBuffer = buildingChromatogram.getMzValues(mzBuffer);
-      intensityBuffer = buildingChromatogram.getIntensityValues(intensityBuffer);
-      int size = buildingChromatogram.size();
-      newChromatogram.setDataPoints(rtBuffer, mzBuffer, intensityBuffer, size);
+    return finishedChromatograms;
+  }
 
-      // Update the final m/z value of the Chromatogram
-      Double mz = buildingChromatogram.calculateMz();
-      newChromatogram.setMz(mz);
+  SimpleChromatogram buildChromatogram(BuildingChromatogram buildingChromatogram) {
 
-      // Add the Chromatogram to the result list
-      finalList.add(newChromatogram);
+    // Make a new MSDK Chromatogram
+    SimpleChromatogram newChromatogram = new SimpleChromatogram();
 
-      // Increase the ID
-      chromId++;
+    // Copy the data points from the BuildingChromatogram
+    rtBuffer = buildingChromatogram.getRtValues(rtBuffer);
+    mzBuffer = buildingChromatogram.getMzValues(mzBuffer);
+    intensityBuffer = buildingChromatogram.getIntensityValues(intensityBuffer);
+    int size = buildingChromatogram.size();
+    newChromatogram.setDataPoints(rtBuffer, mzBuffer, intensityBuffer, size);
 
-    }
+    // Update the final m/z value of the Chromatogram
+    Double mz = buildingChromatogram.calculateMz();
+    newChromatogram.setMz(mz);
 
+    return newChromatogram;
   }
 
 }
@@ -0,0 +1,347 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.featuredetection.chromatogrambuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.Chromatogram;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.util.ParallelUtil;
+import io.github.msdk.util.tolerances.MzTolerance;
+
+/**
+ * <p>
+ * Runs the {@link HighestDataPointConnector} in parallel, on independent bands of the m/z axis.
+ * </p>
+ *
+ * <p>
+ * A data point can only be connected to a chromatogram whose last m/z value has a tolerance range
+ * containing the data point. If no tolerance range around any data point of the input (above the
+ * noise level) contains a given m/z value, no chromatogram can ever connect data points from both
+ * sides of that value, and the connector makes exactly the same decisions on both sides whether it
+ * sees the other side or not. The m/z axis is therefore cut only at such gaps, found by a first
+ * parallel pass over the scans, and each band is processed by its own connector. There is no need
+ * to stitch chromatograms across band boundaries, and every chromatogram is identical to the one
+ * built by the serial connector. The chromatograms of all bands are finally merged in the order of
+ * the serial connector, see {@link BuildingChromatogram#CONNECTOR_ORDER}.
+ * </p>
+ *
+ * <p>
+ * If the data points leave no gaps, e.g. when the noise level is zero, fewer bands (or only one)
+ * are used and the speedup is reduced accordingly.
+ * </p>
+ */
+class ParallelChromatogramBuilder {
+
+  /** Number of bands per thread of the pool, to balance bands of different density. */
+  private static final int BANDS_PER_THREAD = 2;
+
+  /** Number of scans split into bands before the band connectors process them. */
+  private static final int SCANS_PER_CHUNK = 32;
+
+  /** Number of coverage bins summed up in one bucket of the data point histogram. */
+  private static final int BINS_PER_BUCKET = 1024;
+
+  /** Upper limit of the coverage bins, bins above are treated as covered. */
+  private static final int MAX_BINS = 1 << 27;
+
+  private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+  private final @Nonnull ForkJoinPool pool;
+  private final @Nonnull List<MsScan> inputScans;
+  private final double noiseLevel, minimumTimeSpan, minimumHeight;
+  private final @Nonnull MzTolerance mzTolerance;
+
+  private final AtomicInteger processedSteps = new AtomicInteger();
+  private volatile boolean canceled = false;
+
+  ParallelChromatogramBuilder(@Nonnull ForkJoinPool pool, @Nonnull List<MsScan> inputScans,
+      double noiseLevel, double minimumTimeSpan, double minimumHeight,
+      @Nonnull MzTolerance mzTolerance) {
+    this.pool = pool;
+    this.inputScans = inputScans;
+    this.noiseLevel = noiseLevel;
+    this.minimumTimeSpan = minimumTimeSpan;
+    this.minimumHeight = minimumHeight;
+    this.mzTolerance = mzTolerance;
+  }
+
+  /**
+   * Coverage of the m/z axis by the tolerance ranges around the data points, in bins of a fixed
+   * width, and the number of data points per bucket of bins.
+   */
+  private static class Coverage {
+    final BitSet coveredBins = new BitSet();
+    long pointCounts[] = new long[16];
+    int firstOverflowBin = MAX_BINS;
+  }
+
+  /**
+   * The data points of a scan above the noise level, grouped by band. The data points of band b
+   * are stored between bandStarts[b] and bandStarts[b + 1], in the order of the scan.
+   */
+  private static class BandedScan {
+    Float rt;
+    double mzValues[];
+    float intensityValues[];
+    int indexValues[];
+    int bandStarts[];
+  }
+
+  /**
+   * Builds the chromatograms, or returns null if canceled.
+   */
+  @Nullable
+  List<Chromatogram> build() throws MSDKException {
+
+    final double boundaries[] = findBandBoundaries();
+    if (boundaries == null)
+      return null;
+    processedSteps.set(inputScans.size());
+
+    final int numOfBands = boundaries.length + 1;
+    logger.debug("Building chromatograms in " + numOfBands + " m/z bands");
+    final HighestDataPointConnector connectors[] = new HighestDataPointConnector[numOfBands];
+    for (int b = 0; b < numOfBands; b++)
+      connectors[b] = new HighestDataPointConnector(noiseLevel, minimumTimeSpan, minimumHeight);
+
+    // Each chunk of scans is split into bands in parallel, and then each band connector processes
+    // its part of the scans in order
+    final int totalScans = inputScans.size();
+    final BandedScan chunk[] = new BandedScan[SCANS_PER_CHUNK];
+    for (int start = 0; start < totalScans; start += SCANS_PER_CHUNK) {
+      if (canceled)
+        return null;
+      final int chunkStart = start;
+      final int chunkSize = Math.min(SCANS_PER_CHUNK, totalScans - start);
+      ParallelUtil.run(pool, chunkSize,
+          s -> chunk[s] = splitScan(inputScans.get(chunkStart + s), boundaries));
+      ParallelUtil.run(pool, numOfBands, b -> {
+        for (int s = 0; s < chunkSize; s++) {
+          final BandedScan scan = chunk[s];
+          connectors[b].addDataPoints(scan.rt, scan.mzValues, scan.intensityValues,
+              scan.indexValues, scan.bandStarts[b], scan.bandStarts[b + 1], mzTolerance);
+        }
+      });
+      processedSteps.addAndGet(chunkSize);
+    }
+    Arrays.fill(chunk, null);
+
+    // Finish the chromatograms of each band, and merge them in the order of the serial connector
+    @SuppressWarnings("unchecked")
+    final List<BuildingChromatogram> bandChromatograms[] = new List[numOfBands];
+    final Chromatogram bandResults[][] = new Chromatogram[numOfBands][];
+    ParallelUtil.run(pool, numOfBands, b -> {
+      bandChromatograms[b] = connectors[b].finishBuildingChromatograms();
+      bandResults[b] = new Chromatogram[bandChromatograms[b].size()];
+      for (int i = 0; i < bandResults[b].length; i++)
+        bandResults[b][i] = connectors[b].buildChromatogram(bandChromatograms[b].get(i));
+    });
+
+    final int bandPositions[] = new int[numOfBands];
+    final List<Chromatogram> result = new ArrayList<>();
+    while (true) {
+      int nextBand = -1;
+      for (int b = 0; b < numOfBands; b++) {
+        if (bandPositions[b] == bandResults[b].length)
+          continue;
+        if ((nextBand < 0) || (BuildingChromatogram.CONNECTOR_ORDER.compare(
+            bandChromatograms[b].get(bandPositions[b]),
+            bandChromatograms[nextBand].get(bandPositions[nextBand])) < 0))
+          nextBand = b;
+      }
+      if (nextBand < 0)
+        break;
+      result.add(bandResults[nextBand][bandPositions[nextBand]++]);
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the m/z values at which the m/z axis can be cut into independent bands, in ascending
+   * order, or null if canceled.
+   */
+  @Nullable
+  double[] findBandBoundaries() throws MSDKException {
+
+    final int numOfBands = pool.getParallelism() * BANDS_PER_THREAD;
+    if (numOfBands < 2)
+      return new double[0];
+
+    // The bin width is a fraction of the tolerance range of the first data point, so that the
+    // gaps between neighboring compounds are resolved
+    final double binWidth = findBinWidth();
+    if (binWidth <= 0.0)
+      return new double[0];
+
+    // Compute the coverage of parts of the scans in parallel and merge them
+    final int numOfParts = Math.min(pool.getParallelism(), inputScans.size());
+    final Coverage partCoverages[] = new Coverage[numOfParts];
+    ParallelUtil.run(pool, numOfParts, p -> {
+      final Coverage coverage = new Coverage();
+      final int from = (int) ((long) inputScans.size() * p / numOfParts);
+      final int to = (int) ((long) inputScans.size() * (p + 1) / numOfParts);
+      for (int s = from; s < to && !canceled; s++) {
+        addCoverage(inputScans.get(s), binWidth, coverage);
+        processedSteps.incrementAndGet();
+      }
+      partCoverages[p] = coverage;
+    });
+    if (canceled)
+      return null;
+
+    final Coverage coverage = partCoverages[0];
+    for (int p = 1; p < numOfParts; p++) {
+      final Coverage part = partCoverages[p];
+      coverage.coveredBins.or(part.coveredBins);
+      if (coverage.pointCounts.length < part.pointCounts.length)
+        coverage.pointCounts = Arrays.copyOf(coverage.pointCounts, part.pointCounts.length);
+      for (int i = 0; i < part.pointCounts.length; i++)
+        coverage.pointCounts[i] += part.pointCounts[i];
+      coverage.firstOverflowBin = Math.min(coverage.firstOverflowBin, part.firstOverflowBin);
+    }
+
+    // Place the boundaries at the free bins nearest to the quantiles of the data points
+    long totalPoints = 0;
+    for (long count : coverage.pointCounts)
+      totalPoints += count;
+    final List<Integer> boundaryBins = new ArrayList<>();
+    long cumulativePoints = 0;
+    int bucket = 0;
+    for (int b = 1; b < numOfBands; b++) {
+      final long targetPoints = totalPoints * b / numOfBands;
+      while ((bucket < coverage.pointCounts.length)
+          && (cumulativePoints + coverage.pointCounts[bucket] <= targetPoints))
+        cumulativePoints += coverage.pointCounts[bucket++];
+      final int targetBin = bucket * BINS_PER_BUCKET;
+      final int nextFree = coverage.coveredBins.nextClearBit(targetBin);
+      final int previousFree = coverage.coveredBins.previousClearBit(targetBin);
+      int freeBin = ((previousFree >= 0) && (targetBin - previousFree < nextFree - targetBin))
+          ? previousFree : nextFree;
+      if (freeBin >= coverage.firstOverflowBin)
+        continue;
+      if (!boundaryBins.isEmpty() && (freeBin <= boundaryBins.get(boundaryBins.size() - 1)))
+        continue;
+      boundaryBins.add(freeBin);
+    }
+
+    final double boundaries[] = new double[boundaryBins.size()];
+    for (int i = 0; i < boundaries.length; i++)
+      boundaries[i] = (boundaryBins.get(i) + 0.5) * binWidth;
+    return boundaries;
+  }
+
+  private double findBinWidth() {
+    for (MsScan scan : inputScans) {
+      final double firstMz[] = {Double.NaN};
+      scan.forEachDataPoint((index, mz, intensity) -> {
+        if ((intensity >= noiseLevel) && Double.isNaN(firstMz[0]))
+          firstMz[0] = mz;
+      });
+      if (!Double.isNaN(firstMz[0])) {
+        Range<Double> range = mzTolerance.getToleranceRange(firstMz[0]);
+        return (range.upperEndpoint() - range.lowerEndpoint()) / 4.0;
+      }
+    }
+    return 0.0;
+  }
+
+  private void addCoverage(MsScan scan, double binWidth, Coverage coverage) {
+    scan.forEachDataPoint((index, mz, intensity) -> {
+      if (intensity < noiseLevel)
+        return;
+      Range<Double> range = mzTolerance.getToleranceRange(mz);
+      final double firstBin = Math.max(0.0, Math.floor(range.lowerEndpoint() / binWidth));
+      final double lastBin = Math.floor(range.upperEndpoint() / binWidth);
+      if (!(lastBin < MAX_BINS)) {
+        coverage.firstOverflowBin = (int) Math.min(coverage.firstOverflowBin, firstBin);
+        return;
+      }
+      coverage.coveredBins.set((int) firstBin, (int) lastBin + 1);
+      final int bucket = (int) (Math.max(0.0, Math.floor(mz / binWidth)) / BINS_PER_BUCKET);
+      if (bucket >= coverage.pointCounts.length)
+        coverage.pointCounts = Arrays.copyOf(coverage.pointCounts,
+            Math.max(bucket + 1, coverage.pointCounts.length * 2));
+      coverage.pointCounts[bucket]++;
+    });
+  }
+
+  private BandedScan splitScan(MsScan scan, double boundaries[]) {
+    final int numOfBands = boundaries.length + 1;
+    final int scanSize = scan.getNumberOfDataPoints();
+    final double mzValues[] = new double[scanSize];
+    final float intensityValues[] = new float[scanSize];
+    final int indexValues[] = new int[scanSize];
+    final int bands[] = new int[scanSize];
+    final int bandCounts[] = new int[numOfBands];
+    final int numOfDataPoints[] = {0};
+    scan.forEachDataPoint((index, mz, intensity) -> {
+      if (intensity < noiseLevel)
+        return;
+      final int n = numOfDataPoints[0]++;
+      mzValues[n] = mz;
+      intensityValues[n] = intensity;
+      indexValues[n] = index;
+      // Binary search returns (-(insertion point) - 1), boundaries never equal a data point
+      int band = Arrays.binarySearch(boundaries, mz);
+      bands[n] = band < 0 ? -band - 1 : band + 1;
+      bandCounts[bands[n]]++;
+    });
+
+    // Group the data points by band, keeping the order of the scan within each band
+    final BandedScan bandedScan = new BandedScan();
+    bandedScan.rt = scan.getRetentionTime();
+    bandedScan.bandStarts = new int[numOfBands + 1];
+    for (int b = 0; b < numOfBands; b++)
+      bandedScan.bandStarts[b + 1] = bandedScan.bandStarts[b] + bandCounts[b];
+    final int size = numOfDataPoints[0];
+    bandedScan.mzValues = new double[size];
+    bandedScan.intensityValues = new float[size];
+    bandedScan.indexValues = new int[size];
+    final int positions[] = Arrays.copyOf(bandedScan.bandStarts, numOfBands);
+    for (int i = 0; i < size; i++) {
+      final int position = positions[bands[i]]++;
+      bandedScan.mzValues[position] = mzValues[i];
+      bandedScan.intensityValues[position] = intensityValues[i];
+      bandedScan.indexValues[position] = indexValues[i];
+    }
+    return bandedScan;
+  }
+
+  float getFinishedPercentage() {
+    // Each scan is visited once to find the bands and once to build the chromatograms
+    return (float) processedSteps.get() / (2 * inputScans.size());
+  }
+
+  void cancel() {
+    canceled = true;
+  }
+
+}
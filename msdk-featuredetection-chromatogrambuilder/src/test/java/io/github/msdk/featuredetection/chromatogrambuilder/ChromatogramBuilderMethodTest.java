@@ -15,6 +15,7 @@ package io.github.msdk.featuredetection.chromatogrambuilder;
 
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -102,4 +103,41 @@ public class ChromatogramBuilderMethodTest {
 
   }
 
+  @Test
+  public void testParallel() throws MSDKException {
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    MzTolerance mzTolerance = new ConstantPpmTolerance(5.0);
+    for (double noiseLevel : new double[] {0, 1E4}) {
+      double minimumTimeSpan = 6; // 6s
+      double minimumHeight = 1E4;
+
+      // The m/z axis must be split into several bands
+      ParallelChromatogramBuilder parallelBuilder = new ParallelChromatogramBuilder(pool,
+          rawFile.getScans(), noiseLevel, minimumTimeSpan, minimumHeight, mzTolerance);
+      Assert.assertTrue(parallelBuilder.findBandBoundaries().length > 0);
+
+      List<Chromatogram> expected = new ChromatogramBuilderMethod(rawFile, noiseLevel,
+          minimumTimeSpan, minimumHeight, mzTolerance).execute();
+      ChromatogramBuilderMethod chromBuilder = new ChromatogramBuilderMethod(rawFile, noiseLevel,
+          minimumTimeSpan, minimumHeight, mzTolerance, pool);
+      List<Chromatogram> detectedFeatures = chromBuilder.execute();
+      Assert.assertEquals(1.0, chromBuilder.getFinishedPercentage(), 0.0001);
+
+      // Same chromatograms in the same order
+      Assert.assertEquals(expected.size(), detectedFeatures.size());
+      for (int i = 0; i < expected.size(); i++) {
+        Chromatogram expectedChrom = expected.get(i), chrom = detectedFeatures.get(i);
+        Assert.assertEquals(expectedChrom.getMz(), chrom.getMz());
+        Assert.assertArrayEquals(expectedChrom.getRetentionTimes(), chrom.getRetentionTimes(),
+            0f);
+        Assert.assertArrayEquals(expectedChrom.getMzValues(), chrom.getMzValues(), 0.0);
+        Assert.assertArrayEquals(expectedChrom.getIntensityValues(),
+            chrom.getIntensityValues(), 0f);
+      }
+    }
+    pool.shutdown();
+
+  }
+
 }
@@ -0,0 +1,191 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.gridmass;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Index of the datums of all scans in cells of one scan and a fixed m/z width. The m/z values,
+ * intensities and scans of the datums are copied into primitive arrays in (scan, m/z) order, and
+ * only the cells which contain datums are stored, in a hash table from (scan, m/z bucket) to the
+ * range of their datums. The datums around a point are therefore found without searching the
+ * scans. This is what the probe climbing needs; the spot assignment, which visits the scans of a
+ * spot in order, still searches the sorted datums of each scan.
+ * </p>
+ *
+ * <p>
+ * The datums of each scan must be sorted by m/z. The index is not modified after it is built, so
+ * it can be used by several threads at the same time.
+ * </p>
+ */
+class DatumGrid {
+
+  private final int numOfScans;
+  private final double minMz, cellWidth;
+  private final long numOfBuckets;
+
+  // Datums in (scan, m/z) order
+  private final double mzValues[], intensityValues[];
+  private final int scanValues[];
+
+  // Datums of cell c are cellStarts[c] to cellStarts[c + 1] - 1
+  private final int cellStarts[];
+
+  // Open addressing hash table from the cell keys to the cells, empty slots have the key -1
+  private final long tableKeys[];
+  private final int tableCells[];
+  private final int tableShift;
+
+  /**
+   * <p>
+   * Constructor for DatumGrid.
+   * </p>
+   *
+   * @param roi the datums of each scan, sorted by m/z. Scans without datums may be null.
+   * @param minMz a double. No datum has a lower m/z value.
+   * @param cellWidth a double. The m/z width of the cells.
+   */
+  DatumGrid(Datum roi[][], double minMz, double cellWidth) {
+    this.numOfScans = roi.length;
+    this.minMz = minMz;
+    this.cellWidth = cellWidth;
+
+    int numOfDatums = 0;
+    double maxMz = minMz;
+    for (Datum scanDatums[] : roi) {
+      if (scanDatums == null)
+        continue;
+      numOfDatums += scanDatums.length;
+      for (Datum d : scanDatums)
+        maxMz = Math.max(maxMz, d.mz);
+    }
+    numOfBuckets = Math.max(bucket(maxMz), 0) + 1;
+
+    mzValues = new double[numOfDatums];
+    intensityValues = new double[numOfDatums];
+    scanValues = new int[numOfDatums];
+    long cellKeys[] = new long[numOfDatums];
+    int starts[] = new int[numOfDatums + 1];
+    int numOfCells = 0, index = 0;
+    for (int scan = 0; scan < roi.length; scan++) {
+      if (roi[scan] == null)
+        continue;
+      for (Datum d : roi[scan]) {
+        long key = scan * numOfBuckets + Math.max(bucket(d.mz), 0);
+        if (numOfCells == 0 || cellKeys[numOfCells - 1] != key) {
+          cellKeys[numOfCells] = key;
+          starts[numOfCells++] = index;
+        }
+        mzValues[index] = d.mz;
+        intensityValues[index] = d.intensity;
+        scanValues[index++] = scan;
+      }
+    }
+    starts[numOfCells] = index;
+    cellStarts = new int[numOfCells + 1];
+    System.arraycopy(starts, 0, cellStarts, 0, numOfCells + 1);
+
+    int tableSize = Integer.highestOneBit(Math.max(2 * numOfCells, 2)) << 1;
+    tableShift = 64 - Integer.numberOfTrailingZeros(tableSize);
+    tableKeys = new long[tableSize];
+    tableCells = new int[tableSize];
+    Arrays.fill(tableKeys, -1L);
+    for (int c = 0; c < numOfCells; c++) {
+      int slot = slot(cellKeys[c]);
+      while (tableKeys[slot] != -1L)
+        slot = (slot + 1) & (tableSize - 1);
+      tableKeys[slot] = cellKeys[c];
+      tableCells[slot] = c;
+    }
+  }
+
+  private long bucket(double mz) {
+    return (long) Math.floor((mz - minMz) / cellWidth);
+  }
+
+  private int slot(long key) {
+    return (int) ((key * 0x9E3779B97F4A7C15L) >>> tableShift);
+  }
+
+  private int findCell(int scan, long bucket) {
+    long key = scan * numOfBuckets + bucket;
+    for (int slot = slot(key);; slot = (slot + 1) & (tableKeys.length - 1)) {
+      if (tableKeys[slot] == key)
+        return tableCells[slot];
+      if (tableKeys[slot] == -1L)
+        return -1;
+    }
+  }
+
+  /**
+   * <p>
+   * Moves a probe to the highest datum within scanRadius scans and mzRadius m/z around it, until
+   * it does not move anymore. Of equally high datums, the one in the lowest scan and with the
+   * lowest m/z is taken, and a datum must be higher than the previous one to move the probe again.
+   * </p>
+   *
+   * @param mz a double. The m/z value of the probe.
+   * @param scan a int. The scan of the probe.
+   * @param scanRadius a int.
+   * @param mzRadius a double.
+   * @return the index of the datum the probe moved to, or -1 if it did not move.
+   */
+  int climb(double mz, int scan, int scanRadius, double mzRadius) {
+    int centerIndex = -1;
+    int maxIndex = -1;
+    double maxIntensity = -1;
+    while (true) {
+      double minMZ = mz - mzRadius, maxMZ = mz + mzRadius;
+      long fromBucket = Math.max(bucket(minMZ), 0);
+      long toBucket = Math.min(bucket(maxMZ), numOfBuckets - 1);
+      int toScan = Math.min(numOfScans - 1, scan + scanRadius);
+      for (int s = Math.max(scan - scanRadius, 0); s <= toScan; s++) {
+        for (long b = fromBucket; b <= toBucket; b++) {
+          int cell = findCell(s, b);
+          if (cell < 0)
+            continue;
+          for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+            if (mzValues[i] > maxMZ)
+              break;
+            if (intensityValues[i] > maxIntensity && mzValues[i] >= minMZ) {
+              maxIndex = i;
+              maxIntensity = intensityValues[i];
+            }
+          }
+        }
+      }
+      if (maxIntensity >= 0 && (mzValues[maxIndex] != mz || scanValues[maxIndex] != scan)) {
+        centerIndex = maxIndex;
+        mz = mzValues[maxIndex];
+        scan = scanValues[maxIndex];
+      } else {
+        return centerIndex;
+      }
+    }
+  }
+
+  double getMz(int index) {
+    return mzValues[index];
+  }
+
+  double getIntensity(int index) {
+    return intensityValues[index];
+  }
+
+  int getScan(int index) {
+    return scanValues[index];
+  }
+
+}
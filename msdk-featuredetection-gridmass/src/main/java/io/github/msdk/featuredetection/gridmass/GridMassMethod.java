@@ -15,8 +15,12 @@ package io.github.msdk.featuredetection.gridmass;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -24,6 +28,8 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Range;
+
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
 import io.github.msdk.datamodel.FeatureTable;
@@ -35,12 +41,21 @@ import io.github.msdk.datamodel.SimpleFeatureTable;
 import io.github.msdk.datamodel.SimpleFeatureTableRow;
 import io.github.msdk.datamodel.SimpleSample;
 import io.github.msdk.util.ChromatogramUtil;
+import io.github.msdk.util.ParallelUtil;
 import io.github.msdk.util.tolerances.MzTolerance;
 
 /**
  * <p>
  * GridMassMethod class.
  * </p>
+ *
+ * <p>
+ * The datums above the minimum height are indexed in a {@link DatumGrid}, so that the probes find
+ * the datums around them without searching the scans. Probes are only created where their first
+ * step finds a datum; the other probes of the grid cannot move and would be dropped anyway. If a
+ * {@link java.util.concurrent.ForkJoinPool ForkJoinPool} is given, the probes are moved to their
+ * local maxima in parallel on the pool. The result is the same as without a pool.
+ * </p>
  */
 public class GridMassMethod implements MSDKMethod<FeatureTable> {
 
@@ -48,7 +63,10 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
 
   private final @Nonnull RawDataFile rawDataFile;
 
-  private boolean canceled = false;
+  /** Number of tasks per thread of the pool for moving the probes */
+  private static final int TASKS_PER_THREAD = 4;
+
+  private volatile boolean canceled = false;
   private int processedScans = 0, totalScans = 0;
 
   private HashMap<MsScan, DataPoint[]> dpCache = null;
@@ -56,9 +74,11 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
   // scan counter
   private final @Nonnull List<MsScan> scans;
   Datum[] roi[];
+  DatumGrid grid;
   double retentiontime[];
 
   // User parameters
+  private final @Nonnull MzTolerance mzTolerance;
   private double mzTol;
   private double intensitySimilarity;
   private double minimumTimeSpan, maximumTimeSpan;
@@ -78,6 +98,8 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
 
   private String ignoreTimes = "";
 
+  private final @Nullable ForkJoinPool pool;
+
 
   /**
    * <p>
@@ -103,8 +125,51 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
       @Nonnull Double smoothTimeSpan, @Nonnull Double smoothTimeMZ, @Nonnull Double smoothMZ,
       @Nonnull Double additionTimeMaxPeaksPerScan, @Nonnull Double minimumHeight,
       @Nonnull Double rtPerScan) {
+    this(rawDataFile, scans, mzTol, intensitySimilarity, minimumTimeSpan, maximumTimeSpan,
+        smoothTimeSpan, smoothTimeMZ, smoothMZ, additionTimeMaxPeaksPerScan, minimumHeight,
+        rtPerScan, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for GridMassMethod, which moves the probes in parallel on the given
+   * {@link java.util.concurrent.ForkJoinPool ForkJoinPool}.
+   * </p>
+   *
+   * @param rawDataFile a {@link io.github.msdk.datamodel.RawDataFile} object.
+   * @param scans a {@link java.util.List} object.
+   * @param mzTol a {@link io.github.msdk.util.tolerances.MzTolerance} object.
+   * @param intensitySimilarity a {@link java.lang.Double} object.
+   * @param minimumTimeSpan a {@link java.lang.Double} object.
+   * @param maximumTimeSpan a {@link java.lang.Double} object.
+   * @param smoothTimeSpan a {@link java.lang.Double} object.
+   * @param smoothTimeMZ a {@link java.lang.Double} object.
+   * @param smoothMZ a {@link java.lang.Double} object.
+   * @param additionTimeMaxPeaksPerScan a {@link java.lang.Double} object.
+   * @param minimumHeight a {@link java.lang.Double} object.
+   * @param rtPerScan a {@link java.lang.Double} object.
+   * @param pool the {@link java.util.concurrent.ForkJoinPool ForkJoinPool} moving the probes, or
+   *        null to move them on the calling thread
+   */
+  public GridMassMethod(@Nonnull RawDataFile rawDataFile, @Nonnull List<MsScan> scans,
+      @Nonnull MzTolerance mzTol, @Nonnull Double intensitySimilarity,
+      @Nonnull Double minimumTimeSpan, @Nonnull Double maximumTimeSpan,
+      @Nonnull Double smoothTimeSpan, @Nonnull Double smoothTimeMZ, @Nonnull Double smoothMZ,
+      @Nonnull Double additionTimeMaxPeaksPerScan, @Nonnull Double minimumHeight,
+      @Nonnull Double rtPerScan, @Nullable ForkJoinPool pool) {
     this.rawDataFile = rawDataFile;
     this.scans = scans;
+    this.mzTolerance = mzTol;
+    this.intensitySimilarity = intensitySimilarity;
+    this.minimumTimeSpan = minimumTimeSpan;
+    this.maximumTimeSpan = maximumTimeSpan;
+    this.smoothTimeSpan = smoothTimeSpan;
+    this.smoothTimeMZ = smoothTimeMZ;
+    this.smoothMZ = smoothMZ;
+    this.additionTimeMaxPeaksPerScan = additionTimeMaxPeaksPerScan;
+    this.minimumHeight = minimumHeight;
+    this.rtPerScan = rtPerScan;
+    this.pool = pool;
   }
 
   /** {@inheritDoc} */
@@ -131,6 +196,7 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
     // Create new peak list
     newPeakList = new SimpleFeatureTable();
     newSample = new SimpleSample(rawDataFile.getName(), rawDataFile);
+    newPeakList.setSamples(Collections.singletonList(newSample));
 
     // If no scans, return
     if (scans.size() == 0) {
@@ -276,48 +342,24 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
     // new maximum
     // (3) assign spot id to each "center" using all points within region
 
+    // The grid works with an absolute m/z tolerance, take the widest one within the data
+    Range<Double> mzTolRange = mzTolerance.getToleranceRange(maxMasa);
+    mzTol = (mzTolRange.upperEndpoint() - mzTolRange.lowerEndpoint()) / 2.0;
+
     // (1) Generate probes all over
     double byMZ = Math.max(mzTol * 2, 1e-6);
     int byScan = Math.max(1, tolScans / 4);
     logger.info("Creating Grid of probes every " + byMZ + " m/z and " + byScan + " scans");
-    double m;
-    int ndata = (int) Math
-        .round((((double) totalScans / (double) byScan) + 1) * ((maxMasa - minMasa + byMZ) / byMZ));
-    Probe probes[] = new Probe[ndata];
-    int idata = 0;
-    for (i = 0; i < totalScans; i += byScan) {
-      if (canceled)
-        return null;
-      for (m = minMasa - (i % 2) * byMZ / 2; m <= maxMasa; m += byMZ) {
-        probes[idata++] = new Probe(m, i);
-      }
-    }
+    grid = new DatumGrid(roi, minMasa, byMZ);
 
     // (2) Move each probe to their closest center
     double mzR = byMZ / 2;
     int scanR = Math.max(byScan - 1, 2);
     logger.info("Finding local maxima for each probe radius: scans=" + scanR + ", m/z=" + mzR);
-    int okProbes = 0;
-    for (i = 0; i < idata; i++) {
-      if (canceled)
-        return null;
-      moveProbeToCenter(probes[i], scanR, mzR);
-      if (probes[i].intensityCenter < minimumHeight) {
-        probes[i] = null;
-      } else {
-        okProbes++;
-      }
-    }
-    if (okProbes > 0) {
-      Probe[] pArr = new Probe[okProbes];
-      for (okProbes = i = 0; i < idata; i++) {
-        if (probes[i] != null) {
-          pArr[okProbes++] = probes[i];
-        }
-      }
-      probes = pArr;
-      pArr = null;
-    }
+    Probe probes[] = createProbes(byScan, byMZ, scanR, mzR);
+    if (probes == null)
+      return null;
+
     // (3) Assign spot id to each "center"
     logger.info("Sorting probes");
     Arrays.sort(probes);
@@ -349,7 +391,9 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
     logger.info("Spots:" + spots.size());
 
     // Assign specific datums to spots to avoid using datums to several
-    // spots
+    // spots. The spots walk their scans in order, so the datums of each
+    // scan are searched directly: the hash lookups of the grid are slower
+    // for this access pattern than a binary search within one scan
     logger.info("Assigning intensities to local maxima on");
     i = 0;
     for (SpotByProbes sx : spots) {
@@ -520,6 +564,80 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
     return newPeakList;
   }
 
+  /**
+   * Creates the probes of the grid, moves each one to its closest center, and returns those which
+   * reach the minimum height, in the order of the grid. Each row of the grid only gets the probes
+   * which have a datum within scanR scans and mzR m/z, as all others cannot move. Returns null if
+   * canceled.
+   */
+  private @Nullable Probe[] createProbes(int byScan, double byMZ, int scanR, double mzR)
+      throws MSDKException {
+
+    // The m/z values of the probes of the even and odd scans
+    final double probeMz[][] = new double[2][];
+    for (int parity = 0; parity < 2; parity++) {
+      int count = 0;
+      for (double m = minMasa - parity * byMZ / 2; m <= maxMasa; m += byMZ)
+        count++;
+      probeMz[parity] = new double[count];
+      count = 0;
+      for (double m = minMasa - parity * byMZ / 2; m <= maxMasa; m += byMZ)
+        probeMz[parity][count++] = m;
+    }
+
+    final int numOfRows = (totalScans + byScan - 1) / byScan;
+    final int numOfTasks = pool == null ? 1
+        : Math.min(numOfRows, pool.getParallelism() * TASKS_PER_THREAD);
+    @SuppressWarnings("unchecked")
+    final List<Probe> taskProbes[] = new List[numOfTasks];
+    IntConsumer task = t -> {
+      final List<Probe> probes = new ArrayList<>();
+      final BitSet columns = new BitSet();
+      final int toRow = (int) ((long) numOfRows * (t + 1) / numOfTasks);
+      for (int row = (int) ((long) numOfRows * t / numOfTasks); row < toRow && !canceled; row++) {
+        final int scan = row * byScan;
+        final double rowMz[] = probeMz[scan % 2];
+        columns.clear();
+        final int toScan = Math.min(totalScans - 1, scan + scanR);
+        for (int i = Math.max(scan - scanR, 0); i <= toScan; i++) {
+          if (roi[i] == null)
+            continue;
+          for (Datum d : roi[i]) {
+            // Mark every probe whose m/z range may contain the datum, with a margin of one step
+            int column = Arrays.binarySearch(rowMz, d.mz - mzR - byMZ);
+            for (column = column < 0 ? -column - 1 : column; column < rowMz.length
+                && rowMz[column] <= d.mz + mzR + byMZ; column++)
+              columns.set(column);
+          }
+        }
+        for (int column = columns.nextSetBit(0); column >= 0; column =
+            columns.nextSetBit(column + 1)) {
+          final int center = grid.climb(rowMz[column], scan, scanR, mzR);
+          // A probe which does not move keeps the intensity -1, below the minimum height
+          if (center < 0 || grid.getIntensity(center) < minimumHeight)
+            continue;
+          final Probe probe = new Probe(rowMz[column], scan);
+          probe.mzCenter = grid.getMz(center);
+          probe.scanCenter = grid.getScan(center);
+          probe.intensityCenter = grid.getIntensity(center);
+          probes.add(probe);
+        }
+      }
+      taskProbes[t] = probes;
+    };
+    if (pool == null)
+      task.accept(0);
+    else
+      ParallelUtil.run(pool, numOfTasks, task);
+    if (canceled)
+      return null;
+
+    final List<Probe> probes = new ArrayList<>();
+    for (List<Probe> p : taskProbes)
+      probes.addAll(p);
+    return probes.toArray(new Probe[probes.size()]);
+  }
+
   double intensityRatio(double int1, double int2) {
     return Math.min(int1, int2) / Math.max(int1, int2);
   }
@@ -587,15 +705,10 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
           // Load Data Points
           for (j = si; j <= sj; j++) {
             int jsi = j - si;
-            if (mzValues[jsi] == null) {
-              // if (mzValues[jsi] == null || jsi >= mzValuesScan.length - 1 || mzValuesScan[jsi +
-              // 1] != scanNumbers[j]) {
-              MsScan xscan = scans.get(j);
-              mzValues[jsi] = getCachedDataPoints(xscan);
-            } else {
-              mzValues[jsi] = mzValues[jsi + 1];
-              // mzValuesScan[jsi] = mzValuesScan[jsi + 1];
-            }
+            // The window does not always move by one scan (it is clamped at both ends), so the
+            // slots cannot be shifted; the data points are cached per scan anyway
+            MsScan xscan = scans.get(j);
+            mzValues[jsi] = getCachedDataPoints(xscan);
             mzValuesMZidx[jsi] = 0;
           }
           // Estimate Averages
@@ -774,35 +887,11 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
   }
 
   void moveProbeToCenter(Probe p, int sRadius, double mzRadius) {
-
-    int i, j, k;
-    double maxMZ, minMZ;
-    boolean move = true;
-    Datum max = new Datum(new DataPoint(0, -1), 0, new DataPoint(0, -1));
-    while (move) {
-      k = Math.min(totalScans - 1, p.scanCenter + sRadius);
-      for (i = Math.max(p.scanCenter - sRadius, 0); i <= k; i++) {
-        Datum[] di = roi[i];
-        if (di != null && di.length > 0) {
-          minMZ = p.mzCenter - mzRadius;
-          int idx = findFirstMass(minMZ, di);
-          maxMZ = p.mzCenter + mzRadius;
-          for (j = idx; j < di.length && di[j].mz <= maxMZ; j++) {
-            Datum d = di[j];
-            if (d.intensity > max.intensity && d.mz >= minMZ) {
-              max = d;
-            }
-          }
-        }
-      }
-      if (max.intensity >= 0 && (max.mz != p.mzCenter || max.scan != p.scanCenter)) {
-        p.mzCenter = max.mz;
-        p.scanCenter = max.scan;
-        p.intensityCenter = max.intensity;
-        // p.moves++;
-      } else {
-        move = false;
-      }
+    int center = grid.climb(p.mzCenter, p.scanCenter, sRadius, mzRadius);
+    if (center >= 0) {
+      p.mzCenter = grid.getMz(center);
+      p.scanCenter = grid.getScan(center);
+      p.intensityCenter = grid.getIntensity(center);
     }
   }
 
@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.gridmass;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DatumGridTest {
+
+  /**
+   * Creates the datums of the given number of scans, sorted by m/z. The intensities are small
+   * integers, so that many datums are equally high. Every tenth scan has no datums.
+   */
+  private static Datum[][] createRoi(int numOfScans, int datumsPerScan, long seed) {
+    Random random = new Random(seed);
+    Datum roi[][] = new Datum[numOfScans][];
+    for (int scan = 0; scan < numOfScans; scan++) {
+      if (scan % 10 == 9)
+        continue;
+      double mzValues[] = new double[datumsPerScan];
+      for (int i = 0; i < datumsPerScan; i++)
+        mzValues[i] = 100.0 + random.nextDouble() * 5.0;
+      Arrays.sort(mzValues);
+      roi[scan] = new Datum[datumsPerScan];
+      for (int i = 0; i < datumsPerScan; i++) {
+        DataPoint dp = new DataPoint(mzValues[i], random.nextInt(50));
+        roi[scan][i] = new Datum(dp, scan, dp);
+      }
+    }
+    return roi;
+  }
+
+  /**
+   * Climbs by searching all datums, in the order of the scans and then the m/z values. Returns
+   * the datum the probe moved to, or null if it did not move.
+   */
+  private static Datum bruteForceClimb(Datum roi[][], double mz, int scan, int scanRadius,
+      double mzRadius) {
+    Datum center = null;
+    Datum max = null;
+    while (true) {
+      for (int s = Math.max(scan - scanRadius, 0); s <= Math.min(roi.length - 1,
+          scan + scanRadius); s++) {
+        if (roi[s] == null)
+          continue;
+        for (Datum d : roi[s]) {
+          if (d.mz < mz - mzRadius || d.mz > mz + mzRadius)
+            continue;
+          if (max == null || d.intensity > max.intensity)
+            max = d;
+        }
+      }
+      if (max != null && (max.mz != mz || max.scan != scan)) {
+        center = max;
+        mz = max.mz;
+        scan = max.scan;
+      } else {
+        return center;
+      }
+    }
+  }
+
+  @Test
+  public void testClimb() {
+    Datum roi[][] = createRoi(60, 300, 11L);
+    double cellWidth = 0.02;
+    DatumGrid grid = new DatumGrid(roi, 100.0, cellWidth);
+
+    int moved = 0;
+    for (int scanRadius : new int[] {0, 2, 5}) {
+      for (double mzRadius : new double[] {cellWidth / 2, cellWidth, 3 * cellWidth}) {
+        for (int scan = 0; scan < roi.length; scan += 3) {
+          for (double mz = 99.99; mz <= 105.01; mz += cellWidth / 2) {
+            Datum expected = bruteForceClimb(roi, mz, scan, scanRadius, mzRadius);
+            int center = grid.climb(mz, scan, scanRadius, mzRadius);
+            if (expected == null) {
+              Assert.assertEquals(-1, center);
+              continue;
+            }
+            Assert.assertTrue(center >= 0);
+            Assert.assertEquals(expected.mz, grid.getMz(center), 0.0);
+            Assert.assertEquals(expected.scan, grid.getScan(center));
+            Assert.assertEquals(expected.intensity, grid.getIntensity(center), 0.0);
+            moved++;
+          }
+        }
+      }
+    }
+    Assert.assertTrue(moved > 0);
+  }
+
+  @Test
+  public void testEmptyGrid() {
+    DatumGrid grid = new DatumGrid(new Datum[5][], 100.0, 0.02);
+    Assert.assertEquals(-1, grid.climb(100.5, 2, 3, 0.01));
+  }
+
+}
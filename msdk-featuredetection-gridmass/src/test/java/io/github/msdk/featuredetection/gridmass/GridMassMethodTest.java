@@ -0,0 +1,137 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.gridmass;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.Nullable;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.Chromatogram;
+import io.github.msdk.datamodel.Feature;
+import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.datamodel.FeatureTableRow;
+import io.github.msdk.datamodel.FileType;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.util.tolerances.ConstantDaTolerance;
+
+public class GridMassMethodTest {
+
+  /**
+   * Creates centroided scans, 0.5 s apart. Compound c has the m/z value compoundMz[c], which must
+   * be in ascending order, and a Gaussian elution profile of height 1E5 with its apex at scan
+   * apexScans[c] and a sigma of 4 scans. Every scan starts with a background data point of low
+   * intensity at m/z 100, as the time smoothing skips the first data point of each scan.
+   */
+  static RawDataFile createRawDataFile(int numOfScans, double compoundMz[], int apexScans[]) {
+    SimpleRawDataFile raw = new SimpleRawDataFile("test", Optional.empty(), FileType.UNKNOWN);
+    for (int s = 0; s < numOfScans; s++) {
+      double mzValues[] = new double[compoundMz.length + 1];
+      float intensityValues[] = new float[compoundMz.length + 1];
+      mzValues[0] = 100.0;
+      intensityValues[0] = 100f;
+      int size = 1;
+      for (int c = 0; c < compoundMz.length; c++) {
+        double distance = (s - apexScans[c]) / 4.0;
+        if (Math.abs(distance) > 3.0)
+          continue;
+        mzValues[size] = compoundMz[c];
+        intensityValues[size++] = (float) (1E5 * Math.exp(-0.5 * distance * distance));
+      }
+      SimpleMsScan scan = new SimpleMsScan(s + 1, "Full ms");
+      scan.setRawDataFile(raw);
+      scan.setMsLevel(1);
+      scan.setSpectrumType(MsSpectrumType.CENTROIDED);
+      scan.setRetentionTime(s * 0.5f);
+      scan.setDataPoints(mzValues, intensityValues, size);
+      raw.addScan(scan);
+    }
+    return raw;
+  }
+
+  static FeatureTable detectFeatures(RawDataFile raw, @Nullable ForkJoinPool pool)
+      throws MSDKException {
+    return new GridMassMethod(raw, raw.getScans(), new ConstantDaTolerance(0.01), 0.5, 3.0, 60.0,
+        1.5, 0.0, 0.005, 0.0, 5000.0, 0.0, pool).execute();
+  }
+
+  @Test
+  public void testDetectFeatures() throws MSDKException {
+    double compoundMz[] = {150.05, 300.1, 450.2};
+    int apexScans[] = {30, 60, 90};
+    RawDataFile raw = createRawDataFile(120, compoundMz, apexScans);
+
+    FeatureTable featureTable = detectFeatures(raw, null);
+    Assert.assertEquals(1, featureTable.getSamples().size());
+    List<FeatureTableRow> rows = featureTable.getRows();
+    Assert.assertEquals(compoundMz.length, rows.size());
+    for (FeatureTableRow row : rows) {
+      Chromatogram chromatogram = row.getFeature(0).getChromatogram();
+      double mz = chromatogram.getMzValues()[0];
+      int c = 0;
+      while (c < compoundMz.length - 1 && Math.abs(mz - compoundMz[c]) > 0.01)
+        c++;
+      Assert.assertEquals(compoundMz[c], mz, 0.01);
+      float rtValues[] = chromatogram.getRetentionTimes();
+      Assert.assertTrue(rtValues[0] < apexScans[c] * 0.5f);
+      Assert.assertTrue(rtValues[chromatogram.getNumberOfDataPoints() - 1] > apexScans[c] * 0.5f);
+    }
+  }
+
+  @Test
+  public void testParallel() throws MSDKException {
+    // Pairs of compounds within the m/z tolerance, eluting at different times, so that their
+    // probes climb to competing centers
+    double compoundMz[] = new double[40];
+    int apexScans[] = new int[40];
+    for (int c = 0; c < compoundMz.length; c++) {
+      compoundMz[c] = 200.0 + 5.0 * (c / 2) + 0.004 * (c % 2);
+      apexScans[c] = 20 + (c / 2) * 7 % 100 + 60 * (c % 2);
+    }
+    RawDataFile raw = createRawDataFile(200, compoundMz, apexScans);
+    FeatureTable serial = detectFeatures(raw, null);
+    Assert.assertEquals(compoundMz.length, serial.getRows().size());
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      FeatureTable parallel = detectFeatures(raw, pool);
+      Assert.assertEquals(serial.getRows().size(), parallel.getRows().size());
+      for (int i = 0; i < serial.getRows().size(); i++) {
+        Feature serialFeature = serial.getRows().get(i).getFeature(0);
+        Feature parallelFeature = parallel.getRows().get(i).getFeature(0);
+        Assert.assertEquals(serialFeature.getArea(), parallelFeature.getArea());
+        Assert.assertEquals(serialFeature.getHeight(), parallelFeature.getHeight());
+        Chromatogram serialChromatogram = serialFeature.getChromatogram();
+        Chromatogram parallelChromatogram = parallelFeature.getChromatogram();
+        Assert.assertArrayEquals(serialChromatogram.getRetentionTimes(),
+            parallelChromatogram.getRetentionTimes(), 0f);
+        Assert.assertArrayEquals(serialChromatogram.getMzValues(),
+            parallelChromatogram.getMzValues(), 0.0);
+        Assert.assertArrayEquals(serialChromatogram.getIntensityValues(),
+            parallelChromatogram.getIntensityValues(), 0f);
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+}
@@ -13,6 +13,8 @@
 
 package io.github.msdk.featuredetection.targeted;
 
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -52,9 +54,8 @@ public class TargetedDetectionMethod implements MSDKMethod<List<Chromatogram>> {
   private int processedScans = 0, totalScans = 0;
 
   // Data structures
-  private @Nonnull double mzBuffer[];
-  private @Nonnull float intensityBuffer[];
-  private int numOfDataPoints;
+  private @Nonnull DoubleBuffer mzBuffer;
+  private @Nonnull FloatBuffer intensityBuffer;
 
   /**
    * <p>
@@ -112,10 +113,9 @@ public class TargetedDetectionMethod implements MSDKMethod<List<Chromatogram>> {
     totalScans = msScans.size();
     for (MsScan msScan : msScans) {
 
-      // Load data points
-      mzBuffer = msScan.getMzValues();
-      intensityBuffer = msScan.getIntensityValues();
-      numOfDataPoints = msScan.getNumberOfDataPoints();
+      // Read-only views of the data points, no copies are made
+      mzBuffer = msScan.getMzBuffer();
+      intensityBuffer = msScan.getIntensityBuffer();
 
       Float chromatographyInfo = msScan.getRetentionTime();
 
@@ -129,11 +129,10 @@ public class TargetedDetectionMethod implements MSDKMethod<List<Chromatogram>> {
           // Get highest data point which has a m/z within the mzRange
           Double mz = 0d;
           Float intensity = 0f;
-          Integer index =
-              MsSpectrumUtil.getBasePeakIndex(mzBuffer, intensityBuffer, numOfDataPoints, mzRange);
+          Integer index = MsSpectrumUtil.getBasePeakIndex(mzBuffer, intensityBuffer, mzRange);
           if (index != null) {
-            mz = mzBuffer[index];
-            intensity = intensityBuffer[index];
+            mz = mzBuffer.get(index);
+            intensity = intensityBuffer.get(index);
           }
 
           // Add this mzPeak or zero values to the chromatogram
@@ -0,0 +1,229 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.id.localdatabase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Range;
+
+import io.github.msdk.datamodel.IonAnnotation;
+
+/**
+ * <p>
+ * An index over a library of ion annotations, answering m/z and retention time tolerance queries
+ * by binary search instead of comparing each feature with the whole library. The expected m/z and
+ * retention time of the annotations are copied into primitive arrays sorted by m/z. Optionally, the
+ * annotations are first split into buckets of retention time, so that a query only searches the
+ * buckets overlapping its retention time range.
+ * </p>
+ *
+ * <p>
+ * The expected retention times of the library are given in seconds and matched in minutes, as in
+ * {@link io.github.msdk.id.localdatabase.LocalDatabaseSearchMethod}. Annotations without expected
+ * m/z or retention time are not indexed. The index is immutable, so it can be built once and used
+ * for many feature tables, also from several threads at the same time.
+ * </p>
+ */
+public class IonAnnotationIndex {
+
+  private final @Nonnull IonAnnotation annotations[];
+  private final @Nonnull double mzValues[];
+  private final @Nonnull float rtValues[];
+  private final @Nonnull int libraryPositions[];
+
+  // Entries of the bucket bucketKeys[i] are at positions bucketStarts[i] to bucketStarts[i + 1]
+  private final float rtBucketWidth;
+  private final @Nonnull int bucketKeys[];
+  private final @Nonnull int bucketStarts[];
+
+  /**
+   * <p>
+   * Creates an index of the given ion annotations, without retention time buckets.
+   * </p>
+   *
+   * @param ionAnnotations a {@link java.util.List} of
+   *        {@link io.github.msdk.datamodel.IonAnnotation} objects.
+   */
+  public IonAnnotationIndex(@Nonnull List<? extends IonAnnotation> ionAnnotations) {
+    this(ionAnnotations, 0f);
+  }
+
+  /**
+   * <p>
+   * Creates an index of the given ion annotations.
+   * </p>
+   *
+   * @param ionAnnotations a {@link java.util.List} of
+   *        {@link io.github.msdk.datamodel.IonAnnotation} objects.
+   * @param rtBucketWidth the width of the retention time buckets in minutes, or 0 to keep all
+   *        annotations in one bucket. Buckets pay off for large libraries, when the retention time
+   *        tolerance is much narrower than the whole chromatogram.
+   */
+  public IonAnnotationIndex(@Nonnull List<? extends IonAnnotation> ionAnnotations,
+      float rtBucketWidth) {
+    Preconditions.checkNotNull(ionAnnotations);
+    Preconditions.checkArgument(rtBucketWidth >= 0, "Bucket width must not be negative");
+    this.rtBucketWidth = rtBucketWidth;
+
+    // Collect the annotations that can be matched
+    final List<IonAnnotation> indexed = new ArrayList<>();
+    final List<Integer> positions = new ArrayList<>();
+    for (int i = 0; i < ionAnnotations.size(); i++) {
+      final IonAnnotation ionAnnotation = ionAnnotations.get(i);
+      if ((ionAnnotation.getExpectedMz() == null)
+          || (ionAnnotation.getExpectedRetentionTime() == null))
+        continue;
+      indexed.add(ionAnnotation);
+      positions.add(i);
+    }
+    final int size = indexed.size();
+
+    // Sort the entries by bucket first and by m/z second
+    final Integer order[] = new Integer[size];
+    final int keys[] = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+      keys[i] = getBucketKey(toMinutes(indexed.get(i).getExpectedRetentionTime()));
+    }
+    Arrays.sort(order, (a, b) -> {
+      final int byBucket = Integer.compare(keys[a], keys[b]);
+      if (byBucket != 0)
+        return byBucket;
+      return Double.compare(indexed.get(a).getExpectedMz(), indexed.get(b).getExpectedMz());
+    });
+
+    annotations = new IonAnnotation[size];
+    mzValues = new double[size];
+    rtValues = new float[size];
+    libraryPositions = new int[size];
+    final int bucketKeyBuffer[] = new int[size];
+    final int bucketStartBuffer[] = new int[size + 1];
+    int numOfBuckets = 0;
+    for (int i = 0; i < size; i++) {
+      final int entry = order[i];
+      annotations[i] = indexed.get(entry);
+      mzValues[i] = annotations[i].getExpectedMz();
+      rtValues[i] = toMinutes(annotations[i].getExpectedRetentionTime());
+      libraryPositions[i] = positions.get(entry);
+      if ((numOfBuckets == 0) || (bucketKeyBuffer[numOfBuckets - 1] != keys[entry])) {
+        bucketKeyBuffer[numOfBuckets] = keys[entry];
+        bucketStartBuffer[numOfBuckets] = i;
+        numOfBuckets++;
+      }
+    }
+    bucketStartBuffer[numOfBuckets] = size;
+    bucketKeys = Arrays.copyOf(bucketKeyBuffer, numOfBuckets);
+    bucketStarts = Arrays.copyOf(bucketStartBuffer, numOfBuckets + 1);
+  }
+
+  /**
+   * <p>
+   * Returns the number of indexed ion annotations.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int size() {
+    return annotations.length;
+  }
+
+  /**
+   * <p>
+   * Returns the ion annotations whose expected m/z and retention time are inside the given ranges,
+   * in the order of the library.
+   * </p>
+   *
+   * @param mzRange a {@link com.google.common.collect.Range} object.
+   * @param rtRange a {@link com.google.common.collect.Range} of retention times in minutes.
+   * @return a {@link java.util.List} of {@link io.github.msdk.datamodel.IonAnnotation} objects.
+   */
+  public @Nonnull List<IonAnnotation> getAnnotationsInsideRange(@Nonnull Range<Double> mzRange,
+      @Nonnull Range<Float> rtRange) {
+
+    int found[] = new int[8];
+    int numOfFound = 0;
+
+    // Search the buckets overlapping the retention time range
+    final int firstKey =
+        rtRange.hasLowerBound() ? getBucketKey(rtRange.lowerEndpoint()) : Integer.MIN_VALUE;
+    final int lastKey =
+        rtRange.hasUpperBound() ? getBucketKey(rtRange.upperEndpoint()) : Integer.MAX_VALUE;
+    int bucket = Arrays.binarySearch(bucketKeys, firstKey);
+    if (bucket < 0)
+      bucket = -bucket - 1;
+
+    for (; (bucket < bucketKeys.length) && (bucketKeys[bucket] <= lastKey); bucket++) {
+      final int end = bucketStarts[bucket + 1];
+      int i = mzRange.hasLowerBound()
+          ? findFirst(bucketStarts[bucket], end, mzRange.lowerEndpoint())
+          : bucketStarts[bucket];
+      for (; i < end; i++) {
+        final double mz = mzValues[i];
+        if (mzRange.hasUpperBound() && (Double.compare(mz, mzRange.upperEndpoint()) > 0))
+          break;
+        if (!mzRange.contains(mz) || !rtRange.contains(rtValues[i]))
+          continue;
+        if (numOfFound == found.length)
+          found = Arrays.copyOf(found, numOfFound * 2);
+        found[numOfFound++] = i;
+      }
+    }
+
+    // Restore the order of the library
+    final long sortKeys[] = new long[numOfFound];
+    for (int i = 0; i < numOfFound; i++)
+      sortKeys[i] = ((long) libraryPositions[found[i]] << 32) | found[i];
+    Arrays.sort(sortKeys);
+    final List<IonAnnotation> result = new ArrayList<>(numOfFound);
+    for (long key : sortKeys)
+      result.add(annotations[(int) key]);
+    return result;
+  }
+
+  /**
+   * Returns the first position between from and to whose m/z is not below the given value.
+   */
+  private int findFirst(int from, int to, double mz) {
+    int low = from, high = to;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (Double.compare(mzValues[middle], mz) < 0)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    return low;
+  }
+
+  private int getBucketKey(float rt) {
+    if (rtBucketWidth == 0)
+      return 0;
+    final double key = Math.floor(rt / rtBucketWidth);
+    return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE - 1, key));
+  }
+
+  /**
+   * Converts the expected retention time of an annotation from seconds to minutes.
+   */
+  static float toMinutes(float rtSeconds) {
+    return rtSeconds / 60.0f;
+  }
+
+}
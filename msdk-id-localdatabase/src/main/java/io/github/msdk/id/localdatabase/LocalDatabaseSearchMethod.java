@@ -11,10 +11,16 @@
  * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
  */
 
+
 package io.github.msdk.id.localdatabase;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -23,26 +29,46 @@ import com.google.common.collect.Range;
 
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.Feature;
 import io.github.msdk.datamodel.FeatureTable;
 import io.github.msdk.datamodel.FeatureTableRow;
 import io.github.msdk.datamodel.IonAnnotation;
+import io.github.msdk.datamodel.Sample;
+import io.github.msdk.datamodel.SimpleFeature;
 import io.github.msdk.datamodel.SimpleIonAnnotation;
+import io.github.msdk.util.ParallelUtil;
 import io.github.msdk.util.tolerances.MzTolerance;
 import io.github.msdk.util.tolerances.RTTolerance;
 
 /**
+ * <p>
  * This class searches through a feature table to find hits in a local database using m/z and
  * retention time values.
+ * </p>
+ *
+ * <p>
+ * The result maps each row with at least one hit to its matching ion annotations, in the order of
+ * the database. In addition, the hit closest in m/z is set as the ion annotation of the features of
+ * the row which are {@link io.github.msdk.datamodel.SimpleFeature}s without an ion annotation. The
+ * database is searched through an {@link io.github.msdk.id.localdatabase.IonAnnotationIndex},
+ * which can be shared by the searches of several feature tables. If a
+ * {@link java.util.concurrent.ForkJoinPool ForkJoinPool} is given, the rows are searched in
+ * parallel on the pool.
+ * </p>
  */
-public class LocalDatabaseSearchMethod implements MSDKMethod<Void> {
+public class LocalDatabaseSearchMethod
+    implements MSDKMethod<Map<FeatureTableRow, List<IonAnnotation>>> {
 
   private final @Nonnull FeatureTable featureTable;
-  private final @Nonnull List<SimpleIonAnnotation> ionAnnotations;
+  private final @Nonnull IonAnnotationIndex ionAnnotationIndex;
   private final @Nonnull MzTolerance mzTolerance;
   private final @Nonnull RTTolerance rtTolerance;
+  private final @Nullable ForkJoinPool pool;
 
-  private boolean canceled = false;
-  private int processedFeatures = 0, totalFeatures = 0;
+  private volatile boolean canceled = false;
+  private final AtomicInteger processedFeatures = new AtomicInteger();
+  private int totalFeatures = 0;
+  private Map<FeatureTableRow, List<IonAnnotation>> result;
 
   /**
    * <p>
@@ -58,20 +84,100 @@ public class LocalDatabaseSearchMethod implements MSDKMethod<Void> {
   public LocalDatabaseSearchMethod(@Nonnull FeatureTable featureTable,
       @Nonnull List<SimpleIonAnnotation> ionAnnotations, @Nonnull MzTolerance mzTolerance,
       @Nonnull RTTolerance rtTolerance) {
+    this(featureTable, new IonAnnotationIndex(ionAnnotations), mzTolerance, rtTolerance, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for LocalDatabaseSearchMethod, which searches a database that was indexed before.
+   * </p>
+   *
+   * @param featureTable a {@link io.github.msdk.datamodel.FeatureTable} object.
+   * @param ionAnnotationIndex the {@link io.github.msdk.id.localdatabase.IonAnnotationIndex} of
+   *        the database.
+   * @param mzTolerance an object that implements the MZTolerance interface.
+   * @param rtTolerance a {@link io.github.msdk.util.tolerances.RTTolerance} object.
+   */
+  public LocalDatabaseSearchMethod(@Nonnull FeatureTable featureTable,
+      @Nonnull IonAnnotationIndex ionAnnotationIndex, @Nonnull MzTolerance mzTolerance,
+      @Nonnull RTTolerance rtTolerance) {
+    this(featureTable, ionAnnotationIndex, mzTolerance, rtTolerance, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for LocalDatabaseSearchMethod, which searches a database that was indexed before,
+   * in parallel on the given {@link java.util.concurrent.ForkJoinPool ForkJoinPool}.
+   * </p>
+   *
+   * @param featureTable a {@link io.github.msdk.datamodel.FeatureTable} object.
+   * @param ionAnnotationIndex the {@link io.github.msdk.id.localdatabase.IonAnnotationIndex} of
+   *        the database.
+   * @param mzTolerance an object that implements the MZTolerance interface.
+   * @param rtTolerance a {@link io.github.msdk.util.tolerances.RTTolerance} object.
+   * @param pool the {@link java.util.concurrent.ForkJoinPool ForkJoinPool} searching the rows, or
+   *        null to search them on the calling thread
+   */
+  public LocalDatabaseSearchMethod(@Nonnull FeatureTable featureTable,
+      @Nonnull IonAnnotationIndex ionAnnotationIndex, @Nonnull MzTolerance mzTolerance,
+      @Nonnull RTTolerance rtTolerance, @Nullable ForkJoinPool pool) {
     this.featureTable = featureTable;
-    this.ionAnnotations = ionAnnotations;
+    this.ionAnnotationIndex = ionAnnotationIndex;
     this.mzTolerance = mzTolerance;
     this.rtTolerance = rtTolerance;
+    this.pool = pool;
   }
 
   /** {@inheritDoc} */
   @Override
-  public Void execute() throws MSDKException {
+  public Map<FeatureTableRow, List<IonAnnotation>> execute() throws MSDKException {
+
+    final List<FeatureTableRow> rows = featureTable.getRows();
+    totalFeatures = rows.size();
+
+    // Search the rows in consecutive chunks, so the result does not depend on the pool
+    final int numOfChunks = (pool == null) ? 1 : Math.min(rows.size(), pool.getParallelism() * 4);
+    // Each chunk sets the hits of its own rows only, so the list is never structurally modified
+    final List<List<IonAnnotation>> hits = new ArrayList<>(Collections.nCopies(rows.size(), null));
+    if (numOfChunks <= 1) {
+      searchRows(rows, 0, rows.size(), hits);
+    } else {
+      ParallelUtil.run(pool, numOfChunks, chunk -> {
+        final int from = (int) ((long) rows.size() * chunk / numOfChunks);
+        final int to = (int) ((long) rows.size() * (chunk + 1) / numOfChunks);
+        searchRows(rows, from, to, hits);
+      });
+    }
 
-    totalFeatures = featureTable.getRows().size();
+    if (canceled)
+      return null;
+
+    // Attach the hits to the rows
+    final Map<FeatureTableRow, List<IonAnnotation>> rowIonAnnotations = new LinkedHashMap<>();
+    for (int i = 0; i < rows.size(); i++) {
+      final List<IonAnnotation> rowHits = hits.get(i);
+      if (rowHits == null)
+        continue;
+      final FeatureTableRow row = rows.get(i);
+      rowIonAnnotations.put(row, Collections.unmodifiableList(rowHits));
+      annotateFeatures(row, rowHits);
+    }
+
+    result = Collections.unmodifiableMap(rowIonAnnotations);
+    return result;
+  }
+
+  private void searchRows(@Nonnull List<FeatureTableRow> rows, int from, int to,
+      @Nonnull List<List<IonAnnotation>> hits) {
 
     // Loop through all features in the feature table
-    for (FeatureTableRow row : featureTable.getRows()) {
+    for (int i = from; i < to; i++) {
+
+      if (canceled)
+        return;
+
+      final FeatureTableRow row = rows.get(i);
+      processedFeatures.incrementAndGet();
 
       final Double mz = row.getMz();
       final Float rt = row.getRT();
@@ -81,63 +187,49 @@ public class LocalDatabaseSearchMethod implements MSDKMethod<Void> {
       // Row values
       Range<Double> mzRange = mzTolerance.getToleranceRange(mz);
       Range<Float> rtRange = rtTolerance.getToleranceRange(rt);
-      List<SimpleIonAnnotation> rowIonAnnotations = null;
-
-      // Empty rowIonAnnotations
-      if (rowIonAnnotations == null)
-        rowIonAnnotations = new ArrayList<SimpleIonAnnotation>();
-
-      // Loop through all ion annotations from the local database
-      for (SimpleIonAnnotation ionAnnotation : ionAnnotations) {
-
-        // Ion values
-        final Double ionMz = ionAnnotation.getExpectedMz();
-        final Float ionRT = ionAnnotation.getExpectedRetentionTime();
-        if ((ionMz == null) || (ionRT == null))
-          continue;
-
-        // Convert from seconds to minutes
-        float ionRtSec = ionRT / 60.0f;
-        final boolean mzMatch = mzRange.contains(ionMz);
-        final boolean rtMatch = rtRange.contains(ionRtSec);
 
-        // If match, add the ion annotation to the list
-        if (mzMatch && rtMatch) {
-
-          // If first ion annotation is empty then remove it
-          if (rowIonAnnotations.size() > 0) {
-            IonAnnotation firstionAnnotation = rowIonAnnotations.get(0);
-          }
-
-          rowIonAnnotations.add(ionAnnotation);
-        }
+      // Find all ion annotations from the local database within the ranges
+      List<IonAnnotation> rowIonAnnotations =
+          ionAnnotationIndex.getAnnotationsInsideRange(mzRange, rtRange);
+      if (!rowIonAnnotations.isEmpty())
+        hits.set(i, rowIonAnnotations);
+    }
+  }
 
+  /**
+   * Sets the hit closest in m/z as the ion annotation of the features of the row that have none.
+   */
+  private void annotateFeatures(@Nonnull FeatureTableRow row,
+      @Nonnull List<IonAnnotation> rowIonAnnotations) {
+    final double mz = row.getMz();
+    IonAnnotation bestIonAnnotation = null;
+    double bestDiff = Double.MAX_VALUE;
+    for (IonAnnotation ionAnnotation : rowIonAnnotations) {
+      final double diff = Math.abs(ionAnnotation.getExpectedMz() - mz);
+      if (diff < bestDiff) {
+        bestDiff = diff;
+        bestIonAnnotation = ionAnnotation;
       }
-
-      // Update the ion annotations of the feature
-      //row.setData(ionAnnotationColumn, rowIonAnnotations);
-
-      if (canceled)
-        return null;
-
-      processedFeatures++;
     }
-
-    return null;
+    for (Sample sample : featureTable.getSamples()) {
+      final Feature feature = row.getFeature(sample);
+      if ((feature instanceof SimpleFeature) && (feature.getIonAnnotation() == null))
+        ((SimpleFeature) feature).setIonAnnotation(bestIonAnnotation);
+    }
   }
 
   /** {@inheritDoc} */
   @Override
   @Nullable
   public Float getFinishedPercentage() {
-    return totalFeatures == 0 ? null : (float) processedFeatures / totalFeatures;
+    return totalFeatures == 0 ? null : (float) processedFeatures.get() / totalFeatures;
   }
 
   /** {@inheritDoc} */
   @Override
   @Nullable
-  public Void getResult() {
-    return null;
+  public Map<FeatureTableRow, List<IonAnnotation>> getResult() {
+    return result;
   }
 
   /** {@inheritDoc} */
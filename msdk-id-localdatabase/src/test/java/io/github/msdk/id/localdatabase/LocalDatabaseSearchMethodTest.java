@@ -14,13 +14,32 @@
 package io.github.msdk.id.localdatabase;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.google.common.collect.Range;
+
 import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.datamodel.FeatureTableRow;
+import io.github.msdk.datamodel.IonAnnotation;
+import io.github.msdk.datamodel.Sample;
+import io.github.msdk.datamodel.SimpleFeature;
+import io.github.msdk.datamodel.SimpleFeatureTable;
+import io.github.msdk.datamodel.SimpleFeatureTableRow;
+import io.github.msdk.datamodel.SimpleIonAnnotation;
+import io.github.msdk.datamodel.SimpleSample;
 import io.github.msdk.io.mztab.MzTabFileImportMethod;
+import io.github.msdk.util.tolerances.ConstantPpmTolerance;
+import io.github.msdk.util.tolerances.MzTolerance;
+import io.github.msdk.util.tolerances.RTTolerance;
 
 public class LocalDatabaseSearchMethodTest {
 
@@ -40,4 +59,90 @@ public class LocalDatabaseSearchMethodTest {
     featureTable.dispose();
   }
 
+
+  /**
+   * Creates a database whose retention times are in seconds, and a feature table whose retention
+   * times are in minutes, with a hit for about every second row.
+   */
+  private static List<SimpleIonAnnotation> createDatabase(int size, Random random) {
+    List<SimpleIonAnnotation> database = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      SimpleIonAnnotation ionAnnotation = new SimpleIonAnnotation();
+      ionAnnotation.setAnnotationId("Compound " + i);
+      ionAnnotation.setExpectedMz(100.0 + Math.round(random.nextDouble() * 900.0 * 100.0) / 100.0);
+      if (i % 50 != 0)
+        ionAnnotation.setExpectedRetentionTime(random.nextFloat() * 1800f);
+      database.add(ionAnnotation);
+    }
+    return database;
+  }
+
+  private static SimpleFeatureTable createFeatureTable(List<SimpleIonAnnotation> database,
+      int size, Random random) {
+    Sample sample = new SimpleSample("Sample");
+    SimpleFeatureTable featureTable = new SimpleFeatureTable();
+    featureTable.setSamples(Collections.singletonList(sample));
+    for (int i = 0; i < size; i++) {
+      SimpleFeature feature = new SimpleFeature();
+      SimpleIonAnnotation compound = database.get(random.nextInt(database.size()));
+      if ((i % 2 == 0) && (compound.getExpectedRetentionTime() != null)) {
+        feature.setMz(compound.getExpectedMz() * (1.0 + (random.nextDouble() - 0.5) * 4E-6));
+        feature.setRetentionTime(compound.getExpectedRetentionTime() / 60f + 0.05f);
+      } else {
+        feature.setMz(100.0 + random.nextDouble() * 900.0);
+        feature.setRetentionTime(random.nextFloat() * 30f);
+      }
+      SimpleFeatureTableRow row = new SimpleFeatureTableRow(featureTable);
+      row.setFeature(sample, feature);
+      featureTable.addRow(row);
+    }
+    return featureTable;
+  }
+
+  @Test
+  public void testSyntheticDatabase() throws Exception {
+    Random random = new Random(3);
+    List<SimpleIonAnnotation> database = createDatabase(5000, random);
+    SimpleFeatureTable featureTable = createFeatureTable(database, 2000, random);
+    MzTolerance mzTolerance = new ConstantPpmTolerance(5.0);
+    RTTolerance rtTolerance = new RTTolerance(0.2f, false);
+
+    // Compare with all ion annotations of the database, in the order of the database
+    LocalDatabaseSearchMethod method =
+        new LocalDatabaseSearchMethod(featureTable, database, mzTolerance, rtTolerance);
+    Map<FeatureTableRow, List<IonAnnotation>> hits = method.execute();
+    Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+    Assert.assertTrue(hits.size() >= 900);
+    for (FeatureTableRow row : featureTable.getRows()) {
+      Range<Double> mzRange = mzTolerance.getToleranceRange(row.getMz());
+      Range<Float> rtRange = rtTolerance.getToleranceRange(row.getRT());
+      List<IonAnnotation> expected = new ArrayList<>();
+      for (SimpleIonAnnotation ionAnnotation : database) {
+        if ((ionAnnotation.getExpectedRetentionTime() != null)
+            && mzRange.contains(ionAnnotation.getExpectedMz())
+            && rtRange.contains(ionAnnotation.getExpectedRetentionTime() / 60.0f))
+          expected.add(ionAnnotation);
+      }
+      Assert.assertEquals(expected.isEmpty() ? null : expected, hits.get(row));
+
+      // The features are annotated with one of the hits
+      IonAnnotation featureAnnotation = row.getFeature(0).getIonAnnotation();
+      Assert.assertEquals(!expected.isEmpty(), featureAnnotation != null);
+      if (featureAnnotation != null)
+        Assert.assertTrue(expected.contains(featureAnnotation));
+    }
+
+    // The same index gives the same hits with retention time buckets and in parallel
+    IonAnnotationIndex index = new IonAnnotationIndex(database, 0.5f);
+    Assert.assertEquals(database.size() - database.size() / 50, index.size());
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      method = new LocalDatabaseSearchMethod(featureTable, index, mzTolerance, rtTolerance, pool);
+      Assert.assertEquals(hits, method.execute());
+      Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
 }
@@ -0,0 +1,142 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.id.spectrallibrary;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.datamodel.DataPointConsumer;
+import io.github.msdk.datamodel.MsSpectrum;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.util.tolerances.MzTolerance;
+
+/**
+ * <p>
+ * A spectrum of a {@link io.github.msdk.id.spectrallibrary.BinarySpectralLibrary}. The data points
+ * are read directly from the mapped library file on each call, and nothing is cached. Instances
+ * are created by {@link io.github.msdk.id.spectrallibrary.BinarySpectralLibrary#getSpectrum(int)}.
+ * </p>
+ */
+public class BinaryLibrarySpectrum implements MsSpectrum {
+
+  private final @Nonnull ByteBuffer chunk;
+  private final int mzPosition, intensityPosition, numOfDataPoints;
+
+  BinaryLibrarySpectrum(@Nonnull ByteBuffer chunk, int position, int numOfDataPoints) {
+    this.chunk = chunk;
+    this.mzPosition = position;
+    this.intensityPosition = position + numOfDataPoints * 8;
+    this.numOfDataPoints = numOfDataPoints;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public MsSpectrumType getSpectrumType() {
+    return MsSpectrumType.CENTROIDED;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Integer getNumberOfDataPoints() {
+    return numOfDataPoints;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public double[] getMzValues(@Nullable double array[]) {
+    if ((array == null) || (array.length < numOfDataPoints))
+      array = new double[numOfDataPoints];
+    // Absolute reads do not touch the buffer position, so concurrent readers are safe
+    for (int i = 0; i < numOfDataPoints; i++)
+      array[i] = chunk.getDouble(mzPosition + i * 8);
+    return array;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public float[] getIntensityValues(@Nullable float array[]) {
+    if ((array == null) || (array.length < numOfDataPoints))
+      array = new float[numOfDataPoints];
+    for (int i = 0; i < numOfDataPoints; i++)
+      array[i] = chunk.getFloat(intensityPosition + i * 4);
+    return array;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public DoubleBuffer getMzBuffer() {
+    // Each call gets its own view, so the shared chunk position is never modified
+    final ByteBuffer view = chunk.duplicate();
+    view.limit(mzPosition + numOfDataPoints * 8).position(mzPosition);
+    return view.slice().asDoubleBuffer().asReadOnlyBuffer();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public FloatBuffer getIntensityBuffer() {
+    final ByteBuffer view = chunk.duplicate();
+    view.limit(intensityPosition + numOfDataPoints * 4).position(intensityPosition);
+    return view.slice().asFloatBuffer().asReadOnlyBuffer();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void forEachDataPoint(@Nonnull DataPointConsumer consumer) {
+    for (int i = 0; i < numOfDataPoints; i++)
+      consumer.accept(i, chunk.getDouble(mzPosition + i * 8),
+          chunk.getFloat(intensityPosition + i * 4));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Float getTIC() {
+    float tic = 0f;
+    for (int i = 0; i < numOfDataPoints; i++)
+      tic += chunk.getFloat(intensityPosition + i * 4);
+    return tic;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public Range<Double> getMzRange() {
+    if (numOfDataPoints == 0)
+      return null;
+    // The data points are stored in m/z order
+    return Range.closed(chunk.getDouble(mzPosition),
+        chunk.getDouble(mzPosition + (numOfDataPoints - 1) * 8));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public MzTolerance getMzTolerance() {
+    return null;
+  }
+
+}
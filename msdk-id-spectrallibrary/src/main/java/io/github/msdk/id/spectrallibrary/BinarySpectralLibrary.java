@@ -0,0 +1,256 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.id.spectrallibrary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.IonAnnotation;
+import io.github.msdk.datamodel.SimpleIonAnnotation;
+
+/**
+ * <p>
+ * A spectral library stored in the binary format written by
+ * {@link io.github.msdk.id.spectrallibrary.BinarySpectralLibraryExportMethod}. The file is
+ * memory-mapped when opened and nothing else is read, so opening even a very large library is
+ * almost instant. The spectra are returned as {@link io.github.msdk.id.spectrallibrary.BinaryLibrarySpectrum}
+ * views over the mapped file, and the annotations are decoded on request.
+ * </p>
+ *
+ * <p>
+ * The file starts with a header of {@value #HEADER_LENGTH} bytes (magic number, format version,
+ * number of entries, position of the index and length of the longest entry record), followed by
+ * the entry records and the index. Each record holds the m/z values (double) and intensities
+ * (float) of the spectrum sorted by m/z, the expected retention time (float, NaN if unknown) and
+ * the annotation id, description, InChI key, database and spectra reference (UTF-8, preceded by
+ * their length in bytes or -1 for null), padded to a multiple of 8 bytes. The index holds the
+ * precursor m/z values (double) of all entries in ascending order, followed by the positions of
+ * their records (long) and their numbers of data points (int). All values are big-endian.
+ * </p>
+ *
+ * <p>
+ * The library is immutable and can be read by several threads at once.
+ * </p>
+ */
+public class BinarySpectralLibrary {
+
+  /** The file extension of binary spectral libraries. */
+  public static final String FILE_EXTENSION = ".mslib";
+
+  static final long MAGIC = 0x4D53444B534C4942L; // "MSDKSLIB"
+  static final int VERSION = 1;
+  static final int HEADER_LENGTH = 32;
+
+  /* Records start in a mapped chunk of this size, and never cross the end of their mapping */
+  static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+
+  /** The longest record that can be stored, so a chunk and its overlap fit in one mapping. */
+  static final int MAX_RECORD_LENGTH = Integer.MAX_VALUE - DEFAULT_CHUNK_SIZE;
+
+  private final @Nonnull String name;
+  private final int size;
+  private final int chunkSize;
+
+  private final @Nonnull DoubleBuffer precursorMzValues;
+  private final @Nonnull LongBuffer recordPositions;
+  private final @Nonnull IntBuffer dataPointCounts;
+  private final @Nonnull ByteBuffer chunks[];
+
+  /**
+   * <p>
+   * Opens a binary spectral library.
+   * </p>
+   *
+   * @param libraryFile the {@link java.io.File} written by
+   *        {@link io.github.msdk.id.spectrallibrary.BinarySpectralLibraryExportMethod}.
+   * @throws io.github.msdk.MSDKException if the file cannot be read or is not a binary spectral
+   *         library.
+   */
+  public BinarySpectralLibrary(@Nonnull File libraryFile) throws MSDKException {
+    this(libraryFile, DEFAULT_CHUNK_SIZE);
+  }
+
+  BinarySpectralLibrary(@Nonnull File libraryFile, int chunkSize) throws MSDKException {
+    this.name = libraryFile.getName();
+    this.chunkSize = chunkSize;
+
+    // The mappings stay valid after the file is closed
+    try (RandomAccessFile raf = new RandomAccessFile(libraryFile, "r")) {
+      final FileChannel channel = raf.getChannel();
+      final long fileLength = channel.size();
+      if (fileLength < HEADER_LENGTH)
+        throw new MSDKException("Not a binary spectral library: " + libraryFile);
+
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+      raf.readFully(header.array());
+      if (header.getLong(0) != MAGIC)
+        throw new MSDKException("Not a binary spectral library: " + libraryFile);
+      if (header.getInt(8) != VERSION)
+        throw new MSDKException(
+            "Unsupported binary spectral library version " + header.getInt(8) + ": " + libraryFile);
+      size = header.getInt(12);
+      final long indexPosition = header.getLong(16);
+      final int maxRecordLength = header.getInt(24);
+
+      final long indexLength = size * 20L;
+      if ((size < 0) || (indexPosition < HEADER_LENGTH) || (maxRecordLength < 0)
+          || (indexLength > Integer.MAX_VALUE) || (indexPosition + indexLength > fileLength)
+          || (maxRecordLength > MAX_RECORD_LENGTH))
+        throw new MSDKException("Corrupted binary spectral library: " + libraryFile);
+
+      final ByteBuffer index =
+          channel.map(FileChannel.MapMode.READ_ONLY, indexPosition, indexLength);
+      index.limit(size * 8);
+      precursorMzValues = index.slice().asDoubleBuffer();
+      index.limit(size * 16).position(size * 8);
+      recordPositions = index.slice().asLongBuffer();
+      index.limit(size * 20).position(size * 16);
+      dataPointCounts = index.slice().asIntBuffer();
+
+      // Map the records in overlapping chunks, so that each record is inside the chunk where it
+      // starts
+      final int numOfChunks = (int) ((indexPosition + chunkSize - 1) / chunkSize);
+      chunks = new ByteBuffer[numOfChunks];
+      for (int c = 0; c < numOfChunks; c++) {
+        final long start = (long) c * chunkSize;
+        final long length = Math.min((long) chunkSize + maxRecordLength, indexPosition - start);
+        chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+      }
+    } catch (IOException e) {
+      throw new MSDKException(e);
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the file name of the library.
+   * </p>
+   *
+   * @return a {@link java.lang.String} object.
+   */
+  @Nonnull
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * <p>
+   * Returns the number of entries.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * <p>
+   * Returns the precursor m/z of an entry. The entries are sorted by precursor m/z.
+   * </p>
+   *
+   * @param index a int.
+   * @return a double.
+   */
+  public double getPrecursorMz(int index) {
+    return precursorMzValues.get(index);
+  }
+
+  /**
+   * <p>
+   * Returns the position of the first entry whose precursor m/z is not lower than the given m/z,
+   * or {@link #size()} if there is none.
+   * </p>
+   *
+   * @param mz a double.
+   * @return a int.
+   */
+  public int lowerBound(double mz) {
+    int low = 0, high = size;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (precursorMzValues.get(mid) < mz)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  /**
+   * <p>
+   * Returns the spectrum of an entry, as a view over the mapped file.
+   * </p>
+   *
+   * @param index a int.
+   * @return a {@link io.github.msdk.id.spectrallibrary.BinaryLibrarySpectrum} object.
+   */
+  @Nonnull
+  public BinaryLibrarySpectrum getSpectrum(int index) {
+    final long position = recordPositions.get(index);
+    final int chunk = (int) (position / chunkSize);
+    return new BinaryLibrarySpectrum(chunks[chunk], (int) (position - (long) chunk * chunkSize),
+        dataPointCounts.get(index));
+  }
+
+  /**
+   * <p>
+   * Decodes the annotation of an entry. The expected m/z of the annotation is the precursor m/z.
+   * </p>
+   *
+   * @param index a int.
+   * @return a {@link io.github.msdk.datamodel.IonAnnotation} object.
+   */
+  @Nonnull
+  public IonAnnotation getAnnotation(int index) {
+    final long position = recordPositions.get(index);
+    final int chunk = (int) (position / chunkSize);
+    final ByteBuffer record = chunks[chunk].duplicate();
+    record.position((int) (position - (long) chunk * chunkSize) + dataPointCounts.get(index) * 12);
+
+    final SimpleIonAnnotation annotation = new SimpleIonAnnotation();
+    annotation.setExpectedMz(precursorMzValues.get(index));
+    final float rt = record.getFloat();
+    if (!Float.isNaN(rt))
+      annotation.setExpectedRetentionTime(rt);
+    annotation.setAnnotationId(readString(record));
+    annotation.setDescription(readString(record));
+    annotation.setInchiKey(readString(record));
+    annotation.setDatabase(readString(record));
+    annotation.setSpectraRef(readString(record));
+    return annotation;
+  }
+
+  private static @Nullable String readString(@Nonnull ByteBuffer record) {
+    final int length = record.getInt();
+    if (length < 0)
+      return null;
+    final byte bytes[] = new byte[length];
+    record.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,277 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.id.spectrallibrary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.IonAnnotation;
+import io.github.msdk.datamodel.MsSpectrum;
+import io.github.msdk.util.DataPointSorter;
+import io.github.msdk.util.DataPointSorter.SortingDirection;
+import io.github.msdk.util.DataPointSorter.SortingProperty;
+
+/**
+ * <p>
+ * This class writes a spectral library in the binary format read by
+ * {@link io.github.msdk.id.spectrallibrary.BinarySpectralLibrary}. The entries are either converted
+ * from an .mgf or .msp library, annotated as described in
+ * {@link io.github.msdk.id.spectrallibrary.SpectralLibraryImportMethod}, or given as annotations,
+ * whose expected m/z is the precursor m/z, and spectra. Entries without a precursor m/z are
+ * skipped.
+ * </p>
+ *
+ * <p>
+ * The records are written in the order of the entries, one at a time, so only the index is kept in
+ * memory. The index is sorted by precursor m/z and written at the end of the file.
+ * </p>
+ */
+public class BinarySpectralLibraryExportMethod implements MSDKMethod<Void> {
+
+  private final @Nullable File libraryFile;
+  private final @Nullable List<? extends IonAnnotation> annotations;
+  private final @Nullable List<? extends MsSpectrum> spectra;
+  private final @Nonnull File target;
+
+  private volatile boolean canceled = false;
+  private volatile int processedEntries = 0;
+  private boolean finished = false;
+
+  // Index of the written records
+  private int numOfRecords = 0;
+  private double precursorMzValues[] = new double[1024];
+  private long recordPositions[] = new long[1024];
+  private int dataPointCounts[] = new int[1024];
+  private long position;
+  private int maxRecordLength = 0;
+
+  // Buffers reused for sorting the data points of each entry
+  private double mzBuffer[] = new double[1024];
+  private float intensityBuffer[] = new float[1024];
+
+  /**
+   * <p>
+   * Constructor for BinarySpectralLibraryExportMethod, converting an .mgf or .msp library.
+   * </p>
+   *
+   * @param libraryFile the .mgf or .msp {@link java.io.File}.
+   * @param target the binary library {@link java.io.File} to write.
+   */
+  public BinarySpectralLibraryExportMethod(@Nonnull File libraryFile, @Nonnull File target) {
+    Preconditions.checkNotNull(libraryFile);
+    Preconditions.checkNotNull(target);
+    this.libraryFile = libraryFile;
+    this.annotations = null;
+    this.spectra = null;
+    this.target = target;
+  }
+
+  /**
+   * <p>
+   * Constructor for BinarySpectralLibraryExportMethod.
+   * </p>
+   *
+   * @param annotations the {@link io.github.msdk.datamodel.IonAnnotation}s of the entries, with
+   *        the precursor m/z as expected m/z.
+   * @param spectra the {@link io.github.msdk.datamodel.MsSpectrum}s of the entries, in the order
+   *        of the annotations.
+   * @param target the binary library {@link java.io.File} to write.
+   */
+  public BinarySpectralLibraryExportMethod(@Nonnull List<? extends IonAnnotation> annotations,
+      @Nonnull List<? extends MsSpectrum> spectra, @Nonnull File target) {
+    Preconditions.checkArgument(annotations.size() == spectra.size(),
+        "The number of annotations and spectra differ");
+    Preconditions.checkNotNull(target);
+    this.libraryFile = null;
+    this.annotations = annotations;
+    this.spectra = spectra;
+    this.target = target;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Void execute() throws MSDKException {
+
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(target), 1 << 16))) {
+
+      // The header is written when the index position is known
+      out.write(new byte[BinarySpectralLibrary.HEADER_LENGTH]);
+      position = BinarySpectralLibrary.HEADER_LENGTH;
+
+      if (libraryFile != null) {
+        new SpectralLibraryFileReader(libraryFile).read((annotation, spectrum) -> {
+          writeRecord(out, annotation, spectrum);
+          processedEntries++;
+          return !canceled;
+        });
+      } else {
+        for (int i = 0; (i < annotations.size()) && !canceled; i++) {
+          final IonAnnotation annotation = annotations.get(i);
+          if (annotation.getExpectedMz() != null)
+            writeRecord(out, annotation, spectra.get(i));
+          processedEntries++;
+        }
+      }
+
+      if (!canceled)
+        writeIndex(out);
+
+    } catch (IOException e) {
+      target.delete();
+      throw new MSDKException(e);
+    } catch (MSDKException e) {
+      target.delete();
+      throw e;
+    }
+
+    if (canceled) {
+      target.delete();
+      return null;
+    }
+
+    try (RandomAccessFile raf = new RandomAccessFile(target, "rw")) {
+      final ByteBuffer header = ByteBuffer.allocate(BinarySpectralLibrary.HEADER_LENGTH);
+      header.putLong(BinarySpectralLibrary.MAGIC);
+      header.putInt(BinarySpectralLibrary.VERSION);
+      header.putInt(numOfRecords);
+      header.putLong(position);
+      header.putInt(maxRecordLength);
+      raf.write(header.array());
+    } catch (IOException e) {
+      target.delete();
+      throw new MSDKException(e);
+    }
+
+    finished = true;
+    return null;
+  }
+
+  private void writeRecord(@Nonnull DataOutputStream out, @Nonnull IonAnnotation annotation,
+      @Nonnull MsSpectrum spectrum) throws MSDKException {
+
+    // Sort the data points by m/z, so that the spectra can be read without sorting
+    final int size = spectrum.getNumberOfDataPoints();
+    mzBuffer = spectrum.getMzValues(mzBuffer);
+    intensityBuffer = spectrum.getIntensityValues(intensityBuffer);
+    for (int i = 1; i < size; i++) {
+      if (mzBuffer[i - 1] > mzBuffer[i]) {
+        DataPointSorter.sortDataPoints(mzBuffer, intensityBuffer, size, SortingProperty.MZ,
+            SortingDirection.ASCENDING);
+        break;
+      }
+    }
+
+    final Float rt = annotation.getExpectedRetentionTime();
+    final byte strings[][] = {encode(annotation.getAnnotationId()),
+        encode(annotation.getDescription()), encode(annotation.getInchiKey()),
+        encode(annotation.getDatabase()), encode(annotation.getSpectraRef())};
+    long length = size * 12L + 4;
+    for (byte string[] : strings)
+      length += 4 + (string != null ? string.length : 0);
+    final int padding = (int) (-length & 7);
+    length += padding;
+    if (length > BinarySpectralLibrary.MAX_RECORD_LENGTH)
+      throw new MSDKException("Spectrum of " + annotation.getAnnotationId() + " is too large");
+
+    try {
+      for (int i = 0; i < size; i++)
+        out.writeDouble(mzBuffer[i]);
+      for (int i = 0; i < size; i++)
+        out.writeFloat(intensityBuffer[i]);
+      out.writeFloat(rt != null ? rt : Float.NaN);
+      for (byte string[] : strings) {
+        if (string == null) {
+          out.writeInt(-1);
+        } else {
+          out.writeInt(string.length);
+          out.write(string);
+        }
+      }
+      for (int i = 0; i < padding; i++)
+        out.writeByte(0);
+    } catch (IOException e) {
+      throw new MSDKException(e);
+    }
+
+    if (numOfRecords == precursorMzValues.length) {
+      final int newLength = 2 * numOfRecords;
+      precursorMzValues = Arrays.copyOf(precursorMzValues, newLength);
+      recordPositions = Arrays.copyOf(recordPositions, newLength);
+      dataPointCounts = Arrays.copyOf(dataPointCounts, newLength);
+    }
+    precursorMzValues[numOfRecords] = annotation.getExpectedMz();
+    recordPositions[numOfRecords] = position;
+    dataPointCounts[numOfRecords] = size;
+    numOfRecords++;
+    position += length;
+    maxRecordLength = Math.max(maxRecordLength, (int) length);
+  }
+
+  private static @Nullable byte[] encode(@Nullable String string) {
+    return string != null ? string.getBytes(StandardCharsets.UTF_8) : null;
+  }
+
+  private void writeIndex(@Nonnull DataOutputStream out) throws IOException {
+    final int order[] = new int[numOfRecords];
+    DataPointSorter.sortIndices(precursorMzValues, order, numOfRecords, null);
+    for (int i = 0; i < numOfRecords; i++)
+      out.writeDouble(precursorMzValues[order[i]]);
+    for (int i = 0; i < numOfRecords; i++)
+      out.writeLong(recordPositions[order[i]]);
+    for (int i = 0; i < numOfRecords; i++)
+      out.writeInt(dataPointCounts[order[i]]);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public Float getFinishedPercentage() {
+    if (finished)
+      return 1f;
+    if (annotations == null)
+      return 0f;
+    return annotations.isEmpty() ? 0f : (float) processedEntries / annotations.size();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public Void getResult() {
+    return null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void cancel() {
+    canceled = true;
+  }
+
+}
@@ -0,0 +1,329 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.id.spectrallibrary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+import io.github.msdk.datamodel.IonAnnotation;
+import io.github.msdk.datamodel.IsolationInfo;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.MsSpectrum;
+import io.github.msdk.io.mgf.MgfMsSpectrum;
+import io.github.msdk.io.msp.MspSpectrum;
+import io.github.msdk.spectra.similarity.AbstractSpectraComparisonAlgorithm;
+import io.github.msdk.spectra.similarity.PreprocessedSpectrum;
+import io.github.msdk.util.DataPointSorter;
+import io.github.msdk.util.DataPointSorter.SortingDirection;
+
+/**
+ * <p>
+ * An MS/MS spectral library prepared for searching. Each entry is an
+ * {@link io.github.msdk.datamodel.IonAnnotation}, whose expected m/z is the precursor m/z, with
+ * its spectrum preprocessed by the comparison algorithm of the library. The entries are sorted by
+ * precursor m/z, so the candidates of a query are found by binary search. In addition, the m/z
+ * values of the most intense peaks of each spectrum are kept in one flat array, to quickly discard
+ * candidates that share none of their top peaks with the query.
+ * </p>
+ *
+ * <p>
+ * A library is immutable and can be searched by several threads at once. Libraries are usually
+ * loaded by {@link io.github.msdk.id.spectrallibrary.SpectralLibraryImportMethod}.
+ * </p>
+ */
+public class SpectralLibrary {
+
+  /** The default number of most intense peaks compared by the prefilter. */
+  public static final int DEFAULT_TOP_PEAKS = 6;
+
+  private final @Nonnull String name;
+  private final @Nonnull AbstractSpectraComparisonAlgorithm algorithm;
+  private final int numOfTopPeaks;
+
+  /* Entries sorted by precursor m/z */
+  final @Nonnull double precursorMzValues[];
+  final @Nonnull IonAnnotation annotations[];
+  final @Nonnull PreprocessedSpectrum spectra[];
+
+  /* Top peak m/z values in ascending order, topPeakStarts[i] to topPeakStarts[i + 1] for entry i */
+  final @Nonnull double topPeakMzValues[];
+  final @Nonnull int topPeakStarts[];
+
+  /**
+   * <p>
+   * Constructor for SpectralLibrary, with the default number of top peaks.
+   * </p>
+   *
+   * @param name the name of the library.
+   * @param algorithm the {@link io.github.msdk.spectra.similarity.AbstractSpectraComparisonAlgorithm}
+   *        preprocessing and scoring the spectra.
+   * @param annotations the {@link io.github.msdk.datamodel.IonAnnotation}s of the entries, with
+   *        the precursor m/z as expected m/z.
+   * @param spectra the {@link io.github.msdk.datamodel.MsSpectrum}s of the entries, in the order
+   *        of the annotations.
+   */
+  public SpectralLibrary(@Nonnull String name, @Nonnull AbstractSpectraComparisonAlgorithm algorithm,
+      @Nonnull List<? extends IonAnnotation> annotations,
+      @Nonnull List<? extends MsSpectrum> spectra) {
+    this(name, algorithm, annotations, spectra, DEFAULT_TOP_PEAKS);
+  }
+
+  /**
+   * <p>
+   * Constructor for SpectralLibrary. Entries without an expected m/z are skipped.
+   * </p>
+   *
+   * @param name the name of the library.
+   * @param algorithm the {@link io.github.msdk.spectra.similarity.AbstractSpectraComparisonAlgorithm}
+   *        preprocessing and scoring the spectra.
+   * @param annotations the {@link io.github.msdk.datamodel.IonAnnotation}s of the entries, with
+   *        the precursor m/z as expected m/z.
+   * @param spectra the {@link io.github.msdk.datamodel.MsSpectrum}s of the entries, in the order
+   *        of the annotations.
+   * @param numOfTopPeaks the number of most intense peaks of each spectrum kept for the prefilter.
+   */
+  public SpectralLibrary(@Nonnull String name, @Nonnull AbstractSpectraComparisonAlgorithm algorithm,
+      @Nonnull List<? extends IonAnnotation> annotations,
+      @Nonnull List<? extends MsSpectrum> spectra, int numOfTopPeaks) {
+    this(name, algorithm, getAnnotationsWithPrecursor(annotations),
+        preprocess(algorithm, annotations, spectra), numOfTopPeaks);
+  }
+
+  /**
+   * Creates a library from entries whose annotations all have an expected m/z and whose spectra
+   * were preprocessed by the algorithm.
+   */
+  SpectralLibrary(@Nonnull String name, @Nonnull AbstractSpectraComparisonAlgorithm algorithm,
+      @Nonnull IonAnnotation annotations[], @Nonnull PreprocessedSpectrum spectra[],
+      int numOfTopPeaks) {
+    Preconditions.checkNotNull(name);
+    Preconditions.checkNotNull(algorithm);
+    Preconditions.checkArgument(numOfTopPeaks > 0, "The number of top peaks must be positive");
+    this.name = name;
+    this.algorithm = algorithm;
+    this.numOfTopPeaks = numOfTopPeaks;
+
+    // Sort the entries by precursor m/z
+    final int size = annotations.length;
+    final double unsortedMz[] = new double[size];
+    for (int i = 0; i < size; i++)
+      unsortedMz[i] = annotations[i].getExpectedMz();
+    final int order[] = new int[size];
+    DataPointSorter.sortIndices(unsortedMz, order, size, null);
+
+    precursorMzValues = new double[size];
+    this.annotations = new IonAnnotation[size];
+    this.spectra = new PreprocessedSpectrum[size];
+    topPeakStarts = new int[size + 1];
+    double topPeaks[] = new double[size * Math.min(numOfTopPeaks, 16)];
+    for (int i = 0; i < size; i++) {
+      precursorMzValues[i] = unsortedMz[order[i]];
+      this.annotations[i] = annotations[order[i]];
+      this.spectra[i] = spectra[order[i]];
+
+      final double entryTopPeaks[] = getTopPeaks(this.spectra[i], numOfTopPeaks);
+      if (topPeakStarts[i] + entryTopPeaks.length > topPeaks.length)
+        topPeaks = Arrays.copyOf(topPeaks,
+            Math.max(2 * topPeaks.length, topPeakStarts[i] + entryTopPeaks.length));
+      System.arraycopy(entryTopPeaks, 0, topPeaks, topPeakStarts[i], entryTopPeaks.length);
+      topPeakStarts[i + 1] = topPeakStarts[i] + entryTopPeaks.length;
+    }
+    topPeakMzValues = Arrays.copyOf(topPeaks, topPeakStarts[size]);
+  }
+
+  private static @Nonnull IonAnnotation[] getAnnotationsWithPrecursor(
+      @Nonnull List<? extends IonAnnotation> annotations) {
+    return annotations.stream().filter(a -> a.getExpectedMz() != null)
+        .toArray(IonAnnotation[]::new);
+  }
+
+  private static @Nonnull PreprocessedSpectrum[] preprocess(
+      @Nonnull AbstractSpectraComparisonAlgorithm algorithm,
+      @Nonnull List<? extends IonAnnotation> annotations,
+      @Nonnull List<? extends MsSpectrum> spectra) {
+    Preconditions.checkArgument(annotations.size() == spectra.size(),
+        "The number of annotations and spectra differ");
+    final List<PreprocessedSpectrum> preprocessedSpectra = new ArrayList<>(spectra.size());
+    for (int i = 0; i < annotations.size(); i++) {
+      final Double precursorMz = annotations.get(i).getExpectedMz();
+      if (precursorMz == null)
+        continue;
+      final MsSpectrum spectrum = spectra.get(i);
+      preprocessedSpectra.add(algorithm.preprocess(spectrum.getMzValues(),
+          spectrum.getIntensityValues(), spectrum.getNumberOfDataPoints(), precursorMz));
+    }
+    return preprocessedSpectra.toArray(new PreprocessedSpectrum[0]);
+  }
+
+  /**
+   * Returns the m/z values of the most intense peaks of the spectrum, in ascending order.
+   */
+  static @Nonnull double[] getTopPeaks(@Nonnull PreprocessedSpectrum spectrum, int numOfTopPeaks) {
+    final double mzValues[] = spectrum.getMzValues();
+    final double intensityValues[] = spectrum.getIntensityValues();
+    final int size = mzValues.length;
+    if (size <= numOfTopPeaks)
+      return mzValues;
+
+    final float intensities[] = new float[size];
+    for (int i = 0; i < size; i++)
+      intensities[i] = (float) intensityValues[i];
+    final int order[] = new int[size];
+    DataPointSorter.sortIndices(intensities, order, size, SortingDirection.DESCENDING, null);
+    final double topPeaks[] = new double[numOfTopPeaks];
+    for (int i = 0; i < numOfTopPeaks; i++)
+      topPeaks[i] = mzValues[order[i]];
+    Arrays.sort(topPeaks);
+    return topPeaks;
+  }
+
+  /**
+   * <p>
+   * Returns the precursor m/z of a query spectrum. The precursor is taken from the PEPMASS of
+   * {@link io.github.msdk.io.mgf.MgfMsSpectrum}s, the PrecursorMZ property of
+   * {@link io.github.msdk.io.msp.MspSpectrum}s and the first isolation with a precursor m/z of
+   * {@link io.github.msdk.datamodel.MsScan}s.
+   * </p>
+   *
+   * @param spectrum a {@link io.github.msdk.datamodel.MsSpectrum} object.
+   * @return the precursor m/z, or null if unknown.
+   */
+  public static @Nullable Double getPrecursorMz(@Nonnull MsSpectrum spectrum) {
+    if (spectrum instanceof MgfMsSpectrum) {
+      final MgfMsSpectrum mgfSpectrum = (MgfMsSpectrum) spectrum;
+      return mgfSpectrum.hasPrecursorMass() ? mgfSpectrum.getPrecursorMass() : null;
+    }
+    if (spectrum instanceof MspSpectrum) {
+      final String precursorMz = getMspProperty((MspSpectrum) spectrum, "PrecursorMZ");
+      if (precursorMz == null)
+        return null;
+      try {
+        return Double.valueOf(precursorMz.trim());
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    if (spectrum instanceof MsScan) {
+      for (IsolationInfo isolation : ((MsScan) spectrum).getIsolations()) {
+        if (isolation.getPrecursorMz() != null)
+          return isolation.getPrecursorMz();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the value of an MSP property, ignoring the case of the property name.
+   */
+  static @Nullable String getMspProperty(@Nonnull MspSpectrum spectrum,
+      @Nonnull String propertyName) {
+    String value = spectrum.getProperty(propertyName);
+    if (value == null)
+      value = spectrum.getProperty(propertyName.toUpperCase());
+    return value;
+  }
+
+  /**
+   * <p>
+   * Returns the name of the library.
+   * </p>
+   *
+   * @return a {@link java.lang.String} object.
+   */
+  @Nonnull
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * <p>
+   * Returns the algorithm preprocessing and scoring the spectra.
+   * </p>
+   *
+   * @return a {@link io.github.msdk.spectra.similarity.AbstractSpectraComparisonAlgorithm} object.
+   */
+  @Nonnull
+  public AbstractSpectraComparisonAlgorithm getAlgorithm() {
+    return algorithm;
+  }
+
+  /**
+   * <p>
+   * Returns the number of most intense peaks of each spectrum kept for the prefilter.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getNumberOfTopPeaks() {
+    return numOfTopPeaks;
+  }
+
+  /**
+   * <p>
+   * Returns the number of entries.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int size() {
+    return precursorMzValues.length;
+  }
+
+  /**
+   * <p>
+   * Returns the annotation of an entry, in precursor m/z order.
+   * </p>
+   *
+   * @param index a int.
+   * @return a {@link io.github.msdk.datamodel.IonAnnotation} object.
+   */
+  @Nonnull
+  public IonAnnotation getAnnotation(int index) {
+    return annotations[index];
+  }
+
+  /**
+   * <p>
+   * Returns the preprocessed spectrum of an entry, in precursor m/z order.
+   * </p>
+   *
+   * @param index a int.
+   * @return a {@link io.github.msdk.spectra.similarity.PreprocessedSpectrum} object.
+   */
+  @Nonnull
+  public PreprocessedSpectrum getSpectrum(int index) {
+    return spectra[index];
+  }
+
+  /** Returns the position of the first entry whose precursor m/z is not lower than mz. */
+  int lowerBound(double mz) {
+    int low = 0, high = precursorMzValues.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (precursorMzValues[mid] < mz)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+}
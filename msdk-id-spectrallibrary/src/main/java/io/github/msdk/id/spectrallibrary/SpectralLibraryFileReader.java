@@ -0,0 +1,132 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.id.spectrallibrary;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.MsSpectrum;
+import io.github.msdk.datamodel.SimpleIonAnnotation;
+import io.github.msdk.io.mgf.MgfFileImportMethod;
+import io.github.msdk.io.mgf.MgfMsSpectrum;
+import io.github.msdk.io.msp.MspImportAlgorithm;
+import io.github.msdk.io.msp.MspSpectrum;
+import io.github.msdk.util.CloseableIterator;
+
+/**
+ * Reads the entries of an .mgf or .msp spectral library one at a time. Each entry is annotated
+ * with its title (MGF) or name (MSP), its precursor m/z as expected m/z, the file name as database
+ * and its position in the file as spectra reference. Entries without a precursor m/z are skipped.
+ */
+class SpectralLibraryFileReader {
+
+  /** Receives the entries of the library, in file order. */
+  interface EntryConsumer {
+
+    /**
+     * Processes one entry, and returns false to stop reading.
+     */
+    boolean accept(@Nonnull SimpleIonAnnotation annotation, @Nonnull MsSpectrum spectrum)
+        throws MSDKException;
+  }
+
+  private final @Nonnull File libraryFile;
+  private final @Nonnull String fileName;
+  private int numOfEntries = 0;
+
+  SpectralLibraryFileReader(@Nonnull File libraryFile) {
+    this.libraryFile = libraryFile;
+    this.fileName = libraryFile.getName();
+  }
+
+  /**
+   * Passes all entries of the library to the consumer.
+   */
+  void read(@Nonnull EntryConsumer consumer) throws MSDKException {
+    if (fileName.toLowerCase().endsWith(".mgf"))
+      readMgf(consumer);
+    else if (fileName.toLowerCase().endsWith(".msp"))
+      readMsp(consumer);
+    else
+      throw new MSDKException("Unsupported spectral library format: " + libraryFile);
+  }
+
+  private void readMgf(@Nonnull EntryConsumer consumer) throws MSDKException {
+    try (CloseableIterator<MgfMsSpectrum> iterator =
+        new MgfFileImportMethod(libraryFile).openSpectrumIterator()) {
+      while (iterator.hasNext()) {
+        final MgfMsSpectrum spectrum = iterator.next();
+        if (!addEntry(consumer, spectrum.getTitle(), SpectralLibrary.getPrecursorMz(spectrum), null,
+            spectrum))
+          break;
+      }
+    }
+  }
+
+  private void readMsp(@Nonnull EntryConsumer consumer) throws MSDKException {
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(new FileInputStream(libraryFile), Charsets.ISO_8859_1))) {
+
+      // The entries are separated by empty lines
+      final StringBuilder entry = new StringBuilder();
+      String line;
+      while (true) {
+        line = reader.readLine();
+        if ((line == null) || line.trim().isEmpty()) {
+          if (entry.length() > 0) {
+            final MspSpectrum spectrum = MspImportAlgorithm.parseMspFromString(entry.toString());
+            entry.setLength(0);
+            if (!addEntry(consumer, SpectralLibrary.getMspProperty(spectrum, "Name"),
+                SpectralLibrary.getPrecursorMz(spectrum),
+                SpectralLibrary.getMspProperty(spectrum, "InChIKey"), spectrum))
+              break;
+          }
+          if (line == null)
+            break;
+          continue;
+        }
+        entry.append(line).append('\n');
+      }
+    } catch (IOException e) {
+      throw new MSDKException(e);
+    }
+  }
+
+  private boolean addEntry(@Nonnull EntryConsumer consumer, @Nullable String name,
+      @Nullable Double precursorMz, @Nullable String inchiKey, @Nonnull MsSpectrum spectrum)
+      throws MSDKException {
+    final int index = numOfEntries++;
+    if (precursorMz == null)
+      return true;
+    final SimpleIonAnnotation annotation = new SimpleIonAnnotation();
+    annotation.setAnnotationId(name != null ? name : fileName + ":" + index);
+    annotation.setDescription(name);
+    annotation.setExpectedMz(precursorMz);
+    annotation.setInchiKey(inchiKey);
+    annotation.setDatabase(fileName);
+    annotation.setSpectraRef("index=" + index);
+    return consumer.accept(annotation, spectrum);
+  }
+
+}
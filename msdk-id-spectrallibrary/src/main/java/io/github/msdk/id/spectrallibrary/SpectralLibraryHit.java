@@ -0,0 +1,159 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.id.spectrallibrary;
+
+import java.net.URL;
+
+import javax.annotation.Nonnull;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+
+import io.github.msdk.datamodel.IonAnnotation;
+import io.github.msdk.datamodel.IonType;
+
+/**
+ * <p>
+ * A spectral library entry matching a query spectrum. All annotation values are those of the
+ * library entry, and the similarity score of the match is available from {@link #getScore()}.
+ * </p>
+ */
+public class SpectralLibraryHit implements IonAnnotation {
+
+  private final @Nonnull IonAnnotation libraryAnnotation;
+  private final double score;
+
+  /**
+   * <p>
+   * Constructor for SpectralLibraryHit.
+   * </p>
+   *
+   * @param libraryAnnotation the {@link io.github.msdk.datamodel.IonAnnotation} of the library
+   *        entry.
+   * @param score the similarity score of the match.
+   */
+  public SpectralLibraryHit(@Nonnull IonAnnotation libraryAnnotation, double score) {
+    this.libraryAnnotation = libraryAnnotation;
+    this.score = score;
+  }
+
+  /**
+   * <p>
+   * Returns the annotation of the library entry.
+   * </p>
+   *
+   * @return a {@link io.github.msdk.datamodel.IonAnnotation} object.
+   */
+  @Nonnull
+  public IonAnnotation getLibraryAnnotation() {
+    return libraryAnnotation;
+  }
+
+  /**
+   * <p>
+   * Returns the similarity score of the match, between 0 and 1.
+   * </p>
+   *
+   * @return a double.
+   */
+  public double getScore() {
+    return score;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public IAtomContainer getChemicalStructure() {
+    return libraryAnnotation.getChemicalStructure();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public IMolecularFormula getFormula() {
+    return libraryAnnotation.getFormula();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public IonType getIonType() {
+    return libraryAnnotation.getIonType();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Double getExpectedMz() {
+    return libraryAnnotation.getExpectedMz();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getExpectedRetentionTime() {
+    return libraryAnnotation.getExpectedRetentionTime();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getAnnotationId() {
+    return libraryAnnotation.getAnnotationId();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getDescription() {
+    return libraryAnnotation.getDescription();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getIdentificationMethod() {
+    return libraryAnnotation.getIdentificationMethod();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public URL getAccessionURL() {
+    return libraryAnnotation.getAccessionURL();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getInchiKey() {
+    return libraryAnnotation.getInchiKey();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getDatabase() {
+    return libraryAnnotation.getDatabase();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getSpectraRef() {
+    return libraryAnnotation.getSpectraRef();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Integer getReliability() {
+    return libraryAnnotation.getReliability();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return libraryAnnotation.getAnnotationId() + " (" + score + ")";
+  }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.id.spectrallibrary;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.IonAnnotation;
+import io.github.msdk.datamodel.MsSpectrum;
+import io.github.msdk.spectra.similarity.AbstractSpectraComparisonAlgorithm;
+import io.github.msdk.spectra.similarity.PreprocessedSpectrum;
+
+/**
+ * <p>
+ * This class loads an MS/MS spectral library from an .mgf, .msp or binary .mslib file into a
+ * {@link io.github.msdk.id.spectrallibrary.SpectralLibrary}. The spectra are read one at a time,
+ * and entries without a precursor m/z are skipped. Each entry of an .mgf or .msp file is annotated
+ * with its title (MGF) or name (MSP), its precursor m/z as expected m/z, the file name as database
+ * and its position in the file as spectra reference. Binary libraries, written by
+ * {@link io.github.msdk.id.spectrallibrary.BinarySpectralLibraryExportMethod}, keep the
+ * annotations of the converted library.
+ * </p>
+ */
+public class SpectralLibraryImportMethod implements MSDKMethod<SpectralLibrary> {
+
+  private final @Nonnull File libraryFile;
+  private final @Nonnull AbstractSpectraComparisonAlgorithm algorithm;
+  private final int numOfTopPeaks;
+
+  private volatile boolean canceled = false;
+  private boolean finished = false;
+  private SpectralLibrary result;
+
+  private final List<IonAnnotation> annotations = new ArrayList<>();
+  private final List<PreprocessedSpectrum> spectra = new ArrayList<>();
+
+  /**
+   * <p>
+   * Constructor for SpectralLibraryImportMethod.
+   * </p>
+   *
+   * @param libraryFile the .mgf, .msp or .mslib {@link java.io.File}.
+   * @param algorithm the {@link io.github.msdk.spectra.similarity.AbstractSpectraComparisonAlgorithm}
+   *        preprocessing and scoring the spectra.
+   */
+  public SpectralLibraryImportMethod(@Nonnull File libraryFile,
+      @Nonnull AbstractSpectraComparisonAlgorithm algorithm) {
+    this(libraryFile, algorithm, SpectralLibrary.DEFAULT_TOP_PEAKS);
+  }
+
+  /**
+   * <p>
+   * Constructor for SpectralLibraryImportMethod.
+   * </p>
+   *
+   * @param libraryFile the .mgf, .msp or .mslib {@link java.io.File}.
+   * @param algorithm the {@link io.github.msdk.spectra.similarity.AbstractSpectraComparisonAlgorithm}
+   *        preprocessing and scoring the spectra.
+   * @param numOfTopPeaks the number of most intense peaks of each spectrum kept for the prefilter.
+   */
+  public SpectralLibraryImportMethod(@Nonnull File libraryFile,
+      @Nonnull AbstractSpectraComparisonAlgorithm algorithm, int numOfTopPeaks) {
+    this.libraryFile = libraryFile;
+    this.algorithm = algorithm;
+    this.numOfTopPeaks = numOfTopPeaks;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public SpectralLibrary execute() throws MSDKException {
+
+    final String fileName = libraryFile.getName();
+    if (fileName.toLowerCase().endsWith(BinarySpectralLibrary.FILE_EXTENSION))
+      importBinary();
+    else
+      new SpectralLibraryFileReader(libraryFile).read((annotation, spectrum) -> {
+        addEntry(annotation, spectrum);
+        return !canceled;
+      });
+
+    if (canceled)
+      return null;
+
+    result = new SpectralLibrary(fileName, algorithm,
+        annotations.toArray(new IonAnnotation[0]), spectra.toArray(new PreprocessedSpectrum[0]),
+        numOfTopPeaks);
+    annotations.clear();
+    spectra.clear();
+    finished = true;
+    return result;
+  }
+
+  private void importBinary() throws MSDKException {
+    final BinarySpectralLibrary binaryLibrary = new BinarySpectralLibrary(libraryFile);
+    for (int i = 0; (i < binaryLibrary.size()) && !canceled; i++)
+      addEntry(binaryLibrary.getAnnotation(i), binaryLibrary.getSpectrum(i));
+  }
+
+  private void addEntry(@Nonnull IonAnnotation annotation, @Nonnull MsSpectrum spectrum) {
+    annotations.add(annotation);
+
+    // Only the preprocessed spectrum is kept, so large libraries fit in memory
+    spectra.add(algorithm.preprocess(spectrum.getMzValues(), spectrum.getIntensityValues(),
+        spectrum.getNumberOfDataPoints(), annotation.getExpectedMz()));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public Float getFinishedPercentage() {
+    return finished ? 1f : 0f;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public SpectralLibrary getResult() {
+    return result;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void cancel() {
+    canceled = true;
+  }
+
+}
@@ -0,0 +1,261 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.id.spectrallibrary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Range;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.IonAnnotation;
+import io.github.msdk.datamodel.MsSpectrum;
+import io.github.msdk.spectra.similarity.AbstractSpectraComparisonAlgorithm;
+import io.github.msdk.spectra.similarity.PreprocessedSpectrum;
+import io.github.msdk.util.ParallelUtil;
+import io.github.msdk.util.tolerances.MzTolerance;
+
+/**
+ * <p>
+ * This class searches MS/MS spectra against a
+ * {@link io.github.msdk.id.spectrallibrary.SpectralLibrary}. For each query, the library entries
+ * within the precursor m/z tolerance are found by binary search. Candidates sharing fewer than the
+ * minimum number of top peaks with the query are discarded, and the others are scored by the
+ * comparison algorithm of the library. The precursor m/z of the queries is read as described in
+ * {@link io.github.msdk.id.spectrallibrary.SpectralLibrary#getPrecursorMz(MsSpectrum)}; queries
+ * without a precursor have no hits.
+ * </p>
+ *
+ * <p>
+ * The result holds, for each query in the given order, its hits as
+ * {@link io.github.msdk.id.spectrallibrary.SpectralLibraryHit}s sorted by decreasing score. Hits
+ * with the same score keep the precursor m/z order of the library. If a
+ * {@link java.util.concurrent.ForkJoinPool ForkJoinPool} is given, the queries are searched in
+ * parallel on the pool, with the same result.
+ * </p>
+ */
+public class SpectralLibrarySearchMethod implements MSDKMethod<List<List<IonAnnotation>>> {
+
+  private final @Nonnull List<? extends MsSpectrum> queries;
+  private final @Nonnull SpectralLibrary library;
+  private final @Nonnull MzTolerance precursorTolerance;
+  private final int numOfHits, minSharedPeaks;
+  private final @Nullable ForkJoinPool pool;
+
+  private volatile boolean canceled = false;
+  private final AtomicInteger processedQueries = new AtomicInteger();
+  private int totalQueries = 0;
+  private List<List<IonAnnotation>> result;
+
+  /**
+   * <p>
+   * Constructor for SpectralLibrarySearchMethod, which requires candidates to share at least one
+   * top peak with the query.
+   * </p>
+   *
+   * @param queries the query {@link io.github.msdk.datamodel.MsSpectrum}s.
+   * @param library the {@link io.github.msdk.id.spectrallibrary.SpectralLibrary} to search.
+   * @param precursorTolerance the {@link io.github.msdk.util.tolerances.MzTolerance} of the
+   *        precursor m/z.
+   * @param numOfHits the maximum number of hits per query.
+   */
+  public SpectralLibrarySearchMethod(@Nonnull List<? extends MsSpectrum> queries,
+      @Nonnull SpectralLibrary library, @Nonnull MzTolerance precursorTolerance, int numOfHits) {
+    this(queries, library, precursorTolerance, numOfHits, 1, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for SpectralLibrarySearchMethod.
+   * </p>
+   *
+   * @param queries the query {@link io.github.msdk.datamodel.MsSpectrum}s.
+   * @param library the {@link io.github.msdk.id.spectrallibrary.SpectralLibrary} to search.
+   * @param precursorTolerance the {@link io.github.msdk.util.tolerances.MzTolerance} of the
+   *        precursor m/z.
+   * @param numOfHits the maximum number of hits per query.
+   * @param minSharedPeaks the minimum number of top peaks a candidate must share with the query
+   *        to be scored, or 0 to score all candidates.
+   * @param pool the {@link java.util.concurrent.ForkJoinPool ForkJoinPool} searching the queries,
+   *        or null to search them on the calling thread
+   */
+  public SpectralLibrarySearchMethod(@Nonnull List<? extends MsSpectrum> queries,
+      @Nonnull SpectralLibrary library, @Nonnull MzTolerance precursorTolerance, int numOfHits,
+      int minSharedPeaks, @Nullable ForkJoinPool pool) {
+    Preconditions.checkArgument(numOfHits > 0, "The number of hits must be positive");
+    Preconditions.checkArgument(minSharedPeaks >= 0, "The number of shared peaks is negative");
+    this.queries = queries;
+    this.library = library;
+    this.precursorTolerance = precursorTolerance;
+    this.numOfHits = numOfHits;
+    this.minSharedPeaks = minSharedPeaks;
+    this.pool = pool;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<List<IonAnnotation>> execute() throws MSDKException {
+
+    final MsSpectrum querySpectra[] = queries.toArray(new MsSpectrum[0]);
+    totalQueries = querySpectra.length;
+    @SuppressWarnings("unchecked")
+    final List<IonAnnotation> hits[] = new List[querySpectra.length];
+
+    // Search the queries in consecutive chunks, so the result does not depend on the pool
+    final int numOfChunks =
+        (pool == null) ? 1 : Math.min(querySpectra.length, pool.getParallelism() * 4);
+    if (numOfChunks <= 1) {
+      searchQueries(querySpectra, 0, querySpectra.length, hits);
+    } else {
+      ParallelUtil.run(pool, numOfChunks, chunk -> {
+        final int from = (int) ((long) querySpectra.length * chunk / numOfChunks);
+        final int to = (int) ((long) querySpectra.length * (chunk + 1) / numOfChunks);
+        searchQueries(querySpectra, from, to, hits);
+      });
+    }
+
+    if (canceled)
+      return null;
+
+    final List<List<IonAnnotation>> queryHits = new ArrayList<>(hits.length);
+    for (List<IonAnnotation> h : hits)
+      queryHits.add(h);
+    result = Collections.unmodifiableList(queryHits);
+    return result;
+  }
+
+  private void searchQueries(@Nonnull MsSpectrum querySpectra[], int from, int to,
+      @Nonnull List<IonAnnotation> hits[]) {
+    final int hitEntries[] = new int[numOfHits];
+    final double hitScores[] = new double[numOfHits];
+    for (int q = from; q < to; q++) {
+      if (canceled)
+        return;
+      hits[q] = searchQuery(querySpectra[q], hitEntries, hitScores);
+      processedQueries.incrementAndGet();
+    }
+  }
+
+  private @Nonnull List<IonAnnotation> searchQuery(@Nonnull MsSpectrum query,
+      @Nonnull int hitEntries[], @Nonnull double hitScores[]) {
+
+    final Double precursorMz = SpectralLibrary.getPrecursorMz(query);
+    if (precursorMz == null)
+      return Collections.emptyList();
+
+    final AbstractSpectraComparisonAlgorithm algorithm = library.getAlgorithm();
+    final PreprocessedSpectrum querySpectrum = algorithm.preprocess(query.getMzValues(),
+        query.getIntensityValues(), query.getNumberOfDataPoints(), precursorMz);
+
+    // Tolerance ranges of the top peaks of the query
+    final double queryTopPeaks[] =
+        SpectralLibrary.getTopPeaks(querySpectrum, library.getNumberOfTopPeaks());
+    final double lowerTopPeaks[] = new double[queryTopPeaks.length];
+    final double upperTopPeaks[] = new double[queryTopPeaks.length];
+    for (int i = 0; i < queryTopPeaks.length; i++) {
+      final Range<Double> mzRange = algorithm.getMzTolerance().getToleranceRange(queryTopPeaks[i]);
+      lowerTopPeaks[i] = mzRange.lowerEndpoint();
+      upperTopPeaks[i] = mzRange.upperEndpoint();
+    }
+
+    // Keep the best hits sorted by decreasing score, the earlier entry first for equal scores
+    int numOfFound = 0;
+    final Range<Double> precursorRange = precursorTolerance.getToleranceRange(precursorMz);
+    final double upperPrecursorMz = precursorRange.upperEndpoint();
+    for (int entry = library.lowerBound(precursorRange.lowerEndpoint()); (entry < library.size())
+        && (library.precursorMzValues[entry] <= upperPrecursorMz); entry++) {
+
+      if (!precursorRange.contains(library.precursorMzValues[entry]))
+        continue;
+      if ((minSharedPeaks > 0)
+          && (countSharedPeaks(lowerTopPeaks, upperTopPeaks, entry) < minSharedPeaks))
+        continue;
+
+      final double score = algorithm.compare(querySpectrum, library.spectra[entry]);
+      if ((score <= 0.0)
+          || ((numOfFound == numOfHits) && (score <= hitScores[numOfFound - 1])))
+        continue;
+
+      int position = Math.min(numOfFound, numOfHits - 1);
+      while ((position > 0) && (hitScores[position - 1] < score)) {
+        hitScores[position] = hitScores[position - 1];
+        hitEntries[position] = hitEntries[position - 1];
+        position--;
+      }
+      hitScores[position] = score;
+      hitEntries[position] = entry;
+      numOfFound = Math.min(numOfFound + 1, numOfHits);
+    }
+
+    final List<IonAnnotation> queryHits = new ArrayList<>(numOfFound);
+    for (int h = 0; h < numOfFound; h++)
+      queryHits.add(new SpectralLibraryHit(library.annotations[hitEntries[h]], hitScores[h]));
+    return Collections.unmodifiableList(queryHits);
+  }
+
+  /**
+   * Counts the top peaks of the library entry that are within the tolerance of a top peak of the
+   * query, in one merge-join.
+   */
+  private int countSharedPeaks(@Nonnull double lowerTopPeaks[], @Nonnull double upperTopPeaks[],
+      int entry) {
+    final double topPeakMzValues[] = library.topPeakMzValues;
+    final int end = library.topPeakStarts[entry + 1];
+    int shared = 0;
+    int i = 0, j = library.topPeakStarts[entry];
+    while ((i < lowerTopPeaks.length) && (j < end)) {
+      final double mz = topPeakMzValues[j];
+      if (mz < lowerTopPeaks[i]) {
+        j++;
+      } else if (mz > upperTopPeaks[i]) {
+        i++;
+      } else {
+        shared++;
+        i++;
+        j++;
+      }
+    }
+    return shared;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public Float getFinishedPercentage() {
+    return totalQueries == 0 ? null : (float) processedQueries.get() / totalQueries;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public List<List<IonAnnotation>> getResult() {
+    return result;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void cancel() {
+    canceled = true;
+  }
+
+}
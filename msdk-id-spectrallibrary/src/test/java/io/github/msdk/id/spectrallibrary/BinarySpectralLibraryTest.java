@@ -0,0 +1,227 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.id.spectrallibrary;
+
+import java.io.File;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.IonAnnotation;
+import io.github.msdk.datamodel.MsSpectrum;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.SimpleIonAnnotation;
+import io.github.msdk.datamodel.SimpleMsSpectrum;
+import io.github.msdk.spectra.similarity.CosineSimilarity;
+import io.github.msdk.util.tolerances.ConstantDaTolerance;
+import io.github.msdk.util.tolerances.MzTolerance;
+
+public class BinarySpectralLibraryTest {
+
+  private static final String TEST_DATA_PATH = "src/test/resources/";
+
+  @Rule
+  public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private final List<SimpleIonAnnotation> annotations = new ArrayList<>();
+  private final List<SimpleMsSpectrum> spectra = new ArrayList<>();
+
+  private void createEntries(int numOfEntries) {
+    Random random = new Random(7);
+    for (int i = 0; i < numOfEntries; i++) {
+      SimpleIonAnnotation annotation = new SimpleIonAnnotation();
+      annotation.setAnnotationId("Entry é " + i);
+      if (i % 3 == 0)
+        annotation.setInchiKey("KEY" + i);
+      if (i % 5 == 0)
+        annotation.setExpectedRetentionTime(i * 0.5f);
+      annotation.setDatabase("test");
+      if (i % 11 != 10)
+        annotation.setExpectedMz(100.0 + random.nextInt(500) + random.nextDouble());
+      annotations.add(annotation);
+
+      int size = i % 17;
+      double mzValues[] = new double[size];
+      float intensityValues[] = new float[size];
+      for (int p = 0; p < size; p++) {
+        mzValues[p] = 50.0 + p * 3.5 + random.nextDouble();
+        intensityValues[p] = random.nextFloat() * 100f;
+      }
+      spectra.add(new SimpleMsSpectrum(mzValues, intensityValues, size, MsSpectrumType.CENTROIDED));
+    }
+  }
+
+  private static void checkEntries(BinarySpectralLibrary library,
+      List<SimpleIonAnnotation> annotations, List<SimpleMsSpectrum> spectra) {
+    int expectedSize = 0;
+    for (IonAnnotation annotation : annotations)
+      if (annotation.getExpectedMz() != null)
+        expectedSize++;
+    Assert.assertEquals(expectedSize, library.size());
+
+    for (int i = 0; i < library.size(); i++) {
+      if (i > 0)
+        Assert.assertTrue(library.getPrecursorMz(i - 1) <= library.getPrecursorMz(i));
+      IonAnnotation annotation = library.getAnnotation(i);
+      Assert.assertEquals(library.getPrecursorMz(i), annotation.getExpectedMz(), 0.0);
+      String id = annotation.getAnnotationId();
+      int entry = Integer.parseInt(id.substring(id.lastIndexOf(' ') + 1));
+      IonAnnotation expected = annotations.get(entry);
+      Assert.assertEquals(expected.getExpectedMz(), annotation.getExpectedMz());
+      Assert.assertEquals(expected.getAnnotationId(), annotation.getAnnotationId());
+      Assert.assertEquals(expected.getInchiKey(), annotation.getInchiKey());
+      Assert.assertEquals(expected.getExpectedRetentionTime(),
+          annotation.getExpectedRetentionTime());
+      Assert.assertEquals(expected.getDatabase(), annotation.getDatabase());
+      Assert.assertNull(annotation.getDescription());
+
+      MsSpectrum expectedSpectrum = spectra.get(entry);
+      MsSpectrum spectrum = library.getSpectrum(i);
+      Assert.assertEquals(expectedSpectrum.getNumberOfDataPoints(),
+          spectrum.getNumberOfDataPoints());
+      Assert.assertArrayEquals(expectedSpectrum.getMzValues(), spectrum.getMzValues(), 0.0);
+      Assert.assertArrayEquals(expectedSpectrum.getIntensityValues(),
+          spectrum.getIntensityValues(), 0f);
+      Assert.assertEquals(expectedSpectrum.getMzBuffer(), spectrum.getMzBuffer());
+      Assert.assertEquals(expectedSpectrum.getIntensityBuffer(), spectrum.getIntensityBuffer());
+      Assert.assertEquals(expectedSpectrum.getMzRange(), spectrum.getMzRange());
+      Assert.assertEquals(expectedSpectrum.getTIC(), spectrum.getTIC(), 0.001);
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    createEntries(500);
+    File target = tmpFolder.newFile("test" + BinarySpectralLibrary.FILE_EXTENSION);
+    BinarySpectralLibraryExportMethod method =
+        new BinarySpectralLibraryExportMethod(annotations, spectra, target);
+    method.execute();
+    Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+
+    BinarySpectralLibrary library = new BinarySpectralLibrary(target);
+    Assert.assertEquals(target.getName(), library.getName());
+    checkEntries(library, annotations, spectra);
+
+    // Lookup by precursor m/z
+    Assert.assertEquals(0, library.lowerBound(0.0));
+    Assert.assertEquals(library.size(), library.lowerBound(1000.0));
+    int position = library.lowerBound(300.0);
+    Assert.assertTrue(library.getPrecursorMz(position) >= 300.0);
+    Assert.assertTrue(library.getPrecursorMz(position - 1) < 300.0);
+
+    // Records split over many small chunks
+    checkEntries(new BinarySpectralLibrary(target, 256), annotations, spectra);
+  }
+
+  @Test
+  public void testUnsortedSpectrum() throws Exception {
+    SimpleIonAnnotation annotation = new SimpleIonAnnotation();
+    annotation.setAnnotationId("Unsorted");
+    annotation.setExpectedMz(250.0);
+    MsSpectrum spectrum = new MsSpectrum() {
+      @Override
+      public MsSpectrumType getSpectrumType() {
+        return MsSpectrumType.CENTROIDED;
+      }
+
+      @Override
+      public Integer getNumberOfDataPoints() {
+        return 3;
+      }
+
+      @Override
+      public double[] getMzValues(double[] array) {
+        return new double[] {120.0, 80.0, 100.0};
+      }
+
+      @Override
+      public float[] getIntensityValues(float[] array) {
+        return new float[] {1f, 2f, 3f};
+      }
+
+      @Override
+      public Float getTIC() {
+        return 6f;
+      }
+
+      @Override
+      public Range<Double> getMzRange() {
+        return Range.closed(80.0, 120.0);
+      }
+
+      @Override
+      public MzTolerance getMzTolerance() {
+        return null;
+      }
+    };
+    File target = tmpFolder.newFile("unsorted" + BinarySpectralLibrary.FILE_EXTENSION);
+    List<IonAnnotation> unsortedAnnotations = new ArrayList<>();
+    unsortedAnnotations.add(annotation);
+    List<MsSpectrum> unsortedSpectra = new ArrayList<>();
+    unsortedSpectra.add(spectrum);
+    new BinarySpectralLibraryExportMethod(unsortedAnnotations, unsortedSpectra, target).execute();
+
+    BinaryLibrarySpectrum stored = new BinarySpectralLibrary(target).getSpectrum(0);
+    Assert.assertArrayEquals(new double[] {80.0, 100.0, 120.0}, stored.getMzValues(), 0.0);
+    Assert.assertArrayEquals(new float[] {2f, 3f, 1f}, stored.getIntensityValues(), 0f);
+    DoubleBuffer mzBuffer = stored.getMzBuffer();
+    Assert.assertTrue(mzBuffer.isReadOnly());
+    Assert.assertEquals(3, mzBuffer.limit());
+    Assert.assertEquals(Range.closed(80.0, 120.0), stored.getMzRange());
+  }
+
+  @Test
+  public void testConvertMsp() throws MSDKException {
+    File inputFile = new File(TEST_DATA_PATH + "library.msp");
+    File target = new File(tmpFolder.getRoot(), "library" + BinarySpectralLibrary.FILE_EXTENSION);
+    new BinarySpectralLibraryExportMethod(inputFile, target).execute();
+
+    // Loading the converted library gives the same entries as loading the MSP file
+    CosineSimilarity cosine = new CosineSimilarity(new ConstantDaTolerance(0.01));
+    SpectralLibrary mspLibrary = new SpectralLibraryImportMethod(inputFile, cosine).execute();
+    SpectralLibrary binaryLibrary = new SpectralLibraryImportMethod(target, cosine).execute();
+    Assert.assertEquals(2, binaryLibrary.size());
+    Assert.assertEquals(mspLibrary.size(), binaryLibrary.size());
+    for (int i = 0; i < mspLibrary.size(); i++) {
+      IonAnnotation expected = mspLibrary.getAnnotation(i);
+      IonAnnotation annotation = binaryLibrary.getAnnotation(i);
+      Assert.assertEquals(expected.getAnnotationId(), annotation.getAnnotationId());
+      Assert.assertEquals(expected.getDescription(), annotation.getDescription());
+      Assert.assertEquals(expected.getExpectedMz(), annotation.getExpectedMz());
+      Assert.assertEquals(expected.getInchiKey(), annotation.getInchiKey());
+      Assert.assertEquals(expected.getDatabase(), annotation.getDatabase());
+      Assert.assertEquals(expected.getSpectraRef(), annotation.getSpectraRef());
+      Assert.assertArrayEquals(mspLibrary.getSpectrum(i).getMzValues(),
+          binaryLibrary.getSpectrum(i).getMzValues(), 0.0);
+      Assert.assertArrayEquals(mspLibrary.getSpectrum(i).getIntensityValues(),
+          binaryLibrary.getSpectrum(i).getIntensityValues(), 0.0);
+    }
+  }
+
+  @Test(expected = MSDKException.class)
+  public void testNotABinaryLibrary() throws MSDKException {
+    new BinarySpectralLibrary(new File(TEST_DATA_PATH + "library.mgf"));
+  }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.id.spectrallibrary;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.IonAnnotation;
+import io.github.msdk.spectra.similarity.CosineSimilarity;
+import io.github.msdk.util.tolerances.ConstantDaTolerance;
+
+public class SpectralLibraryImportMethodTest {
+
+  private static final String TEST_DATA_PATH = "src/test/resources/";
+
+  @Test
+  public void testMsp() throws MSDKException {
+    File inputFile = new File(TEST_DATA_PATH + "library.msp");
+    Assert.assertTrue(inputFile.canRead());
+    CosineSimilarity cosine = new CosineSimilarity(new ConstantDaTolerance(0.01));
+    SpectralLibraryImportMethod method = new SpectralLibraryImportMethod(inputFile, cosine);
+    SpectralLibrary library = method.execute();
+    Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+    Assert.assertSame(library, method.getResult());
+    Assert.assertEquals("library.msp", library.getName());
+    Assert.assertSame(cosine, library.getAlgorithm());
+
+    // The entry without precursor is skipped
+    Assert.assertEquals(2, library.size());
+    IonAnnotation annotation = library.getAnnotation(0);
+    Assert.assertEquals("Compound A", annotation.getAnnotationId());
+    Assert.assertEquals(200.1, annotation.getExpectedMz(), 0.0);
+    Assert.assertEquals("AAAAAAAAAAAAAA-UHFFFAOYSA-N", annotation.getInchiKey());
+    Assert.assertEquals("library.msp", annotation.getDatabase());
+    Assert.assertEquals("index=0", annotation.getSpectraRef());
+    Assert.assertEquals(3, library.getSpectrum(0).getSize());
+    Assert.assertEquals("Compound B", library.getAnnotation(1).getAnnotationId());
+    Assert.assertArrayEquals(new double[] {120.0, 250.0}, library.getSpectrum(1).getMzValues(),
+        0.0);
+  }
+
+  @Test
+  public void testMgf() throws MSDKException {
+    File inputFile = new File(TEST_DATA_PATH + "library.mgf");
+    Assert.assertTrue(inputFile.canRead());
+    SpectralLibrary library = new SpectralLibraryImportMethod(inputFile,
+        new CosineSimilarity(new ConstantDaTolerance(0.01))).execute();
+
+    // Sorted by precursor m/z
+    Assert.assertEquals(2, library.size());
+    Assert.assertEquals("Compound D", library.getAnnotation(0).getAnnotationId());
+    Assert.assertEquals(Double.valueOf(180.05), library.getSpectrum(0).getPrecursorMz());
+    Assert.assertEquals("Compound C", library.getAnnotation(1).getAnnotationId());
+    Assert.assertEquals("index=0", library.getAnnotation(1).getSpectraRef());
+  }
+
+  @Test(expected = MSDKException.class)
+  public void testUnsupportedFormat() throws MSDKException {
+    new SpectralLibraryImportMethod(new File(TEST_DATA_PATH + "library.txt"),
+        new CosineSimilarity(new ConstantDaTolerance(0.01))).execute();
+  }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.id.spectrallibrary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.IonAnnotation;
+import io.github.msdk.datamodel.MsSpectrum;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.SimpleIonAnnotation;
+import io.github.msdk.datamodel.SimpleIsolationInfo;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleMsSpectrum;
+import io.github.msdk.spectra.similarity.CosineSimilarity;
+import io.github.msdk.spectra.similarity.PreprocessedSpectrum;
+import io.github.msdk.util.tolerances.ConstantDaTolerance;
+import io.github.msdk.util.tolerances.MzTolerance;
+
+public class SpectralLibrarySearchMethodTest {
+
+  private static final int LIBRARY_SIZE = 3000;
+
+  private final Random random = new Random(13);
+  private final List<SimpleIonAnnotation> annotations = new ArrayList<>();
+  private final List<SimpleMsSpectrum> spectra = new ArrayList<>();
+
+  private void createLibrary() {
+    for (int i = 0; i < LIBRARY_SIZE; i++) {
+      double precursorMz = 200.0 + Math.round(random.nextDouble() * 100.0 * 100.0) / 100.0;
+      int size = 5 + random.nextInt(30);
+      double mzValues[] = new double[size];
+      float intensityValues[] = new float[size];
+      for (int p = 0; p < size; p++) {
+        mzValues[p] = 50.0 + Math.round(random.nextDouble() * 140.0 * 10.0) / 10.0;
+        intensityValues[p] = random.nextFloat() * 1000f;
+      }
+      Arrays.sort(mzValues);
+      SimpleIonAnnotation annotation = new SimpleIonAnnotation();
+      annotation.setAnnotationId("Entry " + i);
+      annotation.setExpectedMz(precursorMz);
+      annotations.add(annotation);
+      spectra.add(new SimpleMsSpectrum(mzValues, intensityValues, size, MsSpectrumType.CENTROIDED));
+    }
+  }
+
+  /** A scan of a library entry with noisy intensities and one extra peak. */
+  private SimpleMsScan createQuery(int entry) {
+    MsSpectrum spectrum = spectra.get(entry);
+    int size = spectrum.getNumberOfDataPoints();
+    double mzValues[] = new double[size + 1];
+    float intensityValues[] = new float[size + 1];
+    System.arraycopy(spectrum.getMzValues(), 0, mzValues, 0, size);
+    float libraryIntensities[] = spectrum.getIntensityValues();
+    for (int p = 0; p < size; p++)
+      intensityValues[p] = libraryIntensities[p] * (0.8f + 0.4f * random.nextFloat());
+    mzValues[size] = 199.95;
+    intensityValues[size] = 50f;
+
+    double precursorMz = annotations.get(entry).getExpectedMz() + 0.002;
+    SimpleMsScan scan = new SimpleMsScan(entry);
+    scan.setDataPoints(mzValues, intensityValues, size + 1);
+    scan.getIsolations().add(new SimpleIsolationInfo(
+        Range.closed(precursorMz - 0.5, precursorMz + 0.5), null, precursorMz, 1, null, null));
+    return scan;
+  }
+
+  @Test
+  public void testSearch() throws MSDKException {
+    createLibrary();
+    CosineSimilarity cosine = new CosineSimilarity(new ConstantDaTolerance(0.01), 20);
+    SpectralLibrary library = new SpectralLibrary("test", cosine, annotations, spectra);
+    Assert.assertEquals(LIBRARY_SIZE, library.size());
+
+    List<MsSpectrum> queries = new ArrayList<>();
+    for (int q = 0; q < 200; q++)
+      queries.add(createQuery(random.nextInt(LIBRARY_SIZE)));
+    queries.add(new SimpleMsSpectrum(new double[] {100.0}, new float[] {1f}, 1,
+        MsSpectrumType.CENTROIDED));
+
+    // All candidates within the precursor tolerance are scored
+    MzTolerance precursorTolerance = new ConstantDaTolerance(0.5);
+    SpectralLibrarySearchMethod method =
+        new SpectralLibrarySearchMethod(queries, library, precursorTolerance, 5, 0, null);
+    List<List<IonAnnotation>> hits = method.execute();
+    Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+    Assert.assertEquals(queries.size(), hits.size());
+    Assert.assertTrue(hits.get(queries.size() - 1).isEmpty());
+
+    for (int q = 0; q < queries.size() - 1; q++) {
+      SimpleMsScan query = (SimpleMsScan) queries.get(q);
+      List<IonAnnotation> queryHits = hits.get(q);
+      Assert.assertEquals("Entry " + query.getScanNumber(),
+          queryHits.get(0).getAnnotationId());
+
+      // Compare with the scores of all library entries, in precursor m/z order
+      double precursorMz = query.getIsolations().get(0).getPrecursorMz();
+      PreprocessedSpectrum querySpectrum = cosine.preprocess(query.getMzValues(),
+          query.getIntensityValues(), query.getNumberOfDataPoints(), precursorMz);
+      List<Double> expectedScores = new ArrayList<>();
+      for (int entry = 0; entry < library.size(); entry++) {
+        double libraryMz = library.getAnnotation(entry).getExpectedMz();
+        if (Math.abs(libraryMz - precursorMz) > 0.5)
+          continue;
+        double score = cosine.compare(querySpectrum, library.getSpectrum(entry));
+        if (score > 0.0)
+          expectedScores.add(score);
+      }
+      Collections.sort(expectedScores, Collections.reverseOrder());
+      Assert.assertEquals(Math.min(5, expectedScores.size()), queryHits.size());
+      for (int h = 0; h < queryHits.size(); h++)
+        Assert.assertEquals(expectedScores.get(h),
+            ((SpectralLibraryHit) queryHits.get(h)).getScore(), 0.0);
+    }
+
+    // The prefilter keeps the true entries, and the pool does not change the result
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      List<List<IonAnnotation>> serialHits =
+          new SpectralLibrarySearchMethod(queries, library, precursorTolerance, 5).execute();
+      List<List<IonAnnotation>> parallelHits =
+          new SpectralLibrarySearchMethod(queries, library, precursorTolerance, 5, 1, pool)
+              .execute();
+      Assert.assertEquals(serialHits.size(), parallelHits.size());
+      for (int q = 0; q < serialHits.size(); q++) {
+        Assert.assertEquals(serialHits.get(q).size(), parallelHits.get(q).size());
+        for (int h = 0; h < serialHits.get(q).size(); h++) {
+          SpectralLibraryHit serialHit = (SpectralLibraryHit) serialHits.get(q).get(h);
+          SpectralLibraryHit parallelHit = (SpectralLibraryHit) parallelHits.get(q).get(h);
+          Assert.assertSame(serialHit.getLibraryAnnotation(), parallelHit.getLibraryAnnotation());
+          Assert.assertEquals(serialHit.getScore(), parallelHit.getScore(), 0.0);
+        }
+        if (q < queries.size() - 1)
+          Assert.assertEquals(hits.get(q).get(0).getAnnotationId(),
+              serialHits.get(q).get(0).getAnnotationId());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+}
@@ -28,11 +28,15 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.AbstractIterator;
+
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
+import io.github.msdk.MSDKRuntimeException;
 import io.github.msdk.datamodel.MsSpectrumType;
 import io.github.msdk.spectra.centroidprofiledetection.SpectrumTypeDetectionAlgorithm;
 import io.github.msdk.util.ArrayUtil;
+import io.github.msdk.util.CloseableIterator;
 import io.github.msdk.util.DataPointSorter;
 import io.github.msdk.util.DataPointSorter.SortingDirection;
 import io.github.msdk.util.DataPointSorter.SortingProperty;
@@ -92,6 +96,29 @@ public class MgfFileImportMethod implements MSDKMethod<List<MgfMsSpectrum>> {
     return spectra;
   }
 
+  /**
+   * <p>
+   * Opens a streaming reader over the spectra of the .mgf file. Each spectrum is parsed only when
+   * the iterator advances, so arbitrarily large libraries can be processed without holding all
+   * spectra in memory. The iterator returns the same spectra, in the same order, as
+   * {@link #execute()}, and does not modify the result of this method.
+   * </p>
+   *
+   * @return a {@link io.github.msdk.util.CloseableIterator} over the spectra
+   * @throws MSDKException if the file cannot be opened
+   */
+  public CloseableIterator<MgfMsSpectrum> openSpectrumIterator() throws MSDKException {
+    logger.info("Started streaming MGF spectra from {}", target);
+    final BufferedReader reader;
+    try {
+      reader = new BufferedReader(new FileReader(target));
+    } catch (IOException e) {
+      throw new MSDKException(e);
+    }
+
+    return new SpectrumIterator(reader);
+  }
+
   /**
    * <p>
    * Method for processing .mgf files from BEGIN IONS till END IONS
@@ -250,4 +277,49 @@ public class MgfFileImportMethod implements MSDKMethod<List<MgfMsSpectrum>> {
   public MgfFileImportMethod(File target) {
     this.target = target;
   }
+
+  /**
+   * Reads the spectra between each BEGIN IONS and END IONS pair on demand.
+   */
+  private class SpectrumIterator extends AbstractIterator<MgfMsSpectrum>
+      implements CloseableIterator<MgfMsSpectrum> {
+
+    private final BufferedReader reader;
+    private boolean closed = false;
+
+    SpectrumIterator(BufferedReader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    protected MgfMsSpectrum computeNext() {
+      try {
+        String line;
+        while (!closed && !cancelled && (line = reader.readLine()) != null) {
+          if (line.equals("BEGIN IONS")) {
+            MgfMsSpectrum spectrum = processSpectrum(reader);
+            if (spectrum != null)
+              return spectrum;
+          }
+        }
+      } catch (IOException | MSDKException e) {
+        close();
+        throw new MSDKRuntimeException(e);
+      }
+      close();
+      return endOfData();
+    }
+
+    @Override
+    public void close() {
+      if (closed)
+        return;
+      closed = true;
+      try {
+        reader.close();
+      } catch (IOException e) {
+        throw new MSDKRuntimeException(e);
+      }
+    }
+  }
 }
@@ -64,10 +64,18 @@ public class MgfMsSpectrum extends AbstractMsSpectrum {
 
   /**
    * <p> Getter of the precursor ion mass </p>
-   * @return the mass of the precursor ion
+   * @return the mass of the precursor ion, or NaN if the spectrum has no PEPMASS
    */
   public double getPrecursorMass() {
-    return precursorMass;
+    return precursorMass == null ? Double.NaN : precursorMass;
+  }
+
+  /**
+   * <p> Checks whether the precursor ion mass is specified </p>
+   * @return true if the spectrum has a PEPMASS
+   */
+  public boolean hasPrecursorMass() {
+    return precursorMass != null;
   }
 
   /**
@@ -14,6 +14,8 @@
 package io.github.msdk.io.mgf;
 
 import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.util.CloseableIterator;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
@@ -65,6 +67,21 @@ public class MgfFileImportMethodTest {
     Assert.assertArrayEquals(expectedCharges, charges);
   }
 
+  @Test
+  public void precursorMassTest() throws MSDKException {
+    File inputFile = getResourcePath("test_query.mgf").toFile();
+    List<MgfMsSpectrum> spectrums = new MgfFileImportMethod(inputFile).execute();
+    Assert.assertTrue(spectrums.get(0).hasPrecursorMass());
+    Assert.assertEquals(1019.0322875976562, spectrums.get(0).getPrecursorMass(), 0.0);
+    Assert.assertEquals(3315.2231, spectrums.get(1).getPrecursorMass(), 0.0);
+
+    // A spectrum without PEPMASS
+    MgfMsSpectrum spectrum = new MgfMsSpectrum(new double[0], new float[0], 0,
+        MsSpectrumType.CENTROIDED);
+    Assert.assertFalse(spectrum.hasPrecursorMass());
+    Assert.assertTrue(Double.isNaN(spectrum.getPrecursorMass()));
+  }
+
   @Test
   public void multipleMgfImportTest() throws IOException, MSDKException {
     final int expectedSize = 10;
@@ -108,6 +125,33 @@ public class MgfFileImportMethodTest {
     Assert.assertArrayEquals(expectedCharges, charges);
   }
 
+  @Test
+  public void spectrumIteratorTest() throws MSDKException {
+    File inputFile = getResourcePath("F001257.mgf").toFile();
+    List<MgfMsSpectrum> expected = new MgfFileImportMethod(inputFile).execute();
+
+    MgfFileImportMethod importMethod = new MgfFileImportMethod(inputFile);
+    int count = 0;
+    try (CloseableIterator<MgfMsSpectrum> iterator = importMethod.openSpectrumIterator()) {
+      while (iterator.hasNext()) {
+        MgfMsSpectrum expectedSpectrum = expected.get(count++);
+        MgfMsSpectrum spectrum = iterator.next();
+        Assert.assertEquals(expectedSpectrum.getTitle(), spectrum.getTitle());
+        Assert.assertEquals(expectedSpectrum.getPrecursorCharge(), spectrum.getPrecursorCharge());
+        Assert.assertArrayEquals(expectedSpectrum.getMzValues(), spectrum.getMzValues(), 0.0);
+        Assert.assertArrayEquals(expectedSpectrum.getIntensityValues(),
+            spectrum.getIntensityValues(), 0f);
+      }
+    }
+    Assert.assertEquals(expected.size(), count);
+    Assert.assertNull(importMethod.getResult());
+
+    // Stream the titles of the first spectra only
+    try (CloseableIterator<MgfMsSpectrum> iterator = importMethod.openSpectrumIterator()) {
+      Assert.assertEquals(3, iterator.stream().limit(3).map(MgfMsSpectrum::getTitle).count());
+    }
+  }
+
   @Test
   public void levelsTest() throws MSDKException {
     final String fname = "levels.mgf";
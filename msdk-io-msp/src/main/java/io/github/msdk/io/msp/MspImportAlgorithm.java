@@ -40,7 +40,7 @@ import io.github.msdk.util.DataPointSorter.SortingProperty;
  */
 public class MspImportAlgorithm {
 
-  private static final Pattern propertyPattern = Pattern.compile("^([A-Z]+): (.+)");
+  private static final Pattern propertyPattern = Pattern.compile("^([A-Za-z][A-Za-z#]*): (.+)");
 
   private static final Pattern numPeaksPattern = Pattern.compile("^Num Peaks: (\\d+)");
 
@@ -27,8 +27,11 @@ import org.slf4j.LoggerFactory;
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
 import io.github.msdk.datamodel.FileType;
+import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.util.CloseableIterator;
+import io.github.msdk.util.ProducerIterator;
 
 /**
  * This class reads mzData files. Note: we don't use the jmzreader library, because it completely
@@ -84,6 +87,36 @@ public class MzDataFileImportMethod implements MSDKMethod<RawDataFile> {
 
   }
 
+  /**
+   * <p>
+   * Opens a streaming reader over the scans of the file. The file is parsed on a background
+   * thread, which stays at most a few scans ahead of the consumer, and the scans already returned
+   * are not referenced by the iterator nor by their raw data file. The iterator returns the same
+   * scans, in the same order, as {@link #execute()}, and must be closed after use.
+   * </p>
+   *
+   * @return a {@link io.github.msdk.util.CloseableIterator} over the scans
+   * @throws io.github.msdk.MSDKException if the parser cannot be created
+   */
+  public CloseableIterator<MsScan> openScanIterator() throws MSDKException {
+
+    logger.info("Started streaming file " + sourceFile);
+
+    String fileName = sourceFile.getName();
+    newRawFile = new SimpleRawDataFile(fileName, Optional.of(sourceFile), FileType.MZDATA);
+
+    try {
+      final SAXParser saxParser = SAXParserFactory.newInstance().newSAXParser();
+      return new ProducerIterator<MsScan>("mzData reader " + fileName, sink -> {
+        saxHandler = new MzDataSaxHandler(newRawFile, sink);
+        saxParser.parse(sourceFile, saxHandler);
+      });
+    } catch (Exception e) {
+      throw new MSDKException(e);
+    }
+
+  }
+
   /** {@inheritDoc} */
   @Override
   public Float getFinishedPercentage() {
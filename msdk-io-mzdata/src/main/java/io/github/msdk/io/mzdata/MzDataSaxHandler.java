@@ -16,6 +16,7 @@ package io.github.msdk.io.mzdata;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Base64;
+import java.util.function.Consumer;
 
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -24,6 +25,7 @@ import org.xml.sax.helpers.DefaultHandler;
 import com.google.common.collect.Range;
 
 import io.github.msdk.datamodel.IsolationInfo;
+import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.MsSpectrumType;
 import io.github.msdk.datamodel.PolarityType;
 import io.github.msdk.datamodel.SimpleIsolationInfo;
@@ -34,6 +36,7 @@ import io.github.msdk.spectra.centroidprofiledetection.SpectrumTypeDetectionAlgo
 class MzDataSaxHandler extends DefaultHandler {
 
   private SimpleRawDataFile newRawFile;
+  private final Consumer<MsScan> scanConsumer;
 
   private boolean canceled = false;
   private long totalScans = 0, parsedScans;
@@ -64,7 +67,22 @@ class MzDataSaxHandler extends DefaultHandler {
    * @param newRawFile a {@link io.github.msdk.datamodel.RawDataFile} object.
    */
   public MzDataSaxHandler(SimpleRawDataFile newRawFile) {
+    this(newRawFile, newRawFile::addScan);
+  }
+
+  /**
+   * <p>
+   * Constructor for MzDataSaxHandler, passing each parsed scan to the given consumer instead of
+   * adding it to the raw data file.
+   * </p>
+   *
+   * @param newRawFile a {@link io.github.msdk.datamodel.RawDataFile} object the scans belong to.
+   * @param scanConsumer a {@link java.util.function.Consumer} receiving the parsed scans in file
+   *        order.
+   */
+  public MzDataSaxHandler(SimpleRawDataFile newRawFile, Consumer<MsScan> scanConsumer) {
     this.newRawFile = newRawFile;
+    this.scanConsumer = scanConsumer;
     charBuffer = new StringBuilder();
   }
 
@@ -221,7 +239,7 @@ class MzDataSaxHandler extends DefaultHandler {
       }
 
       // Add the scan to the file
-      newRawFile.addScan(newScan);
+      scanConsumer.accept(newScan);
       parsedScans++;
 
     }
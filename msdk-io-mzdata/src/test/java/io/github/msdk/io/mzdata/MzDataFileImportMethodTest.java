@@ -23,6 +23,7 @@ import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.MsSpectrumType;
 import io.github.msdk.datamodel.PolarityType;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.util.CloseableIterator;
 import io.github.msdk.util.MsSpectrumUtil;
 
 public class MzDataFileImportMethodTest {
@@ -148,4 +149,28 @@ public class MzDataFileImportMethodTest {
 
   }
 
+  @Test
+  public void testScanIterator() throws Exception {
+
+    File inputFile = new File(this.getClass().getClassLoader().getResource("MM14.mzdata").toURI());
+    RawDataFile expectedFile = new MzDataFileImportMethod(inputFile).execute();
+    List<MsScan> expectedScans = expectedFile.getScans();
+
+    MzDataFileImportMethod importer = new MzDataFileImportMethod(inputFile);
+    int count = 0;
+    try (CloseableIterator<MsScan> iterator = importer.openScanIterator()) {
+      while (iterator.hasNext()) {
+        MsScan expected = expectedScans.get(count++), actual = iterator.next();
+        Assert.assertEquals(expected.getScanNumber(), actual.getScanNumber());
+        Assert.assertEquals(expected.getRetentionTime(), actual.getRetentionTime());
+        Assert.assertArrayEquals(expected.getMzValues(), actual.getMzValues(), 0.0);
+        Assert.assertArrayEquals(expected.getIntensityValues(), actual.getIntensityValues(), 0f);
+      }
+    }
+    Assert.assertEquals(112, count);
+    Assert.assertTrue(importer.getResult().getScans().isEmpty());
+
+    expectedFile.dispose();
+  }
+
 }
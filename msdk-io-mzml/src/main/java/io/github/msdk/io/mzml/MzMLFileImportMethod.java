@@ -16,21 +16,36 @@ package io.github.msdk.io.mzml;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.function.Predicate;
 
+import javax.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.AbstractIterator;
+
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
+import io.github.msdk.MSDKRuntimeException;
 import io.github.msdk.datamodel.Chromatogram;
+import io.github.msdk.datamodel.DataPointCache;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.io.mzml.data.MzMLParser;
 import io.github.msdk.io.mzml.data.MzMLRawDataFile;
+import io.github.msdk.io.mzml.data.MzMLTags;
 import io.github.msdk.io.mzml.util.ByteBufferInputStream;
 import io.github.msdk.io.mzml.util.FileMemoryMapper;
+import io.github.msdk.io.mzml.util.MzMLFileIndex;
+import io.github.msdk.util.CloseableIterator;
 import javolution.text.CharArray;
 import javolution.xml.internal.stream.XMLStreamReaderImpl;
 import javolution.xml.stream.XMLStreamConstants;
@@ -48,10 +63,24 @@ import javolution.xml.stream.XMLStreamException;
  * if the source is a {@link java.io.File File}, whereas, they will be dropped if the source is an
  * {@link java.io.InputStream InputStream}
  * </p>
+ *
+ * <p>
+ * If an {@link java.util.concurrent.Executor Executor} is given, a file is imported in parallel:
+ * the offsets of the spectra are read from the <code>&lt;indexList&gt;</code> of an indexedmzML
+ * file (or collected by a single pass over the file if there is no valid index), and ranges of
+ * consecutive spectra are parsed by separate tasks. The scans are still returned in file order.
+ * </p>
  */
 public class MzMLFileImportMethod implements MSDKMethod<RawDataFile> {
+
+  // Number of ranges the spectra are split into, per available processor
+  private static final int CHUNKS_PER_PROCESSOR = 4;
+  private static final int MIN_SPECTRA_PER_CHUNK = 16;
+
   private final File mzMLFile;
   final InputStream inputStream;
+  private final Executor executor;
+  private final @Nullable DataPointCache dataPointCache;
   private MzMLRawDataFile newRawFile;
   private volatile boolean canceled;
   private Float progress;
@@ -134,7 +163,7 @@ public class MzMLFileImportMethod implements MSDKMethod<RawDataFile> {
    * @param mzMLFile a {@link java.io.File File} object instance of the MzML File.
    */
   public MzMLFileImportMethod(File mzMLFile) {
-    this(mzMLFile, null, s -> false, c -> false);
+    this(mzMLFile, null, s -> false, c -> false, null, null);
   }
 
   /**
@@ -154,7 +183,60 @@ public class MzMLFileImportMethod implements MSDKMethod<RawDataFile> {
    */
   public MzMLFileImportMethod(File mzMLFile, Predicate<MsScan> msScanPredicate,
       Predicate<Chromatogram> chromatogramPredicate) {
-    this(mzMLFile, null, msScanPredicate, chromatogramPredicate);
+    this(mzMLFile, null, msScanPredicate, chromatogramPredicate, null, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for MzMLFileImportMethod, which parses the spectra in parallel on the given
+   * {@link java.util.concurrent.Executor Executor}.
+   * </p>
+   *
+   * @param mzMLFile a {@link java.io.File File} object instance of the MzML File.
+   * @param executor the {@link java.util.concurrent.Executor Executor} running the parsing tasks
+   */
+  public MzMLFileImportMethod(File mzMLFile, Executor executor) {
+    this(mzMLFile, null, s -> false, c -> false, executor, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for MzMLFileImportMethod, which keeps the decoded data points of the scans in the
+   * given cache instead of in each scan. They are decoded again from the memory-mapped file when
+   * they have been evicted.
+   * </p>
+   *
+   * @param mzMLFile a {@link java.io.File File} object instance of the MzML File.
+   * @param executor the {@link java.util.concurrent.Executor Executor} running the parsing tasks,
+   *        or null to parse the spectra on the calling thread
+   * @param dataPointCache a {@link io.github.msdk.datamodel.DataPointCache} object, possibly
+   *        shared with other files, or null to keep the data points in the scans.
+   */
+  public MzMLFileImportMethod(File mzMLFile, @Nullable Executor executor,
+      @Nullable DataPointCache dataPointCache) {
+    this(mzMLFile, null, s -> false, c -> false, executor, dataPointCache);
+  }
+
+  /**
+   * <p>
+   * Constructor for MzMLFileImportMethod, which parses the spectra in parallel on the given
+   * {@link java.util.concurrent.Executor Executor}.
+   * </p>
+   *
+   * @param mzMLFile a {@link java.io.File File} object instance of the MzML File.
+   * @param msScanPredicate Only {@link io.github.msdk.datamodel.MsScan MsScan}s which pass
+   *        this predicate will be parsed by the parser and added to the
+   *        {@link io.github.msdk.io.mzml.data.MzMLRawDataFile RawDataFile} returned by the
+   *        {@link #getResult() getResult()} method.
+   * @param chromatogramPredicate Only {@link io.github.msdk.datamodel.Chromatogram
+   *        Chromatogram}s which pass this predicate will be parsed by the parser and added to the
+   *        {@link io.github.msdk.io.mzml.data.MzMLRawDataFile RawDataFile} returned by the
+   *        {@link #getResult() getResult()} method.
+   * @param executor the {@link java.util.concurrent.Executor Executor} running the parsing tasks
+   */
+  public MzMLFileImportMethod(File mzMLFile, Predicate<MsScan> msScanPredicate,
+      Predicate<Chromatogram> chromatogramPredicate, Executor executor) {
+    this(mzMLFile, null, msScanPredicate, chromatogramPredicate, executor, null);
   }
 
   /**
@@ -166,7 +248,7 @@ public class MzMLFileImportMethod implements MSDKMethod<RawDataFile> {
    *        format.
    */
   public MzMLFileImportMethod(InputStream inputStream) {
-    this(null, inputStream, s -> true, c -> true);
+    this(null, inputStream, s -> true, c -> true, null, null);
   }
 
   /**
@@ -187,7 +269,7 @@ public class MzMLFileImportMethod implements MSDKMethod<RawDataFile> {
    */
   public MzMLFileImportMethod(InputStream inputStream, Predicate<MsScan> msScanPredicate,
       Predicate<Chromatogram> chromatogramPredicate) {
-    this(null, inputStream, msScanPredicate, chromatogramPredicate);
+    this(null, inputStream, msScanPredicate, chromatogramPredicate, null, null);
   }
 
   /**
@@ -196,9 +278,12 @@ public class MzMLFileImportMethod implements MSDKMethod<RawDataFile> {
    * </p>
    */
   private MzMLFileImportMethod(File mzMLFile, InputStream inputStream,
-      Predicate<MsScan> msScanPredicate, Predicate<Chromatogram> chromatogramPredicate) {
+      Predicate<MsScan> msScanPredicate, Predicate<Chromatogram> chromatogramPredicate,
+      Executor executor, DataPointCache dataPointCache) {
     this.mzMLFile = mzMLFile;
     this.inputStream = inputStream;
+    this.executor = executor;
+    this.dataPointCache = dataPointCache;
     this.canceled = false;
     this.progress = 0f;
     this.lastLoggedProgress = 0;
@@ -233,6 +318,16 @@ public class MzMLFileImportMethod implements MSDKMethod<RawDataFile> {
       } else {
         throw new MSDKException("Invalid input");
       }
+
+      if (mzMLFile != null && executor != null) {
+        newRawFile = parseIndexed((ByteBufferInputStream) is);
+        if (newRawFile != null) {
+          progress = 1f;
+          logger.info("Parsing Complete");
+        }
+        return newRawFile;
+      }
+
       // It's ok to directly create this particular reader, this class is `public final`
       // and we precisely want that fast UFT-8 reader implementation
       final XMLStreamReaderImpl xmlStreamReader = new XMLStreamReaderImpl();
@@ -298,6 +393,202 @@ public class MzMLFileImportMethod implements MSDKMethod<RawDataFile> {
   }
 
 
+  /**
+   * <p>
+   * Opens a streaming reader over the scans of the MzML data. The scans are parsed one by one as
+   * the iterator advances, and neither the iterator nor the returned
+   * {@link io.github.msdk.io.mzml.data.MzMLRawDataFile MzMLRawDataFile} keep a reference to the
+   * scans already returned, so files larger than the available memory can be processed by
+   * single-pass algorithms. The iterator returns the same scans, in the same order, as
+   * {@link #execute()}. Chromatograms are not read. The iterator must be closed after use.
+   * </p>
+   *
+   * <p>
+   * If the source is a {@link java.io.File File}, the data points of each scan are decoded from
+   * the memory-mapped file on demand, otherwise they are decoded while parsing.
+   * </p>
+   *
+   * @return a {@link io.github.msdk.util.CloseableIterator CloseableIterator} over the scans
+   * @throws io.github.msdk.MSDKException if the source cannot be opened
+   */
+  public CloseableIterator<MsScan> openScanIterator() throws MSDKException {
+    try {
+      InputStream is;
+      if (mzMLFile != null) {
+        logger.info("Began streaming file: " + mzMLFile.getAbsolutePath());
+        is = FileMemoryMapper.mapToMemory(mzMLFile);
+      } else if (inputStream != null) {
+        logger.info("Began streaming file from stream");
+        is = inputStream;
+      } else {
+        throw new MSDKException("Invalid input");
+      }
+
+      final XMLStreamReaderImpl xmlStreamReader = new XMLStreamReaderImpl();
+      xmlStreamReader.setInput(is, "UTF-8");
+      MzMLParser parser = new MzMLParser(this);
+      this.newRawFile = parser.getMzMLRawFile();
+      return new ScanIterator(xmlStreamReader, is, parser);
+    } catch (IOException | XMLStreamException e) {
+      throw new MSDKException(e);
+    }
+  }
+
+  /**
+   * <p>
+   * Parses the file header on the calling thread, then the ranges of spectra and the chromatograms
+   * in parallel on the executor, and merges the results in file order.
+   * </p>
+   */
+  private MzMLRawDataFile parseIndexed(ByteBufferInputStream is)
+      throws IOException, XMLStreamException, MSDKException {
+
+    MzMLFileIndex index = MzMLFileIndex.readIndexList(is);
+    if (index == null || !index.isValid(is)) {
+      logger.debug("No valid index found in " + mzMLFile.getName() + ", building a new one");
+      index = MzMLFileIndex.buildIndex(is);
+    }
+    final long spectrumOffsets[] = index.getSpectrumOffsets();
+    final long chromatogramOffsets[] = index.getChromatogramOffsets();
+
+    final MzMLParser headerParser = new MzMLParser(this);
+    this.newRawFile = headerParser.getMzMLRawFile();
+    parseHeader(is, headerParser);
+
+    final int numOfChunks = Math.max(1,
+        Math.min(Runtime.getRuntime().availableProcessors() * CHUNKS_PER_PROCESSOR,
+            spectrumOffsets.length / MIN_SPECTRA_PER_CHUNK));
+    final int chunkSize = (spectrumOffsets.length + numOfChunks - 1) / numOfChunks;
+
+    final List<FutureTask<MzMLParser>> tasks = new ArrayList<>();
+    for (int start = 0; start < spectrumOffsets.length; start += chunkSize) {
+      final long offset = spectrumOffsets[start];
+      final int count = Math.min(chunkSize, spectrumOffsets.length - start);
+      tasks.add(new FutureTask<>(() -> parseElements(is, headerParser,
+          MzMLTags.TAG_SPECTRUM_LIST, MzMLTags.TAG_SPECTRUM, offset, count)));
+    }
+    if (chromatogramOffsets.length > 0) {
+      tasks.add(new FutureTask<>(() -> parseElements(is, headerParser,
+          MzMLTags.TAG_CHROMATOGRAM_LIST, MzMLTags.TAG_CHROMATOGRAM, chromatogramOffsets[0],
+          chromatogramOffsets.length)));
+    }
+    for (FutureTask<MzMLParser> task : tasks)
+      executor.execute(task);
+
+    // Collect the results in file order
+    try {
+      for (int i = 0; i < tasks.size(); i++) {
+        final MzMLParser chunkParser = tasks.get(i).get();
+        if (canceled || chunkParser == null) {
+          for (FutureTask<MzMLParser> task : tasks)
+            task.cancel(false);
+          return null;
+        }
+        headerParser.merge(chunkParser);
+        progress = (float) (i + 1) / tasks.size();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MSDKException(e);
+    } catch (ExecutionException e) {
+      for (FutureTask<MzMLParser> task : tasks)
+        task.cancel(false);
+      if (e.getCause() instanceof MSDKException)
+        throw (MSDKException) e.getCause();
+      throw new MSDKException(e.getCause());
+    }
+
+    return newRawFile;
+  }
+
+  /**
+   * <p>
+   * Parses the beginning of the file, up to the <code>&lt;spectrumList&gt;</code> or
+   * <code>&lt;chromatogramList&gt;</code> element.
+   * </p>
+   */
+  private void parseHeader(ByteBufferInputStream is, MzMLParser parser)
+      throws XMLStreamException {
+    final ByteBufferInputStream header = is.copy();
+    header.position(0);
+    final XMLStreamReaderImpl xmlStreamReader = new XMLStreamReaderImpl();
+    xmlStreamReader.setInput(header, "UTF-8");
+    try {
+      int eventType;
+      do {
+        eventType = xmlStreamReader.next();
+        switch (eventType) {
+          case XMLStreamConstants.START_ELEMENT:
+            final CharArray openingTagName = xmlStreamReader.getLocalName();
+            parser.processOpeningTag(xmlStreamReader, is, openingTagName);
+            if (openingTagName.contentEquals(MzMLTags.TAG_SPECTRUM_LIST)
+                || openingTagName.contentEquals(MzMLTags.TAG_CHROMATOGRAM_LIST))
+              return;
+            break;
+
+          case XMLStreamConstants.END_ELEMENT:
+            parser.processClosingTag(xmlStreamReader, xmlStreamReader.getLocalName());
+            break;
+        }
+      } while (eventType != XMLStreamConstants.END_DOCUMENT);
+    } finally {
+      xmlStreamReader.close();
+    }
+  }
+
+  /**
+   * <p>
+   * Parses <code>count</code> consecutive elements starting at the given offset. The elements are
+   * wrapped in an artificial list element, so the reader sees a single root element.
+   * </p>
+   */
+  private MzMLParser parseElements(ByteBufferInputStream is, MzMLParser headerParser,
+      String listTag, String elementTag, long offset, int count)
+      throws XMLStreamException, MSDKException {
+    final byte wrapper[] = ("<" + listTag + ">").getBytes(StandardCharsets.US_ASCII);
+    final ByteBufferInputStream chunk = is.copy();
+    chunk.position(offset);
+
+    final MzMLParser parser = new MzMLParser(headerParser, listTag, offset - wrapper.length);
+    final XMLStreamReaderImpl xmlStreamReader = new XMLStreamReaderImpl();
+    xmlStreamReader.setInput(new PrefixedInputStream(wrapper, chunk), "UTF-8");
+
+    try {
+      int depth = 0, parsed = 0;
+      while (parsed < count) {
+        if (canceled)
+          return null;
+
+        switch (xmlStreamReader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            // The wrapper itself is not passed to the parser, which already is inside the list
+            if (depth++ > 0)
+              parser.processOpeningTag(xmlStreamReader, is, xmlStreamReader.getLocalName());
+            break;
+
+          case XMLStreamConstants.END_ELEMENT:
+            final CharArray closingTagName = xmlStreamReader.getLocalName();
+            parser.processClosingTag(xmlStreamReader, closingTagName);
+            if (--depth == 1 && closingTagName.contentEquals(elementTag))
+              parsed++;
+            break;
+
+          case XMLStreamConstants.CHARACTERS:
+            parser.processCharacters(xmlStreamReader);
+            break;
+
+          case XMLStreamConstants.END_DOCUMENT:
+            throw new MSDKException("Unexpected end of file " + mzMLFile.getName() + ", only "
+                + parsed + " of " + count + " elements found at offset " + offset);
+        }
+      }
+    } finally {
+      xmlStreamReader.close();
+    }
+
+    return parser;
+  }
+
   /** {@inheritDoc} */
   @Override
   public Float getFinishedPercentage() {
@@ -356,4 +647,130 @@ public class MzMLFileImportMethod implements MSDKMethod<RawDataFile> {
     return mzMLFile;
   }
 
+  /**
+   * <p>
+   * Getter for the field <code>dataPointCache</code>.
+   * </p>
+   *
+   * @return the {@link io.github.msdk.datamodel.DataPointCache} given to the imported raw data
+   *         file, or null
+   */
+  @Nullable
+  public DataPointCache getDataPointCache() {
+    return dataPointCache;
+  }
+
+  /**
+   * Pulls the XML events of the file until the next scan has been completed.
+   */
+  private class ScanIterator extends AbstractIterator<MsScan>
+      implements CloseableIterator<MsScan> {
+
+    private final XMLStreamReaderImpl xmlStreamReader;
+    private final InputStream is;
+    private final MzMLParser parser;
+    private boolean closed = false;
+
+    ScanIterator(XMLStreamReaderImpl xmlStreamReader, InputStream is, MzMLParser parser) {
+      this.xmlStreamReader = xmlStreamReader;
+      this.is = is;
+      this.parser = parser;
+    }
+
+    @Override
+    protected MsScan computeNext() {
+      try {
+        while (!closed && !canceled) {
+          switch (xmlStreamReader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+              parser.processOpeningTag(xmlStreamReader, is, xmlStreamReader.getLocalName());
+              break;
+
+            case XMLStreamConstants.END_ELEMENT:
+              final CharArray closingTagName = xmlStreamReader.getLocalName();
+              parser.processClosingTag(xmlStreamReader, closingTagName);
+              final MsScan scan = parser.pollSpectrum();
+              if (scan != null)
+                return scan;
+              // Only chromatograms may follow the spectra
+              if (closingTagName.contentEquals(MzMLTags.TAG_SPECTRUM_LIST))
+                close();
+              break;
+
+            case XMLStreamConstants.CHARACTERS:
+              parser.processCharacters(xmlStreamReader);
+              break;
+
+            case XMLStreamConstants.END_DOCUMENT:
+              close();
+              break;
+          }
+        }
+      } catch (XMLStreamException e) {
+        close();
+        throw new MSDKRuntimeException(e);
+      }
+      close();
+      return endOfData();
+    }
+
+    @Override
+    public void close() {
+      if (closed)
+        return;
+      closed = true;
+      try {
+        xmlStreamReader.close();
+      } catch (XMLStreamException e) {
+        throw new MSDKRuntimeException(e);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * An {@link java.io.InputStream InputStream} returning the given prefix followed by the content
+   * of another stream. Unlike {@link java.io.SequenceInputStream SequenceInputStream}, a read never
+   * stops at the end of the prefix, as the XML reader expects full reads until the end of data.
+   * </p>
+   */
+  private static class PrefixedInputStream extends InputStream {
+
+    private final byte prefix[];
+    private final InputStream stream;
+    private int prefixPosition = 0;
+
+    PrefixedInputStream(byte prefix[], InputStream stream) {
+      this.prefix = prefix;
+      this.stream = stream;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (prefixPosition < prefix.length)
+        return prefix[prefixPosition++] & 0xFF;
+      final byte b[] = new byte[1];
+      return stream.read(b, 0, 1) <= 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte b[], int off, int len) throws IOException {
+      if (len == 0)
+        return 0;
+      int copied = 0;
+      if (prefixPosition < prefix.length) {
+        copied = Math.min(len, prefix.length - prefixPosition);
+        System.arraycopy(prefix, prefixPosition, b, off, copied);
+        prefixPosition += copied;
+      }
+      if (copied < len) {
+        final int read = stream.read(b, off + copied, len - copied);
+        if (read > 0)
+          copied += read;
+      }
+      return copied == 0 ? -1 : copied;
+    }
+
+  }
+
 }
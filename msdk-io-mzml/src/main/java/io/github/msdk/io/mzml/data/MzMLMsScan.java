@@ -14,6 +14,8 @@
 package io.github.msdk.io.mzml.data;
 
 import java.io.InputStream;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -30,6 +32,8 @@ import com.google.common.collect.Range;
 
 import io.github.msdk.MSDKRuntimeException;
 import io.github.msdk.datamodel.ActivationInfo;
+import io.github.msdk.datamodel.DataPointCache;
+import io.github.msdk.datamodel.DataPointConsumer;
 import io.github.msdk.datamodel.IsolationInfo;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.MsScanType;
@@ -48,6 +52,10 @@ import io.github.msdk.util.tolerances.MzTolerance;
  * </p>
  */
 public class MzMLMsScan implements MsScan {
+
+  // Slots of the decoded arrays in the DataPointCache
+  private static final int MZ_SLOT = 0, INTENSITY_SLOT = 1;
+
   private final @Nonnull MzMLRawDataFile dataFile;
   private @Nonnull InputStream inputStream;
   private final @Nonnull String id;
@@ -65,8 +73,10 @@ public class MzMLMsScan implements MsScan {
   private Float retentionTime;
   private Range<Double> mzRange;
   private Range<Double> mzScanWindowRange;
-  private double[] mzValues;
-  private float[] intensityValues;
+  // Decoded lazily, possibly by several threads at once; whichever result is published first wins.
+  // Not used when the data file has a DataPointCache, which then holds the decoded values.
+  private volatile double[] mzValues;
+  private volatile float[] intensityValues;
 
   private Logger logger = LoggerFactory.getLogger(MzMLFileImportMethod.class);
 
@@ -235,59 +245,114 @@ public class MzMLMsScan implements MsScan {
   /** {@inheritDoc} */
   @Override
   public double[] getMzValues(double array[]) {
-    if (mzValues == null) {
-      if (getMzBinaryDataInfo().getArrayLength() != numOfDataPoints) {
-        logger.warn(
-            "m/z binary data array contains a different array length from the default array length of the scan (#"
-                + getScanNumber() + ")");
-      }
-
-      try {
-        mzValues = MzMLPeaksDecoder.decodeToDouble(inputStream, getMzBinaryDataInfo(), array);
-      } catch (Exception e) {
-        throw (new MSDKRuntimeException(e));
-      }
-    }
+    final double values[] = loadMzValues();
+    if (array == null || array.length < values.length)
+      array = new double[values.length];
+    System.arraycopy(values, 0, array, 0, values.length);
+    return array;
+  }
 
-    if (array == null || array.length < getNumberOfDataPoints()) {
-      array = new double[getNumberOfDataPoints()];
+  /** {@inheritDoc} */
+  @Override
+  public float[] getIntensityValues(float array[]) {
+    final float values[] = loadIntensityValues();
+    if (array == null || array.length < values.length)
+      array = new float[values.length];
+    System.arraycopy(values, 0, array, 0, values.length);
+    return array;
+  }
 
-      System.arraycopy(mzValues, 0, array, 0, numOfDataPoints);
-    }
+  /** {@inheritDoc} */
+  @Override
+  public DoubleBuffer getMzBuffer() {
+    return DoubleBuffer.wrap(loadMzValues()).asReadOnlyBuffer();
+  }
 
-    return array;
+  /** {@inheritDoc} */
+  @Override
+  public FloatBuffer getIntensityBuffer() {
+    return FloatBuffer.wrap(loadIntensityValues()).asReadOnlyBuffer();
   }
 
   /** {@inheritDoc} */
   @Override
-  public float[] getIntensityValues(float array[]) {
+  public void forEachDataPoint(DataPointConsumer consumer) {
+    final double mzValues[] = loadMzValues();
+    final float intensityValues[] = loadIntensityValues();
+    final int size = Math.min(mzValues.length, intensityValues.length);
+    for (int i = 0; i < size; i++)
+      consumer.accept(i, mzValues[i], intensityValues[i]);
+  }
+
+  /**
+   * Decodes both data arrays now, so later accesses do not need to read the file.
+   */
+  void preloadDataPoints() {
+    loadMzValues();
+    loadIntensityValues();
+  }
+
+  /**
+   * Decodes the m/z values on first access, or obtains them from the DataPointCache of the data
+   * file if it has one. The decoded array is never handed out to callers, so it cannot be modified
+   * from outside.
+   */
+  private double[] loadMzValues() {
+    double mzValues[] = this.mzValues;
+    if (mzValues == null) {
+      final DataPointCache cache = dataFile.getDataPointCache();
+      if (cache != null)
+        return cache.getDoubleArray(this, MZ_SLOT, this::decodeMzValues);
+      mzValues = decodeMzValues();
+      this.mzValues = mzValues;
+    }
+    return mzValues;
+  }
+
+  private float[] loadIntensityValues() {
+    float intensityValues[] = this.intensityValues;
     if (intensityValues == null) {
-      if (getIntensityBinaryDataInfo().getArrayLength() != numOfDataPoints) {
-        logger.warn(
-            "Intensity binary data array contains a different array length from the default array length of the scan (#"
-                + getScanNumber() + ")");
-      }
+      final DataPointCache cache = dataFile.getDataPointCache();
+      if (cache != null)
+        return cache.getFloatArray(this, INTENSITY_SLOT, this::decodeIntensityValues);
+      intensityValues = decodeIntensityValues();
+      this.intensityValues = intensityValues;
+    }
+    return intensityValues;
+  }
 
-      try {
-        intensityValues =
-            MzMLPeaksDecoder.decodeToFloat(inputStream, getIntensityBinaryDataInfo(), array);
-      } catch (Exception e) {
-        throw (new MSDKRuntimeException(e));
-      }
+  private double[] decodeMzValues() {
+    if (getMzBinaryDataInfo().getArrayLength() != numOfDataPoints) {
+      logger.warn(
+          "m/z binary data array contains a different array length from the default array length of the scan (#"
+              + getScanNumber() + ")");
     }
 
-    if (array == null || array.length < numOfDataPoints) {
-      array = new float[numOfDataPoints];
+    try {
+      return MzMLPeaksDecoder.decodeToDouble(inputStream, getMzBinaryDataInfo(), null);
+    } catch (Exception e) {
+      throw (new MSDKRuntimeException(e));
+    }
+  }
 
-      System.arraycopy(intensityValues, 0, array, 0, numOfDataPoints);
+  private float[] decodeIntensityValues() {
+    if (getIntensityBinaryDataInfo().getArrayLength() != numOfDataPoints) {
+      logger.warn(
+          "Intensity binary data array contains a different array length from the default array length of the scan (#"
+              + getScanNumber() + ")");
     }
 
-    return array;
+    try {
+      return MzMLPeaksDecoder.decodeToFloat(inputStream, getIntensityBinaryDataInfo(), null);
+    } catch (Exception e) {
+      throw (new MSDKRuntimeException(e));
+    }
   }
 
   /** {@inheritDoc} */
   @Override
   public MsSpectrumType getSpectrumType() {
+    MsSpectrumType spectrumType = this.spectrumType;
     if (spectrumType == null) {
       if (getCVValue(MzMLCV.cvCentroidSpectrum).isPresent())
         spectrumType = MsSpectrumType.CENTROIDED;
@@ -295,11 +360,13 @@ public class MzMLMsScan implements MsScan {
       if (getCVValue(MzMLCV.cvProfileSpectrum).isPresent())
         spectrumType = MsSpectrumType.PROFILE;
 
-      if (spectrumType != null)
-        return spectrumType;
-
-      spectrumType = SpectrumTypeDetectionAlgorithm.detectSpectrumType(getMzValues(),
-          getIntensityValues(), numOfDataPoints);
+      if (spectrumType == null) {
+        final double mzValues[] = loadMzValues();
+        final float intensityValues[] = loadIntensityValues();
+        spectrumType = SpectrumTypeDetectionAlgorithm.detectSpectrumType(mzValues,
+            intensityValues, Math.min(mzValues.length, intensityValues.length));
+      }
+      this.spectrumType = spectrumType;
     }
     return spectrumType;
   }
@@ -309,7 +376,8 @@ public class MzMLMsScan implements MsScan {
   public Float getTIC() {
     if (tic == null)
       try {
-        tic = MsSpectrumUtil.getTIC(getIntensityValues(), getNumberOfDataPoints());
+        final float intensityValues[] = loadIntensityValues();
+        tic = MsSpectrumUtil.getTIC(intensityValues, intensityValues.length);
       } catch (NumberFormatException e) {
         throw (new MSDKRuntimeException(
             "Could not convert TIC value in mzML file to a float\n" + e));
@@ -325,7 +393,8 @@ public class MzMLMsScan implements MsScan {
       Optional<String> cvv = getCVValue(MzMLCV.cvLowestMz);
       Optional<String> cvv1 = getCVValue(MzMLCV.cvHighestMz);
       if (!cvv.isPresent() || !cvv1.isPresent()) {
-        mzRange = MsSpectrumUtil.getMzRange(getMzValues(), getMzBinaryDataInfo().getArrayLength());
+        final double mzValues[] = loadMzValues();
+        mzRange = MsSpectrumUtil.getMzRange(mzValues, mzValues.length);
         return mzRange;
       }
       try {
@@ -42,6 +42,7 @@ public class MzMLParser {
   private TagTracker tracker;
   private final MzMLRawDataFile newRawFile;
   private final MzMLFileImportMethod importer;
+  private final long positionOffset;
 
   /**
    * <p>
@@ -56,7 +57,35 @@ public class MzMLParser {
     this.tracker = new TagTracker();
     this.importer = importer;
     this.newRawFile = new MzMLRawDataFile(importer.getMzMLFile(), vars.msFunctionsList,
-        vars.spectrumList, vars.chromatogramsList);
+        vars.spectrumList, vars.chromatogramsList, importer.getDataPointCache());
+    this.positionOffset = 0;
+  }
+
+  /**
+   * <p>
+   * Constructor for a {@link io.github.msdk.io.mzml.data.MzMLParser MzMLParser} which parses a
+   * range of consecutive <code>&lt;spectrum&gt;</code> or <code>&lt;chromatogram&gt;</code>
+   * elements, independently of the other ranges of the same file. The referenceable param groups
+   * are taken from the parser which parsed the beginning of the file, and the parsed elements are
+   * added to its raw data file by {@link #merge(MzMLParser)}.
+   * </p>
+   *
+   * @param headerParser the parser which parsed the file up to the first
+   *        <code>&lt;spectrum&gt;</code> or <code>&lt;chromatogram&gt;</code> element
+   * @param listTag the list element the range belongs to, i.e.
+   *        <code>&lt;spectrumList&gt;</code> or <code>&lt;chromatogramList&gt;</code>
+   * @param positionOffset value added to the positions reported by the
+   *        {@link javolution.xml.internal.stream.XMLStreamReaderImpl XMLStreamReaderImpl} to get
+   *        the positions of the binary data in the file
+   */
+  public MzMLParser(MzMLParser headerParser, String listTag, long positionOffset) {
+    this.vars = new Vars();
+    this.vars.referenceableParamGroupList = headerParser.vars.referenceableParamGroupList;
+    this.tracker = new TagTracker();
+    this.tracker.enter(new CharArray(listTag));
+    this.importer = headerParser.importer;
+    this.newRawFile = headerParser.newRawFile;
+    this.positionOffset = positionOffset;
   }
 
   /**
@@ -178,8 +207,8 @@ public class MzMLParser {
       } else if (openingTagName.contentEquals(MzMLTags.TAG_BINARY)) {
         if (vars.spectrum != null && !vars.skipBinaryDataArray) {
           int bomOffset = xmlStreamReader.getLocation().getBomLength();
-          vars.binaryDataInfo
-              .setPosition(xmlStreamReader.getLocation().getTotalCharsRead() + bomOffset);
+          vars.binaryDataInfo.setPosition(
+              xmlStreamReader.getLocation().getTotalCharsRead() + bomOffset + positionOffset);
         }
         if (!vars.skipBinaryDataArray) {
           if (MzMLCV.cvMzArray.equals(vars.binaryDataInfo.getArrayType().getAccession())) {
@@ -284,8 +313,8 @@ public class MzMLParser {
       } else if (openingTagName.contentEquals(MzMLTags.TAG_BINARY)) {
         if (vars.chromatogram != null && !vars.skipBinaryDataArray) {
           int bomOffset = xmlStreamReader.getLocation().getBomLength();
-          vars.binaryDataInfo
-              .setPosition(xmlStreamReader.getLocation().getTotalCharsRead() + bomOffset);
+          vars.binaryDataInfo.setPosition(
+              xmlStreamReader.getLocation().getTotalCharsRead() + bomOffset + positionOffset);
         }
         if (!vars.skipBinaryDataArray) {
           if (MzMLCV.cvRetentionTimeArray
@@ -627,6 +656,34 @@ public class MzMLParser {
     return newRawFile;
   }
 
+  /**
+   * <p>
+   * Removes the earliest parsed scan from the scan list and returns it. Streaming readers call this
+   * after each closing tag, so the parser does not retain the scans already handed out.
+   * </p>
+   *
+   * @return the parsed {@link io.github.msdk.datamodel.MsScan MsScan}, or null if no scan has been
+   *         completed since the last call
+   */
+  public MsScan pollSpectrum() {
+    if (vars.spectrumList.isEmpty())
+      return null;
+    return vars.spectrumList.remove(0);
+  }
+
+  /**
+   * <p>
+   * Appends the scans and chromatograms parsed by the given parser, in their parsing order.
+   * </p>
+   *
+   * @param parser a {@link io.github.msdk.io.mzml.data.MzMLParser MzMLParser} created by
+   *        {@link #MzMLParser(MzMLParser, String, long)} from this parser
+   */
+  public void merge(MzMLParser parser) {
+    vars.spectrumList.addAll(parser.vars.spectrumList);
+    vars.chromatogramsList.addAll(parser.vars.chromatogramsList);
+  }
+
   /**
    * 
    * Static class for holding temporary instances of variables initialized while parsing
@@ -16,7 +16,11 @@ package io.github.msdk.io.mzml.data;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.zip.DataFormatException;
 import java.util.zip.InflaterInputStream;
 
@@ -55,8 +59,9 @@ public class MzMLPeaksDecoder {
     InputStream is = null;
 
     if (inputStream instanceof ByteBufferInputStream) {
-      ByteBufferInputStream mappedByteBufferInputStream = (ByteBufferInputStream) inputStream;
-      mappedByteBufferInputStream.constrain(binaryDataInfo.getPosition(), lengthIn);
+      // Each decoding reads its own slice, so the mapped file can be decoded from many threads
+      ByteBufferInputStream mappedByteBufferInputStream =
+          ((ByteBufferInputStream) inputStream).slice(binaryDataInfo.getPosition(), lengthIn);
       is = Base64.getDecoder().wrap(mappedByteBufferInputStream);
     } else {
       is = Base64.getDecoder().wrap(inputStream);
@@ -198,8 +203,9 @@ public class MzMLPeaksDecoder {
     InputStream is = null;
 
     if (inputStream instanceof ByteBufferInputStream) {
-      ByteBufferInputStream mappedByteBufferInputStream = (ByteBufferInputStream) inputStream;
-      mappedByteBufferInputStream.constrain(binaryDataInfo.getPosition(), lengthIn);
+      // Each decoding reads its own slice, so the mapped file can be decoded from many threads
+      ByteBufferInputStream mappedByteBufferInputStream =
+          ((ByteBufferInputStream) inputStream).slice(binaryDataInfo.getPosition(), lengthIn);
       is = Base64.getDecoder().wrap(mappedByteBufferInputStream);
     } else {
       is = Base64.getDecoder().wrap(inputStream);
@@ -319,4 +325,29 @@ public class MzMLPeaksDecoder {
     return data;
   }
 
+  /**
+   * <p>
+   * Decodes the m/z and intensity values of the given scans in parallel on the given
+   * {@link java.util.concurrent.Executor Executor}. The decoded values are kept by the scans, so a
+   * consumer which processes the scans in order can wait for each returned future and find the
+   * data points of the following scans already decoded.
+   * </p>
+   *
+   * @param scans the scans to decode
+   * @param executor the {@link java.util.concurrent.Executor Executor} running the decoding tasks
+   * @return one future per scan, in the order of the given list, completed with the scan once its
+   *         data points are decoded
+   */
+  public static List<CompletableFuture<MzMLMsScan>> decodeAll(List<MzMLMsScan> scans,
+      Executor executor) {
+    List<CompletableFuture<MzMLMsScan>> futures = new ArrayList<>(scans.size());
+    for (MzMLMsScan scan : scans) {
+      futures.add(CompletableFuture.supplyAsync(() -> {
+        scan.preloadDataPoints();
+        return scan;
+      }, executor));
+    }
+    return futures;
+  }
+
 }
@@ -14,14 +14,19 @@
 package io.github.msdk.io.mzml.data;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.google.common.collect.ImmutableList;
 
 import io.github.msdk.datamodel.Chromatogram;
+import io.github.msdk.datamodel.DataPointCache;
 import io.github.msdk.datamodel.FileType;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
@@ -48,6 +53,8 @@ public class MzMLRawDataFile implements RawDataFile {
 
   private @Nonnull String name;
 
+  private final @Nullable DataPointCache dataPointCache;
+
   /**
    * <p>
    * Constructor for MzMLRawDataFile.
@@ -58,9 +65,28 @@ public class MzMLRawDataFile implements RawDataFile {
    * @param msScans a {@link java.util.List} object.
    * @param chromatograms a {@link java.util.List} object.
    */
-  @SuppressWarnings("null")
   public MzMLRawDataFile(File sourceFile, List<String> msFunctions, List<MsScan> msScans,
       List<Chromatogram> chromatograms) {
+    this(sourceFile, msFunctions, msScans, chromatograms, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for MzMLRawDataFile. By default, each scan keeps its data points once they have
+   * been decoded. With a cache, the scans hold no data points themselves and decode them again
+   * after they were evicted, so the same cache can be shared by many files to keep their total
+   * memory use bounded.
+   * </p>
+   *
+   * @param sourceFile a {@link java.io.File} object.
+   * @param msFunctions a {@link java.util.List} object.
+   * @param msScans a {@link java.util.List} object.
+   * @param chromatograms a {@link java.util.List} object.
+   * @param dataPointCache a {@link io.github.msdk.datamodel.DataPointCache} object, or null
+   */
+  @SuppressWarnings("null")
+  public MzMLRawDataFile(File sourceFile, List<String> msFunctions, List<MsScan> msScans,
+      List<Chromatogram> chromatograms, @Nullable DataPointCache dataPointCache) {
     this.sourceFile = sourceFile;
     this.name = sourceFile != null ? sourceFile.getName() : null;
     this.msFunctions = msFunctions;
@@ -69,6 +95,7 @@ public class MzMLRawDataFile implements RawDataFile {
     this.defaultInstrumentConfiguration = "unknown";
     this.defaultDataProcessingScan = "unknown";
     this.defaultDataProcessingChromatogram = "unknown";
+    this.dataPointCache = dataPointCache;
   }
 
   /** {@inheritDoc} */
@@ -139,9 +166,29 @@ public class MzMLRawDataFile implements RawDataFile {
     this.defaultDataProcessingChromatogram = defaultDataProcessingChromatogram;
   }
 
+  /**
+   * <p>
+   * Returns the cache holding the decoded data points of the scans of this file.
+   * </p>
+   *
+   * @return a {@link io.github.msdk.datamodel.DataPointCache} object, or null if each scan keeps
+   *         its decoded data points
+   */
+  @Nullable
+  public DataPointCache getDataPointCache() {
+    return dataPointCache;
+  }
+
   /** {@inheritDoc} */
   @Override
-  public void dispose() {}
+  public void dispose() {
+    final DataPointCache cache = dataPointCache;
+    if (cache != null) {
+      Set<Object> scans = Collections.newSetFromMap(new IdentityHashMap<>());
+      scans.addAll(msScans);
+      cache.invalidateIf(scans::contains);
+    }
+  }
 
 
 }
@@ -264,6 +264,21 @@ public class ByteBufferInputStream extends InputStream {
     return new ByteBufferInputStream(byteBuffer.clone(), size, curr, new boolean[n]);
   }
 
+  /**
+   * Returns an independent stream over <code>length</code> bytes starting at the given position.
+   * The slice shares the underlying buffers but has its own position, so any number of slices can
+   * be read concurrently while this stream is left untouched.
+   *
+   * @param position a long.
+   * @param length a long.
+   * @return a {@link io.github.msdk.io.mzml.util.ByteBufferInputStream} object.
+   */
+  public ByteBufferInputStream slice(long position, long length) {
+    final ByteBufferInputStream slice = copy();
+    slice.constrain(position, length);
+    return slice;
+  }
+
   /**
    * <p>constrain.</p>
    *
@@ -0,0 +1,248 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.io.mzml.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.primitives.Longs;
+
+/**
+ * <p>
+ * Byte offsets of the <code>&lt;spectrum&gt;</code> and <code>&lt;chromatogram&gt;</code>
+ * elements of an mzML file. The offsets are either read from the <code>&lt;indexList&gt;</code> at
+ * the end of an indexedmzML file, or collected by a single pass over the file when the index is
+ * missing or does not match the content of the file.
+ * </p>
+ */
+public class MzMLFileIndex {
+
+  // <indexListOffset> is followed only by an optional <fileChecksum> and the closing tag
+  private static final int TAIL_SIZE = 4096;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private static final byte SPECTRUM_TAG[] = "<spectrum".getBytes(StandardCharsets.US_ASCII);
+  private static final byte CHROMATOGRAM_TAG[] =
+      "<chromatogram".getBytes(StandardCharsets.US_ASCII);
+  private static final byte INDEX_LIST_TAG[] = "<indexList".getBytes(StandardCharsets.US_ASCII);
+
+  private static final Pattern INDEX_LIST_OFFSET_PATTERN =
+      Pattern.compile("<indexListOffset>\\s*([0-9]+)\\s*</indexListOffset>");
+  private static final Pattern INDEX_PATTERN =
+      Pattern.compile("<index\\s+name=\"(spectrum|chromatogram)\"\\s*>(.*?)</index>", Pattern.DOTALL);
+  private static final Pattern OFFSET_PATTERN =
+      Pattern.compile("<offset[^>]*>\\s*([0-9]+)\\s*</offset>");
+
+  private final @Nonnull long spectrumOffsets[];
+  private final @Nonnull long chromatogramOffsets[];
+
+  /**
+   * <p>
+   * Constructor for MzMLFileIndex.
+   * </p>
+   *
+   * @param spectrumOffsets byte offsets of the <code>&lt;spectrum&gt;</code> elements, in file
+   *        order
+   * @param chromatogramOffsets byte offsets of the <code>&lt;chromatogram&gt;</code> elements, in
+   *        file order
+   */
+  public MzMLFileIndex(@Nonnull long spectrumOffsets[], @Nonnull long chromatogramOffsets[]) {
+    this.spectrumOffsets = spectrumOffsets;
+    this.chromatogramOffsets = chromatogramOffsets;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>spectrumOffsets</code>.
+   * </p>
+   *
+   * @return byte offsets of the <code>&lt;spectrum&gt;</code> elements, in file order
+   */
+  public @Nonnull long[] getSpectrumOffsets() {
+    return spectrumOffsets;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>chromatogramOffsets</code>.
+   * </p>
+   *
+   * @return byte offsets of the <code>&lt;chromatogram&gt;</code> elements, in file order
+   */
+  public @Nonnull long[] getChromatogramOffsets() {
+    return chromatogramOffsets;
+  }
+
+  /**
+   * <p>
+   * Checks that every offset of this index points to the opening tag of the corresponding element,
+   * and that the offsets are increasing. Some converters are known to write wrong offsets.
+   * </p>
+   *
+   * @param is the mapped mzML file, its position is not modified
+   * @return true if all offsets are correct
+   * @throws java.io.IOException if any.
+   */
+  public boolean isValid(@Nonnull ByteBufferInputStream is) throws IOException {
+    final ByteBufferInputStream copy = is.copy();
+    final byte buffer[] = new byte[CHROMATOGRAM_TAG.length + 1];
+    return checkOffsets(copy, spectrumOffsets, SPECTRUM_TAG, buffer)
+        && checkOffsets(copy, chromatogramOffsets, CHROMATOGRAM_TAG, buffer);
+  }
+
+  /**
+   * <p>
+   * Reads the <code>&lt;indexList&gt;</code> of an indexedmzML file.
+   * </p>
+   *
+   * @param is the mapped mzML file, its position is not modified
+   * @return the index, or null if the file does not contain an index
+   * @throws java.io.IOException if any.
+   */
+  public static @Nullable MzMLFileIndex readIndexList(@Nonnull ByteBufferInputStream is)
+      throws IOException {
+    final ByteBufferInputStream copy = is.copy();
+    final long length = copy.length();
+
+    final String tail = readString(copy, Math.max(0, length - TAIL_SIZE), length);
+    final Matcher offsetMatcher = INDEX_LIST_OFFSET_PATTERN.matcher(tail);
+    if (!offsetMatcher.find())
+      return null;
+    final long indexListOffset = Long.parseLong(offsetMatcher.group(1));
+    if (indexListOffset < 0 || !startsWith(copy, indexListOffset, INDEX_LIST_TAG,
+        new byte[INDEX_LIST_TAG.length + 1]))
+      return null;
+    if (length - indexListOffset > Integer.MAX_VALUE)
+      return null;
+
+    final String indexList = readString(copy, indexListOffset, length);
+    List<Long> spectra = new ArrayList<>(), chromatograms = new ArrayList<>();
+    final Matcher indexMatcher = INDEX_PATTERN.matcher(indexList);
+    while (indexMatcher.find()) {
+      List<Long> offsets = indexMatcher.group(1).equals("spectrum") ? spectra : chromatograms;
+      final Matcher matcher = OFFSET_PATTERN.matcher(indexMatcher.group(2));
+      while (matcher.find())
+        offsets.add(Long.parseLong(matcher.group(1)));
+    }
+
+    return new MzMLFileIndex(Longs.toArray(spectra), Longs.toArray(chromatograms));
+  }
+
+  /**
+   * <p>
+   * Builds the index by a single pass over the whole file, looking for the opening tags of the
+   * <code>&lt;spectrum&gt;</code> and <code>&lt;chromatogram&gt;</code> elements.
+   * </p>
+   *
+   * @param is the mapped mzML file, its position is not modified
+   * @return the index
+   * @throws java.io.IOException if any.
+   */
+  public static @Nonnull MzMLFileIndex buildIndex(@Nonnull ByteBufferInputStream is)
+      throws IOException {
+    final ByteBufferInputStream copy = is.copy();
+    copy.position(0);
+
+    List<Long> spectra = new ArrayList<>(), chromatograms = new ArrayList<>();
+    final byte buffer[] = new byte[BUFFER_SIZE];
+    // Bytes needed after a '<' to recognize a tag, including the following separator
+    final int lookahead = CHROMATOGRAM_TAG.length + 1;
+    long bufferStart = 0;
+    int filled = 0;
+    while (true) {
+      final int read = copy.read(buffer, filled, buffer.length - filled);
+      final boolean eof = read <= 0;
+      if (!eof)
+        filled += read;
+
+      // Tags which may continue past the end of the buffer are left for the next round
+      final int limit = eof ? filled : filled - lookahead;
+      int i = 0;
+      for (; i < limit; i++) {
+        if (buffer[i] != '<')
+          continue;
+        if (matchesTag(buffer, i, filled, SPECTRUM_TAG))
+          spectra.add(bufferStart + i);
+        else if (matchesTag(buffer, i, filled, CHROMATOGRAM_TAG))
+          chromatograms.add(bufferStart + i);
+      }
+      if (eof)
+        break;
+
+      System.arraycopy(buffer, i, buffer, 0, filled - i);
+      bufferStart += i;
+      filled -= i;
+    }
+
+    return new MzMLFileIndex(Longs.toArray(spectra), Longs.toArray(chromatograms));
+  }
+
+  private static boolean checkOffsets(ByteBufferInputStream is, long offsets[], byte tag[],
+      byte buffer[]) throws IOException {
+    long previous = -1;
+    for (long offset : offsets) {
+      if (offset <= previous || offset >= is.length())
+        return false;
+      if (!startsWith(is, offset, tag, buffer))
+        return false;
+      previous = offset;
+    }
+    return true;
+  }
+
+  private static boolean startsWith(ByteBufferInputStream is, long offset, byte tag[],
+      byte buffer[]) throws IOException {
+    final int length = tag.length + 1;
+    if (offset + length > is.length())
+      return false;
+    is.position(offset);
+    final int read = is.read(buffer, 0, length);
+    return matchesTag(buffer, 0, read, tag);
+  }
+
+  private static boolean matchesTag(byte buffer[], int start, int end, byte tag[]) {
+    if (end - start <= tag.length)
+      return false;
+    for (int j = 0; j < tag.length; j++) {
+      if (buffer[start + j] != tag[j])
+        return false;
+    }
+    // The tag name must end here, e.g. <spectrum but not <spectrumList
+    final byte next = buffer[start + tag.length];
+    return next == ' ' || next == '\t' || next == '\r' || next == '\n' || next == '>';
+  }
+
+  private static String readString(ByteBufferInputStream is, long from, long to)
+      throws IOException {
+    final byte bytes[] = new byte[(int) (to - from)];
+    is.position(from);
+    int total = 0;
+    while (total < bytes.length) {
+      final int read = is.read(bytes, total, bytes.length - total);
+      if (read <= 0)
+        break;
+      total += read;
+    }
+    return new String(bytes, 0, total, StandardCharsets.ISO_8859_1);
+  }
+
+}
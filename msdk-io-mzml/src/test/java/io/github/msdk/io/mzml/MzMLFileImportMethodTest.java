@@ -24,7 +24,11 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -33,6 +37,7 @@ import io.github.msdk.MSDKException;
 import io.github.msdk.datamodel.ActivationType;
 import io.github.msdk.datamodel.Chromatogram;
 import io.github.msdk.datamodel.ChromatogramType;
+import io.github.msdk.datamodel.DataPointCache;
 import io.github.msdk.datamodel.IsolationInfo;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.MsSpectrumType;
@@ -40,6 +45,8 @@ import io.github.msdk.datamodel.PolarityType;
 import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.io.mzml.MzMLFileImportMethod;
 import io.github.msdk.io.mzml.data.MzMLMsScan;
+import io.github.msdk.io.mzml.data.MzMLPeaksDecoder;
+import io.github.msdk.util.CloseableIterator;
 import io.github.msdk.util.MsSpectrumUtil;
 
 public class MzMLFileImportMethodTest {
@@ -646,6 +653,177 @@ public class MzMLFileImportMethodTest {
     rawFile.dispose();
   }
 
+  @Test
+  public void testParallelImport() throws Exception {
+    // Indexed, non-indexed and wrongly indexed files
+    String files[] = {"5peptideFT.mzML", "SRM.mzML", "mzML_with_UV.mzML",
+        "RawCentriodCidWithMsLevelInRefParamGroup.mzML", "emptyScan.mzML", "tiny.pwiz.idx.mzML",
+        "tiny.pwiz.err.idx.mzML", "tiny.pwiz.mzML", "MzValues_Zlib+Numpress.mzML"};
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (String file : files) {
+        File inputFile = getResourcePath(file).toFile();
+        RawDataFile serialFile = new MzMLFileImportMethod(inputFile).execute();
+        MzMLFileImportMethod parser = new MzMLFileImportMethod(inputFile, executor);
+        RawDataFile parallelFile = parser.execute();
+        Assert.assertEquals(1.0, parser.getFinishedPercentage(), 0.0001);
+
+        List<MsScan> serialScans = serialFile.getScans();
+        List<MsScan> parallelScans = parallelFile.getScans();
+        Assert.assertEquals(file, serialScans.size(), parallelScans.size());
+        for (int i = 0; i < serialScans.size(); i++) {
+          MsScan expected = serialScans.get(i), actual = parallelScans.get(i);
+          Assert.assertSame(parallelFile, actual.getRawDataFile());
+          Assert.assertEquals(expected.getScanNumber(), actual.getScanNumber());
+          Assert.assertEquals(expected.getMsLevel(), actual.getMsLevel());
+          Assert.assertEquals(expected.getRetentionTime(), actual.getRetentionTime());
+          Assert.assertEquals(expected.getSpectrumType(), actual.getSpectrumType());
+          Assert.assertEquals(expected.getPolarity(), actual.getPolarity());
+          Assert.assertEquals(expected.getIsolations().size(), actual.getIsolations().size());
+          Assert.assertArrayEquals(expected.getMzValues(), actual.getMzValues(), 0.0);
+          Assert.assertArrayEquals(expected.getIntensityValues(), actual.getIntensityValues(),
+              0f);
+        }
+
+        List<Chromatogram> serialChromatograms = serialFile.getChromatograms();
+        List<Chromatogram> parallelChromatograms = parallelFile.getChromatograms();
+        Assert.assertEquals(file, serialChromatograms.size(), parallelChromatograms.size());
+        for (int i = 0; i < serialChromatograms.size(); i++) {
+          Chromatogram expected = serialChromatograms.get(i),
+              actual = parallelChromatograms.get(i);
+          Assert.assertEquals(expected.getChromatogramNumber(), actual.getChromatogramNumber());
+          Assert.assertArrayEquals(expected.getRetentionTimes(), actual.getRetentionTimes(), 0f);
+          Assert.assertArrayEquals(expected.getIntensityValues(), actual.getIntensityValues(),
+              0f);
+        }
+
+        serialFile.dispose();
+        parallelFile.dispose();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testConcurrentDecoding() throws Exception {
+    File inputFile = getResourcePath("MzValues_Zlib+Numpress.mzML").toFile();
+    RawDataFile expectedFile = new MzMLFileImportMethod(inputFile).execute();
+    RawDataFile rawFile = new MzMLFileImportMethod(inputFile).execute();
+
+    List<MzMLMsScan> scans = new ArrayList<>();
+    for (MsScan scan : rawFile.getScans())
+      scans.add((MzMLMsScan) scan);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      // Each scan is decoded by several tasks at once
+      List<CompletableFuture<MzMLMsScan>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++)
+        futures.addAll(MzMLPeaksDecoder.decodeAll(scans, executor));
+
+      List<MsScan> expectedScans = expectedFile.getScans();
+      for (int i = 0; i < futures.size(); i++) {
+        MsScan scan = futures.get(i).get();
+        MsScan expected = expectedScans.get(i % scans.size());
+        Assert.assertSame(scans.get(i % scans.size()), scan);
+        Assert.assertArrayEquals(expected.getMzValues(), scan.getMzValues(), 0.0);
+        Assert.assertArrayEquals(expected.getIntensityValues(), scan.getIntensityValues(), 0f);
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    expectedFile.dispose();
+    rawFile.dispose();
+  }
+
+  @Test
+  public void testDataPointCache() throws Exception {
+    File inputFile = getResourcePath("5peptideFT.mzML").toFile();
+    RawDataFile expectedFile = new MzMLFileImportMethod(inputFile).execute();
+
+    // The cache can hold the data points of a single scan only
+    DataPointCache cache = new DataPointCache(300000);
+    MzMLRawDataFile rawFile = new MzMLFileImportMethod(inputFile, null, cache).execute();
+
+    List<MsScan> expectedScans = expectedFile.getScans();
+    List<MsScan> scans = rawFile.getScans();
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = 0; i < scans.size(); i++) {
+        Assert.assertArrayEquals(expectedScans.get(i).getMzValues(), scans.get(i).getMzValues(),
+            0.0);
+        Assert.assertArrayEquals(expectedScans.get(i).getIntensityValues(),
+            scans.get(i).getIntensityValues(), 0f);
+        Assert.assertTrue(cache.getUsedBytes() <= cache.getMaximumBytes());
+      }
+    }
+    Assert.assertTrue(cache.getEvictionCount() > 0);
+    Assert.assertTrue(cache.getMissCount() > 0);
+
+    // Repeated accesses to the same scan are served from the cache
+    final long hits = cache.getHitCount();
+    scans.get(0).getMzValues();
+    scans.get(0).getMzValues();
+    Assert.assertEquals(hits + 1, cache.getHitCount());
+
+    rawFile.dispose();
+    Assert.assertEquals(0, cache.getEntryCount());
+    expectedFile.dispose();
+  }
+
+  @Test
+  public void testScanIterator() throws Exception {
+    String files[] = {"5peptideFT.mzML", "SRM.mzML", "mzML_with_UV.mzML", "emptyScan.mzML",
+        "tiny.pwiz.idx.mzML", "MzValues_Zlib+Numpress.mzML"};
+    for (String file : files) {
+      File inputFile = getResourcePath(file).toFile();
+      RawDataFile expectedFile = new MzMLFileImportMethod(inputFile).execute();
+      List<MsScan> expectedScans = expectedFile.getScans();
+
+      MzMLFileImportMethod importer = new MzMLFileImportMethod(inputFile);
+      int count = 0;
+      try (CloseableIterator<MsScan> iterator = importer.openScanIterator()) {
+        while (iterator.hasNext()) {
+          MsScan expected = expectedScans.get(count++), actual = iterator.next();
+          Assert.assertEquals(expected.getScanNumber(), actual.getScanNumber());
+          Assert.assertEquals(expected.getRetentionTime(), actual.getRetentionTime());
+          Assert.assertEquals(expected.getMsLevel(), actual.getMsLevel());
+          Assert.assertArrayEquals(expected.getMzValues(), actual.getMzValues(), 0.0);
+          Assert.assertArrayEquals(expected.getIntensityValues(), actual.getIntensityValues(), 0f);
+        }
+      }
+      Assert.assertEquals(file, expectedScans.size(), count);
+
+      // Nothing is retained behind the iterator
+      Assert.assertTrue(importer.getResult().getScans().isEmpty());
+      expectedFile.dispose();
+    }
+  }
+
+  @Test
+  public void testScanStream() throws Exception {
+    File inputFile = getResourcePath("5peptideFT.mzML").toFile();
+    RawDataFile expectedFile = new MzMLFileImportMethod(inputFile).execute();
+    double expectedTIC = expectedFile.getScans().stream().mapToDouble(MsScan::getTIC).sum();
+
+    try (Stream<MsScan> scans = new MzMLFileImportMethod(inputFile).openScanIterator().stream()) {
+      Assert.assertEquals(expectedTIC, scans.mapToDouble(MsScan::getTIC).sum(), 0.0);
+    }
+
+    // Stop early, from an InputStream
+    try (CloseableIterator<MsScan> iterator =
+        new MzMLFileImportMethod(new FileInputStream(inputFile)).openScanIterator()) {
+      MsScan first = iterator.next();
+      Assert.assertEquals(expectedFile.getScans().get(0).getScanNumber(), first.getScanNumber());
+      Assert.assertArrayEquals(expectedFile.getScans().get(0).getMzValues(), first.getMzValues(),
+          0.0);
+      iterator.close();
+      Assert.assertFalse(iterator.hasNext());
+    }
+    expectedFile.dispose();
+  }
+
   private Predicate<MsScan> getMsScanPredicate(List<Integer> scansToParse) {
     return s -> scansToParse.contains(s.getScanNumber());
   }
@@ -0,0 +1,75 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.io.mzml.util;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Paths;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MzMLFileIndexTest {
+
+  private ByteBufferInputStream mapResource(String resource) throws Exception {
+    final URL url = MzMLFileIndexTest.class.getClassLoader().getResource(resource);
+    final File file = Paths.get(url.toURI()).toFile();
+    return FileMemoryMapper.mapToMemory(file);
+  }
+
+  @Test
+  public void testIndexList() throws Exception {
+    ByteBufferInputStream is = mapResource("5peptideFT.mzML");
+    MzMLFileIndex index = MzMLFileIndex.readIndexList(is);
+    Assert.assertNotNull(index);
+    Assert.assertEquals(7, index.getSpectrumOffsets().length);
+    Assert.assertEquals(4357, index.getSpectrumOffsets()[0]);
+    Assert.assertEquals(1, index.getChromatogramOffsets().length);
+    Assert.assertTrue(index.isValid(is));
+    Assert.assertEquals(0, is.position());
+
+    // The one-pass builder finds the same offsets
+    MzMLFileIndex builtIndex = MzMLFileIndex.buildIndex(is);
+    Assert.assertArrayEquals(index.getSpectrumOffsets(), builtIndex.getSpectrumOffsets());
+    Assert.assertArrayEquals(index.getChromatogramOffsets(), builtIndex.getChromatogramOffsets());
+  }
+
+  @Test
+  public void testWrongIndexList() throws Exception {
+    // The index of this file was not updated after the file was edited
+    ByteBufferInputStream is = mapResource("tiny.pwiz.idx.mzML");
+    Assert.assertNull(MzMLFileIndex.readIndexList(is));
+    MzMLFileIndex wrongIndex =
+        new MzMLFileIndex(new long[] {5846, 8861, 12669, 14059}, new long[] {17092, 18547});
+    Assert.assertFalse(wrongIndex.isValid(is));
+
+    MzMLFileIndex builtIndex = MzMLFileIndex.buildIndex(is);
+    Assert.assertArrayEquals(new long[] {5726, 8741, 12549, 13939},
+        builtIndex.getSpectrumOffsets());
+    Assert.assertArrayEquals(new long[] {16972, 18427}, builtIndex.getChromatogramOffsets());
+    Assert.assertTrue(builtIndex.isValid(is));
+  }
+
+  @Test
+  public void testNoIndexList() throws Exception {
+    ByteBufferInputStream is = mapResource("tiny.pwiz.mzML");
+    Assert.assertNull(MzMLFileIndex.readIndexList(is));
+    MzMLFileIndex builtIndex = MzMLFileIndex.buildIndex(is);
+    Assert.assertEquals(4, builtIndex.getSpectrumOffsets().length);
+    Assert.assertEquals(2, builtIndex.getChromatogramOffsets().length);
+    Assert.assertTrue(builtIndex.isValid(is));
+  }
+
+}
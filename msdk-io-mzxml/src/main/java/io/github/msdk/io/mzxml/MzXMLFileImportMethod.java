@@ -19,6 +19,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Date;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.zip.DataFormatException;
 
@@ -39,6 +40,7 @@ import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
 import io.github.msdk.datamodel.FileType;
 import io.github.msdk.datamodel.IsolationInfo;
+import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.MsScanType;
 import io.github.msdk.datamodel.MsSpectrumType;
 import io.github.msdk.datamodel.PolarityType;
@@ -47,6 +49,8 @@ import io.github.msdk.datamodel.SimpleIsolationInfo;
 import io.github.msdk.datamodel.SimpleMsScan;
 import io.github.msdk.datamodel.SimpleRawDataFile;
 import io.github.msdk.spectra.centroidprofiledetection.SpectrumTypeDetectionAlgorithm;
+import io.github.msdk.util.CloseableIterator;
+import io.github.msdk.util.ProducerIterator;
 
 /**
  * This class reads mzXML file format.
@@ -60,6 +64,9 @@ public class MzXMLFileImportMethod implements MSDKMethod<RawDataFile> {
 
   private SimpleRawDataFile newRawDataFile;
 
+  // Receives each completed scan
+  private Consumer<MsScan> scanConsumer;
+
   private int totalScans = 0, parsedScans;
 
   private int peaksCount = 0;
@@ -108,6 +115,7 @@ public class MzXMLFileImportMethod implements MSDKMethod<RawDataFile> {
       // Create the XMLBasedRawDataFile object
       newRawDataFile =
           new SimpleRawDataFile(sourceFile.getName(), Optional.of(sourceFile), fileType);
+      scanConsumer = newRawDataFile::addScan;
 
       // Use the default (non-validating) parser
       SAXParserFactory factory = SAXParserFactory.newInstance();
@@ -132,6 +140,33 @@ public class MzXMLFileImportMethod implements MSDKMethod<RawDataFile> {
 
   }
 
+  /**
+   * <p>
+   * Opens a streaming reader over the scans of the file. The file is parsed on a background
+   * thread, which stays at most a few scans ahead of the consumer, and the scans already returned
+   * are not referenced by the iterator nor by their raw data file. The iterator returns the same
+   * scans, in the same order, as {@link #execute()}, and must be closed after use.
+   * </p>
+   *
+   * @return a {@link io.github.msdk.util.CloseableIterator} over the scans
+   * @throws io.github.msdk.MSDKException if the parser cannot be created
+   */
+  public CloseableIterator<MsScan> openScanIterator() throws MSDKException {
+    try {
+      logger.info("Started streaming file " + sourceFile);
+      newRawDataFile =
+          new SimpleRawDataFile(sourceFile.getName(), Optional.of(sourceFile), fileType);
+      dataTypeFactory = DatatypeFactory.newInstance();
+      final SAXParser saxParser = SAXParserFactory.newInstance().newSAXParser();
+      return new ProducerIterator<MsScan>("mzXML reader " + sourceFile.getName(), sink -> {
+        scanConsumer = sink;
+        saxParser.parse(sourceFile, handler);
+      });
+    } catch (Exception e) {
+      throw new MSDKException(e);
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   public Float getFinishedPercentage() {
@@ -254,7 +289,7 @@ public class MzXMLFileImportMethod implements MSDKMethod<RawDataFile> {
 
       // </scan>
       if (qName.equalsIgnoreCase("scan")) {
-        newRawDataFile.addScan(buildingScan);
+        scanConsumer.accept(buildingScan);
         parsedScans++;
         return;
       }
@@ -1,14 +1,12 @@
 package io.github.msdk.io.mzxml;
 
-import java.io.DataInputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.nio.file.Path;
-import java.util.Base64;
 import java.util.Date;
-import java.util.zip.InflaterInputStream;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.Duration;
 
@@ -19,6 +17,7 @@ import com.google.common.collect.Range;
 
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.DataPointCache;
 import io.github.msdk.datamodel.IsolationInfo;
 import io.github.msdk.datamodel.MsScanType;
 import io.github.msdk.datamodel.MsSpectrumType;
@@ -42,6 +41,7 @@ import javolution.xml.stream.XMLStreamReader;
 public class MzXMLFileParser implements MSDKMethod<RawDataFile> {
 
   private final @Nonnull File mzXMLFile;
+  private final @Nullable DataPointCache dataPointCache;
   private MzXMLRawDataFile newRawFile;
   private volatile boolean canceled;
   private Float progress;
@@ -64,7 +64,23 @@ public class MzXMLFileParser implements MSDKMethod<RawDataFile> {
    * @param mzXMLFile a {@link java.io.File} object.
    */
   public MzXMLFileParser(File mzXMLFile) {
+    this(mzXMLFile, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for MzXMLFileParser. The decoded data points of the scans are kept in the given
+   * cache instead of being held by each scan, and are decoded again from the memory-mapped file
+   * when they have been evicted.
+   * </p>
+   *
+   * @param mzXMLFile a {@link java.io.File} object.
+   * @param dataPointCache a {@link io.github.msdk.datamodel.DataPointCache} object, possibly
+   *        shared with other files, or null to keep the data points in the scans.
+   */
+  public MzXMLFileParser(File mzXMLFile, @Nullable DataPointCache dataPointCache) {
     this.mzXMLFile = mzXMLFile;
+    this.dataPointCache = dataPointCache;
     this.canceled = false;
     this.progress = 0f;
     this.lastLoggedProgress = 0;
@@ -110,7 +126,7 @@ public class MzXMLFileParser implements MSDKMethod<RawDataFile> {
       final XMLStreamReaderImpl xmlStreamReader = new XMLStreamReaderImpl();
       xmlStreamReader.setInput(is, "UTF-8");
 
-      newRawFile = new MzXMLRawDataFile(mzXMLFile);
+      newRawFile = new MzXMLRawDataFile(mzXMLFile, dataPointCache);
       dataTypeFactory = DatatypeFactory.newInstance();
       Vars vars = new Vars();
 
@@ -148,7 +164,10 @@ public class MzXMLFileParser implements MSDKMethod<RawDataFile> {
 
                 CharArray msFuncName = xmlStreamReader.getAttributeValue(null, "scanType");
 
-                buildingScan = new SimpleMsScan(scanNumberInt);
+                if (dataPointCache != null)
+                  buildingScan = new MzXMLMsScan(scanNumberInt, dataPointCache);
+                else
+                  buildingScan = new SimpleMsScan(scanNumberInt);
 
                 // MS function
                 if (msFuncName != null) {
@@ -227,35 +246,19 @@ public class MzXMLFileParser implements MSDKMethod<RawDataFile> {
                   double[] mzValues = new double[vars.peaksCount];
                   float[] intensityValues = new float[vars.peaksCount];
 
-                  // Base64 decoder
-                  InputStream decodedIs = Base64.getDecoder().wrap(vars.peaksChars);
-                  InflaterInputStream iis = null;
-                  DataInputStream peakStream = null;
+                  MzXMLMsScan.decodePeaks(vars.peaksChars, vars.peaksCount,
+                      "64".equals(vars.precision), vars.compressionFlag, mzValues,
+                      intensityValues);
 
-                  // Decompress if the array is compressed
-                  if (vars.compressionFlag) {
-                    iis = new InflaterInputStream(decodedIs);
-                    peakStream = new DataInputStream(iis);
+                  // Set the final data points to the scan
+                  if (buildingScan instanceof MzXMLMsScan) {
+                    ((MzXMLMsScan) buildingScan).setPeaks(is, vars.peaksStart,
+                        vars.peaksLength, "64".equals(vars.precision), vars.compressionFlag,
+                        mzValues, intensityValues, vars.peaksCount);
                   } else {
-                    peakStream = new DataInputStream(decodedIs);
+                    buildingScan.setDataPoints(mzValues, intensityValues, vars.peaksCount);
                   }
 
-                  for (int i = 0; i < vars.peaksCount; i++) {
-
-                    // Always respect this order pairOrder="m/z-int"
-                    if ("64".equals(vars.precision)) {
-                      mzValues[i] = peakStream.readDouble();
-                      intensityValues[i] = (float) peakStream.readDouble();
-                    } else {
-                      mzValues[i] = (double) peakStream.readFloat();
-                      intensityValues[i] = peakStream.readFloat();
-                    }
-
-                  }
-
-                  // Set the final data points to the scan
-                  buildingScan.setDataPoints(mzValues, intensityValues, vars.peaksCount);
-
                   // Auto-detect whether this scan is centroided
                   MsSpectrumType spectrumType = SpectrumTypeDetectionAlgorithm
                       .detectSpectrumType(mzValues, intensityValues, vars.peaksCount);
@@ -268,8 +271,9 @@ public class MzXMLFileParser implements MSDKMethod<RawDataFile> {
               if (vars.currentTag != null) {
                 switch (vars.currentTag.toString()) {
                   case TAG_PEAKS:
+                    vars.peaksLength = xmlStreamReader.getTextLength();
                     vars.peaksChars = new ByteBufferInputStreamAdapter(is.copy(), vars.peaksStart,
-                        xmlStreamReader.getTextLength());
+                        vars.peaksLength);
                     break;
                   case TAG_PRECURSOR_MZ:
                     IsolationInfo newIsolation = new SimpleIsolationInfo(
@@ -344,6 +348,7 @@ class Vars {
   boolean compressionFlag;
   CharArray currentTag;
   Integer peaksStart;
+  int peaksLength;
   InputStream peaksChars;
 
   Vars() {
@@ -354,6 +359,7 @@ class Vars {
     compressionFlag = false;
     currentTag = null;
     peaksStart = 0;
+    peaksLength = 0;
     peaksChars = null;
   }
 }
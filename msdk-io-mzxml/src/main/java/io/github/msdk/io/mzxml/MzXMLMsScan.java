@@ -0,0 +1,221 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.io.mzxml;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.util.Base64;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.MSDKRuntimeException;
+import io.github.msdk.datamodel.DataPointCache;
+import io.github.msdk.datamodel.DataPointConsumer;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.util.MsSpectrumUtil;
+import it.unimi.dsi.io.ByteBufferInputStream;
+
+/**
+ * <p>
+ * A scan of a memory-mapped mzXML file whose data points are kept in a
+ * {@link io.github.msdk.datamodel.DataPointCache} instead of the scan itself. The scan only
+ * remembers the location of its encoded <code>peaks</code> element, and decodes it again when the
+ * data points have been evicted from the cache. Instances are created by
+ * {@link io.github.msdk.io.mzxml.MzXMLFileParser} when it is given a cache.
+ * </p>
+ */
+public class MzXMLMsScan extends SimpleMsScan {
+
+  // Slots of the decoded arrays in the DataPointCache
+  private static final int MZ_SLOT = 0, INTENSITY_SLOT = 1;
+
+  private final @Nonnull DataPointCache dataPointCache;
+  private ByteBufferInputStream source;
+  private long peaksPosition, peaksLength;
+  private int numOfDataPoints;
+  private boolean doublePrecision, compressed;
+  private Range<Double> mzRange;
+  private Float totalIonCurrent;
+
+  /**
+   * <p>
+   * Constructor for MzXMLMsScan.
+   * </p>
+   *
+   * @param scanNumber the Scan Number
+   * @param dataPointCache the {@link io.github.msdk.datamodel.DataPointCache} holding the decoded
+   *        data points
+   */
+  public MzXMLMsScan(@Nonnull Integer scanNumber, @Nonnull DataPointCache dataPointCache) {
+    super(scanNumber);
+    this.dataPointCache = dataPointCache;
+    this.totalIonCurrent = 0f;
+  }
+
+  /**
+   * Sets the location of the encoded data points and puts the already decoded values in the cache.
+   */
+  void setPeaks(@Nonnull ByteBufferInputStream source, long peaksPosition, long peaksLength,
+      boolean doublePrecision, boolean compressed, @Nonnull double mzValues[],
+      @Nonnull float intensityValues[], int numOfDataPoints) {
+    this.source = source;
+    this.peaksPosition = peaksPosition;
+    this.peaksLength = peaksLength;
+    this.doublePrecision = doublePrecision;
+    this.compressed = compressed;
+    this.numOfDataPoints = numOfDataPoints;
+    this.mzRange = MsSpectrumUtil.getMzRange(mzValues, numOfDataPoints);
+    this.totalIonCurrent = MsSpectrumUtil.getTIC(intensityValues, numOfDataPoints);
+    dataPointCache.putDoubleArray(this, MZ_SLOT, mzValues);
+    dataPointCache.putFloatArray(this, INTENSITY_SLOT, intensityValues);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull Integer getNumberOfDataPoints() {
+    return numOfDataPoints;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull double[] getMzValues(double array[]) {
+    if (array == null || array.length < numOfDataPoints)
+      array = new double[numOfDataPoints];
+    if (numOfDataPoints > 0)
+      System.arraycopy(loadMzValues(), 0, array, 0, numOfDataPoints);
+    return array;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull float[] getIntensityValues(float array[]) {
+    if (array == null || array.length < numOfDataPoints)
+      array = new float[numOfDataPoints];
+    if (numOfDataPoints > 0)
+      System.arraycopy(loadIntensityValues(), 0, array, 0, numOfDataPoints);
+    return array;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull DoubleBuffer getMzBuffer() {
+    if (numOfDataPoints == 0)
+      return DoubleBuffer.allocate(0).asReadOnlyBuffer();
+    return DoubleBuffer.wrap(loadMzValues(), 0, numOfDataPoints).asReadOnlyBuffer();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull FloatBuffer getIntensityBuffer() {
+    if (numOfDataPoints == 0)
+      return FloatBuffer.allocate(0).asReadOnlyBuffer();
+    return FloatBuffer.wrap(loadIntensityValues(), 0, numOfDataPoints).asReadOnlyBuffer();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void forEachDataPoint(@Nonnull DataPointConsumer consumer) {
+    if (numOfDataPoints == 0)
+      return;
+    final double mzValues[] = loadMzValues();
+    final float intensityValues[] = loadIntensityValues();
+    for (int i = 0; i < numOfDataPoints; i++)
+      consumer.accept(i, mzValues[i], intensityValues[i]);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull Float getTIC() {
+    return totalIonCurrent;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Range<Double> getMzRange() {
+    return mzRange;
+  }
+
+  // Both arrays are interleaved in the file, so a miss decodes and caches both of them
+  private double[] loadMzValues() {
+    return dataPointCache.getDoubleArray(this, MZ_SLOT, () -> {
+      double mzValues[] = new double[numOfDataPoints];
+      float intensityValues[] = new float[numOfDataPoints];
+      decode(mzValues, intensityValues);
+      dataPointCache.putFloatArray(this, INTENSITY_SLOT, intensityValues);
+      return mzValues;
+    });
+  }
+
+  private float[] loadIntensityValues() {
+    return dataPointCache.getFloatArray(this, INTENSITY_SLOT, () -> {
+      double mzValues[] = new double[numOfDataPoints];
+      float intensityValues[] = new float[numOfDataPoints];
+      decode(mzValues, intensityValues);
+      dataPointCache.putDoubleArray(this, MZ_SLOT, mzValues);
+      return intensityValues;
+    });
+  }
+
+  private void decode(double mzValues[], float intensityValues[]) {
+    // Each decoding reads from its own copy of the mapped file, so scans can be decoded in parallel
+    InputStream peaksChars =
+        new ByteBufferInputStreamAdapter(source.copy(), peaksPosition, peaksLength);
+    try {
+      decodePeaks(peaksChars, numOfDataPoints, doublePrecision, compressed, mzValues,
+          intensityValues);
+    } catch (IOException e) {
+      throw new MSDKRuntimeException(e);
+    }
+  }
+
+  /**
+   * Decodes the base64 encoded content of a <code>peaks</code> element into the given arrays.
+   */
+  static void decodePeaks(@Nonnull InputStream peaksChars, int peaksCount,
+      boolean doublePrecision, boolean compressed, @Nonnull double mzValues[],
+      @Nonnull float intensityValues[]) throws IOException {
+
+    // Base64 decoder
+    InputStream decodedIs = Base64.getDecoder().wrap(peaksChars);
+    DataInputStream peakStream;
+
+    // Decompress if the array is compressed
+    if (compressed) {
+      peakStream = new DataInputStream(new InflaterInputStream(decodedIs));
+    } else {
+      peakStream = new DataInputStream(decodedIs);
+    }
+
+    for (int i = 0; i < peaksCount; i++) {
+
+      // Always respect this order pairOrder="m/z-int"
+      if (doublePrecision) {
+        mzValues[i] = peakStream.readDouble();
+        intensityValues[i] = (float) peakStream.readDouble();
+      } else {
+        mzValues[i] = (double) peakStream.readFloat();
+        intensityValues[i] = peakStream.readFloat();
+      }
+
+    }
+  }
+
+}
@@ -2,15 +2,20 @@ package io.github.msdk.io.mzxml;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 
 import io.github.msdk.datamodel.Chromatogram;
+import io.github.msdk.datamodel.DataPointCache;
 import io.github.msdk.datamodel.FileType;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
@@ -30,6 +35,8 @@ public class MzXMLRawDataFile implements RawDataFile {
 
   private @Nonnull String name;
 
+  private final @Nullable DataPointCache dataPointCache;
+
   /**
    * <p>
    * Constructor for MzXMLRawDataFile.
@@ -38,7 +45,21 @@ public class MzXMLRawDataFile implements RawDataFile {
    * @param sourceFile a {@link java.io.File} object.
    */
   public MzXMLRawDataFile(@Nonnull File sourceFile) {
+    this(sourceFile, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for MzXMLRawDataFile.
+   * </p>
+   *
+   * @param sourceFile a {@link java.io.File} object.
+   * @param dataPointCache the {@link io.github.msdk.datamodel.DataPointCache} used by the scans of
+   *        this file, or null. The cached data points of the scans are removed on dispose.
+   */
+  public MzXMLRawDataFile(@Nonnull File sourceFile, @Nullable DataPointCache dataPointCache) {
     this.sourceFile = sourceFile;
+    this.dataPointCache = dataPointCache;
     this.name = sourceFile.getName();
     this.msScans = new ArrayList<>();
     this.chromatograms = new ArrayList<>();
@@ -103,9 +124,27 @@ public class MzXMLRawDataFile implements RawDataFile {
     return ImmutableList.copyOf(chromatograms);
   }
 
+  /**
+   * <p>Getter for the field <code>dataPointCache</code>.</p>
+   *
+   * @return a {@link io.github.msdk.datamodel.DataPointCache} object, or null.
+   */
+  @Nullable
+  public DataPointCache getDataPointCache() {
+    return dataPointCache;
+  }
+
   /** {@inheritDoc} */
   @Override
-  public void dispose() {}
+  public void dispose() {
+    if (dataPointCache != null) {
+      Set<Object> scans = Collections.newSetFromMap(new IdentityHashMap<>());
+      synchronized (msScans) {
+        scans.addAll(msScans);
+      }
+      dataPointCache.invalidateIf(scans::contains);
+    }
+  }
 
   /** {@inheritDoc} */
   @Override
@@ -27,6 +27,7 @@ import io.github.msdk.MSDKException;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.PolarityType;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.util.CloseableIterator;
 import io.github.msdk.util.MsSpectrumUtil;
 
 public class MzXMLFileImportMethodTest {
@@ -131,4 +132,35 @@ public class MzXMLFileImportMethodTest {
 
   }
 
+  @Test
+  public void testScanIterator() throws MSDKException {
+
+    File inputFile = getResourcePath("R1_RG59_B4_1.mzXML").toFile();
+    RawDataFile expectedFile = new MzXMLFileImportMethod(inputFile).execute();
+    List<MsScan> expectedScans = expectedFile.getScans();
+
+    MzXMLFileImportMethod importer = new MzXMLFileImportMethod(inputFile);
+    int count = 0;
+    try (CloseableIterator<MsScan> iterator = importer.openScanIterator()) {
+      while (iterator.hasNext()) {
+        MsScan expected = expectedScans.get(count++), actual = iterator.next();
+        Assert.assertEquals(expected.getScanNumber(), actual.getScanNumber());
+        Assert.assertEquals(expected.getRetentionTime(), actual.getRetentionTime());
+        Assert.assertEquals(expected.getSpectrumType(), actual.getSpectrumType());
+        Assert.assertArrayEquals(expected.getMzValues(), actual.getMzValues(), 0.0);
+        Assert.assertArrayEquals(expected.getIntensityValues(), actual.getIntensityValues(), 0f);
+      }
+    }
+    Assert.assertEquals(expectedScans.size(), count);
+    Assert.assertTrue(importer.getResult().getScans().isEmpty());
+
+    // Stop after the first scan
+    try (CloseableIterator<MsScan> iterator =
+        new MzXMLFileImportMethod(inputFile).openScanIterator()) {
+      Assert.assertEquals(expectedScans.get(0).getScanNumber(), iterator.next().getScanNumber());
+    }
+
+    expectedFile.dispose();
+  }
+
 }
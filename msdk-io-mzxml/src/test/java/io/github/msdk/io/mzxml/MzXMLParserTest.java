@@ -24,6 +24,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.DataPointCache;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.PolarityType;
 import io.github.msdk.datamodel.RawDataFile;
@@ -125,4 +126,37 @@ public class MzXMLParserTest {
     rawFile.dispose();
 
   }
+
+  @Test
+  public void testDataPointCache() throws Exception {
+
+    File inputFile = getResourcePath("R1_RG59_B4_1.mzXML").toFile();
+    RawDataFile expectedFile = new MzXMLFileParser(inputFile).execute();
+
+    // The cache is much smaller than the data points of the whole file
+    DataPointCache cache = new DataPointCache(100000);
+    RawDataFile rawFile = new MzXMLFileParser(inputFile, cache).execute();
+    Assert.assertTrue(cache.getEvictionCount() > 0);
+
+    List<MsScan> expectedScans = expectedFile.getScans();
+    List<MsScan> scans = rawFile.getScans();
+    Assert.assertEquals(expectedScans.size(), scans.size());
+    for (int i = 0; i < scans.size(); i++) {
+      MsScan expected = expectedScans.get(i);
+      MsScan scan = scans.get(i);
+      Assert.assertEquals(expected.getNumberOfDataPoints(), scan.getNumberOfDataPoints());
+      Assert.assertEquals(expected.getSpectrumType(), scan.getSpectrumType());
+      Assert.assertEquals(expected.getTIC(), scan.getTIC());
+      Assert.assertEquals(expected.getMzRange(), scan.getMzRange());
+      Assert.assertArrayEquals(expected.getMzValues(), scan.getMzValues(), 0.0);
+      Assert.assertArrayEquals(expected.getIntensityValues(), scan.getIntensityValues(), 0f);
+      Assert.assertTrue(cache.getUsedBytes() <= cache.getMaximumBytes());
+    }
+
+    rawFile.dispose();
+    Assert.assertEquals(0, cache.getEntryCount());
+    expectedFile.dispose();
+
+  }
+
 }
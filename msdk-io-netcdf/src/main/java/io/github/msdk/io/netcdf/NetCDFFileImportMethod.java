@@ -24,14 +24,20 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.AbstractIterator;
+
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
+import io.github.msdk.MSDKRuntimeException;
+import io.github.msdk.datamodel.DataPointCache;
 import io.github.msdk.datamodel.FileType;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.util.CloseableIterator;
 import ucar.ma2.Array;
 import ucar.ma2.IndexIterator;
+import ucar.ma2.InvalidRangeException;
 import ucar.nc2.Attribute;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
@@ -58,6 +64,7 @@ public class NetCDFFileImportMethod implements MSDKMethod<RawDataFile> {
   private Variable massValueVariable, intensityValueVariable;
 
   private Predicate<MsScan> msScanPredicate;
+  private final @Nullable DataPointCache dataPointCache;
 
   // Some software produces netcdf files with a scale factor such as 0.05
   // TODO: need junit test for this
@@ -83,8 +90,26 @@ public class NetCDFFileImportMethod implements MSDKMethod<RawDataFile> {
    * @param msScanPredicate a {@link java.util.function.Predicate} object.
    */
   public NetCDFFileImportMethod(@Nonnull File sourceFile, Predicate<MsScan> msScanPredicate) {
+    this(sourceFile, msScanPredicate, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for NetCDFFileImportMethod. The data points of the imported scans are kept in the
+   * given cache instead of being held by each scan, and are read again from the file when they
+   * have been evicted.
+   * </p>
+   *
+   * @param sourceFile a {@link java.io.File} object.
+   * @param msScanPredicate a {@link java.util.function.Predicate} object.
+   * @param dataPointCache a {@link io.github.msdk.datamodel.DataPointCache} object, possibly
+   *        shared with other files, or null to keep the data points in the scans.
+   */
+  public NetCDFFileImportMethod(@Nonnull File sourceFile, Predicate<MsScan> msScanPredicate,
+      @Nullable DataPointCache dataPointCache) {
     this.sourceFile = sourceFile;
     this.msScanPredicate = msScanPredicate;
+    this.dataPointCache = dataPointCache;
   }
 
   /** {@inheritDoc} */
@@ -105,7 +130,8 @@ public class NetCDFFileImportMethod implements MSDKMethod<RawDataFile> {
       // Instantiate the raw file
       String fileName = sourceFile.getName();
       newRawFile =
-          new NetCDFRawDataFile(fileName, Optional.of(sourceFile), FileType.NETCDF, inputNetcdfFile);
+          new NetCDFRawDataFile(fileName, Optional.of(sourceFile), FileType.NETCDF, inputNetcdfFile,
+              dataPointCache);
 
       // Read NetCDF variables
       readVariables();
@@ -120,7 +146,7 @@ public class NetCDFFileImportMethod implements MSDKMethod<RawDataFile> {
 
         NetCDFMsScan buildingScan = new NetCDFMsScan(scanIndex + 1, scanStartPositions,
             scanRetentionTimes, massValueVariable, intensityValueVariable, massValueScaleFactor,
-            intensityValueScaleFactor);
+            intensityValueScaleFactor, dataPointCache);
 
         if (msScanPredicate.test(buildingScan))
           buildingScan.parseScan();
@@ -140,6 +166,40 @@ public class NetCDFFileImportMethod implements MSDKMethod<RawDataFile> {
 
   }
 
+  /**
+   * <p>
+   * Opens a streaming reader over the scans of the file. The scans are read one by one as the
+   * iterator advances, and the scans already returned are not referenced by the iterator nor by
+   * their raw data file. The iterator returns the same scans, in the same order, as
+   * {@link #execute()}. Closing the iterator closes the NetCDF file, so the scans must not read
+   * their data points afterwards, unless they were pre-loaded by the predicate.
+   * </p>
+   *
+   * @return a {@link io.github.msdk.util.CloseableIterator} over the scans
+   * @throws io.github.msdk.MSDKException if the file cannot be opened
+   */
+  public CloseableIterator<MsScan> openScanIterator() throws MSDKException {
+
+    logger.info("Started streaming file " + sourceFile);
+
+    // Check if the file is readable
+    if (!sourceFile.canRead()) {
+      throw new MSDKException("Cannot read file " + sourceFile);
+    }
+
+    try {
+      this.inputNetcdfFile = NetcdfFile.open(sourceFile.getPath());
+      String fileName = sourceFile.getName();
+      newRawFile = new NetCDFRawDataFile(fileName, Optional.of(sourceFile), FileType.NETCDF,
+          inputNetcdfFile, dataPointCache);
+      readVariables();
+    } catch (Exception e) {
+      throw new MSDKException(e);
+    }
+
+    return new ScanIterator();
+  }
+
   private void readVariables() throws MSDKException, IOException {
 
     /*
@@ -339,4 +399,50 @@ public class NetCDFFileImportMethod implements MSDKMethod<RawDataFile> {
     this.canceled = true;
   }
 
+  /**
+   * Reads the scans in the order of their index.
+   */
+  private class ScanIterator extends AbstractIterator<MsScan>
+      implements CloseableIterator<MsScan> {
+
+    private int scanIndex = 0;
+    private boolean closed = false;
+
+    @Override
+    protected MsScan computeNext() {
+      if (closed || canceled || scanIndex >= totalScans) {
+        close();
+        return endOfData();
+      }
+
+      NetCDFMsScan buildingScan = new NetCDFMsScan(scanIndex + 1, scanStartPositions,
+          scanRetentionTimes, massValueVariable, intensityValueVariable, massValueScaleFactor,
+          intensityValueScaleFactor, dataPointCache);
+      scanIndex++;
+
+      try {
+        if (msScanPredicate.test(buildingScan))
+          buildingScan.parseScan();
+      } catch (IOException | InvalidRangeException e) {
+        close();
+        throw new MSDKRuntimeException(e);
+      }
+      parsedScans++;
+
+      return buildingScan;
+    }
+
+    @Override
+    public void close() {
+      if (closed)
+        return;
+      closed = true;
+      try {
+        inputNetcdfFile.close();
+      } catch (IOException e) {
+        throw new MSDKRuntimeException(e);
+      }
+    }
+  }
+
 }
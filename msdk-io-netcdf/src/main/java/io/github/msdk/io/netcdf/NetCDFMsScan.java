@@ -14,11 +14,20 @@
 package io.github.msdk.io.netcdf;
 
 import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.Range;
 
 import io.github.msdk.MSDKRuntimeException;
+import io.github.msdk.datamodel.DataPointCache;
+import io.github.msdk.datamodel.DataPointConsumer;
 import io.github.msdk.datamodel.MsSpectrumType;
 import io.github.msdk.datamodel.SimpleMsScan;
 import io.github.msdk.spectra.centroidprofiledetection.SpectrumTypeDetectionAlgorithm;
+import io.github.msdk.util.MsSpectrumUtil;
 import ucar.ma2.Array;
 import ucar.ma2.Index;
 import ucar.ma2.InvalidRangeException;
@@ -42,6 +51,13 @@ public class NetCDFMsScan extends SimpleMsScan {
   private float[] preLoadedIntensityValues;
   private Integer numOfDataPoints;
   private MsSpectrumType spectrumType;
+  private final DataPointCache dataPointCache;
+  // Derived values, only used with a DataPointCache
+  private Range<Double> mzRange;
+  private Float totalIonCurrent;
+
+  // Slots of the arrays in the DataPointCache
+  private static final int MZ_SLOT = 0, INTENSITY_SLOT = 1;
 
   /**
    * <p>
@@ -64,6 +80,32 @@ public class NetCDFMsScan extends SimpleMsScan {
   public NetCDFMsScan(Integer scanNumber, int[] scanStartPositions, float[] scanRetentionTimes,
       Variable massValueVariable, Variable intensityValueVariable, double massValueScaleFactor,
       double intensityValueScaleFactor) {
+    this(scanNumber, scanStartPositions, scanRetentionTimes, massValueVariable,
+        intensityValueVariable, massValueScaleFactor, intensityValueScaleFactor, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for {@link io.github.msdk.io.netcdf.NetCDFMsScan NetCDFMsScan}
+   * </p>
+   * 
+   * @param scanNumber the Scan Number
+   * @param scanStartPositions an int[] containing start positions of all scans, and an extra
+   *        element containing the stop position of the last scan
+   * @param scanRetentionTimes a float[] containing retention times of all scans
+   * @param massValueVariable {@link ucar.nc2.Variable Variable} containing the m/z data of the
+   *        scans
+   * @param intensityValueVariable {@link ucar.nc2.Variable Variable} containing the intensity data
+   *        of the scans
+   * @param massValueScaleFactor double value by which the mass values have been scaled by to
+   * @param intensityValueScaleFactor double value by which the intensity values have been scaled by
+   *        to
+   * @param dataPointCache {@link io.github.msdk.datamodel.DataPointCache DataPointCache} holding
+   *        the loaded data points, or null if the scan keeps its data points once parsed
+   */
+  public NetCDFMsScan(Integer scanNumber, int[] scanStartPositions, float[] scanRetentionTimes,
+      Variable massValueVariable, Variable intensityValueVariable, double massValueScaleFactor,
+      double intensityValueScaleFactor, @Nullable DataPointCache dataPointCache) {
     super(scanNumber);
     this.scanStartPositions = scanStartPositions;
     this.scanRetentionTimes = scanRetentionTimes;
@@ -74,95 +116,135 @@ public class NetCDFMsScan extends SimpleMsScan {
     this.preLoadedMzValues = null;
     this.preLoadedIntensityValues = null;
     this.spectrumType = null;
+    this.dataPointCache = dataPointCache;
   }
 
   /** {@inheritDoc} */
   @Override
   public float[] getIntensityValues(float[] intensityValues) {
-    if (preLoadedIntensityValues == null) {
-      final Integer scanIndex = getScanIndex();
-      numOfDataPoints = getNumberOfDataPoints();
-      try {
-        // int[] which defines the origin
-        // Since intensity value is stored in a 1D array, there is only one element
-        final int scanStartPosition[] = {scanStartPositions[scanIndex]};
-        // int[] which defines the shape
-        // shape is the length of each dimension to be considered from the origin
-        // So, shape is an int[] containing only one element - 'size'
-        final int scanLength[] =
-            {scanStartPositions[scanIndex + 1] - scanStartPositions[scanIndex]};
-        final Array intensityValueArray =
-            intensityValueVariable.read(scanStartPosition, scanLength);
-        final Index intensityValuesIndex = intensityValueArray.getIndex();
-
-        if (intensityValues == null || intensityValues.length < numOfDataPoints)
-          intensityValues = new float[numOfDataPoints];
-
-        // Load the data points
-        for (int i = 0; i < numOfDataPoints; i++) {
-          // Change the Index according to i
-          final Index intensityIndex0 = intensityValuesIndex.set0(i);
-          // get the intensity value after multiplying with the scale factor
-          intensityValues[i] =
-              (float) (intensityValueArray.getDouble(intensityIndex0) * intensityValueScaleFactor);
-        }
-      } catch (IOException | InvalidRangeException e) {
-        throw new MSDKRuntimeException(e);
-      }
-    } else {
-      if (intensityValues == null || intensityValues.length < numOfDataPoints)
-        intensityValues = new float[numOfDataPoints];
-
-      // Copy values to a different array if needed
-      for (int i = 0; i < preLoadedIntensityValues.length; i++)
-        intensityValues[i] = preLoadedIntensityValues[i];
-    }
+    final float values[] = loadIntensityValues();
+    numOfDataPoints = getNumberOfDataPoints();
+    if (intensityValues == null || intensityValues.length < numOfDataPoints)
+      intensityValues = new float[numOfDataPoints];
 
+    // Copy values to a different array, the loaded array may be shared
+    System.arraycopy(values, 0, intensityValues, 0, numOfDataPoints);
     return intensityValues;
   }
 
   /** {@inheritDoc} */
   @Override
   public double[] getMzValues(double[] mzValues) {
-    if (preLoadedMzValues == null) {
-      final Integer scanIndex = getScanIndex();
-      numOfDataPoints = getNumberOfDataPoints();
-      try {
-        // int[] which defines the origin
-        // Since mass value is stored in a 1D array, there is only one element
-        final int scanStartPosition[] = {scanStartPositions[scanIndex]};
-        // int[] which defines the shape
-        // shape is the length of each dimension to be considered from the origin
-        // So, shape is an int[] containing only one element - 'size'
-        final int scanLength[] =
-            {scanStartPositions[scanIndex + 1] - scanStartPositions[scanIndex]};
-        final Array massValueArray = massValueVariable.read(scanStartPosition, scanLength);
-        final Index massValuesIndex = massValueArray.getIndex();
-
-        if (mzValues == null || mzValues.length < numOfDataPoints)
-          mzValues = new double[numOfDataPoints];
-
-        // Load the data points
-        for (int i = 0; i < numOfDataPoints; i++) {
-          // Change the Index according to i
-          final Index massIndex0 = massValuesIndex.set0(i);
-          // get the mass value after multiplying with the scale factor
-          mzValues[i] = massValueArray.getDouble(massIndex0) * massValueScaleFactor;
-        }
-
-      } catch (IOException | InvalidRangeException e) {
-        throw new MSDKRuntimeException(e);
+    final double values[] = loadMzValues();
+    numOfDataPoints = getNumberOfDataPoints();
+    if (mzValues == null || mzValues.length < numOfDataPoints)
+      mzValues = new double[numOfDataPoints];
+
+    // Copy values to a different array, the loaded array may be shared
+    System.arraycopy(values, 0, mzValues, 0, numOfDataPoints);
+    return mzValues;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public DoubleBuffer getMzBuffer() {
+    return DoubleBuffer.wrap(loadMzValues(), 0, getNumberOfDataPoints()).asReadOnlyBuffer();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public FloatBuffer getIntensityBuffer() {
+    return FloatBuffer.wrap(loadIntensityValues(), 0, getNumberOfDataPoints())
+        .asReadOnlyBuffer();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void forEachDataPoint(DataPointConsumer consumer) {
+    final double mzValues[] = loadMzValues();
+    final float intensityValues[] = loadIntensityValues();
+    final int size = getNumberOfDataPoints();
+    for (int i = 0; i < size; i++)
+      consumer.accept(i, mzValues[i], intensityValues[i]);
+  }
+
+  /**
+   * Returns the pre-loaded m/z values, the values held by the DataPointCache, or reads them from
+   * the file. The returned array must not be modified.
+   */
+  private double[] loadMzValues() {
+    if (preLoadedMzValues != null)
+      return preLoadedMzValues;
+    if (dataPointCache != null)
+      return dataPointCache.getDoubleArray(this, MZ_SLOT, this::readMzValues);
+    return readMzValues();
+  }
+
+  private float[] loadIntensityValues() {
+    if (preLoadedIntensityValues != null)
+      return preLoadedIntensityValues;
+    if (dataPointCache != null)
+      return dataPointCache.getFloatArray(this, INTENSITY_SLOT, this::readIntensityValues);
+    return readIntensityValues();
+  }
+
+  private double[] readMzValues() {
+    final Integer scanIndex = getScanIndex();
+    final int size = getNumberOfDataPoints();
+    try {
+      // int[] which defines the origin
+      // Since mass value is stored in a 1D array, there is only one element
+      final int scanStartPosition[] = {scanStartPositions[scanIndex]};
+      // int[] which defines the shape
+      // shape is the length of each dimension to be considered from the origin
+      // So, shape is an int[] containing only one element - 'size'
+      final int scanLength[] = {size};
+      final Array massValueArray = massValueVariable.read(scanStartPosition, scanLength);
+      final Index massValuesIndex = massValueArray.getIndex();
+
+      final double mzValues[] = new double[size];
+
+      // Load the data points
+      for (int i = 0; i < size; i++) {
+        // Change the Index according to i
+        final Index massIndex0 = massValuesIndex.set0(i);
+        // get the mass value after multiplying with the scale factor
+        mzValues[i] = massValueArray.getDouble(massIndex0) * massValueScaleFactor;
       }
-    } else {
-      if (mzValues == null || mzValues.length < numOfDataPoints)
-        mzValues = new double[numOfDataPoints];
+      return mzValues;
 
-      // Copy values to a different array if needed
-      for (int i = 0; i < preLoadedMzValues.length; i++)
-        mzValues[i] = preLoadedMzValues[i];
+    } catch (IOException | InvalidRangeException e) {
+      throw new MSDKRuntimeException(e);
     }
+  }
 
-    return mzValues;
+  private float[] readIntensityValues() {
+    final Integer scanIndex = getScanIndex();
+    final int size = getNumberOfDataPoints();
+    try {
+      // int[] which defines the origin
+      // Since intensity value is stored in a 1D array, there is only one element
+      final int scanStartPosition[] = {scanStartPositions[scanIndex]};
+      // int[] which defines the shape
+      final int scanLength[] = {size};
+      final Array intensityValueArray = intensityValueVariable.read(scanStartPosition, scanLength);
+      final Index intensityValuesIndex = intensityValueArray.getIndex();
+
+      final float intensityValues[] = new float[size];
+
+      // Load the data points
+      for (int i = 0; i < size; i++) {
+        // Change the Index according to i
+        final Index intensityIndex0 = intensityValuesIndex.set0(i);
+        // get the intensity value after multiplying with the scale factor
+        intensityValues[i] =
+            (float) (intensityValueArray.getDouble(intensityIndex0) * intensityValueScaleFactor);
+      }
+      return intensityValues;
+
+    } catch (IOException | InvalidRangeException e) {
+      throw new MSDKRuntimeException(e);
+    }
   }
 
   /** {@inheritDoc} */
@@ -192,6 +274,18 @@ public class NetCDFMsScan extends SimpleMsScan {
     return spectrumType;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public Float getTIC() {
+    return totalIonCurrent != null ? totalIonCurrent : super.getTIC();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Range<Double> getMzRange() {
+    return totalIonCurrent != null ? mzRange : super.getMzRange();
+  }
+
   /**
    * The Scan Index is the inde of the scan in the array
    * 
@@ -202,17 +296,29 @@ public class NetCDFMsScan extends SimpleMsScan {
   }
 
   /**
-   * The mass and intensity arrays are loaded once this method is called
+   * The mass and intensity arrays are loaded once this method is called. If the scan uses a
+   * {@link io.github.msdk.datamodel.DataPointCache}, the arrays are put in the cache instead of
+   * being kept by the scan, and only the values derived from them are stored.
    * 
    * @throws IOException
    * @throws InvalidRangeException
    */
   public void parseScan() throws IOException, InvalidRangeException {
-    // Load values to this scan instance itself, this method is called only when the scan passes the
-    // predicate
-    preLoadedMzValues = getMzValues();
-    preLoadedIntensityValues = getIntensityValues();
+    // This method is called only when the scan passes the predicate
     numOfDataPoints = getNumberOfDataPoints();
+    if (dataPointCache != null) {
+      final double mzValues[] = loadMzValues();
+      final float intensityValues[] = loadIntensityValues();
+      mzRange = MsSpectrumUtil.getMzRange(mzValues, numOfDataPoints);
+      totalIonCurrent = MsSpectrumUtil.getTIC(intensityValues, numOfDataPoints);
+      spectrumType = SpectrumTypeDetectionAlgorithm.detectSpectrumType(mzValues, intensityValues,
+          numOfDataPoints);
+      return;
+    }
+
+    // Load values to this scan instance itself
+    preLoadedMzValues = readMzValues();
+    preLoadedIntensityValues = readIntensityValues();
 
     setDataPoints(preLoadedMzValues, preLoadedIntensityValues, numOfDataPoints);
     spectrumType = SpectrumTypeDetectionAlgorithm.detectSpectrumType(preLoadedMzValues,
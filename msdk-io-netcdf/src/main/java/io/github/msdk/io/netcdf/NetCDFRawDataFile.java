@@ -2,9 +2,15 @@ package io.github.msdk.io.netcdf;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 
 import io.github.msdk.MSDKRuntimeException;
+import io.github.msdk.datamodel.DataPointCache;
 import io.github.msdk.datamodel.FileType;
 import io.github.msdk.datamodel.SimpleRawDataFile;
 import ucar.nc2.NetcdfFile;
@@ -16,6 +22,7 @@ import ucar.nc2.NetcdfFile;
 public class NetCDFRawDataFile extends SimpleRawDataFile {
 
   private NetcdfFile inputFile;
+  private final @Nullable DataPointCache dataPointCache;
 
   /**
    * <p>Constructor for NetCDFRawDataFile.</p>
@@ -27,13 +34,44 @@ public class NetCDFRawDataFile extends SimpleRawDataFile {
    */
   public NetCDFRawDataFile(String rawDataFileName, Optional<File> originalRawDataFile,
       FileType rawDataFileType, NetcdfFile inputFile) {
+    this(rawDataFileName, originalRawDataFile, rawDataFileType, inputFile, null);
+  }
+
+  /**
+   * <p>Constructor for NetCDFRawDataFile.</p>
+   *
+   * @param rawDataFileName a {@link java.lang.String} object.
+   * @param originalRawDataFile a {@link java.util.Optional} object.
+   * @param rawDataFileType a {@link io.github.msdk.datamodel.FileType} object.
+   * @param inputFile a {@link ucar.nc2.NetcdfFile} object.
+   * @param dataPointCache the {@link io.github.msdk.datamodel.DataPointCache} used by the scans of
+   *        this file, or null. The cached data points of the scans are removed on dispose.
+   */
+  public NetCDFRawDataFile(String rawDataFileName, Optional<File> originalRawDataFile,
+      FileType rawDataFileType, NetcdfFile inputFile, @Nullable DataPointCache dataPointCache) {
     super(rawDataFileName, originalRawDataFile, rawDataFileType);
     this.inputFile = inputFile;
+    this.dataPointCache = dataPointCache;
+  }
+
+  /**
+   * <p>Getter for the field <code>dataPointCache</code>.</p>
+   *
+   * @return a {@link io.github.msdk.datamodel.DataPointCache} object, or null.
+   */
+  @Nullable
+  public DataPointCache getDataPointCache() {
+    return dataPointCache;
   }
 
   /** {@inheritDoc} */
   @Override
   public void dispose() {
+    if (dataPointCache != null) {
+      Set<Object> scans = Collections.newSetFromMap(new IdentityHashMap<>());
+      scans.addAll(getScans());
+      dataPointCache.invalidateIf(scans::contains);
+    }
     try {
       inputFile.close();
     } catch (IOException e) {
@@ -24,9 +24,11 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.DataPointCache;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.MsSpectrumType;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.util.CloseableIterator;
 import io.github.msdk.util.MsSpectrumUtil;
 
 public class NetCDFFileImportMethodTest {
@@ -170,6 +172,66 @@ public class NetCDFFileImportMethodTest {
 
   }
 
+  @Test
+  public void testWT15DataPointCache() throws MSDKException, IOException {
+
+    File inputFile = new File(TEST_DATA_PATH + "wt15.CDF");
+    Assert.assertTrue(inputFile.canRead());
+    RawDataFile expectedFile = new NetCDFFileImportMethod(inputFile).execute();
+
+    // The cache is much smaller than the data points of the whole file
+    DataPointCache cache = new DataPointCache(100000);
+    RawDataFile rawFile = new NetCDFFileImportMethod(inputFile, s -> true, cache).execute();
+    Assert.assertTrue(cache.getEvictionCount() > 0);
+    Assert.assertTrue(cache.getUsedBytes() <= cache.getMaximumBytes());
+
+    List<MsScan> expectedScans = expectedFile.getScans();
+    List<MsScan> scans = rawFile.getScans();
+    Assert.assertEquals(expectedScans.size(), scans.size());
+    for (int i = 0; i < scans.size(); i++) {
+      MsScan expected = expectedScans.get(i);
+      MsScan scan = scans.get(i);
+      Assert.assertEquals(expected.getSpectrumType(), scan.getSpectrumType());
+      Assert.assertEquals(expected.getTIC(), scan.getTIC());
+      Assert.assertEquals(expected.getMzRange(), scan.getMzRange());
+      Assert.assertArrayEquals(expected.getMzValues(), scan.getMzValues(), 0.0);
+      Assert.assertArrayEquals(expected.getIntensityValues(), scan.getIntensityValues(), 0f);
+    }
+
+    rawFile.dispose();
+    Assert.assertEquals(0, cache.getEntryCount());
+    expectedFile.dispose();
+
+  }
+
+  @Test
+  public void testWT15ScanIterator() throws MSDKException, IOException {
+
+    File inputFile = new File(TEST_DATA_PATH + "wt15.CDF");
+    Assert.assertTrue(inputFile.canRead());
+    RawDataFile expectedFile = new NetCDFFileImportMethod(inputFile).execute();
+    List<MsScan> expectedScans = expectedFile.getScans();
+
+    NetCDFFileImportMethod importer = new NetCDFFileImportMethod(inputFile);
+    int count = 0;
+    try (CloseableIterator<MsScan> iterator = importer.openScanIterator()) {
+      while (iterator.hasNext()) {
+        MsScan expected = expectedScans.get(count++), actual = iterator.next();
+        Assert.assertEquals(expected.getScanNumber(), actual.getScanNumber());
+        Assert.assertEquals(expected.getRetentionTime(), actual.getRetentionTime());
+        Assert.assertEquals(expected.getSpectrumType(), actual.getSpectrumType());
+        Assert.assertArrayEquals(expected.getMzValues(), actual.getMzValues(), 0.0);
+        Assert.assertArrayEquals(expected.getIntensityValues(), actual.getIntensityValues(), 0f);
+      }
+    }
+    Assert.assertEquals(1278, count);
+    Assert.assertEquals(1.0, importer.getFinishedPercentage(), 0.0001);
+    Assert.assertTrue(importer.getResult().getScans().isEmpty());
+
+    expectedFile.dispose();
+
+  }
+
   private Predicate<MsScan> getMsScanPredicate(List<Integer> scansToParse) {
     return s -> scansToParse.contains(s.getScanNumber());
   }
@@ -11,21 +11,57 @@
  * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
  */
 
+
 package io.github.msdk.isotopes.isotopegrouper;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.google.common.collect.Range;
+
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.Feature;
 import io.github.msdk.datamodel.FeatureTable;
 import io.github.msdk.datamodel.FeatureTableRow;
+import io.github.msdk.datamodel.Sample;
 import io.github.msdk.datamodel.SimpleFeatureTable;
+import io.github.msdk.datamodel.SimpleFeatureTableRow;
+import io.github.msdk.datamodel.SimpleGroupedFeature;
+import io.github.msdk.util.DataPointSorter;
+import io.github.msdk.util.DataPointSorter.SortingDirection;
+import io.github.msdk.util.ParallelUtil;
 import io.github.msdk.util.tolerances.MzTolerance;
 import io.github.msdk.util.tolerances.RTTolerance;
 
 /**
+ * <p>
  * This class searches through a feature table and groups isotopes under a single feature.
+ * </p>
+ *
+ * <p>
+ * The rows are sorted by m/z once. For each row and each charge up to the maximum charge, the
+ * expected isotopes at +/- n * 1.0033 / charge are then looked up by binary search, keeping the
+ * candidates within the m/z and retention time tolerances. This search is independent for each row
+ * and runs over retention time slices of the table, in parallel if a
+ * {@link java.util.concurrent.ForkJoinPool ForkJoinPool} is given. Finally, the rows are grouped
+ * starting from the most intense one: every row that is not yet part of a group takes the
+ * isotopes of the charge that fits the most peaks, optionally requiring the intensities to decrease
+ * away from the most intense peak. The whole method runs in O(n log n) for n rows.
+ * </p>
+ *
+ * <p>
+ * The resulting feature table contains a row for each isotope pattern, which is the row of the
+ * peak with the lowest m/z, and a copy of each row that is not part of any pattern. The features
+ * of a pattern row are {@link io.github.msdk.datamodel.SimpleGroupedFeature}s holding all isotopes
+ * of the pattern in that sample, and the row charge is the charge of the pattern.
+ * </p>
  */
 public class IsotopeGrouperMethod implements MSDKMethod<FeatureTable> {
 
@@ -43,10 +79,20 @@ public class IsotopeGrouperMethod implements MSDKMethod<FeatureTable> {
   private final @Nonnull RTTolerance rtTolerance;
   private final @Nonnull Integer maximumCharge;
   private final @Nonnull Boolean requireMonotonicShape;
-  private final @Nonnull FeatureTable result;
+  private final @Nullable ForkJoinPool pool;
+  private final @Nonnull SimpleFeatureTable result;
+
+  private volatile boolean canceled = false;
+  private final AtomicInteger processedFeatures = new AtomicInteger();
+  private int totalFeatures = 0;
 
-  private boolean canceled = false;
-  private int processedFeatures = 0, totalFeatures = 0;
+  /* Row values, indexed by the position of the row in the feature table */
+  private double rowMz[];
+  private float rowRt[], rowHeight[];
+
+  /* Row m/z values in ascending order, and the corresponding row indices */
+  private double sortedMz[];
+  private int mzOrder[];
 
   /**
    * <p>
@@ -54,7 +100,6 @@ public class IsotopeGrouperMethod implements MSDKMethod<FeatureTable> {
    * </p>
    *
    * @param featureTable a {@link io.github.msdk.datamodel.FeatureTable} object.
-   * @param featureTableName a {@link java.lang.String} object.
    * @param mzTolerance a {@link io.github.msdk.util.tolerances.MzTolerance} object.
    * @param rtTolerance a {@link io.github.msdk.util.tolerances.RTTolerance} object.
    * @param maximumCharge a {@link java.lang.Integer} object.
@@ -63,11 +108,33 @@ public class IsotopeGrouperMethod implements MSDKMethod<FeatureTable> {
   public IsotopeGrouperMethod(@Nonnull FeatureTable featureTable,
       @Nonnull MzTolerance mzTolerance, @Nonnull RTTolerance rtTolerance,
       @Nonnull Integer maximumCharge, @Nonnull Boolean requireMonotonicShape) {
+    this(featureTable, mzTolerance, rtTolerance, maximumCharge, requireMonotonicShape, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for IsotopeGrouperMethod, which searches the isotopes in parallel on the given
+   * {@link java.util.concurrent.ForkJoinPool ForkJoinPool}. The result does not depend on the pool.
+   * </p>
+   *
+   * @param featureTable a {@link io.github.msdk.datamodel.FeatureTable} object.
+   * @param mzTolerance a {@link io.github.msdk.util.tolerances.MzTolerance} object.
+   * @param rtTolerance a {@link io.github.msdk.util.tolerances.RTTolerance} object.
+   * @param maximumCharge a {@link java.lang.Integer} object.
+   * @param requireMonotonicShape a {@link java.lang.Boolean} object.
+   * @param pool the {@link java.util.concurrent.ForkJoinPool ForkJoinPool} searching the isotopes,
+   *        or null to search them on the calling thread
+   */
+  public IsotopeGrouperMethod(@Nonnull FeatureTable featureTable,
+      @Nonnull MzTolerance mzTolerance, @Nonnull RTTolerance rtTolerance,
+      @Nonnull Integer maximumCharge, @Nonnull Boolean requireMonotonicShape,
+      @Nullable ForkJoinPool pool) {
     this.featureTable = featureTable;
     this.mzTolerance = mzTolerance;
     this.rtTolerance = rtTolerance;
     this.maximumCharge = maximumCharge;
     this.requireMonotonicShape = requireMonotonicShape;
+    this.pool = pool;
 
     // Make a new feature table
     result = new SimpleFeatureTable();
@@ -77,36 +144,384 @@ public class IsotopeGrouperMethod implements MSDKMethod<FeatureTable> {
   @Override
   public FeatureTable execute() throws MSDKException {
 
-    // Set the total features
-    totalFeatures = featureTable.getRows().size();
+    final List<FeatureTableRow> rows = featureTable.getRows();
+    final List<Sample> samples = featureTable.getSamples();
+    final int numOfRows = rows.size();
+    result.setSamples(samples);
+
+    // Cache the row values, the rows compute them from their features on each call. Rows without
+    // m/z or retention time are not searched and are carried through ungrouped.
+    rowMz = new double[numOfRows];
+    rowRt = new float[numOfRows];
+    rowHeight = new float[numOfRows];
+    final int searchedRows[] = new int[numOfRows];
+    int count = 0;
+    for (int i = 0; i < numOfRows; i++) {
+      final FeatureTableRow row = rows.get(i);
+      final Double mz = row.getMz();
+      final Float rt = row.getRT();
+      rowMz[i] = (mz == null) ? Double.NaN : mz;
+      rowRt[i] = (rt == null) ? Float.NaN : rt;
+      rowHeight[i] = getRowHeight(row, samples);
+      if ((mz != null) && (rt != null))
+        searchedRows[count++] = i;
+    }
+    final int numOfSearched = count;
+
+    // Searching the isotopes and grouping the rows both count as processing each row once
+    totalFeatures = numOfSearched + numOfRows;
 
-    // Collect all possible charge states
-    int charges[] = new int[maximumCharge];
-    for (int i = 0; i < maximumCharge; i++) {
-      charges[i] = i + 1;
+    // Sort the searched rows by m/z once
+    final DataPointSorter.Workspace workspace = new DataPointSorter.Workspace();
+    final double searchedMz[] = new double[numOfSearched];
+    final float searchedRt[] = new float[numOfSearched];
+    for (int p = 0; p < numOfSearched; p++) {
+      searchedMz[p] = rowMz[searchedRows[p]];
+      searchedRt[p] = rowRt[searchedRows[p]];
+    }
+    mzOrder = new int[numOfSearched];
+    DataPointSorter.sortIndices(searchedMz, mzOrder, numOfSearched, workspace);
+    sortedMz = new double[numOfSearched];
+    for (int p = 0; p < numOfSearched; p++) {
+      mzOrder[p] = searchedRows[mzOrder[p]];
+      sortedMz[p] = rowMz[mzOrder[p]];
+    }
+
+    // Search the isotope candidates of all rows in consecutive retention time slices
+    final int rtOrder[] = new int[numOfSearched];
+    DataPointSorter.sortIndices(searchedRt, rtOrder, numOfSearched, SortingDirection.ASCENDING,
+        workspace);
+    for (int p = 0; p < numOfSearched; p++)
+      rtOrder[p] = searchedRows[rtOrder[p]];
+    final int candidates[][] = new int[numOfRows][];
+    final int numOfChunks =
+        (pool == null) ? 1 : Math.min(numOfSearched, pool.getParallelism() * 4);
+    if (numOfChunks <= 1) {
+      searchIsotopes(rtOrder, 0, numOfSearched, candidates);
+    } else {
+      ParallelUtil.run(pool, numOfChunks, chunk -> {
+        final int from = (int) ((long) numOfSearched * chunk / numOfChunks);
+        final int to = (int) ((long) numOfSearched * (chunk + 1) / numOfChunks);
+        searchIsotopes(rtOrder, from, to, candidates);
+      });
     }
 
-    // Loop through all features in the feature table
-    for (FeatureTableRow row : featureTable.getRows()) {
+    if (canceled)
+      return null;
 
-      /*
-       * TODO: Write method
-       */
+    // Group the rows, starting from the most intense one
+    final int heightOrder[] = new int[numOfRows];
+    DataPointSorter.sortIndices(rowHeight, heightOrder, numOfRows, SortingDirection.DESCENDING,
+        workspace);
+    final boolean grouped[] = new boolean[numOfRows];
+    final int patterns[][] = new int[numOfRows][];
+    final int patternCharges[] = new int[numOfRows];
+    final IntList pattern = new IntList(), bestPattern = new IntList();
+    for (int i = 0; i < numOfRows; i++) {
 
       if (canceled)
         return null;
 
-      processedFeatures++;
+      final int mainRow = heightOrder[i];
+      processedFeatures.incrementAndGet();
+      if (grouped[mainRow] || (candidates[mainRow] == null))
+        continue;
+
+      // The charge that fits the most isotopes wins, ties go to the lower charge
+      int bestCharge = 0;
+      bestPattern.clear();
+      for (int charge = 1; charge <= maximumCharge; charge++) {
+        pattern.clear();
+        pattern.add(mainRow);
+        fitHalfPattern(candidates[mainRow], charge, 1, grouped, pattern);
+        fitHalfPattern(candidates[mainRow], charge, -1, grouped, pattern);
+        if ((pattern.size > 1) && (pattern.size > bestPattern.size)) {
+          bestPattern.copyFrom(pattern);
+          bestCharge = charge;
+        }
+      }
+
+      grouped[mainRow] = true;
+      if (bestCharge == 0)
+        continue;
+
+      // The pattern is represented by its lowest m/z peak
+      final int members[] = Arrays.copyOf(bestPattern.values, bestPattern.size);
+      int lowestRow = mainRow;
+      for (int member : members) {
+        grouped[member] = true;
+        if (rowMz[member] < rowMz[lowestRow])
+          lowestRow = member;
+      }
+      patterns[lowestRow] = members;
+      patternCharges[lowestRow] = bestCharge;
+    }
+
+    // Create the rows of the new feature table, in the order of the original rows
+    final boolean isIsotope[] = new boolean[numOfRows];
+    for (int r = 0; r < numOfRows; r++) {
+      if (patterns[r] == null)
+        continue;
+      for (int member : patterns[r])
+        isIsotope[member] = (member != r);
+    }
+    for (int r = 0; r < numOfRows; r++) {
+      if (isIsotope[r])
+        continue;
+      if (patterns[r] == null)
+        result.addRow(copyRow(rows.get(r), samples));
+      else
+        result.addRow(createPatternRow(rows, r, patterns[r], patternCharges[r], samples));
+    }
+
+    return result;
+  }
+
+  /**
+   * Finds, for each row in the given slice, the candidates of all expected isotopes of all charges.
+   * The candidates of a row are encoded as follows. The first 2 * maximumCharge values are the
+   * offsets of the isotopes of each charge, towards higher m/z and towards lower m/z. From each
+   * offset, the isotopes follow as the number of candidates, then the candidate rows sorted by
+   * their m/z difference to the expected isotope. The list of isotopes ends with a 0, at the first
+   * isotope without candidates.
+   */
+  private void searchIsotopes(@Nonnull int rtOrder[], int from, int to,
+      @Nonnull int candidates[][]) {
+
+    final IntList encoded = new IntList();
+    final CandidateList isotopeCandidates = new CandidateList();
+
+    for (int i = from; i < to; i++) {
+
+      if (canceled)
+        return;
+
+      final int row = rtOrder[i];
+      final Range<Float> rtRange = rtTolerance.getToleranceRange(rowRt[row]);
+      encoded.clear();
+      for (int segment = 0; segment < 2 * maximumCharge; segment++)
+        encoded.add(0);
+
+      for (int charge = 1; charge <= maximumCharge; charge++) {
+        for (int direction : new int[] {1, -1}) {
+          encoded.values[getSegment(charge, direction)] = encoded.size;
+          for (int n = 1;; n++) {
+            final double expectedMz = rowMz[row] + direction * n * isotopeDistance / charge;
+            if (expectedMz <= 0)
+              break;
+            findCandidates(row, expectedMz, rtRange, isotopeCandidates);
+            if (isotopeCandidates.size == 0)
+              break;
+            encoded.add(isotopeCandidates.size);
+            for (int c = 0; c < isotopeCandidates.size; c++)
+              encoded.add(isotopeCandidates.rows[c]);
+          }
+          encoded.add(0);
+        }
+      }
+
+      candidates[row] = Arrays.copyOf(encoded.values, encoded.size);
+      processedFeatures.incrementAndGet();
     }
+  }
 
-    return null;
+  /**
+   * Finds the rows within the tolerances of the expected isotope m/z, sorted by their m/z
+   * difference to the expected isotope.
+   */
+  private void findCandidates(int row, double expectedMz, @Nonnull Range<Float> rtRange,
+      @Nonnull CandidateList isotopeCandidates) {
+
+    isotopeCandidates.clear();
+    final Range<Double> mzRange = mzTolerance.getToleranceRange(expectedMz);
+    final double upperMz = mzRange.upperEndpoint();
+
+    for (int p = lowerBound(mzRange.lowerEndpoint()); (p < sortedMz.length)
+        && (sortedMz[p] <= upperMz); p++) {
+      final int candidate = mzOrder[p];
+      if ((candidate != row) && mzRange.contains(sortedMz[p])
+          && rtRange.contains(rowRt[candidate]))
+        isotopeCandidates.insert(candidate, Math.abs(sortedMz[p] - expectedMz));
+    }
+  }
+
+  /**
+   * Adds the isotopes of the main row in one direction to the pattern, picking for each isotope the
+   * closest candidate that is not grouped yet and, if required, not more intense than the previous
+   * peak. Stops at the first isotope without such a candidate.
+   */
+  private void fitHalfPattern(@Nonnull int rowCandidates[], int charge, int direction,
+      @Nonnull boolean grouped[], @Nonnull IntList pattern) {
+
+    float lastHeight = rowHeight[pattern.values[0]];
+    int offset = rowCandidates[getSegment(charge, direction)];
+    while (rowCandidates[offset] > 0) {
+      final int numOfCandidates = rowCandidates[offset];
+      int fittedRow = -1;
+      for (int c = offset + 1; c <= offset + numOfCandidates; c++) {
+        final int candidate = rowCandidates[c];
+        if (grouped[candidate] || pattern.contains(candidate))
+          continue;
+        if (requireMonotonicShape && (rowHeight[candidate] > lastHeight))
+          continue;
+        fittedRow = candidate;
+        break;
+      }
+      if (fittedRow < 0)
+        return;
+      pattern.add(fittedRow);
+      lastHeight = rowHeight[fittedRow];
+      offset += numOfCandidates + 1;
+    }
+  }
+
+  private int getSegment(int charge, int direction) {
+    return 2 * (charge - 1) + (direction > 0 ? 0 : 1);
+  }
+
+  /** Returns the position of the first sorted m/z value that is not lower than the given value. */
+  private int lowerBound(double mz) {
+    int low = 0, high = sortedMz.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (sortedMz[mid] < mz)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  /**
+   * Returns the highest feature height of the row, or the highest area for features without a
+   * height.
+   */
+  private static float getRowHeight(@Nonnull FeatureTableRow row, @Nonnull List<Sample> samples) {
+    float height = 0f;
+    for (Sample sample : samples) {
+      final Feature feature = row.getFeature(sample);
+      if (feature == null)
+        continue;
+      Float featureHeight = feature.getHeight();
+      if (featureHeight == null)
+        featureHeight = feature.getArea();
+      if ((featureHeight != null) && (featureHeight > height))
+        height = featureHeight;
+    }
+    return height;
+  }
+
+  private @Nonnull SimpleFeatureTableRow copyRow(@Nonnull FeatureTableRow sourceRow,
+      @Nonnull List<Sample> samples) {
+    final SimpleFeatureTableRow targetRow = new SimpleFeatureTableRow(result);
+    if (sourceRow.getCharge() != null)
+      targetRow.setCharge(sourceRow.getCharge());
+    for (Sample sample : samples) {
+      final Feature feature = sourceRow.getFeature(sample);
+      if (feature != null)
+        targetRow.setFeature(sample, feature);
+    }
+    return targetRow;
+  }
+
+  private @Nonnull SimpleFeatureTableRow createPatternRow(@Nonnull List<FeatureTableRow> rows,
+      int lowestRow, @Nonnull int members[], int charge, @Nonnull List<Sample> samples) {
+
+    // The isotopes of each grouped feature are sorted by m/z
+    final int sortedMembers[] = members.clone();
+    final double memberMz[] = new double[members.length];
+    for (int m = 0; m < members.length; m++)
+      memberMz[m] = rowMz[members[m]];
+    final int memberOrder[] = new int[members.length];
+    DataPointSorter.sortIndices(memberMz, memberOrder, members.length, null);
+    for (int m = 0; m < members.length; m++)
+      sortedMembers[m] = members[memberOrder[m]];
+
+    final SimpleFeatureTableRow targetRow = new SimpleFeatureTableRow(result);
+    targetRow.setCharge(charge);
+    for (Sample sample : samples) {
+      final List<Feature> isotopes = new ArrayList<>(members.length);
+      for (int member : sortedMembers) {
+        final Feature feature = rows.get(member).getFeature(sample);
+        if (feature != null)
+          isotopes.add(feature);
+      }
+      if (isotopes.isEmpty())
+        continue;
+      Feature representativeFeature = rows.get(lowestRow).getFeature(sample);
+      if (representativeFeature == null)
+        representativeFeature = isotopes.get(0);
+      targetRow.setFeature(sample,
+          new SimpleGroupedFeature(representativeFeature, isotopes, charge));
+    }
+    return targetRow;
+  }
+
+  /** A growable list of primitive ints. */
+  private static final class IntList {
+
+    private int values[] = new int[16];
+    private int size = 0;
+
+    void add(int value) {
+      if (size == values.length)
+        values = Arrays.copyOf(values, 2 * size);
+      values[size++] = value;
+    }
+
+    boolean contains(int value) {
+      for (int i = 0; i < size; i++) {
+        if (values[i] == value)
+          return true;
+      }
+      return false;
+    }
+
+    void copyFrom(@Nonnull IntList other) {
+      if (values.length < other.size)
+        values = Arrays.copyOf(values, other.values.length);
+      System.arraycopy(other.values, 0, values, 0, other.size);
+      size = other.size;
+    }
+
+    void clear() {
+      size = 0;
+    }
+  }
+
+  /** A list of candidate rows, sorted by their m/z difference to an expected isotope. */
+  private static final class CandidateList {
+
+    private int rows[] = new int[8];
+    private double differences[] = new double[8];
+    private int size = 0;
+
+    /** Inserts the row after all rows with the same or a smaller difference. */
+    void insert(int row, double difference) {
+      if (size == rows.length) {
+        rows = Arrays.copyOf(rows, 2 * size);
+        differences = Arrays.copyOf(differences, 2 * size);
+      }
+      int i = size++;
+      while ((i > 0) && (differences[i - 1] > difference)) {
+        rows[i] = rows[i - 1];
+        differences[i] = differences[i - 1];
+        i--;
+      }
+      rows[i] = row;
+      differences[i] = difference;
+    }
+
+    void clear() {
+      size = 0;
+    }
   }
 
   /** {@inheritDoc} */
   @Override
   @Nullable
   public Float getFinishedPercentage() {
-    return totalFeatures == 0 ? null : (float) processedFeatures / totalFeatures;
+    return totalFeatures == 0 ? null : (float) processedFeatures.get() / totalFeatures;
   }
 
   /** {@inheritDoc} */
@@ -13,10 +13,30 @@
 
 package io.github.msdk.isotopes.isotopegrouper;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.ColumnarFeatureTable;
+import io.github.msdk.datamodel.ColumnarFeatureTableRow;
+import io.github.msdk.datamodel.Feature;
+import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.datamodel.FeatureTableRow;
+import io.github.msdk.datamodel.GroupedFeature;
+import io.github.msdk.datamodel.Sample;
+import io.github.msdk.datamodel.SimpleFeature;
+import io.github.msdk.datamodel.SimpleFeatureTable;
+import io.github.msdk.datamodel.SimpleFeatureTableRow;
+import io.github.msdk.datamodel.SimpleSample;
+import io.github.msdk.util.tolerances.ConstantPpmTolerance;
+import io.github.msdk.util.tolerances.MzTolerance;
+import io.github.msdk.util.tolerances.RTTolerance;
 
 public class IsotopeGrouperMethodTest {
 
@@ -26,4 +46,158 @@ public class IsotopeGrouperMethodTest {
 
 
   }
+
+  private static void addRow(SimpleFeatureTable featureTable, Sample sample, double mz, float rt,
+      float height) {
+    SimpleFeature feature = new SimpleFeature();
+    feature.setMz(mz);
+    feature.setRetentionTime(rt);
+    feature.setHeight(height);
+    SimpleFeatureTableRow row = new SimpleFeatureTableRow(featureTable);
+    row.setFeature(sample, feature);
+    featureTable.addRow(row);
+  }
+
+  @Test
+  public void testSyntheticPatterns() throws MSDKException {
+    Sample sample = new SimpleSample("Sample");
+    SimpleFeatureTable featureTable = new SimpleFeatureTable();
+    featureTable.setSamples(Collections.singletonList(sample));
+
+    // Charge 1 pattern with three isotopes, the last one too intense for a monotonic shape
+    addRow(featureTable, sample, 300.1000, 5.00f, 1000f);
+    addRow(featureTable, sample, 301.1033, 5.01f, 400f);
+    addRow(featureTable, sample, 302.1066, 5.00f, 600f);
+
+    // Charge 2 pattern, listed from the highest m/z
+    addRow(featureTable, sample, 501.2033, 8.00f, 200f);
+    addRow(featureTable, sample, 500.7016, 8.00f, 500f);
+    addRow(featureTable, sample, 500.2000, 8.00f, 800f);
+
+    // The isotope distance, but out of the retention time tolerance
+    addRow(featureTable, sample, 700.3000, 12.0f, 900f);
+    addRow(featureTable, sample, 701.3033, 13.0f, 300f);
+
+    MzTolerance mzTolerance = new ConstantPpmTolerance(10.0);
+    RTTolerance rtTolerance = new RTTolerance(0.1f, true);
+
+    IsotopeGrouperMethod method =
+        new IsotopeGrouperMethod(featureTable, mzTolerance, rtTolerance, 3, true);
+    FeatureTable result = method.execute();
+    Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+    Assert.assertSame(result, method.getResult());
+
+    List<FeatureTableRow> rows = result.getRows();
+    Assert.assertEquals(5, rows.size());
+    checkPattern(rows.get(0), sample, 1, 300.1000, 301.1033);
+    Assert.assertEquals(302.1066, rows.get(1).getMz(), 0.0001);
+    Assert.assertNull(rows.get(1).getCharge());
+    checkPattern(rows.get(2), sample, 2, 500.2000, 500.7016, 501.2033);
+    Assert.assertEquals(700.3000, rows.get(3).getMz(), 0.0001);
+    Assert.assertEquals(701.3033, rows.get(4).getMz(), 0.0001);
+
+    // Without the monotonic shape, the third isotope is part of the first pattern
+    result = new IsotopeGrouperMethod(featureTable, mzTolerance, rtTolerance, 3, false).execute();
+    Assert.assertEquals(4, result.getRows().size());
+    checkPattern(result.getRows().get(0), sample, 1, 300.1000, 301.1033, 302.1066);
+  }
+
+  @Test
+  public void testRowWithoutFeatures() throws MSDKException {
+    Sample sample = new SimpleSample("Sample");
+    ColumnarFeatureTable featureTable =
+        new ColumnarFeatureTable(Collections.singletonList(sample));
+    addRow(featureTable, sample, 300.1000, 5.00f, 1000f);
+
+    // A row without features has no m/z and retention time
+    ColumnarFeatureTableRow emptyRow = featureTable.addRow();
+    Assert.assertNull(emptyRow.getMz());
+    Assert.assertNull(emptyRow.getRT());
+
+    addRow(featureTable, sample, 301.1033, 5.00f, 400f);
+
+    MzTolerance mzTolerance = new ConstantPpmTolerance(10.0);
+    RTTolerance rtTolerance = new RTTolerance(0.1f, true);
+    IsotopeGrouperMethod method =
+        new IsotopeGrouperMethod(featureTable, mzTolerance, rtTolerance, 3, true);
+    FeatureTable result = method.execute();
+    Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+
+    // The empty row is carried through ungrouped
+    List<FeatureTableRow> rows = result.getRows();
+    Assert.assertEquals(2, rows.size());
+    checkPattern(rows.get(0), sample, 1, 300.1000, 301.1033);
+    Assert.assertNull(rows.get(1).getFeature(sample));
+    Assert.assertNull(rows.get(1).getCharge());
+    featureTable.dispose();
+  }
+
+  private static void addRow(ColumnarFeatureTable featureTable, Sample sample, double mz,
+      float rt, float height) {
+    SimpleFeature feature = new SimpleFeature();
+    feature.setMz(mz);
+    feature.setRetentionTime(rt);
+    feature.setHeight(height);
+    featureTable.addRow().setFeature(sample, feature);
+  }
+
+  private static void checkPattern(FeatureTableRow row, Sample sample, int charge,
+      double... isotopeMz) {
+    Assert.assertEquals(Integer.valueOf(charge), row.getCharge());
+    Assert.assertEquals(isotopeMz[0], row.getMz(), 0.0001);
+    GroupedFeature feature = (GroupedFeature) row.getFeature(sample);
+    Assert.assertEquals(Integer.valueOf(charge), feature.getCharge());
+    List<Feature> isotopes = feature.getIndividualFeatures();
+    Assert.assertEquals(isotopeMz.length, isotopes.size());
+    for (int i = 0; i < isotopeMz.length; i++)
+      Assert.assertEquals(isotopeMz[i], isotopes.get(i).getMz(), 0.0001);
+  }
+
+  @Test
+  public void testParallel() throws MSDKException {
+    Random random = new Random(7);
+    Sample sample = new SimpleSample("Sample");
+    SimpleFeatureTable featureTable = new SimpleFeatureTable();
+    featureTable.setSamples(Collections.singletonList(sample));
+    for (int i = 0; i < 3000; i++) {
+      double mz = 100.0 + random.nextDouble() * 900.0;
+      float rt = random.nextFloat() * 30f;
+      float height = 1000f + random.nextFloat() * 1E5f;
+      int charge = 1 + random.nextInt(2);
+      int isotopes = random.nextInt(4);
+      for (int n = 0; n <= isotopes; n++) {
+        addRow(featureTable, sample, mz + n * 1.0033 / charge, rt + 0.005f * n, height);
+        height *= 0.3f + random.nextFloat() * 0.8f;
+      }
+    }
+
+    MzTolerance mzTolerance = new ConstantPpmTolerance(5.0);
+    RTTolerance rtTolerance = new RTTolerance(0.02f, true);
+    FeatureTable serial =
+        new IsotopeGrouperMethod(featureTable, mzTolerance, rtTolerance, 3, true).execute();
+    Assert.assertTrue(serial.getRows().size() < featureTable.getRows().size());
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      FeatureTable parallel =
+          new IsotopeGrouperMethod(featureTable, mzTolerance, rtTolerance, 3, true, pool)
+              .execute();
+      Assert.assertEquals(serial.getRows().size(), parallel.getRows().size());
+      for (int i = 0; i < serial.getRows().size(); i++) {
+        FeatureTableRow serialRow = serial.getRows().get(i);
+        FeatureTableRow parallelRow = parallel.getRows().get(i);
+        Assert.assertEquals(serialRow.getCharge(), parallelRow.getCharge());
+        Feature serialFeature = serialRow.getFeature(sample);
+        Feature parallelFeature = parallelRow.getFeature(sample);
+        if (serialFeature instanceof GroupedFeature)
+          Assert.assertEquals(((GroupedFeature) serialFeature).getIndividualFeatures(),
+              ((GroupedFeature) parallelFeature).getIndividualFeatures());
+        else
+          Assert.assertSame(serialFeature, parallelFeature);
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
 }
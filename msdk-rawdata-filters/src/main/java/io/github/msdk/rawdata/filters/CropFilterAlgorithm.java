@@ -31,10 +31,13 @@ public class CropFilterAlgorithm implements MSDKFilteringAlgorithm {
   private final @Nonnull Range<Double> mzRange;
   private final @Nonnull Range<Float> rtRange;
 
-  // Data structures
-  private @Nonnull double mzBuffer[] = new double[10000];
-  private @Nonnull float intensityBuffer[] = new float[10000];
-  private int numOfDataPoints, newNumOfDataPoints;
+  // Data structures, one set per thread
+  private final ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(Workspace::new);
+
+  private static final class Workspace {
+    private double mzBuffer[] = new double[10000];
+    private float intensityBuffer[] = new float[10000];
+  }
 
   /**
    * <p>
@@ -60,9 +63,12 @@ public class CropFilterAlgorithm implements MSDKFilteringAlgorithm {
       return null;
 
     // Load data points
-    mzBuffer = scan.getMzValues();
-    intensityBuffer = scan.getIntensityValues();
-    numOfDataPoints = scan.getNumberOfDataPoints();
+    final Workspace ws = workspace.get();
+    ws.mzBuffer = scan.getMzValues(ws.mzBuffer);
+    ws.intensityBuffer = scan.getIntensityValues(ws.intensityBuffer);
+    final double mzBuffer[] = ws.mzBuffer;
+    final float intensityBuffer[] = ws.intensityBuffer;
+    final int numOfDataPoints = scan.getNumberOfDataPoints();
 
     // Create a new scan
     SimpleMsScan newScan = MsScanUtil.clone(scan, false);
@@ -82,7 +88,7 @@ public class CropFilterAlgorithm implements MSDKFilteringAlgorithm {
 
     while (!mzRange.contains(mzBuffer[lastIndex]))
       lastIndex--;
-    newNumOfDataPoints = lastIndex - firstIndex + 1;
+    final int newNumOfDataPoints = lastIndex - firstIndex + 1;
 
     System.arraycopy(mzBuffer, firstIndex, mzBuffer, 0, newNumOfDataPoints);
     System.arraycopy(intensityBuffer, firstIndex, intensityBuffer, 0, newNumOfDataPoints);
@@ -22,6 +22,13 @@ import io.github.msdk.datamodel.MsScan;
  * <p>
  * MSDKFilteringAlgorithm interface.
  * </p>
+ *
+ * <p>
+ * Implementations must be thread-safe: one instance may process several scans at the same time, so
+ * {@link #performFilter(MsScan)} must not keep the state of a scan in fields of the instance. Buffers which
+ * are reused from scan to scan are kept per thread, for example in a
+ * {@link java.lang.ThreadLocal ThreadLocal}.
+ * </p>
  */
 public interface MSDKFilteringAlgorithm {
 
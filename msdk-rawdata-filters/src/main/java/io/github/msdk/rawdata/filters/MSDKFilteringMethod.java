@@ -14,8 +14,11 @@
 package io.github.msdk.rawdata.filters;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,11 +28,18 @@ import io.github.msdk.MSDKMethod;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.util.ParallelUtil;
 
 /**
  * <p>
  * MSDKFilteringMethod class.
  * </p>
+ *
+ * <p>
+ * If a {@link java.util.concurrent.ForkJoinPool ForkJoinPool} is given, the scans are filtered in
+ * parallel on the pool. The filtered scans are added to the new raw data file in the order of the
+ * input scans, so the result is identical to the serial filtering.
+ * </p>
  */
 public class MSDKFilteringMethod implements MSDKMethod<RawDataFile> {
 
@@ -37,10 +47,15 @@ public class MSDKFilteringMethod implements MSDKMethod<RawDataFile> {
 
   private final @Nonnull MSDKFilteringAlgorithm filteringAlgorithm;
   private final @Nonnull RawDataFile rawDataFile;
+  private final @Nullable ForkJoinPool pool;
 
-  private int processedScans = 0, totalScans = 0;
+  // Number of tasks per thread of the pool, so that threads which finish early can take over work
+  private static final int TASKS_PER_THREAD = 4;
+
+  private final AtomicInteger processedScans = new AtomicInteger();
+  private int totalScans = 0;
   private SimpleRawDataFile result;
-  private boolean canceled = false;
+  private volatile boolean canceled = false;
 
   /**
    * <p>
@@ -53,8 +68,26 @@ public class MSDKFilteringMethod implements MSDKMethod<RawDataFile> {
    */
   public MSDKFilteringMethod(@Nonnull RawDataFile rawDataFile,
       @Nonnull MSDKFilteringAlgorithm filteringAlgorithm) {
+    this(rawDataFile, filteringAlgorithm, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for MSDKFilteringMethod, which filters the scans in parallel on the given
+   * {@link java.util.concurrent.ForkJoinPool ForkJoinPool}.
+   * </p>
+   *
+   * @param rawDataFile a {@link io.github.msdk.datamodel.RawDataFile} object.
+   * @param filteringAlgorithm a {@link io.github.msdk.rawdata.filters.MSDKFilteringAlgorithm}
+   *        object.
+   * @param pool the {@link java.util.concurrent.ForkJoinPool ForkJoinPool} running the filter, or
+   *        null to filter the scans on the calling thread
+   */
+  public MSDKFilteringMethod(@Nonnull RawDataFile rawDataFile,
+      @Nonnull MSDKFilteringAlgorithm filteringAlgorithm, @Nullable ForkJoinPool pool) {
     this.filteringAlgorithm = filteringAlgorithm;
     this.rawDataFile = rawDataFile;
+    this.pool = pool;
   }
 
   /** {@inheritDoc} */
@@ -63,7 +96,7 @@ public class MSDKFilteringMethod implements MSDKMethod<RawDataFile> {
     if (totalScans == 0) {
       return null;
     } else {
-      return (float) processedScans / totalScans;
+      return (float) processedScans.get() / totalScans;
     }
   }
 
@@ -80,6 +113,21 @@ public class MSDKFilteringMethod implements MSDKMethod<RawDataFile> {
     List<MsScan> scans = rawDataFile.getScans();
     totalScans = scans.size();
 
+    if (pool != null) {
+      final MsScan newScans[] = filterInParallel(scans);
+      if (newScans == null)
+        return null;
+
+      // Add the new scans to the created raw data file, in the order of the input scans
+      for (MsScan newScan : newScans) {
+        if (newScan != null)
+          result.addScan(newScan);
+      }
+      logger.info("Finished filter " + filteringAlgorithm.getClass().getName()
+          + " on raw data file " + rawDataFile.getName());
+      return result;
+    }
+
     for (MsScan scan : scans) {
 
       if (canceled)
@@ -94,13 +142,37 @@ public class MSDKFilteringMethod implements MSDKMethod<RawDataFile> {
       if (newScan != null)
         result.addScan(newScan);
 
-      processedScans++;
+      processedScans.incrementAndGet();
     }
     logger.info("Finished filter " + filteringAlgorithm.getClass().getName() + " on raw data file "
         + rawDataFile.getName());
     return result;
   }
 
+  /**
+   * Filters consecutive runs of the scans in parallel on the pool. Returns the filtered scans at the
+   * indices of their input scans, or null if canceled.
+   */
+  @Nullable
+  private MsScan[] filterInParallel(@Nonnull List<MsScan> scans) throws MSDKException {
+    final MsScan newScans[] = new MsScan[scans.size()];
+    final int numOfTasks = Math.min(pool.getParallelism() * TASKS_PER_THREAD, scans.size());
+    ParallelUtil.run(pool, numOfTasks, t -> {
+      final int from = (int) ((long) scans.size() * t / numOfTasks);
+      final int to = (int) ((long) scans.size() * (t + 1) / numOfTasks);
+      for (int i = from; i < to && !canceled; i++) {
+        final MsScan scan = scans.get(i);
+        if (scan == null)
+          continue;
+        newScans[i] = filteringAlgorithm.performFilter(scan);
+        processedScans.incrementAndGet();
+      }
+    });
+    if (canceled)
+      return null;
+    return newScans;
+  }
+
   /** {@inheritDoc} */
   @Override
   public RawDataFile getResult() {
@@ -31,10 +31,13 @@ public class MeanFilterAlgorithm implements MSDKFilteringAlgorithm {
 
   private final double windowLength;
 
-  // Data structures
-  private @Nonnull double mzBuffer[] = new double[10000];
-  private @Nonnull float intensityBuffer[] = new float[10000];
-  private int numOfDataPoints, newNumOfDataPoints;
+  // Data structures, one set per thread
+  private final ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(Workspace::new);
+
+  private static final class Workspace {
+    private double mzBuffer[] = new double[10000];
+    private float intensityBuffer[] = new float[10000];
+  }
 
   /**
    * <p>
@@ -62,10 +65,13 @@ public class MeanFilterAlgorithm implements MSDKFilteringAlgorithm {
     int addi = 0;
 
     // Load data points
-    mzBuffer = scan.getMzValues();
-    intensityBuffer = scan.getIntensityValues();
-    numOfDataPoints = scan.getNumberOfDataPoints();
-    newNumOfDataPoints = 0;
+    final Workspace ws = workspace.get();
+    ws.mzBuffer = scan.getMzValues(ws.mzBuffer);
+    ws.intensityBuffer = scan.getIntensityValues(ws.intensityBuffer);
+    final double mzBuffer[] = ws.mzBuffer;
+    final float intensityBuffer[] = ws.intensityBuffer;
+    final int numOfDataPoints = scan.getNumberOfDataPoints();
+    int newNumOfDataPoints = 0;
 
     // For each data point
     for (int i = 0; i < numOfDataPoints; i++) {
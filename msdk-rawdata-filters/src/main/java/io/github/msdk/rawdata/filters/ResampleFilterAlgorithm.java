@@ -13,6 +13,8 @@
 
 package io.github.msdk.rawdata.filters;
 
+import java.util.Arrays;
+
 import javax.annotation.Nonnull;
 
 import com.google.common.collect.Range;
@@ -28,12 +30,15 @@ import io.github.msdk.util.MsScanUtil;
  */
 public class ResampleFilterAlgorithm implements MSDKFilteringAlgorithm {
 
-  private double binSize;
+  private final double binSize;
+
+  // Data structures, one set per thread
+  private final ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(Workspace::new);
 
-  // Data structures
-  private @Nonnull double mzBuffer[];
-  private @Nonnull float intensityBuffer[];
-  private int numOfDataPoints, newNumOfDataPoints;
+  private static final class Workspace {
+    private double mzBuffer[] = new double[10000];
+    private float intensityBuffer[] = new float[10000];
+  }
 
   /**
    * <p>
@@ -53,10 +58,11 @@ public class ResampleFilterAlgorithm implements MSDKFilteringAlgorithm {
   public MsScan performFilter(@Nonnull MsScan scan) {
 
     // Load data points
-    mzBuffer = scan.getMzValues();
-    intensityBuffer = scan.getIntensityValues();
-    numOfDataPoints = scan.getNumberOfDataPoints();
-    newNumOfDataPoints = 0;
+    final Workspace ws = workspace.get();
+    ws.mzBuffer = scan.getMzValues(ws.mzBuffer);
+    ws.intensityBuffer = scan.getIntensityValues(ws.intensityBuffer);
+    final int numOfDataPoints = scan.getNumberOfDataPoints();
+    int newNumOfDataPoints = 0;
 
     Range<Double> mzRange = scan.getMzRange();
 
@@ -65,8 +71,10 @@ public class ResampleFilterAlgorithm implements MSDKFilteringAlgorithm {
       return result;
     }
 
+    // The bin size is adjusted for this scan only, the algorithm may be shared by several threads
+    double binSize = this.binSize;
     if (binSize > mzRange.upperEndpoint()) {
-      this.binSize = (int) Math.round(mzRange.upperEndpoint());
+      binSize = (int) Math.round(mzRange.upperEndpoint());
     }
 
     int numberOfBins =
@@ -75,6 +83,14 @@ public class ResampleFilterAlgorithm implements MSDKFilteringAlgorithm {
       numberOfBins++;
     }
 
+    // The bins are written over the data points, so there must be room for all of them
+    if (ws.mzBuffer.length < numberOfBins) {
+      ws.mzBuffer = new double[numberOfBins];
+      ws.intensityBuffer = Arrays.copyOf(ws.intensityBuffer, numberOfBins);
+    }
+    final double mzBuffer[] = ws.mzBuffer;
+    final float intensityBuffer[] = ws.intensityBuffer;
+
     // Create the array with the intensity values for each bin
     Float[] newY = new Float[numberOfBins];
     int intVal = 0;
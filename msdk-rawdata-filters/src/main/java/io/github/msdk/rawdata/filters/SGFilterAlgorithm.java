@@ -71,10 +71,13 @@ public class SGFilterAlgorithm implements MSDKFilteringAlgorithm {
 
   private final int sgDataPoints;
 
-  // Data structures
-  private @Nonnull double mzBuffer[] = new double[10000];
-  private @Nonnull float intensityBuffer[] = new float[10000];
-  private int numOfDataPoints, newNumOfDataPoints;
+  // Data structures, one set per thread
+  private final ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(Workspace::new);
+
+  private static final class Workspace {
+    private double mzBuffer[] = new double[10000];
+    private float intensityBuffer[] = new float[10000];
+  }
 
   /**
    * <p>
@@ -102,10 +105,13 @@ public class SGFilterAlgorithm implements MSDKFilteringAlgorithm {
     float sumOfInts;
 
     // Load data points
-    mzBuffer = scan.getMzValues();
-    intensityBuffer = scan.getIntensityValues();
-    numOfDataPoints = scan.getNumberOfDataPoints();
-    newNumOfDataPoints = 0;
+    final Workspace ws = workspace.get();
+    ws.mzBuffer = scan.getMzValues(ws.mzBuffer);
+    ws.intensityBuffer = scan.getIntensityValues(ws.intensityBuffer);
+    final double mzBuffer[] = ws.mzBuffer;
+    final float intensityBuffer[] = ws.intensityBuffer;
+    final int numOfDataPoints = scan.getNumberOfDataPoints();
+    int newNumOfDataPoints = 0;
 
     for (int spectrumInd =
         marginSize; spectrumInd < (numOfDataPoints - marginSize); spectrumInd++) {
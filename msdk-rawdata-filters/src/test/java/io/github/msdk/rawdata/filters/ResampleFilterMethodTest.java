@@ -14,6 +14,7 @@
 package io.github.msdk.rawdata.filters;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Assert;
@@ -22,10 +23,19 @@ import org.junit.Test;
 import io.github.msdk.MSDKException;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleMsScan;
 import io.github.msdk.io.mzml.MzMLFileImportMethod;
 
 public class ResampleFilterMethodTest {
 
+  private static MsScan createScan(int scanNumber, double mzValues[]) {
+    SimpleMsScan scan = new SimpleMsScan(scanNumber);
+    float intensityValues[] = new float[mzValues.length];
+    Arrays.fill(intensityValues, 100f);
+    scan.setDataPoints(mzValues, intensityValues, mzValues.length);
+    return scan;
+  }
+
   @Test
   public void testResampleFilter() throws Exception {
 
@@ -59,4 +69,34 @@ public class ResampleFilterMethodTest {
   public void testZeroBinSize() throws MSDKException {
     new ResampleFilterAlgorithm(0.0);
   }
+
+  @Test
+  public void testBinSizeOfSmallScan() {
+    ResampleFilterAlgorithm resampleFilter = new ResampleFilterAlgorithm(10.0);
+    double mzValues[] = new double[101];
+    for (int i = 0; i < mzValues.length; i++)
+      mzValues[i] = 100.0 + i;
+    MsScan wideScan = createScan(2, mzValues);
+    MsScan expectedScan = resampleFilter.performFilter(wideScan);
+    Assert.assertEquals(10, (int) expectedScan.getNumberOfDataPoints());
+
+    // A scan below m/z 10 needs a smaller bin size, which must not be kept for the next scan
+    resampleFilter.performFilter(createScan(1, new double[] {1.0, 2.0, 3.0, 4.0}));
+    MsScan newScan = resampleFilter.performFilter(wideScan);
+    Assert.assertArrayEquals(expectedScan.getMzValues(), newScan.getMzValues(), 0.0);
+    Assert.assertArrayEquals(expectedScan.getIntensityValues(), newScan.getIntensityValues(),
+        0.0f);
+  }
+
+  @Test
+  public void testMoreBinsThanDataPoints() {
+    // 20000 bins of 10 m/z for 3 data points
+    ResampleFilterAlgorithm resampleFilter = new ResampleFilterAlgorithm(10.0);
+    MsScan newScan =
+        resampleFilter.performFilter(createScan(1, new double[] {100.0, 150.0, 200100.0}));
+    Assert.assertEquals(20000, (int) newScan.getNumberOfDataPoints());
+    Assert.assertEquals(105.0, newScan.getMzValues()[0], 0.0);
+    Assert.assertEquals(200095.0, newScan.getMzValues()[19999], 0.0);
+  }
+
 }
@@ -15,6 +15,7 @@ package io.github.msdk.rawdata.filters;
 
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -59,6 +60,47 @@ public class SGFilterMethodTest {
   }
 
 
+  @Test
+  public void testSGFilterParallel() throws Exception {
+
+    // Import the file
+    File inputFile =
+        new File(this.getClass().getClassLoader().getResource("orbitrap_300-600mz.mzML").toURI());
+    Assert.assertTrue("Cannot read test data", inputFile.canRead());
+    MzMLFileImportMethod importer = new MzMLFileImportMethod(inputFile);
+    RawDataFile rawFile = importer.execute();
+    Assert.assertNotNull(rawFile);
+
+    // Execute the same filter serially and in parallel
+    SGFilterAlgorithm sgFilter = new SGFilterAlgorithm(11);
+    RawDataFile serialRawFile = new MSDKFilteringMethod(rawFile, sgFilter).execute();
+    ForkJoinPool pool = new ForkJoinPool(4);
+    MSDKFilteringMethod filterMethod;
+    RawDataFile parallelRawFile;
+    try {
+      filterMethod = new MSDKFilteringMethod(rawFile, sgFilter, pool);
+      parallelRawFile = filterMethod.execute();
+    } finally {
+      pool.shutdown();
+    }
+    Assert.assertNotNull(parallelRawFile);
+    Assert.assertEquals(1.0, filterMethod.getFinishedPercentage(), 0.0001);
+
+    // The parallel filter must return the same scans in the same order
+    List<MsScan> serialScans = serialRawFile.getScans();
+    List<MsScan> parallelScans = parallelRawFile.getScans();
+    Assert.assertEquals(serialScans.size(), parallelScans.size());
+    for (int i = 0; i < serialScans.size(); i++) {
+      MsScan serialScan = serialScans.get(i);
+      MsScan parallelScan = parallelScans.get(i);
+      Assert.assertEquals(serialScan.getScanNumber(), parallelScan.getScanNumber());
+      Assert.assertArrayEquals(serialScan.getMzValues(), parallelScan.getMzValues(), 0.0);
+      Assert.assertArrayEquals(serialScan.getIntensityValues(), parallelScan.getIntensityValues(),
+          0.0f);
+    }
+
+  }
+
   @Test
   public void testSGFilterWrongParameters() throws Exception {
 
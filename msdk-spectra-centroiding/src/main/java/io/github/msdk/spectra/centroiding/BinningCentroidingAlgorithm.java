@@ -28,12 +28,13 @@ public class BinningCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
 
   private final @Nonnull Double binSize;
 
-  private SimpleMsScan newScan;
+  // Data structures, one set per thread
+  private final ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(Workspace::new);
 
-  // Data structures
-  private @Nonnull double mzBuffer[] = new double[10000];
-  private @Nonnull float intensityBuffer[] = new float[10000];
-  private int numOfDataPoints, newNumOfDataPoints;
+  private static final class Workspace {
+    private double mzBuffer[] = new double[10000];
+    private float intensityBuffer[] = new float[10000];
+  }
 
   /**
    * <p>
@@ -51,13 +52,16 @@ public class BinningCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
   public @Nonnull MsScan centroidScan(@Nonnull MsScan inputScan) {
 
     // Copy all scan properties
-    this.newScan = MsScanUtil.clone(inputScan, false);
+    final SimpleMsScan newScan = MsScanUtil.clone(inputScan, false);
 
     // Load data points
-    mzBuffer = inputScan.getMzValues();
-    intensityBuffer = inputScan.getIntensityValues();
-    numOfDataPoints = inputScan.getNumberOfDataPoints();
-    newNumOfDataPoints = 0;
+    final Workspace ws = workspace.get();
+    ws.mzBuffer = inputScan.getMzValues(ws.mzBuffer);
+    ws.intensityBuffer = inputScan.getIntensityValues(ws.intensityBuffer);
+    final double mzBuffer[] = ws.mzBuffer;
+    final float intensityBuffer[] = ws.intensityBuffer;
+    final int numOfDataPoints = inputScan.getNumberOfDataPoints();
+    int newNumOfDataPoints = 0;
 
     // If there are no data points, just return the scan
     if (numOfDataPoints == 0) {
@@ -26,22 +26,27 @@ import io.github.msdk.util.MsScanUtil;
  */
 public class ExactMassCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
 
-  private SimpleMsScan newScan;
+  // Data structures, one set per thread
+  private final ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(Workspace::new);
 
-  // Data structures
-  private @Nonnull double mzBuffer[] = new double[10000];
-  private @Nonnull float intensityBuffer[] = new float[10000];
+  private static final class Workspace {
+    private double mzBuffer[] = new double[10000];
+    private float intensityBuffer[] = new float[10000];
+  }
 
   /** {@inheritDoc} */
   @Override
   public @Nonnull MsScan centroidScan(@Nonnull MsScan inputScan) {
 
     // Copy all scan properties
-    this.newScan = MsScanUtil.clone(inputScan, false);
+    final SimpleMsScan newScan = MsScanUtil.clone(inputScan, false);
 
     // Load data points
-    mzBuffer = inputScan.getMzValues();
-    intensityBuffer = inputScan.getIntensityValues();
+    final Workspace ws = workspace.get();
+    ws.mzBuffer = inputScan.getMzValues(ws.mzBuffer);
+    ws.intensityBuffer = inputScan.getIntensityValues(ws.intensityBuffer);
+    final double mzBuffer[] = ws.mzBuffer;
+    final float intensityBuffer[] = ws.intensityBuffer;
     final int numOfDataPoints = inputScan.getNumberOfDataPoints();
 
     // If there are no data points, just return the scan
@@ -30,14 +30,16 @@ public class RecursiveCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
 
   private final @Nonnull Range<Double> mzPeakWidthRange;
 
-  private SimpleMsScan newScan;
-
-  // Data structures
-  private @Nonnull double mzBuffer[];
-  private @Nonnull float intensityBuffer[];
-  private @Nonnull double newMzBuffer[];
-  private @Nonnull float newIntensityBuffer[];
-  private int numOfDataPoints, newNumOfDataPoints;
+  // Data structures, one set per thread
+  private final ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(Workspace::new);
+
+  private static final class Workspace {
+    private double mzBuffer[] = new double[10000];
+    private float intensityBuffer[] = new float[10000];
+    private double newMzBuffer[] = new double[10000];
+    private float newIntensityBuffer[] = new float[10000];
+    private int newNumOfDataPoints;
+  }
 
   /**
    * <p>
@@ -55,35 +57,41 @@ public class RecursiveCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
   public @Nonnull MsScan centroidScan(@Nonnull MsScan inputScan) {
 
     // Copy all scan properties
-    this.newScan = MsScanUtil.clone(inputScan, false);
+    final SimpleMsScan newScan = MsScanUtil.clone(inputScan, false);
 
     // Load data points
-    mzBuffer = inputScan.getMzValues();
-    intensityBuffer = inputScan.getIntensityValues();
-    numOfDataPoints = inputScan.getNumberOfDataPoints();
-    newNumOfDataPoints = 0;
+    final Workspace ws = workspace.get();
+    ws.mzBuffer = inputScan.getMzValues(ws.mzBuffer);
+    ws.intensityBuffer = inputScan.getIntensityValues(ws.intensityBuffer);
+    final int numOfDataPoints = inputScan.getNumberOfDataPoints();
+    ws.newNumOfDataPoints = 0;
 
     // If there are no data points, just return the scan
     if (numOfDataPoints == 0) {
-      newScan.setDataPoints(mzBuffer, intensityBuffer, 0);
+      newScan.setDataPoints(ws.mzBuffer, ws.intensityBuffer, 0);
       return newScan;
     }
 
-    // Run the recursive search algorithm
-    recursiveThreshold(0, numOfDataPoints - 1, 0);
+    // Run the recursive search algorithm, starting with the peaks separated by zero intensities
+    recursiveThreshold(ws, 0, numOfDataPoints - 1, 0.0, 0);
 
     // Store the new data points
-    newScan.setDataPoints(newMzBuffer, newIntensityBuffer, newNumOfDataPoints);
+    newScan.setDataPoints(ws.newMzBuffer, ws.newIntensityBuffer, ws.newNumOfDataPoints);
 
     return newScan;
 
   }
 
   /**
-   * This function searches for maxima from given part of a spectrum
+   * This function searches for maxima from given part of a spectrum. A peak is a run of data points
+   * above the noise level. Peaks which are too wide are searched again with their lowest local
+   * minimum as the noise level.
    */
-  private int recursiveThreshold(int startInd, int stopInd, int recuLevel) {
+  private int recursiveThreshold(Workspace ws, int startInd, int stopInd, double noiseLevel,
+      int recuLevel) {
 
+    final double mzBuffer[] = ws.mzBuffer;
+    final float intensityBuffer[] = ws.intensityBuffer;
     int peakStartInd, peakStopInd, peakMaxInd;
     double peakWidthMZ;
 
@@ -91,14 +99,19 @@ public class RecursiveCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
 
       double localMinimum = Double.MAX_VALUE;
 
+      // Ignore intensities at or below the noise level
+      if (intensityBuffer[ind] <= noiseLevel)
+        continue;
+
       // Add initial point of the peak
       peakStartInd = ind;
       peakMaxInd = peakStartInd;
 
       // While peak is on
-      while (ind < stopInd) {
+      while ((ind < stopInd) && (intensityBuffer[ind] > noiseLevel)) {
 
-        final boolean isLocalMinimum = (intensityBuffer[ind - 1] > intensityBuffer[ind])
+        final boolean isLocalMinimum = (ind > peakStartInd)
+            && (intensityBuffer[ind - 1] > intensityBuffer[ind])
             && (intensityBuffer[ind] < intensityBuffer[ind + 1]);
 
         // Check if this is the minimum point of the peak
@@ -122,17 +135,18 @@ public class RecursiveCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
 
         // Declare a new MzPeak with intensity equal to max intensity
         // data point
-        if (newMzBuffer.length < newNumOfDataPoints + 1) {
+        final int newNumOfDataPoints = ws.newNumOfDataPoints;
+        if (ws.newMzBuffer.length < newNumOfDataPoints + 1) {
           double t1[] = new double[newNumOfDataPoints * 2];
-          System.arraycopy(newMzBuffer, 0, t1, 0, newNumOfDataPoints);
-          newMzBuffer = t1;
+          System.arraycopy(ws.newMzBuffer, 0, t1, 0, newNumOfDataPoints);
+          ws.newMzBuffer = t1;
           float t2[] = new float[newNumOfDataPoints * 2];
-          System.arraycopy(newIntensityBuffer, 0, t2, 0, newNumOfDataPoints);
-          newIntensityBuffer = t2;
+          System.arraycopy(ws.newIntensityBuffer, 0, t2, 0, newNumOfDataPoints);
+          ws.newIntensityBuffer = t2;
         }
-        newMzBuffer[newNumOfDataPoints] = mzBuffer[peakMaxInd];
-        newIntensityBuffer[newNumOfDataPoints] = intensityBuffer[peakMaxInd];
-        newNumOfDataPoints++;
+        ws.newMzBuffer[newNumOfDataPoints] = mzBuffer[peakMaxInd];
+        ws.newIntensityBuffer[newNumOfDataPoints] = intensityBuffer[peakMaxInd];
+        ws.newNumOfDataPoints++;
 
         if (recuLevel > 0) {
           // return stop index and beginning of the next peak
@@ -144,7 +158,7 @@ public class RecursiveCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
       // peak of the right size
       if (peakWidthMZ > mzPeakWidthRange.upperEndpoint()) {
         if (localMinimum < Double.MAX_VALUE) {
-          ind = recursiveThreshold(peakStartInd, peakStopInd, recuLevel + 1);
+          ind = recursiveThreshold(ws, peakStartInd, peakStopInd, localMinimum, recuLevel + 1);
         }
 
       }
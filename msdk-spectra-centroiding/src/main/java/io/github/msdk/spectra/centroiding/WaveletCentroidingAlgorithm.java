@@ -15,14 +15,21 @@ package io.github.msdk.spectra.centroiding;
 
 import javax.annotation.Nonnull;
 
+import com.google.common.base.Preconditions;
+
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.SimpleMsScan;
 import io.github.msdk.util.MsScanUtil;
+import io.github.msdk.util.WaveletTransform;
 
 /**
  * This class implements the Continuous Wavelet Transform (CWT), Mexican Hat, over raw data points
  * of a certain spectrum. After get the spectrum in the wavelet's time domain, we use the local
  * maxima to detect possible peaks in the original raw data points.
+ *
+ * The wavelet is sampled once, when the algorithm is created. Each thread computes the CWT with
+ * its own {@link io.github.msdk.util.WaveletTransform WaveletTransform}, whose buffers are reused
+ * for all scans.
  */
 public class WaveletCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
 
@@ -36,6 +43,14 @@ public class WaveletCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
 
   private final @Nonnull Integer scaleLevel;
   private final @Nonnull Double waveletWindow;
+  private final @Nonnull WaveletTransform.Kernel kernel;
+
+  private final ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(Workspace::new);
+
+  private static final class Workspace {
+    private final WaveletTransform transform = new WaveletTransform();
+    private double coefficients[][] = new double[1][0];
+  }
 
   /**
    * <p>
@@ -46,8 +61,10 @@ public class WaveletCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
    * @param waveletWindow a {@link java.lang.Double} object.
    */
   public WaveletCentroidingAlgorithm(@Nonnull Integer scaleLevel, @Nonnull Double waveletWindow) {
+    Preconditions.checkArgument(scaleLevel > 0, "The scale level must be positive");
     this.scaleLevel = scaleLevel;
     this.waveletWindow = waveletWindow;
+    this.kernel = createKernel(scaleLevel, waveletWindow);
   }
 
   /** {@inheritDoc} */
@@ -68,7 +85,7 @@ public class WaveletCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
       return newScan;
     }
 
-    float[] cwtDataPoints = performCWT(intensityBuffer, numOfDataPoints, scaleLevel, waveletWindow);
+    float[] cwtDataPoints = performCWT(intensityBuffer, numOfDataPoints);
     int newNumOfDataPoints = extractMzPeaks(cwtDataPoints, mzBuffer, intensityBuffer);
 
     // Store the new data points
@@ -81,56 +98,64 @@ public class WaveletCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
   /**
    * Perform the CWT over raw intensities in the selected scale level
    */
-  private static @Nonnull float[] performCWT(@Nonnull float[] intensityBuffer, int numOfDataPoints,
-      int scaleLevel, double waveletWindow) {
+  @Nonnull
+  float[] performCWT(@Nonnull float[] intensityBuffer, int numOfDataPoints) {
 
     float[] cwtDataPoints = new float[numOfDataPoints * 2];
 
-    double wstep = ((WAVELET_ESR - WAVELET_ESL) / NPOINTS);
-    double[] W = new double[(int) NPOINTS];
+    Workspace ws = workspace.get();
+    if (ws.coefficients[0].length < numOfDataPoints)
+      ws.coefficients[0] = new double[numOfDataPoints];
+    ws.transform.transform(intensityBuffer, numOfDataPoints, new WaveletTransform.Kernel[] {kernel},
+        ws.coefficients);
 
-    double waveletIndex = WAVELET_ESL;
-    for (int j = 0; j < NPOINTS; j++) {
-      // Pre calculate the values of the wavelet
-      W[j] = cwtMEXHATreal(waveletIndex, waveletWindow, 0.0);
-      waveletIndex += wstep;
+    double coefficients[] = ws.coefficients[0];
+    for (int dx = 0; dx < numOfDataPoints; dx++) {
+      // Eliminate the negative part of the wavelet map
+      cwtDataPoints[dx] = coefficients[dx] < 0 ? 0f : (float) coefficients[dx];
     }
 
-    /*
-     * We only perform Translation of the wavelet in the selected scale
-     */
+    return cwtDataPoints;
+  }
+
+  /**
+   * Samples the wavelet of the selected scale level at the offsets -scaleLevel * WAVELET_ESL to
+   * scaleLevel * WAVELET_ESR. The values are taken from the same NPOINTS wavelet values over the
+   * effective support as before, divided by sqrt(scaleLevel).
+   */
+  private static @Nonnull WaveletTransform.Kernel createKernel(int scaleLevel,
+      double waveletWindow) {
+
+    double wstep = ((WAVELET_ESR - WAVELET_ESL) / NPOINTS);
     int d = (int) NPOINTS / (WAVELET_ESR - WAVELET_ESL);
     int a_esl = scaleLevel * WAVELET_ESL;
     int a_esr = scaleLevel * WAVELET_ESR;
     double sqrtScaleLevel = Math.sqrt(scaleLevel);
-    for (int dx = 0; dx < numOfDataPoints; dx++) {
 
-      /* Compute wavelet boundaries */
-      int t1 = a_esl + dx;
-      if (t1 < 0)
-        t1 = 0;
-      int t2 = a_esr + dx;
-      if (t2 >= numOfDataPoints)
-        t2 = (numOfDataPoints - 1);
-
-      /* Perform convolution */
-      float intensity = 0.0f;
-      for (int i = t1; i <= t2; i++) {
-        int ind = (int) (NPOINTS / 2) - (((int) d * (i - dx) / scaleLevel) * (-1));
-        if (ind < 0)
-          ind = 0;
-        if (ind >= NPOINTS)
-          ind = (int) NPOINTS - 1;
-        intensity += intensityBuffer[i] * W[ind];
+    // The index of the wavelet value for each offset
+    int indices[] = new int[a_esr - a_esl + 1];
+    for (int offset = a_esl; offset <= a_esr; offset++) {
+      int ind = (int) (NPOINTS / 2) + d * offset / scaleLevel;
+      if (ind < 0)
+        ind = 0;
+      if (ind >= NPOINTS)
+        ind = (int) NPOINTS - 1;
+      indices[offset - a_esl] = ind;
+    }
+
+    // The wavelet values are computed at the same steps as the full table of NPOINTS values
+    double values[] = new double[indices.length];
+    double waveletIndex = WAVELET_ESL;
+    int next = 0;
+    for (int j = 0; j < NPOINTS && next < indices.length; j++) {
+      while (next < indices.length && indices[next] == j) {
+        values[next] = cwtMEXHATreal(waveletIndex, waveletWindow, 0.0) / sqrtScaleLevel;
+        next++;
       }
-      intensity /= sqrtScaleLevel;
-      // Eliminate the negative part of the wavelet map
-      if (intensity < 0)
-        intensity = 0;
-      cwtDataPoints[dx] = intensity;
+      waveletIndex += wstep;
     }
 
-    return cwtDataPoints;
+    return new WaveletTransform.Kernel(values, a_esl);
   }
 
   /**
@@ -19,6 +19,7 @@ import java.util.List;
 import org.junit.Assert;
 import org.junit.Test;
 
+import io.github.msdk.MSDKException;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.io.mzml.MzMLFileImportMethod;
@@ -61,4 +62,11 @@ public class LocalMaximaCentroidingAlgorithmTest {
 
   }
 
+  @Test
+  public void testParallel() throws MSDKException {
+    RecursiveCentroidingAlgorithmTest.checkParallelCentroiding(
+        RecursiveCentroidingAlgorithmTest.createRawDataFile(60),
+        new LocalMaximaCentroidingAlgorithm());
+  }
+
 }
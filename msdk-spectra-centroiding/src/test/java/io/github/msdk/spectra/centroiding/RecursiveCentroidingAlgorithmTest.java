@@ -13,7 +13,111 @@
 
 package io.github.msdk.spectra.centroiding;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.FileType;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
+
 public class RecursiveCentroidingAlgorithmTest {
 
+  /** The m/z values of the peaks, the last two of which overlap. */
+  static final double PEAK_MZ[] = {100.1, 100.5, 101.0, 102.0, 102.03};
+
+  /**
+   * Creates a profile scan on a 0.002 m/z grid from 100 to 103, with Gaussian peaks of sigma 0.005
+   * at PEAK_MZ, cut to zero beyond 4 sigma. The height of peak i is (i + 1) * height.
+   */
+  static MsScan createProfileScan(int scanNumber, float height) {
+    double mzValues[] = new double[1501];
+    float intensityValues[] = new float[mzValues.length];
+    for (int i = 0; i < mzValues.length; i++) {
+      mzValues[i] = 100.0 + i * 0.002;
+      for (int p = 0; p < PEAK_MZ.length; p++) {
+        double distance = (mzValues[i] - PEAK_MZ[p]) / 0.005;
+        if (Math.abs(distance) <= 4.0)
+          intensityValues[i] += (float) ((p + 1) * height * Math.exp(-0.5 * distance * distance));
+      }
+    }
+    SimpleMsScan scan = new SimpleMsScan(scanNumber);
+    scan.setMsLevel(1);
+    scan.setSpectrumType(MsSpectrumType.PROFILE);
+    scan.setDataPoints(mzValues, intensityValues, mzValues.length);
+    return scan;
+  }
+
+  /** Creates profile scans of the same peaks with heights changing from scan to scan. */
+  static RawDataFile createRawDataFile(int numOfScans) {
+    SimpleRawDataFile raw = new SimpleRawDataFile("test", Optional.empty(), FileType.UNKNOWN);
+    for (int s = 0; s < numOfScans; s++) {
+      MsScan scan = createProfileScan(s + 1, 1000f * (1 + s % 17));
+      raw.addScan(scan);
+    }
+    return raw;
+  }
+
+  /**
+   * Checks that the parallel centroiding returns the same scans in the same order as the serial
+   * one.
+   */
+  static void checkParallelCentroiding(RawDataFile rawFile, MSDKCentroidingAlgorithm centroider)
+      throws MSDKException {
+    RawDataFile serialRawFile = new MSDKCentroidingMethod(rawFile, centroider).execute();
+    ForkJoinPool pool = new ForkJoinPool(4);
+    RawDataFile parallelRawFile;
+    try {
+      parallelRawFile = new MSDKCentroidingMethod(rawFile, centroider, pool).execute();
+    } finally {
+      pool.shutdown();
+    }
+
+    List<MsScan> serialScans = serialRawFile.getScans();
+    List<MsScan> parallelScans = parallelRawFile.getScans();
+    Assert.assertEquals(rawFile.getScans().size(), serialScans.size());
+    Assert.assertEquals(serialScans.size(), parallelScans.size());
+    for (int i = 0; i < serialScans.size(); i++) {
+      MsScan serialScan = serialScans.get(i);
+      MsScan parallelScan = parallelScans.get(i);
+      Assert.assertTrue(serialScan.getNumberOfDataPoints() > 0);
+      Assert.assertEquals(serialScan.getScanNumber(), parallelScan.getScanNumber());
+      Assert.assertArrayEquals(serialScan.getMzValues(), parallelScan.getMzValues(), 0.0);
+      Assert.assertArrayEquals(serialScan.getIntensityValues(), parallelScan.getIntensityValues(),
+          0.0f);
+    }
+  }
+
+  @Test
+  public void testCentroidScan() {
+    MsScan inputScan = createProfileScan(1, 1000f);
+    RecursiveCentroidingAlgorithm centroider =
+        new RecursiveCentroidingAlgorithm(Range.closed(0.0, 0.05));
+    MsScan centroidedScan = centroider.centroidScan(inputScan);
+
+    // The overlapping peaks are too wide together, so they are split at the minimum between them
+    double mzValues[] = centroidedScan.getMzValues();
+    float intensityValues[] = centroidedScan.getIntensityValues();
+    Assert.assertEquals(PEAK_MZ.length, (int) centroidedScan.getNumberOfDataPoints());
+    for (int p = 0; p < PEAK_MZ.length; p++) {
+      Assert.assertEquals(PEAK_MZ[p], mzValues[p], 0.001);
+      Assert.assertEquals((p + 1) * 1000f, intensityValues[p], 0.02f * (p + 1) * 1000f);
+    }
+  }
+
+  @Test
+  public void testParallel() throws MSDKException {
+    checkParallelCentroiding(createRawDataFile(60),
+        new RecursiveCentroidingAlgorithm(Range.closed(0.0, 0.05)));
+  }
 
 }
@@ -60,4 +60,85 @@ public class WaveletCentroidingAlgorithmTest {
     rawFile.dispose();
 
   }
+
+  /**
+   * The CWT as it was computed for each scan before the wavelet was sampled once per algorithm,
+   * from a table of NPOINTS wavelet values and with float accumulation.
+   */
+  private static float[] performOldCWT(float[] intensityBuffer, int numOfDataPoints,
+      int scaleLevel, double waveletWindow) {
+    final double NPOINTS = 60000;
+    final int WAVELET_ESL = -5;
+    final int WAVELET_ESR = 5;
+
+    float[] cwtDataPoints = new float[numOfDataPoints * 2];
+
+    double wstep = ((WAVELET_ESR - WAVELET_ESL) / NPOINTS);
+    double[] W = new double[(int) NPOINTS];
+
+    double waveletIndex = WAVELET_ESL;
+    for (int j = 0; j < NPOINTS; j++) {
+      // Pre calculate the values of the wavelet, cwtMEXHATreal with b = 0
+      double x = waveletIndex / waveletWindow;
+      W[j] = 0.8673250705840776 * (1.0 - x * x) * Math.exp(-x * x / 2);
+      waveletIndex += wstep;
+    }
+
+    int d = (int) NPOINTS / (WAVELET_ESR - WAVELET_ESL);
+    int a_esl = scaleLevel * WAVELET_ESL;
+    int a_esr = scaleLevel * WAVELET_ESR;
+    double sqrtScaleLevel = Math.sqrt(scaleLevel);
+    for (int dx = 0; dx < numOfDataPoints; dx++) {
+
+      /* Compute wavelet boundaries */
+      int t1 = a_esl + dx;
+      if (t1 < 0)
+        t1 = 0;
+      int t2 = a_esr + dx;
+      if (t2 >= numOfDataPoints)
+        t2 = (numOfDataPoints - 1);
+
+      /* Perform convolution */
+      float intensity = 0.0f;
+      for (int i = t1; i <= t2; i++) {
+        int ind = (int) (NPOINTS / 2) - (((int) d * (i - dx) / scaleLevel) * (-1));
+        if (ind < 0)
+          ind = 0;
+        if (ind >= NPOINTS)
+          ind = (int) NPOINTS - 1;
+        intensity += intensityBuffer[i] * W[ind];
+      }
+      intensity /= sqrtScaleLevel;
+      // Eliminate the negative part of the wavelet map
+      if (intensity < 0)
+        intensity = 0;
+      cwtDataPoints[dx] = intensity;
+    }
+
+    return cwtDataPoints;
+  }
+
+  @Test
+  public void testCWT() {
+    MsScan scan = RecursiveCentroidingAlgorithmTest.createProfileScan(1, 1E6f);
+    float intensityBuffer[] = scan.getIntensityValues();
+    int numOfDataPoints = scan.getNumberOfDataPoints();
+
+    for (int scaleLevel : new int[] {1, 5, 20, 50}) {
+      for (double waveletWindow : new double[] {0.05, 1.0}) {
+        float expected[] =
+            performOldCWT(intensityBuffer, numOfDataPoints, scaleLevel, waveletWindow);
+        float actual[] = new WaveletCentroidingAlgorithm(scaleLevel, waveletWindow)
+            .performCWT(intensityBuffer, numOfDataPoints);
+        Assert.assertEquals(expected.length, actual.length);
+        float maxCoefficient = 0f;
+        for (float coefficient : expected)
+          maxCoefficient = Math.max(maxCoefficient, coefficient);
+        Assert.assertTrue(maxCoefficient > 0f);
+        // The old loop summed in float, the new one sums in double
+        Assert.assertArrayEquals(expected, actual, 1E-6f * maxCoefficient);
+      }
+    }
+  }
+
 }
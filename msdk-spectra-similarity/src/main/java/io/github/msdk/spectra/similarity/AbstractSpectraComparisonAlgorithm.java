@@ -0,0 +1,246 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.spectra.similarity;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Range;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.util.DataPointSorter;
+import io.github.msdk.util.DataPointSorter.SortingDirection;
+import io.github.msdk.util.DataPointSorter.SortingProperty;
+import io.github.msdk.util.ParallelUtil;
+import io.github.msdk.util.tolerances.MzTolerance;
+
+/**
+ * <p>
+ * Base class of the spectra comparison algorithms that work on
+ * {@link io.github.msdk.spectra.similarity.PreprocessedSpectrum}s. Preprocessing keeps the most
+ * intense peaks, sorts them by m/z, normalizes their intensities and computes the m/z tolerance
+ * range of each peak. A comparison then matches the peaks of two spectra in a single linear
+ * merge-join over the sorted m/z values, without any allocation or tolerance computation.
+ * </p>
+ *
+ * <p>
+ * To score one query against a spectral library, preprocess each library spectrum once and use
+ * {@link #compareSpectra(PreprocessedSpectrum, List, ForkJoinPool)}.
+ * </p>
+ */
+public abstract class AbstractSpectraComparisonAlgorithm implements MSDKSpectraComparisonAlgorithm {
+
+  private final @Nonnull MzTolerance mzTolerance;
+  private final int maximumPeaks;
+
+  /**
+   * <p>
+   * Constructor for AbstractSpectraComparisonAlgorithm.
+   * </p>
+   *
+   * @param mzTolerance the {@link io.github.msdk.util.tolerances.MzTolerance} for matching peaks.
+   * @param maximumPeaks the number of most intense peaks kept by the preprocessing, or 0 to keep
+   *        all peaks.
+   */
+  protected AbstractSpectraComparisonAlgorithm(@Nonnull MzTolerance mzTolerance,
+      int maximumPeaks) {
+    Preconditions.checkNotNull(mzTolerance);
+    Preconditions.checkArgument(maximumPeaks >= 0, "The maximum number of peaks is negative");
+    this.mzTolerance = mzTolerance;
+    this.maximumPeaks = maximumPeaks;
+  }
+
+  /**
+   * <p>
+   * Returns the m/z tolerance for matching peaks.
+   * </p>
+   *
+   * @return a {@link io.github.msdk.util.tolerances.MzTolerance} object.
+   */
+  @Nonnull
+  public MzTolerance getMzTolerance() {
+    return mzTolerance;
+  }
+
+  /**
+   * <p>
+   * Prepares a spectrum for comparisons by this algorithm. Peaks without a positive intensity are
+   * removed.
+   * </p>
+   *
+   * @param mzValues an array of double.
+   * @param intensityValues an array of float.
+   * @param size a int.
+   * @param precursorMz the precursor m/z, or null if unknown.
+   * @return a {@link io.github.msdk.spectra.similarity.PreprocessedSpectrum} object.
+   */
+  @Nonnull
+  public PreprocessedSpectrum preprocess(@Nonnull double mzValues[],
+      @Nonnull float intensityValues[], int size, @Nullable Double precursorMz) {
+    Preconditions.checkPositionIndex(size, mzValues.length);
+    Preconditions.checkPositionIndex(size, intensityValues.length);
+
+    // Keep the most intense peaks
+    final double mzBuffer[] = Arrays.copyOf(mzValues, size);
+    final float intensityBuffer[] = Arrays.copyOf(intensityValues, size);
+    final DataPointSorter.Workspace workspace = new DataPointSorter.Workspace();
+    DataPointSorter.sortDataPoints(mzBuffer, intensityBuffer, size, SortingProperty.INTENSITY,
+        SortingDirection.DESCENDING, workspace);
+    final int limit = (maximumPeaks == 0) ? size : Math.min(size, maximumPeaks);
+    int newSize = 0;
+    for (int i = 0; (i < size) && (newSize < limit); i++) {
+      if (!(intensityBuffer[i] > 0f) || Float.isInfinite(intensityBuffer[i]))
+        continue;
+      mzBuffer[newSize] = mzBuffer[i];
+      intensityBuffer[newSize] = intensityBuffer[i];
+      newSize++;
+    }
+    DataPointSorter.sortDataPoints(mzBuffer, intensityBuffer, newSize, SortingProperty.MZ,
+        SortingDirection.ASCENDING, workspace);
+
+    final double mz[] = Arrays.copyOf(mzBuffer, newSize);
+    final double intensities[] = new double[newSize];
+    for (int i = 0; i < newSize; i++)
+      intensities[i] = intensityBuffer[i];
+    normalize(intensities, newSize);
+
+    final double lowerMz[] = new double[newSize], upperMz[] = new double[newSize];
+    for (int i = 0; i < newSize; i++) {
+      final Range<Double> mzRange = mzTolerance.getToleranceRange(mz[i]);
+      lowerMz[i] = mzRange.lowerEndpoint();
+      upperMz[i] = mzRange.upperEndpoint();
+    }
+
+    return new PreprocessedSpectrum(this, mz, intensities, lowerMz, upperMz, newSize,
+        precursorMz == null ? Double.NaN : precursorMz);
+  }
+
+  /**
+   * <p>
+   * Transforms the intensities of a spectrum in place, after its peaks were filtered.
+   * </p>
+   *
+   * @param intensityValues an array of double.
+   * @param size a int.
+   */
+  protected abstract void normalize(@Nonnull double intensityValues[], int size);
+
+  /**
+   * <p>
+   * Compares two spectra that were preprocessed by this algorithm and returns a score.
+   * </p>
+   *
+   * @param spectrum1 a {@link io.github.msdk.spectra.similarity.PreprocessedSpectrum} object.
+   * @param spectrum2 a {@link io.github.msdk.spectra.similarity.PreprocessedSpectrum} object.
+   * @return the score, between 0 and 1.
+   */
+  public final double compare(@Nonnull PreprocessedSpectrum spectrum1,
+      @Nonnull PreprocessedSpectrum spectrum2) {
+    Preconditions.checkArgument((spectrum1.algorithm == this) && (spectrum2.algorithm == this),
+        "The spectra were not preprocessed by this algorithm");
+    if ((spectrum1.size == 0) || (spectrum2.size == 0))
+      return 0.0;
+    return Math.max(0.0, Math.min(1.0, comparePreprocessed(spectrum1, spectrum2)));
+  }
+
+  /**
+   * <p>
+   * Compares two non-empty spectra that were preprocessed by this algorithm.
+   * </p>
+   *
+   * @param spectrum1 a {@link io.github.msdk.spectra.similarity.PreprocessedSpectrum} object.
+   * @param spectrum2 a {@link io.github.msdk.spectra.similarity.PreprocessedSpectrum} object.
+   * @return the score.
+   */
+  protected abstract double comparePreprocessed(@Nonnull PreprocessedSpectrum spectrum1,
+      @Nonnull PreprocessedSpectrum spectrum2);
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Double compareSpectra(@Nonnull double mzValuesSpectrum1[],
+      @Nonnull float intensityValuesSpectrum1[], @Nonnull Integer sizeSpectrum1,
+      @Nonnull double mzValuesSpectrum2[], @Nonnull float intensityValuesSpectrum2[],
+      @Nonnull Integer sizeSpectrum2) {
+    return compare(preprocess(mzValuesSpectrum1, intensityValuesSpectrum1, sizeSpectrum1, null),
+        preprocess(mzValuesSpectrum2, intensityValuesSpectrum2, sizeSpectrum2, null));
+  }
+
+  /**
+   * <p>
+   * Compares a query spectrum with each library spectrum. All spectra must have been preprocessed
+   * by this algorithm.
+   * </p>
+   *
+   * @param query a {@link io.github.msdk.spectra.similarity.PreprocessedSpectrum} object.
+   * @param library a {@link java.util.List} of library spectra.
+   * @return the scores, in the order of the library.
+   */
+  @Nonnull
+  public double[] compareSpectra(@Nonnull PreprocessedSpectrum query,
+      @Nonnull List<PreprocessedSpectrum> library) {
+    final PreprocessedSpectrum librarySpectra[] = library.toArray(new PreprocessedSpectrum[0]);
+    final double scores[] = new double[librarySpectra.length];
+    compareSpectra(query, librarySpectra, 0, librarySpectra.length, scores);
+    return scores;
+  }
+
+  /**
+   * <p>
+   * Compares a query spectrum with each library spectrum, in parallel on the given
+   * {@link java.util.concurrent.ForkJoinPool ForkJoinPool}. All spectra must have been preprocessed
+   * by this algorithm.
+   * </p>
+   *
+   * @param query a {@link io.github.msdk.spectra.similarity.PreprocessedSpectrum} object.
+   * @param library a {@link java.util.List} of library spectra.
+   * @param pool the {@link java.util.concurrent.ForkJoinPool ForkJoinPool} comparing the spectra,
+   *        or null to compare them on the calling thread
+   * @return the scores, in the order of the library.
+   * @throws io.github.msdk.MSDKException if any.
+   */
+  @Nonnull
+  public double[] compareSpectra(@Nonnull PreprocessedSpectrum query,
+      @Nonnull List<PreprocessedSpectrum> library, @Nullable ForkJoinPool pool)
+      throws MSDKException {
+    final PreprocessedSpectrum librarySpectra[] = library.toArray(new PreprocessedSpectrum[0]);
+    final double scores[] = new double[librarySpectra.length];
+    final int numOfChunks =
+        (pool == null) ? 1 : Math.min(librarySpectra.length, pool.getParallelism() * 4);
+    if (numOfChunks <= 1) {
+      compareSpectra(query, librarySpectra, 0, librarySpectra.length, scores);
+      return scores;
+    }
+
+    ParallelUtil.run(pool, numOfChunks, chunk -> {
+      final int from = (int) ((long) librarySpectra.length * chunk / numOfChunks);
+      final int to = (int) ((long) librarySpectra.length * (chunk + 1) / numOfChunks);
+      compareSpectra(query, librarySpectra, from, to, scores);
+    });
+    return scores;
+  }
+
+  private void compareSpectra(@Nonnull PreprocessedSpectrum query,
+      @Nonnull PreprocessedSpectrum librarySpectra[], int from, int to, @Nonnull double scores[]) {
+    for (int i = from; i < to; i++)
+      scores[i] = compare(query, librarySpectra[i]);
+  }
+
+}
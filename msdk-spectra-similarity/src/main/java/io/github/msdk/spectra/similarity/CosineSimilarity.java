@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.spectra.similarity;
+
+import javax.annotation.Nonnull;
+
+import io.github.msdk.util.tolerances.MzTolerance;
+
+/**
+ * <p>
+ * Cosine similarity (normalized dot product) of two spectra. The intensities are scaled to unit
+ * length during preprocessing, so the score is the sum of the intensity products of the matched
+ * peaks. Peaks are matched in one pass over both spectra in m/z order: a peak of the second
+ * spectrum matches the first unmatched peak of the first spectrum whose m/z tolerance range
+ * contains it.
+ * </p>
+ */
+public class CosineSimilarity extends AbstractSpectraComparisonAlgorithm {
+
+  /**
+   * <p>
+   * Constructor for CosineSimilarity, keeping all peaks.
+   * </p>
+   *
+   * @param mzTolerance the {@link io.github.msdk.util.tolerances.MzTolerance} for matching peaks.
+   */
+  public CosineSimilarity(@Nonnull MzTolerance mzTolerance) {
+    this(mzTolerance, 0);
+  }
+
+  /**
+   * <p>
+   * Constructor for CosineSimilarity.
+   * </p>
+   *
+   * @param mzTolerance the {@link io.github.msdk.util.tolerances.MzTolerance} for matching peaks.
+   * @param maximumPeaks the number of most intense peaks kept by the preprocessing, or 0 to keep
+   *        all peaks.
+   */
+  public CosineSimilarity(@Nonnull MzTolerance mzTolerance, int maximumPeaks) {
+    super(mzTolerance, maximumPeaks);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void normalize(@Nonnull double intensityValues[], int size) {
+    scaleToUnitLength(intensityValues, size);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected double comparePreprocessed(@Nonnull PreprocessedSpectrum spectrum1,
+      @Nonnull PreprocessedSpectrum spectrum2) {
+    return dotProduct(spectrum1, spectrum2, 0.0);
+  }
+
+  /**
+   * Scales the intensities to unit length. Intensities which are all zero are left unchanged, so
+   * that the spectrum matches nothing instead of giving NaN scores.
+   */
+  static void scaleToUnitLength(@Nonnull double intensityValues[], int size) {
+    double norm = 0.0;
+    for (int i = 0; i < size; i++)
+      norm += intensityValues[i] * intensityValues[i];
+    if (norm == 0.0)
+      return;
+    norm = Math.sqrt(norm);
+    for (int i = 0; i < size; i++)
+      intensityValues[i] /= norm;
+  }
+
+  /**
+   * Sums the intensity products of the peaks matched in one merge-join, after adding the shift to
+   * the m/z values of the second spectrum.
+   */
+  static double dotProduct(@Nonnull PreprocessedSpectrum spectrum1,
+      @Nonnull PreprocessedSpectrum spectrum2, double shift) {
+    final double lowerMz[] = spectrum1.lowerMzValues, upperMz[] = spectrum1.upperMzValues;
+    final double intensities1[] = spectrum1.intensityValues;
+    final double mzValues2[] = spectrum2.mzValues, intensities2[] = spectrum2.intensityValues;
+    final int size1 = spectrum1.size, size2 = spectrum2.size;
+
+    double product = 0.0;
+    int i = 0, j = 0;
+    while ((i < size1) && (j < size2)) {
+      final double mz2 = mzValues2[j] + shift;
+      if (mz2 < lowerMz[i]) {
+        j++;
+      } else if (mz2 > upperMz[i]) {
+        i++;
+      } else {
+        product += intensities1[i] * intensities2[j];
+        i++;
+        j++;
+      }
+    }
+    return product;
+  }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.spectra.similarity;
+
+import javax.annotation.Nonnull;
+
+import io.github.msdk.util.tolerances.MzTolerance;
+
+/**
+ * <p>
+ * Spectral entropy similarity of two spectra, as described by Li et al., Nature Methods 18 (2021),
+ * 1524-1531. The intensities are scaled to sum up to 1 during preprocessing, and the score is
+ * <code>1 - (2 * S(AB) - S(A) - S(B)) / ln(4)</code>, where S is the Shannon entropy and AB is the
+ * spectrum merged from both spectra with half of their intensities. Only the matched peaks change
+ * this value, so the score is computed over the matched peaks of one merge-join. With the entropy
+ * weighting, the intensities of spectra with an entropy below 3 are raised to the power of
+ * <code>0.25 + 0.25 * S</code> before the scaling, which gives more weight to their minor peaks.
+ * </p>
+ */
+public class EntropySimilarity extends AbstractSpectraComparisonAlgorithm {
+
+  private static final double LN_4 = Math.log(4.0);
+
+  private final boolean weighted;
+
+  /**
+   * <p>
+   * Constructor for EntropySimilarity, keeping all peaks and using the entropy weighting.
+   * </p>
+   *
+   * @param mzTolerance the {@link io.github.msdk.util.tolerances.MzTolerance} for matching peaks.
+   */
+  public EntropySimilarity(@Nonnull MzTolerance mzTolerance) {
+    this(mzTolerance, 0, true);
+  }
+
+  /**
+   * <p>
+   * Constructor for EntropySimilarity.
+   * </p>
+   *
+   * @param mzTolerance the {@link io.github.msdk.util.tolerances.MzTolerance} for matching peaks.
+   * @param maximumPeaks the number of most intense peaks kept by the preprocessing, or 0 to keep
+   *        all peaks.
+   * @param weighted whether to apply the entropy weighting to the intensities.
+   */
+  public EntropySimilarity(@Nonnull MzTolerance mzTolerance, int maximumPeaks,
+      boolean weighted) {
+    super(mzTolerance, maximumPeaks);
+    this.weighted = weighted;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void normalize(@Nonnull double intensityValues[], int size) {
+    scaleToUnitSum(intensityValues, size);
+    if (!weighted)
+      return;
+    final double entropy = getEntropy(intensityValues, size);
+    if (entropy >= 3.0)
+      return;
+    final double weight = 0.25 + 0.25 * entropy;
+    for (int i = 0; i < size; i++)
+      intensityValues[i] = Math.pow(intensityValues[i], weight);
+    scaleToUnitSum(intensityValues, size);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected double comparePreprocessed(@Nonnull PreprocessedSpectrum spectrum1,
+      @Nonnull PreprocessedSpectrum spectrum2) {
+    final double lowerMz[] = spectrum1.lowerMzValues, upperMz[] = spectrum1.upperMzValues;
+    final double intensities1[] = spectrum1.intensityValues;
+    final double mzValues2[] = spectrum2.mzValues, intensities2[] = spectrum2.intensityValues;
+    final int size1 = spectrum1.size, size2 = spectrum2.size;
+
+    double score = 0.0;
+    int i = 0, j = 0;
+    while ((i < size1) && (j < size2)) {
+      final double mz2 = mzValues2[j];
+      if (mz2 < lowerMz[i]) {
+        j++;
+      } else if (mz2 > upperMz[i]) {
+        i++;
+      } else {
+        final double p = intensities1[i], q = intensities2[j];
+        score += (p + q) * Math.log(p + q) - p * Math.log(p) - q * Math.log(q);
+        i++;
+        j++;
+      }
+    }
+    return score / LN_4;
+  }
+
+  private static void scaleToUnitSum(@Nonnull double intensityValues[], int size) {
+    double sum = 0.0;
+    for (int i = 0; i < size; i++)
+      sum += intensityValues[i];
+    for (int i = 0; i < size; i++)
+      intensityValues[i] /= sum;
+  }
+
+  private static double getEntropy(@Nonnull double intensityValues[], int size) {
+    double entropy = 0.0;
+    for (int i = 0; i < size; i++)
+      entropy -= intensityValues[i] * Math.log(intensityValues[i]);
+    return entropy;
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.spectra.similarity;
+
+import javax.annotation.Nonnull;
+
+import io.github.msdk.util.DataPointSorter;
+import io.github.msdk.util.tolerances.MzTolerance;
+
+/**
+ * <p>
+ * Modified cosine similarity of two MS/MS spectra. In addition to the peaks with the same m/z, a
+ * peak of the first spectrum can match a peak of the second spectrum shifted by the difference of
+ * the precursor m/z values, so that fragments carrying a modification still contribute to the
+ * score. The direct and the shifted matches are each found by a linear merge-join. Each peak is
+ * then used at most once, by assigning the matches in decreasing order of their intensity product.
+ * </p>
+ *
+ * <p>
+ * When a precursor m/z is unknown, the score is the
+ * {@link io.github.msdk.spectra.similarity.CosineSimilarity cosine similarity}.
+ * The {@link #compareSpectra(double[], float[], Integer, double[], float[], Integer)} method has no
+ * precursor values, use {@link #preprocess(double[], float[], int, Double)} to provide them.
+ * </p>
+ */
+public class ModifiedCosineSimilarity extends AbstractSpectraComparisonAlgorithm {
+
+  /**
+   * <p>
+   * Constructor for ModifiedCosineSimilarity, keeping all peaks.
+   * </p>
+   *
+   * @param mzTolerance the {@link io.github.msdk.util.tolerances.MzTolerance} for matching peaks.
+   */
+  public ModifiedCosineSimilarity(@Nonnull MzTolerance mzTolerance) {
+    this(mzTolerance, 0);
+  }
+
+  /**
+   * <p>
+   * Constructor for ModifiedCosineSimilarity.
+   * </p>
+   *
+   * @param mzTolerance the {@link io.github.msdk.util.tolerances.MzTolerance} for matching peaks.
+   * @param maximumPeaks the number of most intense peaks kept by the preprocessing, or 0 to keep
+   *        all peaks.
+   */
+  public ModifiedCosineSimilarity(@Nonnull MzTolerance mzTolerance, int maximumPeaks) {
+    super(mzTolerance, maximumPeaks);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void normalize(@Nonnull double intensityValues[], int size) {
+    CosineSimilarity.scaleToUnitLength(intensityValues, size);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected double comparePreprocessed(@Nonnull PreprocessedSpectrum spectrum1,
+      @Nonnull PreprocessedSpectrum spectrum2) {
+
+    final double precursor1 = spectrum1.precursorMz, precursor2 = spectrum2.precursorMz;
+    if (Double.isNaN(precursor1) || Double.isNaN(precursor2))
+      return CosineSimilarity.dotProduct(spectrum1, spectrum2, 0.0);
+
+    // Without a shift, the shifted matches are the direct ones
+    final double shift = precursor1 - precursor2;
+    if (shift == 0.0)
+      return CosineSimilarity.dotProduct(spectrum1, spectrum2, 0.0);
+
+    // Collect the direct and the shifted matches
+    final int maxMatches = 2 * Math.min(spectrum1.size, spectrum2.size);
+    final int peaks1[] = new int[maxMatches], peaks2[] = new int[maxMatches];
+    final double negatedProducts[] = new double[maxMatches];
+    int numOfMatches = collectMatches(spectrum1, spectrum2, 0.0, peaks1, peaks2,
+        negatedProducts, 0);
+    numOfMatches = collectMatches(spectrum1, spectrum2, shift, peaks1, peaks2, negatedProducts,
+        numOfMatches);
+
+    // Use each peak once, starting from the highest product
+    final int order[] = new int[numOfMatches];
+    DataPointSorter.sortIndices(negatedProducts, order, numOfMatches, null);
+    final boolean used1[] = new boolean[spectrum1.size], used2[] = new boolean[spectrum2.size];
+    double product = 0.0;
+    for (int m = 0; m < numOfMatches; m++) {
+      final int match = order[m];
+      if (used1[peaks1[match]] || used2[peaks2[match]])
+        continue;
+      used1[peaks1[match]] = true;
+      used2[peaks2[match]] = true;
+      product -= negatedProducts[match];
+    }
+    return product;
+  }
+
+  private static int collectMatches(@Nonnull PreprocessedSpectrum spectrum1,
+      @Nonnull PreprocessedSpectrum spectrum2, double shift, @Nonnull int peaks1[],
+      @Nonnull int peaks2[], @Nonnull double negatedProducts[], int numOfMatches) {
+    final double lowerMz[] = spectrum1.lowerMzValues, upperMz[] = spectrum1.upperMzValues;
+    final double mzValues2[] = spectrum2.mzValues;
+    int i = 0, j = 0;
+    while ((i < spectrum1.size) && (j < spectrum2.size)) {
+      final double mz2 = mzValues2[j] + shift;
+      if (mz2 < lowerMz[i]) {
+        j++;
+      } else if (mz2 > upperMz[i]) {
+        i++;
+      } else {
+        peaks1[numOfMatches] = i;
+        peaks2[numOfMatches] = j;
+        negatedProducts[numOfMatches] =
+            -spectrum1.intensityValues[i] * spectrum2.intensityValues[j];
+        numOfMatches++;
+        i++;
+        j++;
+      }
+    }
+    return numOfMatches;
+  }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.spectra.similarity;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * <p>
+ * A spectrum prepared for fast comparisons by an
+ * {@link io.github.msdk.spectra.similarity.AbstractSpectraComparisonAlgorithm}. The peaks are
+ * filtered, sorted by m/z and normalized as the algorithm requires, and the m/z tolerance range of
+ * each peak is computed in advance. Instances are immutable, so they can be compared from several
+ * threads at once, and can only be compared by the algorithm that created them.
+ * </p>
+ */
+public final class PreprocessedSpectrum {
+
+  final @Nonnull AbstractSpectraComparisonAlgorithm algorithm;
+  final @Nonnull double mzValues[], intensityValues[];
+  final @Nonnull double lowerMzValues[], upperMzValues[];
+  final int size;
+  final double precursorMz;
+
+  PreprocessedSpectrum(@Nonnull AbstractSpectraComparisonAlgorithm algorithm,
+      @Nonnull double mzValues[], @Nonnull double intensityValues[],
+      @Nonnull double lowerMzValues[], @Nonnull double upperMzValues[], int size,
+      double precursorMz) {
+    this.algorithm = algorithm;
+    this.mzValues = mzValues;
+    this.intensityValues = intensityValues;
+    this.lowerMzValues = lowerMzValues;
+    this.upperMzValues = upperMzValues;
+    this.size = size;
+    this.precursorMz = precursorMz;
+  }
+
+  /**
+   * <p>
+   * Returns the number of peaks left after filtering.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * <p>
+   * Returns a copy of the m/z values of the peaks, in ascending order.
+   * </p>
+   *
+   * @return an array of double.
+   */
+  @Nonnull
+  public double[] getMzValues() {
+    return Arrays.copyOf(mzValues, size);
+  }
+
+  /**
+   * <p>
+   * Returns a copy of the normalized intensities of the peaks, in the order of the m/z values.
+   * </p>
+   *
+   * @return an array of double.
+   */
+  @Nonnull
+  public double[] getIntensityValues() {
+    return Arrays.copyOf(intensityValues, size);
+  }
+
+  /**
+   * <p>
+   * Returns the precursor m/z of the spectrum.
+   * </p>
+   *
+   * @return a {@link java.lang.Double} object, or null if the precursor m/z is unknown.
+   */
+  @Nullable
+  public Double getPrecursorMz() {
+    return Double.isNaN(precursorMz) ? null : precursorMz;
+  }
+
+}
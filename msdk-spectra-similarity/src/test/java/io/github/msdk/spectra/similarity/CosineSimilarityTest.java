@@ -0,0 +1,128 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.spectra.similarity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.util.tolerances.ConstantDaTolerance;
+
+public class CosineSimilarityTest {
+
+  private static final double mzValues1[] = {100.0, 150.0, 200.0, 250.0};
+  private static final float intensityValues1[] = {10f, 20f, 30f, 40f};
+
+  @Test
+  public void testIdenticalAndDisjoint() {
+    CosineSimilarity cosine = new CosineSimilarity(new ConstantDaTolerance(0.01));
+    Assert.assertEquals(1.0,
+        cosine.compareSpectra(mzValues1, intensityValues1, 4, mzValues1, intensityValues1, 4),
+        1E-9);
+
+    double mzValues2[] = {100.5, 150.5, 200.5};
+    float intensityValues2[] = {1f, 1f, 1f};
+    Assert.assertEquals(0.0,
+        cosine.compareSpectra(mzValues1, intensityValues1, 4, mzValues2, intensityValues2, 3),
+        0.0);
+    Assert.assertEquals(0.0,
+        cosine.compareSpectra(mzValues1, intensityValues1, 4, mzValues2, intensityValues2, 0),
+        0.0);
+  }
+
+  @Test
+  public void testPartialMatch() {
+    CosineSimilarity cosine = new CosineSimilarity(new ConstantDaTolerance(0.01));
+
+    // Unsorted, with one peak within the tolerance and one outside
+    double mzValues2[] = {250.005, 120.0, 150.02};
+    float intensityValues2[] = {3f, 4f, 5f};
+    double expected = (40.0 * 3.0) / Math.sqrt(10 * 10 + 20 * 20 + 30 * 30 + 40 * 40)
+        / Math.sqrt(3 * 3 + 4 * 4 + 5 * 5);
+    Assert.assertEquals(expected,
+        cosine.compareSpectra(mzValues1, intensityValues1, 4, mzValues2, intensityValues2, 3),
+        1E-9);
+
+    // Only the two most intense peaks are kept
+    CosineSimilarity topTwo = new CosineSimilarity(new ConstantDaTolerance(0.01), 2);
+    PreprocessedSpectrum spectrum = topTwo.preprocess(mzValues1, intensityValues1, 4, null);
+    Assert.assertArrayEquals(new double[] {200.0, 250.0}, spectrum.getMzValues(), 0.0);
+    Assert.assertArrayEquals(new double[] {0.6, 0.8}, spectrum.getIntensityValues(), 1E-9);
+    Assert.assertNull(spectrum.getPrecursorMz());
+  }
+
+  @Test
+  public void testZeroIntensities() {
+    CosineSimilarity cosine = new CosineSimilarity(new ConstantDaTolerance(0.01));
+    float zeroIntensityValues[] = new float[4];
+    Assert.assertEquals(0.0,
+        cosine.compareSpectra(mzValues1, intensityValues1, 4, mzValues1, zeroIntensityValues, 4),
+        0.0);
+    Assert.assertEquals(0.0, cosine.compareSpectra(mzValues1, zeroIntensityValues, 4, mzValues1,
+        zeroIntensityValues, 4), 0.0);
+
+    // The preprocessing drops the zero intensities, the scaling leaves them unchanged if not
+    double intensities[] = new double[3];
+    CosineSimilarity.scaleToUnitLength(intensities, 3);
+    Assert.assertArrayEquals(new double[3], intensities, 0.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOtherAlgorithm() {
+    CosineSimilarity cosine1 = new CosineSimilarity(new ConstantDaTolerance(0.01));
+    CosineSimilarity cosine2 = new CosineSimilarity(new ConstantDaTolerance(0.01));
+    cosine1.compare(cosine1.preprocess(mzValues1, intensityValues1, 4, null),
+        cosine2.preprocess(mzValues1, intensityValues1, 4, null));
+  }
+
+  @Test
+  public void testBatch() throws MSDKException {
+    Random random = new Random(11);
+    CosineSimilarity cosine = new CosineSimilarity(new ConstantDaTolerance(0.005), 50);
+    List<PreprocessedSpectrum> library = new ArrayList<>();
+    for (int s = 0; s < 500; s++) {
+      int size = 20 + random.nextInt(100);
+      double mzValues[] = new double[size];
+      float intensityValues[] = new float[size];
+      for (int i = 0; i < size; i++) {
+        mzValues[i] = 50.0 + Math.round(random.nextDouble() * 500.0 * 10.0) / 10.0;
+        intensityValues[i] = random.nextFloat() * 1000f;
+      }
+      library.add(cosine.preprocess(mzValues, intensityValues, size, null));
+    }
+    PreprocessedSpectrum query = library.get(42);
+
+    double scores[] = cosine.compareSpectra(query, library);
+    Assert.assertEquals(library.size(), scores.length);
+    Assert.assertEquals(1.0, scores[42], 1E-9);
+    for (int s = 0; s < library.size(); s++) {
+      Assert.assertEquals(cosine.compare(query, library.get(s)), scores[s], 0.0);
+      Assert.assertTrue((scores[s] >= 0.0) && (scores[s] <= 1.0));
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Assert.assertArrayEquals(scores, cosine.compareSpectra(query, library, pool), 0.0);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+}
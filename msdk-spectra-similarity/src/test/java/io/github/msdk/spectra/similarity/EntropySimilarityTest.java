@@ -0,0 +1,92 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.spectra.similarity;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.util.tolerances.ConstantDaTolerance;
+
+public class EntropySimilarityTest {
+
+  private static double entropy(double intensityValues[]) {
+    double entropy = 0.0;
+    for (double intensity : intensityValues)
+      if (intensity > 0.0)
+        entropy -= intensity * Math.log(intensity);
+    return entropy;
+  }
+
+  @Test
+  public void testIdenticalAndDisjoint() {
+    EntropySimilarity entropy = new EntropySimilarity(new ConstantDaTolerance(0.01));
+    double mzValues1[] = {100.0, 150.0, 200.0};
+    float intensityValues1[] = {10f, 200f, 30f};
+    Assert.assertEquals(1.0,
+        entropy.compareSpectra(mzValues1, intensityValues1, 3, mzValues1, intensityValues1, 3),
+        1E-9);
+    double mzValues2[] = {120.0, 170.0};
+    Assert.assertEquals(0.0,
+        entropy.compareSpectra(mzValues1, intensityValues1, 3, mzValues2, intensityValues1, 2),
+        1E-9);
+  }
+
+  @Test
+  public void testMergedSpectrumEntropy() {
+    // Integer m/z values, so the merged spectrum can be built by index
+    Random random = new Random(5);
+    EntropySimilarity entropy =
+        new EntropySimilarity(new ConstantDaTolerance(0.01), 0, false);
+    for (int test = 0; test < 100; test++) {
+      double a[] = new double[100], b[] = new double[100];
+      double mzValues[] = new double[100];
+      float intensityValues1[] = new float[100], intensityValues2[] = new float[100];
+      double sum1 = 0.0, sum2 = 0.0;
+      for (int i = 0; i < 100; i++) {
+        mzValues[i] = 100.0 + i;
+        intensityValues1[i] = random.nextInt(3) == 0 ? random.nextFloat() : 0f;
+        intensityValues2[i] = random.nextInt(3) == 0 ? random.nextFloat() : 0f;
+        sum1 += intensityValues1[i];
+        sum2 += intensityValues2[i];
+      }
+      double merged[] = new double[100];
+      for (int i = 0; i < 100; i++) {
+        a[i] = intensityValues1[i] / sum1;
+        b[i] = intensityValues2[i] / sum2;
+        merged[i] = (a[i] + b[i]) / 2.0;
+      }
+      double expected =
+          1.0 - (2.0 * entropy(merged) - entropy(a) - entropy(b)) / Math.log(4.0);
+      Assert.assertEquals(expected, entropy.compareSpectra(mzValues, intensityValues1, 100,
+          mzValues, intensityValues2, 100), 1E-6);
+    }
+  }
+
+  @Test
+  public void testWeighting() {
+    // A spectrum with a low entropy gets more weight on its minor peaks
+    EntropySimilarity weighted = new EntropySimilarity(new ConstantDaTolerance(0.01));
+    double mzValues[] = {100.0, 200.0};
+    float intensityValues[] = {99f, 1f};
+    PreprocessedSpectrum spectrum = weighted.preprocess(mzValues, intensityValues, 2, null);
+    double entropy = entropy(new double[] {0.99, 0.01});
+    double weight = 0.25 + 0.25 * entropy;
+    double minor = Math.pow(0.01, weight) / (Math.pow(0.01, weight) + Math.pow(0.99, weight));
+    Assert.assertEquals(minor, spectrum.getIntensityValues()[1], 1E-6);
+  }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+
+package io.github.msdk.spectra.similarity;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.util.tolerances.ConstantDaTolerance;
+import io.github.msdk.util.tolerances.MzTolerance;
+
+public class ModifiedCosineSimilarityTest {
+
+  @Test
+  public void testShiftedFragments() {
+    MzTolerance mzTolerance = new ConstantDaTolerance(0.01);
+    ModifiedCosineSimilarity modifiedCosine = new ModifiedCosineSimilarity(mzTolerance);
+    CosineSimilarity cosine = new CosineSimilarity(mzTolerance);
+
+    // The second molecule carries a +16 modification on the two heavier fragments
+    double mzValues1[] = {100.0, 150.0, 200.0, 250.0};
+    float intensityValues1[] = {10f, 20f, 30f, 40f};
+    double mzValues2[] = {100.0, 150.0, 216.0, 266.0};
+
+    PreprocessedSpectrum spectrum1 =
+        modifiedCosine.preprocess(mzValues1, intensityValues1, 4, 300.0);
+    PreprocessedSpectrum spectrum2 =
+        modifiedCosine.preprocess(mzValues2, intensityValues1, 4, 316.0);
+    Assert.assertEquals(Double.valueOf(316.0), spectrum2.getPrecursorMz());
+    Assert.assertEquals(1.0, modifiedCosine.compare(spectrum1, spectrum2), 1E-9);
+
+    // Without precursors, only the unmodified fragments match
+    double expected = cosine.compareSpectra(mzValues1, intensityValues1, 4, mzValues2,
+        intensityValues1, 4);
+    Assert.assertEquals(500.0 / 3000.0, expected, 1E-9);
+    Assert.assertEquals(expected, modifiedCosine.compareSpectra(mzValues1, intensityValues1, 4,
+        mzValues2, intensityValues1, 4), 1E-9);
+  }
+
+  @Test
+  public void testPeaksUsedOnce() {
+    ModifiedCosineSimilarity modifiedCosine =
+        new ModifiedCosineSimilarity(new ConstantDaTolerance(0.01));
+
+    // With a shift of 50, the peak at 150 matches 150 directly and 100 shifted
+    double mzValues1[] = {150.0};
+    float intensityValues1[] = {1f};
+    double mzValues2[] = {100.0, 150.0};
+    float intensityValues2[] = {3f, 4f};
+    PreprocessedSpectrum spectrum1 =
+        modifiedCosine.preprocess(mzValues1, intensityValues1, 1, 350.0);
+    PreprocessedSpectrum spectrum2 =
+        modifiedCosine.preprocess(mzValues2, intensityValues2, 2, 300.0);
+    Assert.assertEquals(0.8, modifiedCosine.compare(spectrum1, spectrum2), 1E-9);
+  }
+
+}